@@ -0,0 +1,71 @@
+package de.kyle.greenmcp;
+
+import de.kyle.greenmcp.entity.Beschluss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic fixtures for the JMH benchmarks: every run sees the same vectors and texts.
+ */
+public final class BenchmarkData {
+
+    public static final int DIMENSIONS = 1024;
+    public static final long SEED = 20240101L;
+
+    private static final String[] WORDS = {
+        "Klimaschutz", "Hamburg", "Bürgerschaft", "beschließt", "Radverkehr", "Wohnungsbau", "Mieten",
+        "Energiewende", "Senat", "Stadtteil", "Bildung", "Schulen", "Kitas", "Hafen", "Wasserstoff",
+        "öffentlichen", "Nahverkehr", "Grünflächen", "Bäume", "Quartier", "Teilhabe", "Gleichstellung",
+        "Digitalisierung", "Verwaltung", "Haushalt", "Förderung", "Maßnahmen", "umsetzen", "fordern",
+        "Landesmitgliederversammlung", "die", "der", "und", "für", "mit", "wir", "wollen", "sollen"
+    };
+
+    private BenchmarkData() {
+    }
+
+    public static float[] vector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    public static String germanText(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(i % 14 == 0 ? ". " : " ");
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.append('.').toString();
+    }
+
+    public static List<Beschluss> beschluesse(Random random, int count, int documents) {
+        List<Beschluss> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Beschluss b = new Beschluss();
+            b.setId(new UUID(random.nextLong(), random.nextLong()));
+            b.setTitle("Beschluss der Landesmitgliederversammlung " + (i % documents));
+            b.setTopic("Klimaschutz");
+            b.setFilename("beschluss-" + (i % documents) + ".pdf");
+            b.setPdfUrl("https://www.gruene-hamburg.de/beschluesse/beschluss-" + (i % documents) + ".pdf");
+            b.setChunkIndex(i / documents);
+            b.setWordCount(300);
+            b.setContent(germanText(random, 300));
+            b.setEmbedding(vector(random));
+            result.add(b);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.BenchmarkData;
+import de.kyle.greenmcp.converter.VectorConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class CsvLinesBenchmark {
+
+    private String metadataLine;
+    private String embeddingLine;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        UUID id = new UUID(random.nextLong(), random.nextLong());
+
+        metadataLine = String.join(",",
+            quote(id.toString()),
+            quote("2024-05-klimaschutz-jetzt.pdf"),
+            quote("Klimaschutz jetzt: Hamburg wird klimaneutral, sozial und gerecht"),
+            quote("Umwelt, Klima und Energie"),
+            quote("3"),
+            quote("300"),
+            quote("2024-05-11T10:00:00"));
+
+        String vector = new VectorConverter().convertToDatabaseColumn(BenchmarkData.vector(random));
+        embeddingLine = String.join(",",
+            quote(id.toString()),
+            quote("https://www.gruene-hamburg.de/beschluesse/2024-05-klimaschutz-jetzt.pdf"),
+            quote("3"),
+            quote(BenchmarkData.germanText(random, 300).replace(".", ",")),
+            quote(vector));
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    @Benchmark
+    public String[] parseCSVLine() {
+        return CsvLines.parseCSVLine(metadataLine);
+    }
+
+    @Benchmark
+    public String[] parseEmbeddingCSVLine() {
+        return CsvLines.parseEmbeddingCSVLine(embeddingLine);
+    }
+}
@@ -0,0 +1,46 @@
+package de.kyle.greenmcp.converter;
+
+import de.kyle.greenmcp.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class VectorConverterBenchmark {
+
+    private VectorConverter converter;
+    private float[] embedding;
+    private String dbData;
+
+    @Setup
+    public void setUp() {
+        converter = new VectorConverter();
+        embedding = BenchmarkData.vector(new Random(BenchmarkData.SEED));
+        dbData = converter.convertToDatabaseColumn(embedding);
+    }
+
+    @Benchmark
+    public String toDatabaseColumn() {
+        return converter.convertToDatabaseColumn(embedding);
+    }
+
+    @Benchmark
+    public float[] toEntityAttribute() {
+        return converter.convertToEntityAttribute(dbData);
+    }
+}
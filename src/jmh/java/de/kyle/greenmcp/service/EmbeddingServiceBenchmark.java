@@ -0,0 +1,40 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class EmbeddingServiceBenchmark {
+
+    private EmbeddingService embeddingService;
+    private float[] embedding;
+
+    @Setup
+    public void setUp() {
+        // The embedding model is not involved in formatting vectors
+        embeddingService = new EmbeddingService(null);
+        embedding = BenchmarkData.vector(new Random(BenchmarkData.SEED));
+    }
+
+    @Benchmark
+    public String toVectorString() {
+        return embeddingService.toVectorString(embedding);
+    }
+}
@@ -0,0 +1,58 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.BenchmarkData;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.entity.Beschluss;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ResultDiversifierBenchmark {
+
+    @Param({"20", "100"})
+    private int candidates;
+
+    private ResultDiversifier diversifier;
+    private float[] query;
+    private List<Beschluss> candidateList;
+    private Diversification mmr;
+    private Diversification capOnly;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        diversifier = new ResultDiversifier();
+        query = BenchmarkData.vector(random);
+        candidateList = BenchmarkData.beschluesse(random, candidates, 8);
+        mmr = new Diversification(0.3, null);
+        capOnly = new Diversification(0, 2);
+    }
+
+    @Benchmark
+    public List<Beschluss> mmrTop10() {
+        return diversifier.diversify(query, candidateList, 10, mmr);
+    }
+
+    @Benchmark
+    public List<Beschluss> perDocumentCapTop10() {
+        return diversifier.diversify(query, candidateList, 10, capOnly);
+    }
+}
@@ -0,0 +1,100 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.BenchmarkData;
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.ResultFragmentProperties;
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.dto.BeschlussResult;
+import de.kyle.greenmcp.dto.SearchPage;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.service.SearchMetrics;
+import de.kyle.greenmcp.service.SearchMode;
+import de.kyle.greenmcp.service.SnippetExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class BeschlussSucheToolBenchmark {
+
+    @Param({"5", "20"})
+    private int results;
+
+    private BeschlussSucheTool tool;
+    private List<Beschluss> hits;
+    private List<BeschlussResult> mapped;
+    private SearchPage page;
+    private String json;
+    private final ToolCallResultConverter converter = new DefaultToolCallResultConverter();
+    private final ResultFragmentCache fragments = new ResultFragmentCache(new ResultFragmentProperties(true, 100));
+
+    @Setup
+    public void setUp() {
+        SearchProperties properties = new SearchProperties(SearchMode.EXACT, 10, 0, 4, 100, 3000, 1000);
+        // Mapping without context expansion never calls the service
+        tool = new BeschlussSucheTool(null, new SnippetExtractor(), properties,
+            new SearchMetrics(new SimpleMeterRegistry()), new CorpusProperties("hamburg", List.of()));
+        hits = BenchmarkData.beschluesse(new Random(BenchmarkData.SEED), results, 7);
+        mapped = tool.toResults(hits, null);
+        page = new SearchPage(mapped, "dG9rZW4=");
+        json = fragments.json(page);
+    }
+
+    @Benchmark
+    public List<BeschlussResult> mapResults() {
+        return tool.toResults(hits, null);
+    }
+
+    @Benchmark
+    public List<BeschlussResult> extractSnippets() {
+        return tool.applySnippets(mapped, "Radverkehr und Klimaschutz in Hamburg", true, 3000);
+    }
+
+    @Benchmark
+    public String serializePage() {
+        return converter.convert(page, SearchPage.class);
+    }
+
+    // Every result of the page is cached, as for chunks that are returned repeatedly
+    @Benchmark
+    public String serializePageFromFragments() {
+        return fragments.json(page);
+    }
+
+    @Benchmark
+    public byte[] gzipPage() throws IOException {
+        return gzip(json);
+    }
+
+    private static byte[] gzip(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,62 @@
+package de.kyle.greenmcp.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects per-tool call latencies and summarises them as nearest-rank percentiles.
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    void record(String tool, long nanos, boolean error) {
+        samples.computeIfAbsent(tool, t -> new Samples()).add(nanos, error);
+    }
+
+    Map<String, ToolSummary> summarize(double seconds) {
+        Map<String, ToolSummary> result = new LinkedHashMap<>();
+        new TreeMap<>(samples).forEach((tool, s) -> result.put(tool, s.summarize(seconds)));
+        return result;
+    }
+
+    record ToolSummary(long calls, long errors, double throughputPerSecond,
+                       double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+
+    private static final class Samples {
+
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long value, boolean error) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized ToolSummary summarize(double seconds) {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            return new ToolSummary(size, errors, size / seconds,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                size == 0 ? 0 : sorted[size - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
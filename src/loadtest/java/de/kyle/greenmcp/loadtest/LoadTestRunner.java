@@ -0,0 +1,234 @@
+package de.kyle.greenmcp.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.kyle.greenmcp.GreenMcpApplication;
+import de.kyle.greenmcp.service.LoadingStatus;
+import de.kyle.greenmcp.service.SemanticResultCache;
+import de.kyle.greenmcp.stub.StubEmbeddingServer;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end load test: starts the server against a local Postgres and the stub embedding endpoint,
+ * then lets concurrent MCP clients call the tools over SSE and reports per-tool percentiles.
+ * <p>
+ * Needs a pgvector Postgres (e.g. {@code docker compose up -d postgres}). If no real dataset is on
+ * the classpath and the table is empty, a synthetic corpus is imported first. Clients and server
+ * share one JVM, so treat the numbers as relative rather than absolute.
+ * <p>
+ * Runs whichever variant is on the classpath; build with {@code -Dreactive} to load-test the reactive one.
+ */
+public final class LoadTestRunner {
+
+    private static final String SEARCH = "beschluesseSuchen";
+    private static final String SEARCH_IN = "inBeschlussSuchen";
+    private static final String LIST = "beschluesseListen";
+
+    private static final List<String> QUERIES = List.of(
+        "Klimaschutz in Hamburg",
+        "Ausbau des Radverkehrs",
+        "bezahlbarer Wohnungsbau und Mieten",
+        "Energiewende und Wasserstoff im Hafen",
+        "mehr Grünflächen und Bäume im Quartier",
+        "Digitalisierung der Verwaltung",
+        "Gleichstellung und Teilhabe",
+        "Schulen und Kitas stärken",
+        "öffentlicher Nahverkehr mit Bussen und Bahnen",
+        "Haushalt und Förderung von Maßnahmen"
+    );
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        try (StubEmbeddingServer stub = StubEmbeddingServer.start(settings.stubLatencyMillis(), settings.stubJitterMillis())) {
+            useSyntheticCorpusIfNoDataset(settings);
+
+            ConfigurableApplicationContext app = new SpringApplicationBuilder(GreenMcpApplication.class)
+                .properties(serverProperties(settings, stub))
+                .run(args);
+            try {
+                // The import runs in the background; tools reject calls until it is done
+                if (!app.getBean(LoadingStatus.class).await(Duration.ofMinutes(30))) {
+                    throw new IllegalStateException("Server did not become ready: " + app.getBean(LoadingStatus.class).phase());
+                }
+                int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                Map<String, LatencyRecorder.ToolSummary> summary = drive(settings, "http://localhost:" + port);
+                String variant = app.getEnvironment().matchesProfiles("reactive") ? "reactive" : "blocking";
+                report(settings, variant, summary, stub, app.getBean(SemanticResultCache.class));
+            } finally {
+                app.close();
+            }
+        }
+    }
+
+    private static void useSyntheticCorpusIfNoDataset(LoadTestSettings settings) throws Exception {
+        ClassLoader current = Thread.currentThread().getContextClassLoader();
+        if (current.getResource("data/metadata.csv") != null) {
+            return;
+        }
+        // DataLoader reads the CSVs through the context class loader
+        Path corpus = SyntheticCorpus.write(settings.corpusDocuments(), settings.chunksPerDocument(), settings.seed());
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{corpus.toUri().toURL()}, current));
+    }
+
+    private static Map<String, Object> serverProperties(LoadTestSettings settings, StubEmbeddingServer stub) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("spring.datasource.url", settings.datasourceUrl());
+        properties.put("spring.datasource.username", settings.datasourceUsername());
+        properties.put("spring.datasource.password", settings.datasourcePassword());
+        properties.put("spring.datasource.hikari.maximum-pool-size", Math.max(10, settings.clients()));
+        // Only read by the reactive variant
+        properties.put("spring.r2dbc.url", settings.datasourceUrl().replaceFirst("^jdbc:", "r2dbc:"));
+        properties.put("spring.r2dbc.pool.max-size", Math.max(10, settings.clients()));
+        properties.put("spring.ai.mistralai.base-url", stub.baseUrl());
+        properties.put("spring.ai.mistralai.api-key", "stub");
+        return properties;
+    }
+
+    private static Map<String, LatencyRecorder.ToolSummary> drive(LoadTestSettings settings, String baseUrl) throws Exception {
+        List<McpSyncClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < settings.clients(); i++) {
+                McpSyncClient client = McpClient.sync(HttpClientSseClientTransport.builder(baseUrl).sseEndpoint("/sse").build())
+                    .requestTimeout(Duration.ofSeconds(30))
+                    .build();
+                client.initialize();
+                clients.add(client);
+            }
+
+            List<String> filenames = filenames(clients.getFirst());
+            LatencyRecorder recorder = new LatencyRecorder();
+            long start = System.nanoTime();
+            long measureFrom = start + settings.warmup().toNanos();
+            long end = measureFrom + settings.duration().toNanos();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(settings.clients())) {
+                List<Future<?>> workers = new ArrayList<>();
+                for (int i = 0; i < clients.size(); i++) {
+                    McpSyncClient client = clients.get(i);
+                    Random random = new Random(settings.seed() + i);
+                    workers.add(executor.submit(() -> simulateClient(client, random, filenames, settings, recorder, measureFrom, end)));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            }
+            return recorder.summarize(settings.duration().toNanos() / 1e9);
+        } finally {
+            clients.forEach(McpSyncClient::closeGracefully);
+        }
+    }
+
+    private static void simulateClient(McpSyncClient client, Random random, List<String> filenames,
+                                       LoadTestSettings settings, LatencyRecorder recorder, long measureFrom, long end) {
+        while (System.nanoTime() < end) {
+            McpSchema.CallToolRequest request = nextRequest(random, filenames);
+            long started = System.nanoTime();
+            boolean error;
+            try {
+                error = Boolean.TRUE.equals(client.callTool(request).isError());
+            } catch (RuntimeException e) {
+                error = true;
+            }
+            long finished = System.nanoTime();
+            if (started >= measureFrom && finished <= end) {
+                recorder.record(request.name(), finished - started, error);
+            }
+            if (settings.thinkTimeMillis() > 0) {
+                try {
+                    Thread.sleep(settings.thinkTimeMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mix of roughly 60% corpus search, 30% search within one Beschluss and 10% listing.
+     */
+    private static McpSchema.CallToolRequest nextRequest(Random random, List<String> filenames) {
+        int roll = random.nextInt(10);
+        String query = QUERIES.get(random.nextInt(QUERIES.size()));
+        if (roll < 6) {
+            return new McpSchema.CallToolRequest(SEARCH, Map.of("query", query, "limit", 5));
+        }
+        if (roll < 9 && !filenames.isEmpty()) {
+            String filename = filenames.get(random.nextInt(filenames.size()));
+            return new McpSchema.CallToolRequest(SEARCH_IN, Map.of("beschlussName", filename, "query", query, "limit", 3));
+        }
+        return new McpSchema.CallToolRequest(LIST, Map.of());
+    }
+
+    private static List<String> filenames(McpSyncClient client) throws Exception {
+        McpSchema.CallToolResult result = client.callTool(new McpSchema.CallToolRequest(LIST, Map.of()));
+        if (result.content().isEmpty() || !(result.content().getFirst() instanceof McpSchema.TextContent text)) {
+            return List.of();
+        }
+        return new ObjectMapper().readValue(text.text(), new TypeReference<List<String>>() {});
+    }
+
+    private static void report(LoadTestSettings settings, String variant, Map<String, LatencyRecorder.ToolSummary> summary,
+                               StubEmbeddingServer stub, SemanticResultCache semanticResultCache) throws Exception {
+        System.out.printf("%nLoad test (%s): %d clients, %ds measured after %ds warm-up, stub latency %d±%d ms%n",
+            variant, settings.clients(), settings.duration().toSeconds(), settings.warmup().toSeconds(),
+            settings.stubLatencyMillis(), settings.stubJitterMillis());
+        System.out.printf("%-20s %8s %7s %9s %9s %9s %9s %9s%n", "tool", "calls", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        summary.forEach((tool, s) -> System.out.printf("%-20s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+            tool, s.calls(), s.errors(), s.throughputPerSecond(), s.p50Millis(), s.p95Millis(), s.p99Millis(), s.maxMillis()));
+        if (semanticResultCache.isEnabled()) {
+            System.out.printf("Semantic result cache: %.1f%% of %d lookups were hits%n",
+                semanticResultCache.hitRate() * 100, semanticResultCache.hits() + semanticResultCache.misses());
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("variant", variant);
+        json.put("settings", Map.of(
+            "clients", settings.clients(),
+            "warmupSeconds", settings.warmup().toSeconds(),
+            "durationSeconds", settings.duration().toSeconds(),
+            "thinkTimeMillis", settings.thinkTimeMillis(),
+            "stubLatencyMillis", settings.stubLatencyMillis(),
+            "stubJitterMillis", settings.stubJitterMillis(),
+            "seed", settings.seed()));
+        json.put("embeddingRequests", stub.requestCount());
+        if (semanticResultCache.isEnabled()) {
+            json.put("semanticCacheHitRate", semanticResultCache.hitRate());
+        }
+        json.put("tools", summary);
+
+        Path report = settings.report();
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), json);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+}
@@ -0,0 +1,47 @@
+package de.kyle.greenmcp.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load-test knobs, read from {@code loadtest.*} system properties (see the {@code loadtest} Maven profile).
+ */
+record LoadTestSettings(
+    int clients,
+    Duration warmup,
+    Duration duration,
+    long thinkTimeMillis,
+    long stubLatencyMillis,
+    long stubJitterMillis,
+    int corpusDocuments,
+    int chunksPerDocument,
+    long seed,
+    String datasourceUrl,
+    String datasourceUsername,
+    String datasourcePassword,
+    Path report
+) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            Integer.getInteger("loadtest.clients", 16),
+            Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 10)),
+            Duration.ofSeconds(Long.getLong("loadtest.durationSeconds", 60)),
+            Long.getLong("loadtest.thinkTimeMillis", 0),
+            Long.getLong("loadtest.stubLatencyMillis", 40),
+            Long.getLong("loadtest.stubJitterMillis", 20),
+            Integer.getInteger("loadtest.corpusDocuments", 200),
+            Integer.getInteger("loadtest.chunksPerDocument", 8),
+            Long.getLong("loadtest.seed", 42),
+            setting("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5433/greenmcp"),
+            setting("SPRING_DATASOURCE_USERNAME", "greenmcp"),
+            setting("SPRING_DATASOURCE_PASSWORD", "greenmcp"),
+            Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json"))
+        );
+    }
+
+    private static String setting(String env, String fallback) {
+        String value = System.getenv(env);
+        return value == null || value.isBlank() ? fallback : value;
+    }
+}
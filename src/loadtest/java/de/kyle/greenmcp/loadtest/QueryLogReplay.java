@@ -0,0 +1,182 @@
+package de.kyle.greenmcp.loadtest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.kyle.greenmcp.dto.QueryLogRecord;
+import de.kyle.greenmcp.service.QueryLog;
+import de.kyle.greenmcp.service.RecallCalculator;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a captured query log (see {@link QueryLog}) against a running server over SSE.
+ * <p>
+ * Calls are issued at their original offsets divided by {@code replay.speed}; a speed of 0 sends them as
+ * fast as the client pool allows. The report contains per-tool percentiles, how late calls were issued
+ * compared to the schedule and how many of the originally returned result ids came back again.
+ */
+public final class QueryLogReplay {
+
+    private QueryLogReplay() {
+    }
+
+    record Settings(Path log, String baseUrl, double speed, int clients, Path report) {
+
+        static Settings fromSystemProperties() {
+            String log = System.getProperty("replay.log", "logs/query-log.jsonl");
+            return new Settings(
+                Path.of(log),
+                System.getProperty("replay.url", "http://localhost:2228"),
+                Double.parseDouble(System.getProperty("replay.speed", "1")),
+                Integer.getInteger("replay.clients", 8),
+                Path.of(System.getProperty("replay.report", "target/replay-report.json"))
+            );
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        List<QueryLogRecord> records = read(settings.log(), objectMapper);
+        if (records.isEmpty()) {
+            System.out.println("No calls in " + settings.log().toAbsolutePath());
+            return;
+        }
+
+        BlockingQueue<McpSyncClient> pool = new ArrayBlockingQueue<>(settings.clients());
+        LatencyRecorder recorder = new LatencyRecorder();
+        AtomicLong maxLagNanos = new AtomicLong();
+        DoubleAdder resultOverlap = new DoubleAdder();
+        LongAdder compared = new LongAdder();
+        long started;
+        long finished;
+        try {
+            for (int i = 0; i < settings.clients(); i++) {
+                McpSyncClient client = McpClient.sync(HttpClientSseClientTransport.builder(settings.baseUrl()).sseEndpoint("/sse").build())
+                    .requestTimeout(Duration.ofSeconds(30))
+                    .build();
+                client.initialize();
+                pool.add(client);
+            }
+
+            long firstTimestamp = records.getFirst().timestampMillis();
+            started = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (QueryLogRecord record : records) {
+                    long due = started + offsetNanos(record.timestampMillis() - firstTimestamp, settings.speed());
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    executor.submit(() -> {
+                        McpSyncClient client = pool.take();
+                        try {
+                            maxLagNanos.accumulateAndGet(System.nanoTime() - due, Math::max);
+                            long callStart = System.nanoTime();
+                            McpSchema.CallToolResult result;
+                            try {
+                                result = client.callTool(new McpSchema.CallToolRequest(record.tool(), record.arguments()));
+                            } catch (RuntimeException e) {
+                                recorder.record(record.tool(), System.nanoTime() - callStart, true);
+                                return null;
+                            }
+                            boolean error = Boolean.TRUE.equals(result.isError());
+                            recorder.record(record.tool(), System.nanoTime() - callStart, error);
+                            if (!error && !record.error() && !record.resultIds().isEmpty()) {
+                                resultOverlap.add(RecallCalculator.recallAtK(record.resultIds(), QueryLog.resultIds(text(result))));
+                                compared.increment();
+                            }
+                            return null;
+                        } finally {
+                            pool.add(client);
+                        }
+                    });
+                }
+            }
+            finished = System.nanoTime();
+        } finally {
+            pool.forEach(McpSyncClient::closeGracefully);
+        }
+
+        double seconds = (finished - started) / 1e9;
+        Map<String, LatencyRecorder.ToolSummary> summary = recorder.summarize(seconds);
+        double overlap = compared.sum() == 0 ? 1.0 : resultOverlap.sum() / compared.sum();
+        report(settings, records.size(), seconds, maxLagNanos.get() / 1e6, overlap, summary);
+    }
+
+    static List<QueryLogRecord> read(Path log, ObjectMapper objectMapper) throws Exception {
+        List<QueryLogRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(objectMapper.readValue(line, QueryLogRecord.class));
+                }
+            }
+        }
+        records.sort(Comparator.comparingLong(QueryLogRecord::timestampMillis));
+        return records;
+    }
+
+    static long offsetNanos(long offsetMillis, double speed) {
+        return speed <= 0 ? 0 : (long) (TimeUnit.MILLISECONDS.toNanos(offsetMillis) / speed);
+    }
+
+    private static String text(McpSchema.CallToolResult result) {
+        return result.content().stream()
+            .filter(McpSchema.TextContent.class::isInstance)
+            .map(content -> ((McpSchema.TextContent) content).text())
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static void report(Settings settings, int calls, double seconds, double maxLagMillis, double overlap,
+                               Map<String, LatencyRecorder.ToolSummary> summary) throws Exception {
+        System.out.printf("%nReplay of %d calls from %s at speed %s in %.1fs, max schedule lag %.1f ms, result overlap %.3f%n",
+            calls, settings.log(), settings.speed() <= 0 ? "max" : settings.speed() + "x", seconds, maxLagMillis, overlap);
+        System.out.printf("%-20s %8s %7s %9s %9s %9s %9s %9s%n", "tool", "calls", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        summary.forEach((tool, s) -> System.out.printf("%-20s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+            tool, s.calls(), s.errors(), s.throughputPerSecond(), s.p50Millis(), s.p95Millis(), s.p99Millis(), s.maxMillis()));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("settings", Map.of(
+            "log", settings.log().toString(),
+            "url", settings.baseUrl(),
+            "speed", settings.speed(),
+            "clients", settings.clients()));
+        json.put("calls", calls);
+        json.put("durationSeconds", seconds);
+        json.put("maxScheduleLagMillis", maxLagMillis);
+        json.put("resultOverlap", overlap);
+        json.put("tools", summary);
+
+        Path report = settings.report();
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), json);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+}
@@ -0,0 +1,90 @@
+package de.kyle.greenmcp.loadtest;
+
+import de.kyle.greenmcp.stub.StubEmbeddingServer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Writes {@code data/metadata.csv} and {@code data/embeddings.csv} in the import format, with German
+ * filler text and the stub's vectors, for runs without the real dataset.
+ */
+final class SyntheticCorpus {
+
+    private static final String[] TOPICS = {
+        "Klimaschutz", "Mobilität", "Wohnen", "Bildung", "Soziales", "Wirtschaft", "Demokratie", "Umwelt"
+    };
+
+    private static final String[] WORDS = {
+        "Hamburg", "Bürgerschaft", "Senat", "Radverkehr", "Wohnungsbau", "Mieten", "Energiewende", "Stadtteil",
+        "Schulen", "Kitas", "Hafen", "Wasserstoff", "Nahverkehr", "Grünflächen", "Bäume", "Quartier", "Teilhabe",
+        "Gleichstellung", "Digitalisierung", "Verwaltung", "Haushalt", "Förderung", "Maßnahmen", "Klimaneutralität",
+        "Solarpflicht", "Fernwärme", "Busse", "Bahnen", "Sanierung", "Beteiligung", "die", "der", "und", "für",
+        "mit", "wir", "wollen", "sollen", "fordern", "setzen", "uns", "ein", "stärken", "ausbauen"
+    };
+
+    private SyntheticCorpus() {
+    }
+
+    static Path write(int documents, int chunksPerDocument, long seed) throws IOException {
+        Path root = Files.createTempDirectory("green-mcp-loadtest");
+        Path data = Files.createDirectories(root.resolve("data"));
+        Random random = new Random(seed);
+
+        try (Writer metadata = Files.newBufferedWriter(data.resolve("metadata.csv"), StandardCharsets.UTF_8);
+             Writer embeddings = Files.newBufferedWriter(data.resolve("embeddings.csv"), StandardCharsets.UTF_8)) {
+            metadata.write("\"id\",\"filename\",\"title\",\"topic\",\"sequence_number\",\"word_count\",\"created_at\"\n");
+            embeddings.write("\"id\",\"pdf_url\",\"chunk_index\",\"content\",\"embedding\"\n");
+
+            for (int d = 0; d < documents; d++) {
+                String topic = TOPICS[d % TOPICS.length];
+                String filename = String.format("lmv-%04d-%s.pdf", d, topic.toLowerCase());
+                String title = topic + ": Beschluss " + d + " der Landesmitgliederversammlung";
+                for (int c = 0; c < chunksPerDocument; c++) {
+                    UUID id = new UUID(random.nextLong(), random.nextLong());
+                    String content = text(random, topic, 250);
+                    metadata.write(csv(id.toString(), filename, title, topic, String.valueOf(c), "250",
+                        "2024-01-01T00:00:00") + "\n");
+                    embeddings.write(csv(id.toString(), "https://example.org/beschluesse/" + filename,
+                        String.valueOf(c), content, vector(StubEmbeddingServer.vectorFor(content))) + "\n");
+                }
+            }
+        }
+        return root;
+    }
+
+    private static String text(Random random, String topic, int words) {
+        StringBuilder sb = new StringBuilder(topic);
+        for (int i = 1; i < words; i++) {
+            sb.append(i % 15 == 0 ? ". " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.append('.').toString();
+    }
+
+    private static String vector(float[] values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String csv(String... values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(values[i]).append('"');
+        }
+        return sb.toString();
+    }
+}
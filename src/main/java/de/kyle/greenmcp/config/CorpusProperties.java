@@ -0,0 +1,53 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The corpora served by this instance, one list partition of {@code beschluesse} and {@code beschluss_vectors} each. Without configured
+ * sources the bundled CSV files are imported as the default corpus.
+ */
+@ConfigurationProperties(prefix = "green-mcp.corpus")
+public record CorpusProperties(
+        @DefaultValue("hamburg") String defaultName,
+        @DefaultValue List<Source> sources
+    ) {
+
+    // Names become part of partition and index names, so they are restricted to safe identifiers
+    private static final Pattern NAME = Pattern.compile("[a-z][a-z0-9_]{0,31}");
+    // Partitions of the reindex tables are named beschluesse_shadow_<corpus>, beschluss_vectors_old_<corpus> etc.
+    private static final Pattern RESERVED = Pattern.compile("(shadow|old)(_.*)?");
+
+    public CorpusProperties {
+        checkName(defaultName);
+        for (Source source : sources) {
+            checkName(source.name());
+        }
+    }
+
+    /**
+     * @param metadata   Spring resource location of the metadata CSV, e.g. {@code file:/data/bremen/metadata.csv}
+     * @param embeddings Spring resource location of the embeddings CSV
+     */
+    public record Source(String name, String metadata, String embeddings) {}
+
+    public List<Source> effectiveSources() {
+        return sources.isEmpty()
+            ? List.of(new Source(defaultName, "classpath:data/metadata.csv", "classpath:data/embeddings.csv"))
+            : sources;
+    }
+
+    public List<String> names() {
+        return effectiveSources().stream().map(Source::name).toList();
+    }
+
+    private static void checkName(String name) {
+        if (name == null || !NAME.matcher(name).matches() || RESERVED.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid corpus name '" + name
+                + "': lowercase letters, digits and underscores, starting with a letter but not with 'shadow' or 'old'");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.kyle.greenmcp.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the lines of the metadata and embeddings CSV files into their fields.
+ */
+final class CsvLines {
+
+    private CsvLines() {
+    }
+
+    static String[] parseCSVLine(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == ',' && !inQuotes) {
+                result.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                current.append(c);
+            }
+        }
+        result.add(current.toString());
+        return result.toArray(new String[0]);
+    }
+
+    static String[] parseEmbeddingCSVLine(String line) {
+        // Special handling for embedding column which contains brackets
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        boolean inBrackets = false;
+
+        for (char c : line.toCharArray()) {
+            if (c == '"' && !inBrackets) {
+                inQuotes = !inQuotes;
+            } else if (c == '[') {
+                inBrackets = true;
+                current.append(c);
+            } else if (c == ']') {
+                inBrackets = false;
+                current.append(c);
+            } else if (c == ',' && !inQuotes && !inBrackets) {
+                result.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                current.append(c);
+            }
+        }
+        result.add(current.toString());
+        return result.toArray(new String[0]);
+    }
+}
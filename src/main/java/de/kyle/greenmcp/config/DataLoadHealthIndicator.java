@@ -0,0 +1,40 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * DOWN until the background import, index build and warm-up are done, with the import progress as details.
+ * Part of the readiness group, so {@code /actuator/health/readiness} only turns UP once searches can be served.
+ */
+@Component
+@RequiredArgsConstructor
+public class DataLoadHealthIndicator implements HealthIndicator {
+
+    private final LoadingStatus loadingStatus;
+    private final ImportProgress importProgress;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = loadingStatus.isReady() ? Health.up() : Health.down();
+        builder.withDetail("phase", loadingStatus.phase().name().toLowerCase(Locale.ROOT))
+            .withDetail("import", importProgress.state().name().toLowerCase(Locale.ROOT))
+            .withDetail("importedRows", importProgress.imported())
+            .withDetail("failedRows", importProgress.failed())
+            .withDetail("rowsPerSecond", Math.round(importProgress.rowsPerSecond()))
+            .withDetail("importSeconds", Math.round(importProgress.elapsedSeconds()));
+        if (loadingStatus.isReady()) {
+            builder.withDetail("readyAfterMillis", loadingStatus.readyAfterMillis());
+        }
+        if (loadingStatus.error() != null) {
+            builder.withDetail("error", loadingStatus.error());
+        }
+        return builder.build();
+    }
+}
@@ -1,60 +1,181 @@
 package de.kyle.greenmcp.config;
 
+import de.kyle.greenmcp.converter.VectorConverter;
 import de.kyle.greenmcp.entity.Beschluss;
 import de.kyle.greenmcp.service.BeschlussService;
+import de.kyle.greenmcp.service.CorpusPartitionManager;
+import de.kyle.greenmcp.service.ImportCheckpoints;
+import de.kyle.greenmcp.service.ImportEmbedder;
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import de.kyle.greenmcp.service.NearDuplicateDetector;
+import de.kyle.greenmcp.service.SchemaMigrator;
+import de.kyle.greenmcp.service.SearchMode;
+import de.kyle.greenmcp.service.ShardRouter;
+import de.kyle.greenmcp.service.VectorIndexManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DataLoader implements ApplicationRunner {
 
+    private static final VectorConverter VECTORS = new VectorConverter();
+
     private final BeschlussService beschlussService;
+    private final SearchProperties searchProperties;
+    private final ImportProgress importProgress;
+    private final VectorIndexManager vectorIndexManager;
+    private final StartupWarmup startupWarmup;
+    private final LoadingStatus loadingStatus;
+    private final SchemaMigrator schemaMigrator;
+    private final CorpusProperties corpusProperties;
+    private final CorpusPartitionManager corpusPartitionManager;
+    private final ResourceLoader resourceLoader;
+    private final ShardRouter shardRouter;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final ImportEmbedder importEmbedder;
+    private final ImportCheckpoints importCheckpoints;
 
+    // Loading runs in the background so the server starts right away; DataLoadHealthIndicator keeps
+    // readiness DOWN and the tools answer with an "index warming" message until it is done
     @Override
-    public void run(ApplicationArguments args) throws Exception {
-        if (beschlussService.count() > 0) {
-            log.info("Database already contains data, skipping import");
-            return;
+    public void run(ApplicationArguments args) {
+        Thread.ofPlatform().name("data-loader").daemon(true).start(this::load);
+    }
+
+    void load() {
+        try {
+            loadData();
+            loadingStatus.ready();
+            log.info("Data loading finished, ready to serve searches");
+        } catch (Exception e) {
+            loadingStatus.fail(e);
+            log.error("Data loading failed, searches stay unavailable", e);
+        }
+    }
+
+    private void loadData() throws Exception {
+        loadingStatus.enter(LoadingStatus.Phase.MIGRATING);
+        schemaMigrator.migrate();
+        corpusPartitionManager.ensurePartitions();
+        for (ShardRouter.Shard shard : shardRouter.additionalShards()) {
+            schemaMigrator.migrate(shard.dataSource());
+            corpusPartitionManager.forDataSource(shard.dataSource()).ensurePartitions();
+        }
+
+        // Corpora added to the configuration are imported on the next start, the others are left alone. An
+        // interrupted import runs again: rows already inserted are skipped, checkpointed embeddings reused.
+        List<CorpusProperties.Source> missing = corpusProperties.effectiveSources().stream()
+            .filter(source -> beschlussService.count(source.name()) == 0 || importCheckpoints.isInterrupted(source.name()))
+            .toList();
+        if (missing.isEmpty()) {
+            log.info("Database already contains all corpora, skipping import");
+        } else {
+            loadingStatus.enter(LoadingStatus.Phase.IMPORTING);
+            List<String> names = missing.stream().map(CorpusProperties.Source::name).toList();
+            importCheckpoints.started(names);
+            importCsvData(missing, beschlussService::insertBeschluss);
+            importCheckpoints.completed(names);
+        }
+
+        // Sharded searches do not use centroids, which would only cover the chunks of the regular datasource
+        if (!shardRouter.isSharded() && (!missing.isEmpty() || beschlussService.countCentroids() == 0)) {
+            loadingStatus.enter(LoadingStatus.Phase.CENTROIDS);
+            int documents = beschlussService.refreshCentroids();
+            log.info("Computed centroid embeddings for {} documents", documents);
         }
 
-        log.info("Loading CSV data into database...");
+        // Built after the import, which is much faster than maintaining the graph row by row
+        loadingStatus.enter(LoadingStatus.Phase.INDEXING);
+        List<VectorIndexManager> indexManagers = new ArrayList<>(List.of(vectorIndexManager));
+        for (ShardRouter.Shard shard : shardRouter.additionalShards()) {
+            indexManagers.add(vectorIndexManager.forDataSource(shard.dataSource()));
+        }
+        for (VectorIndexManager indexManager : indexManagers) {
+            if (searchProperties.mode() == SearchMode.ANN) {
+                indexManager.ensureHnswIndexes(corpusProperties.names());
+                logIndexSize(indexManager.indexSize());
+            } else {
+                indexManager.dropHnswIndexes();
+            }
+        }
 
-        // Load metadata
-        Map<UUID, MetadataEntry> metadataMap = loadMetadata();
-        log.info("Loaded {} metadata entries", metadataMap.size());
+        if (searchProperties.recallReportSamples() > 0 && !shardRouter.isSharded()) {
+            beschlussService.evaluateTwoStageRecall(searchProperties.recallReportSamples(), 10);
+        }
 
-        // Load embeddings and insert directly with native query
-        int count = loadAndInsertEmbeddings(metadataMap);
-        log.info("Successfully imported {} Beschluesse into database", count);
+        loadingStatus.enter(LoadingStatus.Phase.WARMING);
+        startupWarmup.run();
     }
 
-    private Map<UUID, MetadataEntry> loadMetadata() throws Exception {
+    private static void logIndexSize(VectorIndexManager.IndexSize size) {
+        long saved = size.estimatedBytesWithDuplicates() - size.bytes();
+        log.info("HNSW indexes: {} KB for {} of {} chunks, {} near-duplicates left out save about {} KB ({}%)",
+            size.bytes() / 1024, size.chunks() - size.duplicates(), size.chunks(), size.duplicates(), saved / 1024,
+            size.estimatedBytesWithDuplicates() == 0 ? 0 : Math.round(100.0 * saved / size.estimatedBytesWithDuplicates()));
+    }
+
+    /**
+     * Reads the CSV files of the given corpora and hands every chunk with its embedding string to {@code sink},
+     * tracking progress in {@link ImportProgress}. Near-duplicates get their canonical chunk as
+     * {@code duplicateOf}. Also used by the reindex to fill the shadow table.
+     */
+    public int importCsvData(List<CorpusProperties.Source> sources, BiConsumer<Beschluss, String> sink) throws Exception {
+        importProgress.start();
+
+        try {
+            int count = 0;
+            for (CorpusProperties.Source source : sources) {
+                log.info("Loading CSV data of corpus {} into database...", source.name());
+                // Load metadata
+                Map<UUID, MetadataEntry> metadataMap = loadMetadata(source);
+                log.info("Loaded {} metadata entries", metadataMap.size());
+
+                // Load embeddings and insert directly into the text and vector tables with native query
+                count += loadAndInsertEmbeddings(source, metadataMap, sink);
+            }
+            importProgress.complete();
+            log.info("Successfully imported {} Beschluesse into database", count);
+            return count;
+        } catch (Exception e) {
+            importProgress.fail();
+            throw e;
+        }
+    }
+
+    private Map<UUID, MetadataEntry> loadMetadata(CorpusProperties.Source source) throws Exception {
         Map<UUID, MetadataEntry> map = new HashMap<>();
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                new ClassPathResource("data/metadata.csv").getInputStream(), StandardCharsets.UTF_8))) {
+                resourceLoader.getResource(source.metadata()).getInputStream(), StandardCharsets.UTF_8))) {
 
             String line = reader.readLine(); // Skip header
             while ((line = reader.readLine()) != null) {
-                String[] parts = parseCSVLine(line);
+                String[] parts = CsvLines.parseCSVLine(line);
                 if (parts.length >= 6) {
                     UUID id = UUID.fromString(parts[0].replace("\"", ""));
                     MetadataEntry entry = new MetadataEntry(
                         parts[1].replace("\"", ""),  // filename
                         parts[2].replace("\"", ""),  // title
                         parts[3].replace("\"", ""),  // topic
-                        Integer.parseInt(parts[5].replace("\"", ""))  // word_count
+                        Integer.parseInt(parts[5].replace("\"", "")),  // word_count
+                        parts.length >= 7 ? parseCreatedAt(parts[6].replace("\"", "")) : null  // created_at
                     );
                     map.put(id, entry);
                 }
@@ -63,27 +184,33 @@ public class DataLoader implements ApplicationRunner {
         return map;
     }
 
-    private int loadAndInsertEmbeddings(Map<UUID, MetadataEntry> metadataMap) throws Exception {
-        int count = 0;
+    private int loadAndInsertEmbeddings(CorpusProperties.Source source, Map<UUID, MetadataEntry> metadataMap,
+                                        BiConsumer<Beschluss, String> sink) throws Exception {
+        Counter count = new Counter();
+        // Clusters stay within the corpus, so corpus-filtered searches still find every passage
+        NearDuplicateDetector.Clusters clusters = nearDuplicateDetector.isEnabled() ? nearDuplicateDetector.newClusters() : null;
+        // Rows without a vector, embedded once enough of them are collected for every request in flight
+        List<Beschluss> withoutVector = new ArrayList<>();
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                new ClassPathResource("data/embeddings.csv").getInputStream(), StandardCharsets.UTF_8))) {
+                resourceLoader.getResource(source.embeddings()).getInputStream(), StandardCharsets.UTF_8))) {
 
             String line = reader.readLine(); // Skip header
             while ((line = reader.readLine()) != null) {
                 try {
-                    String[] parts = parseEmbeddingCSVLine(line);
-                    if (parts.length >= 5) {
+                    String[] parts = CsvLines.parseEmbeddingCSVLine(line);
+                    if (parts.length >= 4) {
                         UUID id = UUID.fromString(parts[0].replace("\"", ""));
                         String pdfUrl = parts[1].replace("\"", "");
                         int chunkIndex = Integer.parseInt(parts[2].replace("\"", ""));
                         String content = parts[3].replace("\"", "");
-                        String embeddingString = parts[4].replace("\"", "").trim();
+                        String embeddingString = parts.length >= 5 ? parts[4].replace("\"", "").trim() : "";
 
                         MetadataEntry meta = metadataMap.get(id);
 
                         Beschluss beschluss = new Beschluss();
                         beschluss.setId(id);
+                        beschluss.setCorpus(source.name());
                         beschluss.setPdfUrl(pdfUrl);
                         beschluss.setChunkIndex(chunkIndex);
                         beschluss.setContent(content);
@@ -93,68 +220,94 @@ public class DataLoader implements ApplicationRunner {
                             beschluss.setTitle(meta.title());
                             beschluss.setTopic(meta.topic());
                             beschluss.setWordCount(meta.wordCount());
+                            beschluss.setCreatedAt(meta.createdAt());
                         }
 
-                        beschlussService.insertBeschluss(beschluss, embeddingString);
-                        count++;
-
-                        if (count % 500 == 0) {
-                            log.info("Imported {} entries...", count);
+                        if (embeddingString.isEmpty()) {
+                            withoutVector.add(beschluss);
+                        } else {
+                            float[] embedding = clusters != null ? VECTORS.convertToEntityAttribute(embeddingString) : null;
+                            insert(beschluss, embedding, embeddingString, clusters, sink, count);
                         }
                     }
                 } catch (Exception e) {
+                    importProgress.recordFailed();
                     log.warn("Failed to parse line: {}", e.getMessage());
                 }
+                // Outside the per-line handling: a batch that cannot be embedded fails the import
+                if (withoutVector.size() >= importEmbedder.chunksPerRound()) {
+                    embedAndInsert(withoutVector, clusters, sink, count);
+                }
             }
         }
-        return count;
+        embedAndInsert(withoutVector, clusters, sink, count);
+        if (clusters != null) {
+            log.info("Corpus {}: {} of {} chunks are near-duplicates of {} canonical chunks", source.name(),
+                clusters.duplicateCount(), count.value, clusters.canonicalCount());
+        }
+        return count.value;
     }
 
-    private String[] parseCSVLine(String line) {
-        List<String> result = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (char c : line.toCharArray()) {
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                result.add(current.toString());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
+    private void embedAndInsert(List<Beschluss> chunks, NearDuplicateDetector.Clusters clusters,
+                                BiConsumer<Beschluss, String> sink, Counter count) throws InterruptedException {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        List<float[]> embeddings = importEmbedder.embed(chunks);
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                insert(chunks.get(i), embeddings.get(i), VECTORS.convertToDatabaseColumn(embeddings.get(i)), clusters, sink, count);
+            } catch (Exception e) {
+                importProgress.recordFailed();
+                log.warn("Failed to insert chunk {}: {}", chunks.get(i).getId(), e.getMessage());
             }
         }
-        result.add(current.toString());
-        return result.toArray(new String[0]);
+        chunks.clear();
     }
 
-    private String[] parseEmbeddingCSVLine(String line) {
-        // Special handling for embedding column which contains brackets
-        List<String> result = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-        boolean inBrackets = false;
-
-        for (char c : line.toCharArray()) {
-            if (c == '"' && !inBrackets) {
-                inQuotes = !inQuotes;
-            } else if (c == '[') {
-                inBrackets = true;
-                current.append(c);
-            } else if (c == ']') {
-                inBrackets = false;
-                current.append(c);
-            } else if (c == ',' && !inQuotes && !inBrackets) {
-                result.add(current.toString());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
-            }
+    private void insert(Beschluss beschluss, float[] embedding, String embeddingString, NearDuplicateDetector.Clusters clusters,
+                        BiConsumer<Beschluss, String> sink, Counter count) {
+        if (clusters != null) {
+            beschluss.setDuplicateOf(clusters.assign(beschluss.getId(), beschluss.getContent(), embedding));
         }
-        result.add(current.toString());
-        return result.toArray(new String[0]);
+
+        sink.accept(beschluss, embeddingString);
+        importProgress.recordImported();
+        count.value++;
+
+        if (count.value % 500 == 0) {
+            log.info("Imported {} entries...", count.value);
+        }
+    }
+
+    // Accepts ISO timestamps with or without offset, a space instead of the T, or a plain date
+    static LocalDateTime parseCreatedAt(String value) {
+        String trimmed = value.strip();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        String iso = trimmed.replace(' ', 'T');
+        try {
+            return LocalDateTime.parse(iso);
+        } catch (DateTimeParseException e) {
+            // Try the next format
+        }
+        try {
+            return OffsetDateTime.parse(iso).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            // Try the next format
+        }
+        try {
+            return LocalDate.parse(trimmed).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            log.warn("Ignoring unparseable created_at: {}", trimmed);
+            return null;
+        }
+    }
+
+    private static final class Counter {
+        private int value;
     }
 
-    private record MetadataEntry(String filename, String title, String topic, int wordCount) {}
+    private record MetadataEntry(String filename, String title, String topic, int wordCount, LocalDateTime createdAt) {}
 }
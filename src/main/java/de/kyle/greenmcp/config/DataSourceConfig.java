@@ -0,0 +1,54 @@
+package de.kyle.greenmcp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Separate pools for writes and searches, so a running import cannot take the connections searches need.
+ * <p>
+ * The application's {@link DataSource} hands out a connection from the write pool ({@code spring.datasource.*}),
+ * unless the transaction is read-only ({@code @Transactional(readOnly = true)}): those get one from
+ * {@link ReplicaRoutingDataSource}. The choice is made when the first statement runs, after the transaction has
+ * set the read-only flag.
+ */
+@Configuration(proxyBeanMethods = false)
+// The DataSource auto-configuration, which would register these, backs off when an R2DBC ConnectionFactory exists
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    // Imports, migrations, index builds and every statement outside a read-only transaction
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("write");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource searchDataSource(HikariDataSource writeDataSource, ReplicaProperties properties,
+                                                     MeterRegistry registry) {
+        return ReplicaRoutingDataSource.create(writeDataSource, properties, registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource, ReplicaRoutingDataSource searchDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writeDataSource);
+        dataSource.setReadOnlyDataSource(searchDataSource);
+        // Known up front, so the proxy does not open a connection to detect them while the context starts
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+}
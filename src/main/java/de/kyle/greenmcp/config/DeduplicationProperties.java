@@ -0,0 +1,19 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "green-mcp.dedup")
+public record DeduplicationProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0.98") double minCosine,
+        @DefaultValue("3") int maxHammingDistance
+    ) {
+
+    public DeduplicationProperties {
+        // Four 16-bit bands only guarantee to find every pair within three differing bits
+        if (maxHammingDistance < 0 || maxHammingDistance > 3) {
+            throw new IllegalArgumentException("green-mcp.dedup.max-hamming-distance must be between 0 and 3");
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "green-mcp.import.embedding")
+public record ImportEmbeddingProperties(
+        @DefaultValue("32") int batchSize,
+        @DefaultValue("2") int concurrency,
+        @DefaultValue("2") double requestsPerSecond,
+        @DefaultValue("5") int maxAttempts,
+        @DefaultValue("1s") Duration initialBackoff,
+        @DefaultValue("30s") Duration maxBackoff
+    ) {}
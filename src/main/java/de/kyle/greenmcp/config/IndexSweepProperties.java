@@ -0,0 +1,19 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "green-mcp.index-sweep")
+public record IndexSweepProperties(
+        @DefaultValue("200") int queries,
+        String queriesFile,
+        @DefaultValue("10") int k,
+        @DefaultValue({"8", "16", "32"}) List<Integer> hnswM,
+        @DefaultValue({"64", "128"}) List<Integer> hnswEfConstruction,
+        @DefaultValue({"20", "40", "80", "160"}) List<Integer> hnswEfSearch,
+        @DefaultValue({"50", "100", "200"}) List<Integer> ivfflatLists,
+        @DefaultValue({"1", "5", "10", "20"}) List<Integer> ivfflatProbes,
+        @DefaultValue("target/index-sweep") String output
+    ) {}
@@ -0,0 +1,72 @@
+package de.kyle.greenmcp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.kyle.greenmcp.dto.IndexSweepResult;
+import de.kyle.greenmcp.service.IndexSweep;
+import de.kyle.greenmcp.service.LoadingStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs the index parameter sweep once the background import is done, writes the results and shuts the application down.
+ * Start with {@code --spring.profiles.active=index-sweep}.
+ */
+@Component
+@Profile("index-sweep")
+@RequiredArgsConstructor
+@Slf4j
+public class IndexSweepRunner {
+
+    private final IndexSweep indexSweep;
+    private final IndexSweepProperties properties;
+    private final LoadingStatus loadingStatus;
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) throws IOException, InterruptedException {
+        int exitCode = 0;
+        try {
+            // The import runs in the background and may still be going on
+            if (!loadingStatus.await(Duration.ofHours(6))) {
+                throw new IllegalStateException("Data loading did not finish: " + loadingStatus.phase());
+            }
+            List<String> queries = indexSweep.loadQueries(properties);
+            List<IndexSweepResult> results = indexSweep.run(properties, queries);
+            write(results);
+        } catch (RuntimeException e) {
+            log.error("Index sweep failed", e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(event.getApplicationContext(), () -> code));
+    }
+
+    private void write(List<IndexSweepResult> results) throws IOException {
+        Path output = Files.createDirectories(Path.of(properties.output()));
+        Path csv = output.resolve("index-sweep.csv");
+        try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write(IndexSweepResult.CSV_HEADER);
+            writer.write('\n');
+            for (IndexSweepResult result : results) {
+                writer.write(result.toCsvRow());
+                writer.write('\n');
+            }
+        }
+        Path json = output.resolve("index-sweep.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), results);
+        log.info("Wrote {} sweep results to {} and {}", results.size(), csv.toAbsolutePath(), json.toAbsolutePath());
+    }
+}
@@ -1,18 +1,73 @@
 package de.kyle.greenmcp.config;
 
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import de.kyle.greenmcp.service.QueryLog;
+import de.kyle.greenmcp.service.SearchMetrics;
 import de.kyle.greenmcp.tool.BeschlussSucheTool;
+import de.kyle.greenmcp.tool.LoggedToolCallback;
+import de.kyle.greenmcp.tool.MeteredToolCallResultConverter;
+import de.kyle.greenmcp.tool.MeteredToolCallback;
+import de.kyle.greenmcp.tool.ReadinessGatedToolCallback;
+import de.kyle.greenmcp.tool.ResultFragmentCache;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpSyncServer;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
-import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.ai.tool.method.MethodToolCallback;
+import org.springframework.ai.tool.support.ToolDefinitions;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 public class McpServerConfig {
 
+    // Nothing references the MCP server, so with lazy initialization (fast-start) it would never be created
+    @Bean
+    public static LazyInitializationExcludeFilter mcpServerEagerInitialization() {
+        return LazyInitializationExcludeFilter.forBeanTypes(McpSyncServer.class, McpAsyncServer.class);
+    }
+
+    // Built by hand instead of MethodToolCallbackProvider so the result converter can be a metered instance
     @Bean
-    public ToolCallbackProvider beschlussSucheToolProvider(BeschlussSucheTool beschlussSucheTool) {
-        return MethodToolCallbackProvider.builder()
-            .toolObjects(beschlussSucheTool)
-            .build();
+    @Profile("!reactive")
+    public ToolCallbackProvider beschlussSucheToolProvider(BeschlussSucheTool beschlussSucheTool, SearchMetrics searchMetrics,
+                                                           QueryLog queryLog, LoadingStatus loadingStatus,
+                                                           ImportProgress importProgress,
+                                                           ResultFragmentCache resultFragmentCache) {
+        return ToolCallbackProvider.from(toolCallbacks(beschlussSucheTool, searchMetrics, queryLog, loadingStatus, importProgress,
+            resultFragmentCache));
+    }
+
+    /**
+     * The tools of {@link BeschlussSucheTool}, gated on readiness, logged and metered.
+     */
+    public static List<ToolCallback> toolCallbacks(BeschlussSucheTool beschlussSucheTool, SearchMetrics searchMetrics,
+                                                   QueryLog queryLog, LoadingStatus loadingStatus,
+                                                   ImportProgress importProgress,
+                                                   ResultFragmentCache resultFragmentCache) {
+        MeteredToolCallResultConverter converter = new MeteredToolCallResultConverter(searchMetrics, resultFragmentCache);
+        return Arrays.stream(ReflectionUtils.getDeclaredMethods(AopUtils.getTargetClass(beschlussSucheTool)))
+            .filter(method -> method.isAnnotationPresent(Tool.class))
+            .map(method -> (ToolCallback) MethodToolCallback.builder()
+                .toolDefinition(ToolDefinitions.from(method))
+                .toolMetadata(ToolMetadata.from(method))
+                .toolMethod(method)
+                .toolObject(beschlussSucheTool)
+                .toolCallResultConverter(converter)
+                .build())
+            .map(callback -> (ToolCallback) new ReadinessGatedToolCallback(callback, loadingStatus, importProgress))
+            .map(callback -> queryLog.isEnabled() ? new LoggedToolCallback(callback, queryLog) : callback)
+            .map(callback -> (ToolCallback) new MeteredToolCallback(callback, searchMetrics.tool(callback.getToolDefinition().name())))
+            .toList();
     }
 }
@@ -0,0 +1,18 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "green-mcp.query-log")
+public record QueryLogProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1.0") double sampleRate,
+        @DefaultValue("8192") int bufferSize,
+        @DefaultValue("logs/query-log.jsonl") String file,
+        @DefaultValue("50MB") DataSize maxFileSize,
+        @DefaultValue("5") int maxFiles,
+        @DefaultValue("1s") Duration flushInterval
+    ) {}
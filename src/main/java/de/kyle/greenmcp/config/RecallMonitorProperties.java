@@ -0,0 +1,10 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "green-mcp.recall-monitor")
+public record RecallMonitorProperties(
+        @DefaultValue("0") double sampleRate,
+        @DefaultValue("64") int queueCapacity
+    ) {}
@@ -0,0 +1,51 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.dto.ReindexStatus;
+import de.kyle.greenmcp.service.ReindexService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * {@code GET /actuator/reindex} shows the state of the current or last reindex,
+ * {@code POST /actuator/reindex} with {@code {"source": "csv"}} or {@code {"source": "table"}} starts one.
+ * Not exposed over HTTP unless {@code reindex} is added to {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "reindex")
+@RequiredArgsConstructor
+public class ReindexEndpoint {
+
+    private final ReindexService reindexService;
+
+    @ReadOperation
+    public ReindexStatus status() {
+        return reindexService.status();
+    }
+
+    @WriteOperation
+    public ReindexStatus start(@Nullable String source) {
+        return reindexService.start(source == null ? ReindexService.Source.CSV : parse(source));
+    }
+
+    // Actuator answers an InvalidEndpointRequestException with 400 instead of 500
+    static ReindexService.Source parse(String source) {
+        try {
+            return ReindexService.Source.valueOf(source.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            String allowed = Arrays.stream(ReindexService.Source.values())
+                .map(value -> value.name().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(", "));
+            String message = "Unknown source '" + source + "', expected one of: " + allowed;
+            throw new InvalidEndpointRequestException(message, message);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "green-mcp.reindex")
+public record ReindexProperties(
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("0.9") double minRowRatio,
+        @DefaultValue("50") int validationSamples,
+        @DefaultValue("0.9") double minRecall,
+        @DefaultValue("5s") Duration lockTimeout,
+        @DefaultValue("false") boolean keepOldTable
+    ) {}
@@ -0,0 +1,22 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas for searches. Read-only transactions use a pool of {@code searchPoolSize} connections on each
+ * replica, or on the primary when no replica is configured or within {@code maxLag}.
+ */
+@ConfigurationProperties(prefix = "green-mcp.replicas")
+public record ReplicaProperties(
+        @DefaultValue List<Datasource> datasources,
+        @DefaultValue("10") int searchPoolSize,
+        @DefaultValue("10s") Duration maxLag,
+        @DefaultValue("5s") Duration lagCheckInterval
+    ) {
+
+    public record Datasource(String url, String username, String password) {}
+}
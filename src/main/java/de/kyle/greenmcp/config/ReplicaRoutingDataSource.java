@@ -0,0 +1,180 @@
+package de.kyle.greenmcp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Connections for read-only transactions: round robin over the replicas whose replication lag is within
+ * {@code green-mcp.replicas.max-lag}, otherwise the search pool on the primary.
+ * <p>
+ * Lag is polled in the background, so picking a replica costs no query. A replica that cannot be reached counts
+ * as lagging until the next successful check, and until the first check searches stay on the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    public static final String REPLICA_LAG = "green_mcp.replica.lag";
+    public static final String REPLICA_FALLBACKS = "green_mcp.replica.fallbacks";
+
+    // An idle primary writes no WAL, so a replica that has replayed everything it received counts as current
+    static final String LAG_SQL = """
+        SELECT CASE
+            WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+            ELSE coalesce(cast(extract(epoch FROM now() - pg_last_xact_replay_timestamp()) as float8), 0)
+        END
+        """;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    // Written by the lag check thread and read by every search, as Double.doubleToLongBits
+    private final AtomicLongArray lagSeconds;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter fallbacks;
+    private ScheduledExecutorService lagChecker;
+
+    ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.lagSeconds = new AtomicLongArray(replicas.size());
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        for (int i = 0; i < replicas.size(); i++) {
+            lagSeconds.set(i, Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+            int replica = i;
+            Gauge.builder(REPLICA_LAG, () -> lag(replica))
+                .description("Replication lag of a read replica as of the last check, infinite if unreachable")
+                .baseUnit("seconds")
+                .tag("replica", Integer.toString(replica))
+                .register(registry);
+        }
+        this.fallbacks = Counter.builder(REPLICA_FALLBACKS)
+            .description("Read-only connections taken from the primary because no replica was within the maximum lag")
+            .register(registry);
+    }
+
+    /**
+     * Creates the search pools with the settings of the write pool, the number of connections aside. Pools connect on
+     * first use, so nothing touches the database while the context starts.
+     */
+    static ReplicaRoutingDataSource create(HikariDataSource writePool, ReplicaProperties properties, MeterRegistry registry) {
+        HikariDataSource primary = searchPool(writePool, "search-primary", writePool.getJdbcUrl(),
+            writePool.getUsername(), writePool.getPassword(), properties.searchPoolSize());
+        List<DataSource> replicas = new ArrayList<>();
+        for (ReplicaProperties.Datasource replica : properties.datasources()) {
+            replicas.add(searchPool(writePool, "search-replica-" + replicas.size(), replica.url(), replica.username(),
+                replica.password(), properties.searchPoolSize()));
+        }
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, properties.maxLag(), registry);
+        if (!replicas.isEmpty()) {
+            dataSource.startLagChecks(properties.lagCheckInterval());
+            log.info("Routing read-only transactions to {} replicas with at most {} lag", replicas.size(), properties.maxLag());
+        }
+        return dataSource;
+    }
+
+    private static HikariDataSource searchPool(HikariDataSource writePool, String name, String url, String username,
+                                               String password, int size) {
+        HikariDataSource pool = new HikariDataSource();
+        // Includes the connection init SQL, so hnsw.ef_search applies to searches on every pool
+        writePool.copyStateTo(pool);
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(size);
+        if (pool.getMinimumIdle() > size) {
+            pool.setMinimumIdle(size);
+        }
+        return pool;
+    }
+
+    private void startLagChecks(Duration interval) {
+        lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void checkLag() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try {
+                Double lag = new JdbcTemplate(replicas.get(i)).queryForObject(LAG_SQL, Double.class);
+                recordLag(i, lag == null ? Double.POSITIVE_INFINITY : lag);
+            } catch (DataAccessException e) {
+                recordLag(i, Double.POSITIVE_INFINITY);
+                log.debug("Lag check of replica {} failed: {}", i, e.getMessage());
+            }
+        }
+    }
+
+    void recordLag(int replica, double seconds) {
+        double previous = Double.longBitsToDouble(lagSeconds.getAndSet(replica, Double.doubleToLongBits(seconds)));
+        boolean wasCurrent = previous <= maxLagSeconds;
+        if (wasCurrent && seconds > maxLagSeconds) {
+            log.warn("Replica {} lags {} s behind the primary, searching elsewhere until it catches up", replica, seconds);
+        }
+    }
+
+    private double lag(int replica) {
+        return Double.longBitsToDouble(lagSeconds.get(replica));
+    }
+
+    DataSource route() {
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (lag(replica) <= maxLagSeconds) {
+                return replicas.get(replica);
+            }
+        }
+        if (!replicas.isEmpty()) {
+            fallbacks.increment();
+        }
+        return primary;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route().getConnection(username, password);
+    }
+
+    @Override
+    public void destroy() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        List<DataSource> pools = new ArrayList<>(replicas);
+        pools.add(primary);
+        for (DataSource pool : pools) {
+            if (pool instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
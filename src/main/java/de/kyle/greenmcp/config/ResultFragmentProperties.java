@@ -0,0 +1,17 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "green-mcp.result-fragments")
+public record ResultFragmentProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("2000") int size
+    ) {
+
+    public ResultFragmentProperties {
+        if (size < 1) {
+            throw new IllegalArgumentException("green-mcp.result-fragments.size must be positive");
+        }
+    }
+}
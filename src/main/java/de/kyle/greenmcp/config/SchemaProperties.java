@@ -0,0 +1,9 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "green-mcp.schema")
+public record SchemaProperties(
+        @DefaultValue("true") boolean flyway
+    ) {}
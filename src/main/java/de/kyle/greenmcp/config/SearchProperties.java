@@ -0,0 +1,16 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.service.SearchMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "green-mcp.search")
+public record SearchProperties(
+        @DefaultValue("exact") SearchMode mode,
+        @DefaultValue("10") int twoStageDocuments,
+        @DefaultValue("0") int recallReportSamples,
+        @DefaultValue("4") int diversityOverfetch,
+        @DefaultValue("100") int maxCandidates,
+        @DefaultValue("3000") int snippetBudget,
+        @DefaultValue("1000") int queryCacheSize
+    ) {}
@@ -0,0 +1,24 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "green-mcp.semantic-cache")
+public record SemanticCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.05") double maxDistance,
+        @DefaultValue("500") int size,
+        @DefaultValue("10m") Duration ttl
+    ) {
+
+    public SemanticCacheProperties {
+        if (maxDistance < 0 || maxDistance >= 1) {
+            throw new IllegalArgumentException("green-mcp.semantic-cache.max-distance must be at least 0 and below 1");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("green-mcp.semantic-cache.size must be positive");
+        }
+    }
+}
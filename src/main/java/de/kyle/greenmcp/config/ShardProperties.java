@@ -0,0 +1,22 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Additional PostgreSQL instances holding a share of the chunks. The regular datasource is shard 0; without
+ * additional datasources nothing is sharded.
+ *
+ * @param timeout how long a search waits for the shards before merging the results of those that answered
+ */
+@ConfigurationProperties(prefix = "green-mcp.shards")
+public record ShardProperties(
+        @DefaultValue List<Datasource> datasources,
+        @DefaultValue("2s") Duration timeout
+    ) {
+
+    public record Datasource(String url, String username, String password) {}
+}
@@ -0,0 +1,200 @@
+package de.kyle.greenmcp.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.kyle.greenmcp.dto.QueryLogRecord;
+import de.kyle.greenmcp.service.QueryEmbeddingCache;
+import de.kyle.greenmcp.tool.BeschlussSucheTool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warms the instance up after the import and before it reports ready.
+ * <p>
+ * Loads the vector table, its TOAST data and its indexes into the shared buffers with {@code pg_prewarm}, along
+ * with the indexes of the text table, whose rows are only read for the final results. Then it seeds the
+ * query embedding cache with the most frequent calls of the query log and then replays those calls through
+ * {@link BeschlussSucheTool} a few times, so that the search paths are compiled by the JIT before the first
+ * real request. Every step stops when the time budget is used up, and failures only skip the step.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupWarmup {
+
+    private static final String SEARCH = "beschluesseSuchen";
+    private static final String SEARCH_IN = "inBeschlussSuchen";
+
+    // Heap, TOAST (the embeddings are stored out of line) and all indexes of the vector partitions and the
+    // centroid table, plus the indexes of the text partitions; the partitioned parents have no storage
+    private static final String RELATIONS_SQL = """
+        WITH tables AS (
+            SELECT relid AS oid FROM pg_partition_tree(to_regclass('beschluss_vectors')) WHERE isleaf
+            UNION ALL
+            SELECT to_regclass('beschluss_centroids')
+        ), text_tables AS (
+            SELECT relid AS oid FROM pg_partition_tree(to_regclass('beschluesse')) WHERE isleaf
+        )
+        SELECT cast(t.oid as regclass)::text FROM tables t
+        UNION ALL
+        SELECT cast(c.reltoastrelid as regclass)::text FROM pg_class c JOIN tables t ON c.oid = t.oid
+        WHERE c.reltoastrelid <> 0
+        UNION ALL
+        SELECT cast(i.indexrelid as regclass)::text FROM pg_index i
+        WHERE i.indrelid IN (SELECT oid FROM tables UNION ALL SELECT oid FROM text_tables)
+        """;
+
+    private final WarmupProperties properties;
+    private final QueryLogProperties queryLogProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final BeschlussSucheTool beschlussSucheTool;
+
+    public void run() {
+        if (!properties.enabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + properties.budget().toNanos();
+
+        long blocks = properties.prewarm() ? prewarm(deadline) : 0;
+        List<QueryLogRecord> calls = frequentCalls(readRecentCalls(), properties.queries());
+        calls.forEach(call -> queryEmbeddingCache.put(call.query(), call.embedding()));
+
+        int replayed = 0;
+        for (int round = 0; round < properties.rounds() && System.nanoTime() < deadline; round++) {
+            replayed += replay(calls, deadline);
+        }
+        log.info("Warm-up finished in {} ms: {} buffer blocks prewarmed, {} cached queries, {} calls replayed",
+            (System.nanoTime() - start) / 1_000_000, blocks, calls.size(), replayed);
+    }
+
+    private long prewarm(long deadline) {
+        long blocks = 0;
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_prewarm");
+            for (String relation : jdbcTemplate.queryForList(RELATIONS_SQL, String.class)) {
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+                Long loaded = jdbcTemplate.queryForObject("SELECT pg_prewarm(cast(? as regclass))", Long.class, relation);
+                log.debug("Prewarmed {} blocks of {}", loaded, relation);
+                blocks += loaded == null ? 0 : loaded;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Skipping buffer prewarming: {}", e.getMessage());
+        }
+        return blocks;
+    }
+
+    private int replay(List<QueryLogRecord> calls, long deadline) {
+        int replayed = 0;
+        for (QueryLogRecord call : calls) {
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+            try {
+                execute(call);
+                replayed++;
+            } catch (RuntimeException e) {
+                log.debug("Warm-up call {} failed: {}", call.arguments(), e.getMessage());
+            }
+        }
+        if (System.nanoTime() < deadline) {
+            beschlussSucheTool.beschluesseListen(null);
+        }
+        return replayed;
+    }
+
+    private void execute(QueryLogRecord call) {
+        Map<String, Object> args = call.arguments();
+        if (SEARCH.equals(call.tool())) {
+            beschlussSucheTool.beschluesseSuchen(call.query(), integer(args.get("limit")), integer(args.get("context")),
+                number(args.get("diversitaet")), integer(args.get("maxProBeschluss")), bool(args.get("kompakt")),
+                integer(args.get("zeichenBudget")), null, (String) args.get("thema"), (String) args.get("von"),
+                (String) args.get("bis"), (String) args.get("korpus"));
+        } else {
+            beschlussSucheTool.inBeschlussSuchen((String) args.get("beschlussName"), call.query(), integer(args.get("limit")),
+                integer(args.get("context")), bool(args.get("kompakt")), integer(args.get("zeichenBudget")), null,
+                (String) args.get("korpus"));
+        }
+    }
+
+    private List<QueryLogRecord> readRecentCalls() {
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        List<QueryLogRecord> records = new ArrayList<>();
+        // Newest file first, rolled over files have increasing suffixes
+        Path file = Path.of(queryLogProperties.file());
+        for (int i = 0; i <= queryLogProperties.maxFiles() && records.size() < properties.recentCalls(); i++) {
+            Path path = i == 0 ? file : file.resolveSibling(file.getFileName() + "." + i);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            List<QueryLogRecord> fileRecords = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        fileRecords.add(objectMapper.readValue(line, QueryLogRecord.class));
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not read query log {}: {}", path, e.getMessage());
+                continue;
+            }
+            // Keep the most recent entries of each file
+            int from = Math.max(0, fileRecords.size() - (properties.recentCalls() - records.size()));
+            records.addAll(fileRecords.subList(from, fileRecords.size()));
+        }
+        return records;
+    }
+
+    /**
+     * The {@code limit} most frequent searches with a logged embedding, most frequent first. Continuations and
+     * calls whose embedding is unknown are left out, so the warm-up never calls the embedding API.
+     */
+    static List<QueryLogRecord> frequentCalls(List<QueryLogRecord> records, int limit) {
+        Map<List<Object>, Integer> counts = new HashMap<>();
+        Map<List<Object>, QueryLogRecord> latest = new LinkedHashMap<>();
+        for (QueryLogRecord record : records) {
+            if (!(SEARCH.equals(record.tool()) || SEARCH_IN.equals(record.tool())) || record.error() || record.arguments() == null
+                    || record.query() == null || record.embedding() == null || record.arguments().containsKey("fortsetzung")) {
+                continue;
+            }
+            List<Object> key = List.of(record.tool(), record.arguments());
+            counts.merge(key, 1, Integer::sum);
+            latest.merge(key, record, (a, b) -> b.timestampMillis() >= a.timestampMillis() ? b : a);
+        }
+        return latest.entrySet().stream()
+            .sorted(Comparator.comparing((Map.Entry<List<Object>, QueryLogRecord> e) -> counts.get(e.getKey())).reversed())
+            .limit(Math.max(0, limit))
+            .map(Map.Entry::getValue)
+            .toList();
+    }
+
+    private static Integer integer(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    private static Boolean bool(Object value) {
+        return value instanceof Boolean b ? b : null;
+    }
+}
@@ -0,0 +1,12 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "green-mcp.index")
+public record VectorIndexProperties(
+        @DefaultValue("16") int hnswM,
+        @DefaultValue("64") int hnswEfConstruction,
+        @DefaultValue("40") int hnswEfSearch,
+        @DefaultValue("relaxed_order") String hnswIterativeScan
+    ) {}
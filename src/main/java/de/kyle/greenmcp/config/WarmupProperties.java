@@ -0,0 +1,16 @@
+package de.kyle.greenmcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "green-mcp.warmup")
+public record WarmupProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30s") Duration budget,
+        @DefaultValue("true") boolean prewarm,
+        @DefaultValue("100") int queries,
+        @DefaultValue("10000") int recentCalls,
+        @DefaultValue("3") int rounds
+    ) {}
@@ -1,9 +1,20 @@
 package de.kyle.greenmcp.dto;
 
+import java.util.UUID;
+
 public record BeschlussResult(
         String title,
         String topic,
         String content,
         String pdfUrl,
-        String filename
-    ) {}
\ No newline at end of file
+        String filename,
+        String corpus,
+        Integer firstChunk,
+        Integer lastChunk,
+        UUID id
+    ) {
+
+    public BeschlussResult withContent(String content) {
+        return new BeschlussResult(title, topic, content, pdfUrl, filename, corpus, firstChunk, lastChunk, id);
+    }
+}
@@ -0,0 +1,13 @@
+package de.kyle.greenmcp.dto;
+
+public record Diversification(
+        double diversity,
+        Integer maxPerDocument
+    ) {
+
+    public static final Diversification NONE = new Diversification(0, null);
+
+    public boolean isActive() {
+        return diversity > 0 || maxPerDocument != null;
+    }
+}
@@ -0,0 +1,48 @@
+package de.kyle.greenmcp.dto;
+
+import java.util.Locale;
+
+public record IndexSweepResult(
+        String indexType,
+        Integer m,
+        Integer efConstruction,
+        Integer lists,
+        Integer efSearch,
+        Integer probes,
+        long buildMillis,
+        long indexBytes,
+        int queries,
+        int k,
+        double meanRecall,
+        double minRecall,
+        double p50Millis,
+        double p95Millis,
+        double p99Millis
+    ) {
+
+    public static final String CSV_HEADER =
+        "index_type,m,ef_construction,lists,ef_search,probes,build_ms,index_bytes,queries,k,recall_mean,recall_min,p50_ms,p95_ms,p99_ms";
+
+    public String toCsvRow() {
+        return String.join(",",
+            indexType,
+            blankIfNull(m),
+            blankIfNull(efConstruction),
+            blankIfNull(lists),
+            blankIfNull(efSearch),
+            blankIfNull(probes),
+            Long.toString(buildMillis),
+            Long.toString(indexBytes),
+            Integer.toString(queries),
+            Integer.toString(k),
+            String.format(Locale.ROOT, "%.4f", meanRecall),
+            String.format(Locale.ROOT, "%.4f", minRecall),
+            String.format(Locale.ROOT, "%.3f", p50Millis),
+            String.format(Locale.ROOT, "%.3f", p95Millis),
+            String.format(Locale.ROOT, "%.3f", p99Millis));
+    }
+
+    private static String blankIfNull(Integer value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package de.kyle.greenmcp.dto;
+
+import de.kyle.greenmcp.entity.Beschluss;
+
+import java.util.List;
+
+public record Passage(
+        Beschluss hit,
+        List<Beschluss> chunks
+    ) {}
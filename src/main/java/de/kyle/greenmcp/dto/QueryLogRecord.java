@@ -0,0 +1,15 @@
+package de.kyle.greenmcp.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record QueryLogRecord(
+        long timestampMillis,
+        String tool,
+        Map<String, Object> arguments,
+        String query,
+        float[] embedding,
+        double latencyMillis,
+        List<String> resultIds,
+        boolean error
+    ) {}
@@ -0,0 +1,9 @@
+package de.kyle.greenmcp.dto;
+
+public record RecallReport(
+        int samples,
+        int k,
+        int candidateDocuments,
+        double meanRecall,
+        double minRecall
+    ) {}
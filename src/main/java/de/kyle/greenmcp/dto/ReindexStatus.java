@@ -0,0 +1,29 @@
+package de.kyle.greenmcp.dto;
+
+import java.time.Instant;
+
+public record ReindexStatus(
+        String phase,
+        String source,
+        Instant startedAt,
+        Instant finishedAt,
+        Long liveRows,
+        Long shadowRows,
+        Double sampleRecall,
+        String message
+    ) {
+
+    public static final ReindexStatus IDLE = new ReindexStatus("idle", null, null, null, null, null, null, null);
+
+    public ReindexStatus withPhase(String phase) {
+        return new ReindexStatus(phase, source, startedAt, finishedAt, liveRows, shadowRows, sampleRecall, message);
+    }
+
+    public ReindexStatus withValidation(long liveRows, long shadowRows, double sampleRecall) {
+        return new ReindexStatus(phase, source, startedAt, finishedAt, liveRows, shadowRows, sampleRecall, message);
+    }
+
+    public ReindexStatus finished(String phase, String message) {
+        return new ReindexStatus(phase, source, startedAt, Instant.now(), liveRows, shadowRows, sampleRecall, message);
+    }
+}
@@ -0,0 +1,31 @@
+package de.kyle.greenmcp.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public record SearchFilter(
+        String corpus,
+        String topic,
+        LocalDate from,
+        LocalDate to
+    ) {
+
+    public static final SearchFilter NONE = new SearchFilter(null, null, null, null);
+
+    public static SearchFilter corpus(String corpus) {
+        return new SearchFilter(corpus, null, null, null);
+    }
+
+    public boolean isActive() {
+        return corpus != null || topic != null || from != null || to != null;
+    }
+
+    public LocalDateTime createdFrom() {
+        return from == null ? null : from.atStartOfDay();
+    }
+
+    // The end date is inclusive, so the range ends at the start of the following day
+    public LocalDateTime createdBefore() {
+        return to == null ? null : to.plusDays(1).atStartOfDay();
+    }
+}
@@ -0,0 +1,8 @@
+package de.kyle.greenmcp.dto;
+
+import java.util.List;
+
+public record SearchPage(
+        List<BeschlussResult> results,
+        String continuation
+    ) {}
@@ -7,10 +7,19 @@ import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
+// The embedding lives in the narrow vector table, which also repeats the filter columns, see CorpusPartitionManager
 @Entity
-@Table(name = "beschluesse")
+@Table(name = "beschluesse", indexes = {
+    @Index(name = "idx_beschluesse_filename_chunk", columnList = "filename, chunk_index")
+})
+@SecondaryTable(name = "beschluss_vectors", pkJoinColumns = {
+    @PrimaryKeyJoinColumn(name = "id", referencedColumnName = "id"),
+    @PrimaryKeyJoinColumn(name = "corpus", referencedColumnName = "corpus")
+}, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+@IdClass(BeschlussId.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,6 +29,10 @@ public class Beschluss {
     @Id
     private UUID id;
 
+    // Partition key of beschluesse and part of the primary key, see CorpusPartitionManager
+    @Id
+    private String corpus;
+
     @Column(name = "pdf_url")
     private String pdfUrl;
 
@@ -38,7 +51,14 @@ public class Beschluss {
     @Column(name = "word_count")
     private Integer wordCount;
 
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
     @Convert(converter = VectorConverter.class)
-    @Column(columnDefinition = "vector(1024)")
+    @Column(table = "beschluss_vectors", columnDefinition = "vector(1024)")
     private float[] embedding;
+
+    // Canonical chunk of this near-duplicate, see NearDuplicateDetector; null for canonical chunks
+    @Column(name = "duplicate_of")
+    private UUID duplicateOf;
 }
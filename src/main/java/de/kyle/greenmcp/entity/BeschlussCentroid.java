@@ -0,0 +1,27 @@
+package de.kyle.greenmcp.entity;
+
+import de.kyle.greenmcp.converter.VectorConverter;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Entity
+@Table(name = "beschluss_centroids")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeschlussCentroid {
+
+    @Id
+    private String filename;
+
+    @Column(name = "chunk_count")
+    private Integer chunkCount;
+
+    @Convert(converter = VectorConverter.class)
+    @Column(columnDefinition = "vector(1024)")
+    private float[] embedding;
+}
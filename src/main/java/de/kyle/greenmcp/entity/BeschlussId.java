@@ -0,0 +1,19 @@
+package de.kyle.greenmcp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+// Primary key of Beschluss; a chunk id is only unique within its corpus partition
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeschlussId implements Serializable {
+
+    private UUID id;
+
+    private String corpus;
+}
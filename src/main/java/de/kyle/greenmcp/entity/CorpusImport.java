@@ -0,0 +1,28 @@
+package de.kyle.greenmcp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Import state of a corpus; a row without completed_at marks an import that was interrupted
+@Entity
+@Table(name = "corpus_imports")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorpusImport {
+
+    @Id
+    private String corpus;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
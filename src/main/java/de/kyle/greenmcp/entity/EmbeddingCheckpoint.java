@@ -0,0 +1,31 @@
+package de.kyle.greenmcp.entity;
+
+import de.kyle.greenmcp.converter.VectorConverter;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.UUID;
+
+// Embedding computed during an import for a chunk that came without one, see ImportEmbedder
+@Entity
+@Table(name = "embedding_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingCheckpoint {
+
+    @Id
+    private UUID id;
+
+    // SHA-256 of the embedded text, so edited chunks are embedded again
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Convert(converter = VectorConverter.class)
+    @Column(columnDefinition = "vector(1024)")
+    private float[] embedding;
+}
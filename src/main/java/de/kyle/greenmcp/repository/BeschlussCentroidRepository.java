@@ -0,0 +1,26 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.entity.BeschlussCentroid;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BeschlussCentroidRepository extends JpaRepository<BeschlussCentroid, String> {
+
+    @Modifying
+    @Query(value = "DELETE FROM beschluss_centroids", nativeQuery = true)
+    void deleteAllCentroids();
+
+    // Mistral embeddings are unit length, so the plain mean points in the same direction as the normalized one
+    @Modifying
+    @Query(value = """
+        INSERT INTO beschluss_centroids (filename, chunk_count, embedding)
+        SELECT filename, count(*), avg(embedding)
+        FROM beschluss_vectors
+        WHERE filename IS NOT NULL
+        GROUP BY filename
+        """, nativeQuery = true)
+    int insertCentroidsFromBeschluesse();
+}
@@ -1,50 +1,248 @@
 package de.kyle.greenmcp.repository;
 
 import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.entity.BeschlussId;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface BeschlussRepository extends JpaRepository<Beschluss, UUID> {
+public interface BeschlussRepository extends JpaRepository<Beschluss, BeschlussId>, BeschlussRepositoryCustom {
 
+    // Searches rank the narrow vector table and only join the text of the final rows. The outer query re-sorts
+    // by the distance of the inner one, since the join does not keep its order. Ids are only unique per corpus, so
+    // ties are broken by (id, corpus); the byte order of COLLATE "C" keeps that independent of the database locale.
     @Query(value = """
-        SELECT * FROM beschluesse
-        ORDER BY embedding <=> cast(:embedding as vector)
-        LIMIT :limit
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE duplicate_of IS NULL
+            ORDER BY distance, id, corpus COLLATE "C"
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
         """, nativeQuery = true)
     List<Beschluss> findByEmbeddingSimilarity(
         @Param("embedding") String embedding,
         @Param("limit") int limit
     );
 
+    // PostgreSQL 16 only uses a vector index when the distance is the sole sort key, so the id tie-break
+    // is applied to the nearest rows afterwards. The HNSW indexes only cover canonical chunks (duplicate_of IS NULL).
+    @Query(value = """
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE duplicate_of IS NULL
+            ORDER BY distance
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
+        """, nativeQuery = true)
+    List<Beschluss> findByEmbeddingSimilarityApproximate(
+        @Param("embedding") String embedding,
+        @Param("limit") int limit
+    );
+
     @Query(value = """
-        SELECT * FROM beschluesse
-        WHERE filename ILIKE :filename
-        ORDER BY embedding <=> cast(:embedding as vector)
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE filename IN (
+                SELECT filename FROM beschluss_centroids
+                ORDER BY embedding <=> cast(:embedding as vector)
+                LIMIT :documents
+            )
+            AND duplicate_of IS NULL
+            ORDER BY distance, id, corpus COLLATE "C"
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
+        """, nativeQuery = true)
+    List<Beschluss> findByEmbeddingSimilarityInTopDocuments(
+        @Param("embedding") String embedding,
+        @Param("documents") int documents,
+        @Param("limit") int limit
+    );
+
+    // Keyset continuation: the distance of the last row is re-derived in the same statement,
+    // so it compares bit-identical to the ORDER BY expression. The row is looked up by its whole primary key,
+    // since the same id can occur in several corpora
+    @Query(value = """
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE duplicate_of IS NULL
+            AND (embedding <=> cast(:embedding as vector), id, corpus COLLATE "C") > (
+                (SELECT embedding <=> cast(:embedding as vector) FROM beschluss_vectors WHERE id = :lastId AND corpus = :lastCorpus),
+                :lastId,
+                :lastCorpus
+            )
+            ORDER BY distance, id, corpus COLLATE "C"
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
+        """, nativeQuery = true)
+    List<Beschluss> findByEmbeddingSimilarityAfter(
+        @Param("embedding") String embedding,
+        @Param("lastId") UUID lastId,
+        @Param("lastCorpus") String lastCorpus,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE filename IN (
+                SELECT filename FROM beschluss_centroids
+                ORDER BY embedding <=> cast(:embedding as vector)
+                LIMIT :documents
+            )
+            AND duplicate_of IS NULL
+            AND (embedding <=> cast(:embedding as vector), id, corpus COLLATE "C") > (
+                (SELECT embedding <=> cast(:embedding as vector) FROM beschluss_vectors WHERE id = :lastId AND corpus = :lastCorpus),
+                :lastId,
+                :lastCorpus
+            )
+            ORDER BY distance, id, corpus COLLATE "C"
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
+        """, nativeQuery = true)
+    List<Beschluss> findByEmbeddingSimilarityInTopDocumentsAfter(
+        @Param("embedding") String embedding,
+        @Param("documents") int documents,
+        @Param("lastId") UUID lastId,
+        @Param("lastCorpus") String lastCorpus,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT id, corpus FROM beschluss_vectors
+        WHERE duplicate_of IS NULL
+        ORDER BY embedding <=> cast(:embedding as vector), id, corpus COLLATE "C"
         LIMIT :limit
         """, nativeQuery = true)
+    List<ChunkKey> findKeysByEmbeddingSimilarity(
+        @Param("embedding") String embedding,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT id, corpus FROM beschluss_vectors
+        WHERE filename IN (
+            SELECT filename FROM beschluss_centroids
+            ORDER BY embedding <=> cast(:embedding as vector)
+            LIMIT :documents
+        )
+        AND duplicate_of IS NULL
+        ORDER BY embedding <=> cast(:embedding as vector), id, corpus COLLATE "C"
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<ChunkKey> findKeysByEmbeddingSimilarityInTopDocuments(
+        @Param("embedding") String embedding,
+        @Param("documents") int documents,
+        @Param("limit") int limit
+    );
+
+    @Query(value = "SELECT set_config('enable_indexscan', 'off', true)", nativeQuery = true)
+    String disableIndexScans();
+
+    @Query(value = """
+        SELECT cast(embedding as text) FROM beschluss_vectors
+        ORDER BY random()
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<String> findRandomEmbeddings(@Param("limit") int limit);
+
+    @Query(value = """
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE filename ILIKE :filename
+            ORDER BY distance, id, corpus COLLATE "C"
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
+        """, nativeQuery = true)
     List<Beschluss> findByFilenameAndEmbeddingSimilarity(
         @Param("filename") String filename,
         @Param("embedding") String embedding,
         @Param("limit") int limit
     );
 
+    @Query(value = """
+        SELECT b.*, v.embedding FROM (
+            SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors
+            WHERE filename ILIKE :filename
+            AND (embedding <=> cast(:embedding as vector), id, corpus COLLATE "C") > (
+                (SELECT embedding <=> cast(:embedding as vector) FROM beschluss_vectors WHERE id = :lastId AND corpus = :lastCorpus),
+                :lastId,
+                :lastCorpus
+            )
+            ORDER BY distance, id, corpus COLLATE "C"
+            LIMIT :limit
+        ) v
+        JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus
+        ORDER BY v.distance, v.id, v.corpus COLLATE "C"
+        """, nativeQuery = true)
+    List<Beschluss> findByFilenameAndEmbeddingSimilarityAfter(
+        @Param("filename") String filename,
+        @Param("embedding") String embedding,
+        @Param("lastId") UUID lastId,
+        @Param("lastCorpus") String lastCorpus,
+        @Param("limit") int limit
+    );
+
+    @Query(value = """
+        SELECT b.*, v.embedding FROM beschluesse b
+        JOIN unnest(cast(:corpora as text[]), cast(:filenames as text[]), cast(:fromIndexes as int[]), cast(:toIndexes as int[]))
+            AS w(corpus, filename, from_index, to_index)
+            ON b.corpus = w.corpus AND b.filename = w.filename AND b.chunk_index BETWEEN w.from_index AND w.to_index
+        LEFT JOIN beschluss_vectors v ON v.id = b.id AND v.corpus = b.corpus
+        ORDER BY b.corpus, b.filename, b.chunk_index
+        """, nativeQuery = true)
+    List<Beschluss> findChunksInWindows(
+        @Param("corpora") String[] corpora,
+        @Param("filenames") String[] filenames,
+        @Param("fromIndexes") Integer[] fromIndexes,
+        @Param("toIndexes") Integer[] toIndexes
+    );
+
+    // A chunk id alone can match one row per corpus
+    List<Beschluss> findByIdOrderByCorpus(UUID id);
+
     @Query("SELECT DISTINCT b.filename FROM Beschluss b ORDER BY b.filename")
     List<String> findAllFilenames();
 
+    @Query("SELECT DISTINCT b.filename FROM Beschluss b WHERE b.corpus = :corpus ORDER BY b.filename")
+    List<String> findFilenamesByCorpus(@Param("corpus") String corpus);
+
+    long countByCorpus(String corpus);
+
+    // Rows inserted before an import was interrupted are skipped when it resumes. Both tables are written by one
+    // statement, so a chunk never has its text without its vector.
     @Modifying
     @Query(value = """
-        INSERT INTO beschluesse (id, pdf_url, chunk_index, content, title, topic, filename, word_count, embedding)
-        VALUES (:id, :pdfUrl, :chunkIndex, :content, :title, :topic, :filename, :wordCount, cast(:embedding as vector))
+        WITH chunk AS (
+            INSERT INTO beschluesse (id, corpus, pdf_url, chunk_index, content, title, topic, filename, word_count, created_at, duplicate_of)
+            VALUES (:id, :corpus, :pdfUrl, :chunkIndex, :content, :title, :topic, :filename, :wordCount, :createdAt, :duplicateOf)
+            ON CONFLICT DO NOTHING
+        )
+        INSERT INTO beschluss_vectors (id, corpus, filename, topic, created_at, duplicate_of, embedding)
+        VALUES (:id, :corpus, :filename, :topic, :createdAt, :duplicateOf, cast(:embedding as vector))
+        ON CONFLICT DO NOTHING
         """, nativeQuery = true)
     void insertWithEmbedding(
         @Param("id") UUID id,
+        @Param("corpus") String corpus,
         @Param("pdfUrl") String pdfUrl,
         @Param("chunkIndex") Integer chunkIndex,
         @Param("content") String content,
@@ -52,6 +250,8 @@ public interface BeschlussRepository extends JpaRepository<Beschluss, UUID> {
         @Param("topic") String topic,
         @Param("filename") String filename,
         @Param("wordCount") Integer wordCount,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("duplicateOf") UUID duplicateOf,
         @Param("embedding") String embedding
     );
 }
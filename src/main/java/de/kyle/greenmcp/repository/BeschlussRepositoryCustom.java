@@ -0,0 +1,22 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BeschlussRepositoryCustom {
+
+    /**
+     * Similarity search restricted to the chunks matching {@code filter}. Only the conditions that are set
+     * become part of the statement, so the planner can prune to one corpus partition and pick the topic or date index for selective filters.
+     *
+     * @param filename    ILIKE pattern for the filename, or {@code null}
+     * @param lastId      last row of the previous page for keyset continuation, or {@code null}
+     * @param lastCorpus  corpus of that row
+     * @param approximate whether to use the shape that lets PostgreSQL search through the HNSW index
+     */
+    List<Beschluss> findByEmbeddingSimilarityFiltered(String embedding, SearchFilter filter, String filename,
+                                                      UUID lastId, String lastCorpus, int limit, boolean approximate);
+}
@@ -0,0 +1,137 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class BeschlussRepositoryCustomImpl implements BeschlussRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Beschluss> findByEmbeddingSimilarityFiltered(String embedding, SearchFilter filter, String filename,
+                                                             UUID lastId, String lastCorpus, int limit, boolean approximate) {
+        Query query = entityManager.createNativeQuery(filteredSql(filter, filename != null, lastId != null, approximate), Beschluss.class);
+        query.setParameter("embedding", embedding);
+        query.setParameter("limit", limit);
+        if (filter.corpus() != null) {
+            query.setParameter("corpus", filter.corpus());
+        }
+        if (filter.topic() != null) {
+            query.setParameter("topic", filter.topic());
+        }
+        if (filter.from() != null) {
+            query.setParameter("createdFrom", filter.createdFrom());
+        }
+        if (filter.to() != null) {
+            query.setParameter("createdBefore", filter.createdBefore());
+        }
+        if (filename != null) {
+            query.setParameter("filename", filename);
+        }
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+            query.setParameter("lastCorpus", lastCorpus);
+        }
+        return query.getResultList();
+    }
+
+    static String filteredSql(SearchFilter filter, boolean filename, boolean keyset, boolean approximate) {
+        List<String> conditions = new ArrayList<>();
+        if (keyset) {
+            conditions.add("""
+                (embedding <=> cast(:embedding as vector), id, corpus COLLATE "C") > (
+                    (SELECT embedding <=> cast(:embedding as vector) FROM beschluss_vectors WHERE id = :lastId AND corpus = :lastCorpus),
+                    :lastId,
+                    :lastCorpus
+                )""");
+        }
+        // Continuation pages are exact like the unfiltered ones. With hnsw.iterative_scan the index scan
+        // keeps going until enough canonical chunks pass the filter, instead of returning fewer than the limit.
+        return "SELECT b.*, v.embedding FROM (\n" + nearestSql(filter, filename, conditions, approximate && !keyset) + ") v\n"
+            + TEXT_JOIN + "ORDER BY v.distance, v.id, v.corpus COLLATE \"C\"";
+    }
+
+    /**
+     * Joins the text of the rows of {@link #nearestSql}, aliased {@code v}, as {@code b}.
+     */
+    public static final String TEXT_JOIN = "JOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus\n";
+
+    /**
+     * The {@code :limit} nearest rows of the narrow vector table that match all conditions, with the columns
+     * {@code id}, {@code corpus}, {@code embedding} and {@code distance}. An approximate search sorts by the distance
+     * alone, the shape that can use the HNSW index; callers re-sort by {@code (distance, id, corpus)}.
+     */
+    public static String nearestSql(List<String> conditions, boolean approximate) {
+        String where = conditions.isEmpty() ? "" : "WHERE " + String.join("\nAND ", conditions) + "\n";
+        return "SELECT id, corpus, embedding, embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors\n"
+            + where + (approximate ? "ORDER BY distance\n" : "ORDER BY distance, id, corpus COLLATE \"C\"\n") + "LIMIT :limit\n";
+    }
+
+    /**
+     * The nearest rows as in {@link #nearestSql(List, boolean)} that match the filters that are set and
+     * {@code conditions}, with the named parameters {@code corpus}, {@code topic}, {@code createdFrom},
+     * {@code createdBefore} and {@code filename}. Searches without a filename collapse near-duplicates to their
+     * canonical chunk; within one Beschluss its own chunks are found, also the duplicates.
+     */
+    public static String nearestSql(SearchFilter filter, boolean filename, List<String> conditions, boolean approximate) {
+        List<String> shared = new ArrayList<>();
+        // Equality on the partition key lets PostgreSQL prune the scan to that corpus' partition
+        if (filter.corpus() != null) {
+            shared.add("corpus = :corpus");
+        }
+        List<String> attributes = attributeConditions(filter, "");
+        shared.addAll(attributes);
+        if (filename) {
+            shared.add("filename ILIKE :filename");
+        }
+        shared.addAll(conditions);
+        if (filename) {
+            return nearestSql(shared, approximate);
+        }
+        // The HNSW indexes only cover canonical chunks (duplicate_of IS NULL), so they are ranked on their own
+        String canonical = nearestSql(with(shared, "duplicate_of IS NULL"), approximate);
+        if (attributes.isEmpty()) {
+            // Clusters never span corpora, so the canonical chunk passes whenever its duplicates do
+            return canonical;
+        }
+        // A duplicate stands in for its canonical chunk when that one does not match the topic or dates itself.
+        // These few rows are ranked exactly next to the canonical chunks and merged with them.
+        String standIns = nearestSql(with(shared, "duplicate_of IS NOT NULL", """
+            NOT EXISTS (
+                SELECT 1 FROM beschluss_vectors c
+                WHERE c.id = beschluss_vectors.duplicate_of AND c.corpus = beschluss_vectors.corpus
+                AND %s
+            )""".formatted(String.join(" AND ", attributeConditions(filter, "c.")))), false);
+        return "SELECT * FROM (\n(" + canonical + ")\nUNION ALL\n(" + standIns + ")\n) u\n"
+            + "ORDER BY distance, id, corpus COLLATE \"C\"\nLIMIT :limit\n";
+    }
+
+    private static List<String> with(List<String> conditions, String... more) {
+        List<String> all = new ArrayList<>(conditions);
+        all.addAll(List.of(more));
+        return all;
+    }
+
+    private static List<String> attributeConditions(SearchFilter filter, String alias) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.topic() != null) {
+            conditions.add(alias + "topic = :topic");
+        }
+        if (filter.from() != null) {
+            conditions.add(alias + "created_at >= :createdFrom");
+        }
+        if (filter.to() != null) {
+            conditions.add(alias + "created_at < :createdBefore");
+        }
+        return conditions;
+    }
+}
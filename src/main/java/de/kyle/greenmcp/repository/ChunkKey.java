@@ -0,0 +1,20 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.entity.BeschlussId;
+
+import java.util.UUID;
+
+/**
+ * Primary key columns of a chunk, as selected by native queries that do not need the rows themselves.
+ */
+public interface ChunkKey {
+
+    UUID getId();
+
+    String getCorpus();
+
+    // Projections are proxies without value equality, so comparisons use the key class of the entity
+    default BeschlussId toBeschlussId() {
+        return new BeschlussId(getId(), getCorpus());
+    }
+}
@@ -0,0 +1,9 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.entity.CorpusImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CorpusImportRepository extends JpaRepository<CorpusImport, String> {
+}
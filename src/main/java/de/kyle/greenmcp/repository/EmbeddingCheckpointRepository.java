@@ -0,0 +1,26 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.entity.EmbeddingCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface EmbeddingCheckpointRepository extends JpaRepository<EmbeddingCheckpoint, UUID> {
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO embedding_checkpoints (id, content_hash, embedding)
+        VALUES (:id, :contentHash, cast(:embedding as vector))
+        ON CONFLICT (id) DO UPDATE SET content_hash = excluded.content_hash, embedding = excluded.embedding
+        """, nativeQuery = true)
+    void upsert(
+        @Param("id") UUID id,
+        @Param("contentHash") String contentHash,
+        @Param("embedding") String embedding
+    );
+}
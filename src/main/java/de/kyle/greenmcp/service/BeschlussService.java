@@ -1,44 +1,299 @@
 package de.kyle.greenmcp.service;
 
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.Passage;
+import de.kyle.greenmcp.dto.RecallReport;
+import de.kyle.greenmcp.dto.SearchFilter;
 import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.entity.BeschlussId;
+import de.kyle.greenmcp.repository.BeschlussCentroidRepository;
 import de.kyle.greenmcp.repository.BeschlussRepository;
+import de.kyle.greenmcp.repository.ChunkKey;
+import de.kyle.greenmcp.service.SearchMetrics.Operation;
+import de.kyle.greenmcp.service.SearchMetrics.Stage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class BeschlussService {
 
     private final BeschlussRepository beschlussRepository;
+    private final BeschlussCentroidRepository centroidRepository;
     private final EmbeddingService embeddingService;
+    private final ResultDiversifier resultDiversifier;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SemanticResultCache semanticResultCache;
+    private final SearchProperties searchProperties;
+    private final SearchMetrics searchMetrics;
+    private final RecallMonitor recallMonitor;
+    private final ShardedSearch shardedSearch;
 
+    @Transactional(readOnly = true)
     public List<Beschluss> searchBeschluesse(String query, int limit) {
-        float[] queryEmbedding = embeddingService.embed(query);
+        return searchBeschluesse(query, limit, Diversification.NONE);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Beschluss> searchBeschluesse(String query, int limit, Diversification diversification) {
+        return searchBeschluesse(query, limit, diversification, SearchFilter.NONE);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Beschluss> searchBeschluesse(String query, int limit, Diversification diversification, SearchFilter filter) {
+        long start = System.nanoTime();
+        float[] queryEmbedding = embedQuery(query);
+        SemanticResultCache.Key cacheKey = new SemanticResultCache.Key(Operation.SEARCH, null, filter, diversification, limit);
+        // Taken before the rows are read, so results of rows a reindex replaces meanwhile are not cached
+        long generation = semanticResultCache.generation();
+        List<Beschluss> cached = semanticResultCache.lookup(cacheKey, queryEmbedding);
+        start = searchMetrics.recordStage(Operation.SEARCH, Stage.EMBEDDING, start);
+        if (cached != null) {
+            return cached;
+        }
         String vectorString = embeddingService.toVectorString(queryEmbedding);
-        return beschlussRepository.findByEmbeddingSimilarity(vectorString, limit);
+        if (!diversification.isActive()) {
+            ShardedSearch.Result found = findSimilar(vectorString, limit, filter);
+            List<Beschluss> results = found.rows();
+            searchMetrics.recordStage(Operation.SEARCH, Stage.DATABASE, start);
+            cache(cacheKey, queryEmbedding, found, results, generation);
+            // The recall monitor compares against an unfiltered exact scan of the regular datasource
+            if (!filter.isActive() && !shardedSearch.isActive()) {
+                recallMonitor.sample(vectorString, results);
+            }
+            return results;
+        }
+
+        // Over-fetch once and re-rank in memory using the vectors that come with the candidates
+        int candidates = Math.max(limit, Math.min(limit * searchProperties.diversityOverfetch(), searchProperties.maxCandidates()));
+        ShardedSearch.Result found = findSimilar(vectorString, candidates, filter);
+        start = searchMetrics.recordStage(Operation.SEARCH, Stage.DATABASE, start);
+        List<Beschluss> results = resultDiversifier.diversify(queryEmbedding, found.rows(), limit, diversification);
+        searchMetrics.recordStage(Operation.SEARCH, Stage.RERANK, start);
+        cache(cacheKey, queryEmbedding, found, results, generation);
+        return results;
     }
 
+    private ShardedSearch.Result findSimilar(String vectorString, int limit, SearchFilter filter) {
+        if (shardedSearch.isActive()) {
+            return shardedSearch.search(vectorString, filter, null, null, null, limit, searchProperties.mode() == SearchMode.ANN);
+        }
+        if (filter.isActive()) {
+            // Two-stage would filter only the chunks of the best documents and could return fewer than limit rows,
+            // so filtered searches are exact there and go through the HNSW index only in ann mode
+            return new ShardedSearch.Result(beschlussRepository.findByEmbeddingSimilarityFiltered(
+                vectorString, filter, null, null, null, limit, searchProperties.mode() == SearchMode.ANN), true);
+        }
+        return new ShardedSearch.Result(switch (searchProperties.mode()) {
+            case TWO_STAGE -> beschlussRepository.findByEmbeddingSimilarityInTopDocuments(
+                vectorString, searchProperties.twoStageDocuments(), limit);
+            case ANN -> beschlussRepository.findByEmbeddingSimilarityApproximate(vectorString, limit);
+            case EXACT -> beschlussRepository.findByEmbeddingSimilarity(vectorString, limit);
+        }, true);
+    }
+
+    // Results without the rows of a shard that failed or answered late would be served until they expire
+    private void cache(SemanticResultCache.Key cacheKey, float[] queryEmbedding, ShardedSearch.Result found,
+                       List<Beschluss> results, long generation) {
+        if (found.complete()) {
+            semanticResultCache.put(cacheKey, queryEmbedding, results, generation);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public List<Beschluss> searchInBeschluss(String filename, String query, int limit) {
-        float[] queryEmbedding = embeddingService.embed(query);
+        return searchInBeschluss(filename, query, limit, SearchFilter.NONE);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Beschluss> searchInBeschluss(String filename, String query, int limit, SearchFilter filter) {
+        long start = System.nanoTime();
+        float[] queryEmbedding = embedQuery(query);
+        SemanticResultCache.Key cacheKey = new SemanticResultCache.Key(Operation.SEARCH_IN, filename, filter, Diversification.NONE, limit);
+        long generation = semanticResultCache.generation();
+        List<Beschluss> cached = semanticResultCache.lookup(cacheKey, queryEmbedding);
+        start = searchMetrics.recordStage(Operation.SEARCH_IN, Stage.EMBEDDING, start);
+        if (cached != null) {
+            return cached;
+        }
         String vectorString = embeddingService.toVectorString(queryEmbedding);
-        return beschlussRepository.findByFilenameAndEmbeddingSimilarity("%" + filename + "%", vectorString, limit);
+        String filenamePattern = "%" + filename + "%";
+        ShardedSearch.Result found;
+        if (shardedSearch.isActive()) {
+            found = shardedSearch.search(vectorString, filter, filenamePattern, null, null, limit, false);
+        } else if (filter.isActive()) {
+            found = new ShardedSearch.Result(beschlussRepository.findByEmbeddingSimilarityFiltered(
+                vectorString, filter, filenamePattern, null, null, limit, false), true);
+        } else {
+            found = new ShardedSearch.Result(
+                beschlussRepository.findByFilenameAndEmbeddingSimilarity(filenamePattern, vectorString, limit), true);
+        }
+        List<Beschluss> results = found.rows();
+        searchMetrics.recordStage(Operation.SEARCH_IN, Stage.DATABASE, start);
+        cache(cacheKey, queryEmbedding, found, results, generation);
+        return results;
+    }
+
+    // Resumes after the last row of the previous page. The query vector normally comes from the cache; the token
+    // only holds the query text, so after a restart or an eviction the query is embedded again. Not served
+    // from the semantic result cache, since the pages after a cached first page follow this query's own ranking:
+    // a token minted from a cached page resumes after that page's last row by the distance to the token's query,
+    // so it can repeat or skip rows the cached query ranked differently.
+    // Continuations are exact in every mode, so in ann mode they can skip rows the index missed on earlier pages
+    @Transactional(readOnly = true)
+    public List<Beschluss> continueSearch(ContinuationToken token, int limit) {
+        long start = System.nanoTime();
+        float[] queryEmbedding = embedQuery(token.query());
+        String vectorString = embeddingService.toVectorString(queryEmbedding);
+        start = searchMetrics.recordStage(Operation.CONTINUE, Stage.EMBEDDING, start);
+        List<Beschluss> results;
+        if (shardedSearch.isActive()) {
+            results = shardedSearch.search(vectorString, token.filter(),
+                token.filename() == null ? null : "%" + token.filename() + "%", token.lastId(), token.lastCorpus(), limit, false).rows();
+        } else if (token.filter().isActive()) {
+            results = beschlussRepository.findByEmbeddingSimilarityFiltered(vectorString, token.filter(),
+                token.filename() == null ? null : "%" + token.filename() + "%", token.lastId(), token.lastCorpus(), limit, false);
+        } else if (token.filename() != null) {
+            results = beschlussRepository.findByFilenameAndEmbeddingSimilarityAfter(
+                "%" + token.filename() + "%", vectorString, token.lastId(), token.lastCorpus(), limit);
+        } else if (searchProperties.mode() == SearchMode.TWO_STAGE) {
+            results = beschlussRepository.findByEmbeddingSimilarityInTopDocumentsAfter(
+                vectorString, searchProperties.twoStageDocuments(), token.lastId(), token.lastCorpus(), limit);
+        } else {
+            results = beschlussRepository.findByEmbeddingSimilarityAfter(vectorString, token.lastId(), token.lastCorpus(), limit);
+        }
+        // Without its last row, e.g. after a reindex, a page would come back empty as if the results had ended
+        if (results.isEmpty() && !shardedSearch.isActive()
+            && !beschlussRepository.existsById(new BeschlussId(token.lastId(), token.lastCorpus()))) {
+            throw new IllegalArgumentException(ContinuationToken.INVALID);
+        }
+        searchMetrics.recordStage(Operation.CONTINUE, Stage.DATABASE, start);
+        return results;
+    }
+
+    private float[] embedQuery(String query) {
+        return queryEmbeddingCache.get(query, this::embedUncached);
+    }
+
+    private float[] embedUncached(String query) {
+        long start = System.nanoTime();
+        float[] embedding = embeddingService.embed(query);
+        searchMetrics.recordEmbedding(start);
+        return embedding;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Passage> expandContext(List<Beschluss> hits, int context) {
+        ContextWindows windows = ContextWindows.around(hits, context);
+        if (windows.isEmpty()) {
+            return hits.stream().map(hit -> new Passage(hit, List.of(hit))).toList();
+        }
+
+        long start = System.nanoTime();
+        List<Beschluss> windowChunks = shardedSearch.isActive()
+            ? shardedSearch.findChunksInWindows(windows.corpora(), windows.filenames(), windows.fromIndexes(), windows.toIndexes())
+            : beschlussRepository.findChunksInWindows(windows.corpora(), windows.filenames(), windows.fromIndexes(), windows.toIndexes());
+        searchMetrics.recordStage(Operation.CONTEXT, Stage.DATABASE, start);
+        return windows.passages(hits, windowChunks);
     }
 
+    /**
+     * Drops the cached search results, for when the rows they were read from have been replaced.
+     */
+    public void invalidateCachedResults() {
+        semanticResultCache.clear();
+    }
+
+    /**
+     * The chunks with this id, one per corpus it occurs in, or only the one of {@code corpus} if set.
+     */
+    @Transactional(readOnly = true)
+    public List<Beschluss> findById(UUID id, String corpus) {
+        if (shardedSearch.isActive()) {
+            return shardedSearch.findById(id, corpus);
+        }
+        return corpus == null
+            ? beschlussRepository.findByIdOrderByCorpus(id)
+            : beschlussRepository.findById(new BeschlussId(id, corpus)).stream().toList();
+    }
+
+    @Transactional(readOnly = true)
     public List<String> getAllFilenames() {
-        return beschlussRepository.findAllFilenames();
+        return shardedSearch.isActive() ? shardedSearch.findFilenames(null) : beschlussRepository.findAllFilenames();
+    }
+
+    @Transactional(readOnly = true)
+    public List<String> getFilenames(String corpus) {
+        return shardedSearch.isActive() ? shardedSearch.findFilenames(corpus) : beschlussRepository.findFilenamesByCorpus(corpus);
     }
 
     public long count() {
-        return beschlussRepository.count();
+        return shardedSearch.isActive() ? shardedSearch.count(null) : beschlussRepository.count();
+    }
+
+    public long count(String corpus) {
+        return shardedSearch.isActive() ? shardedSearch.count(corpus) : beschlussRepository.countByCorpus(corpus);
+    }
+
+    public boolean isSharded() {
+        return shardedSearch.isActive();
+    }
+
+    public long countCentroids() {
+        return centroidRepository.count();
+    }
+
+    @Transactional
+    public int refreshCentroids() {
+        centroidRepository.deleteAllCentroids();
+        return centroidRepository.insertCentroidsFromBeschluesse();
+    }
+
+    public RecallReport evaluateTwoStageRecall(int samples, int k) {
+        int documents = searchProperties.twoStageDocuments();
+        // Stored chunk embeddings serve as queries, so no embedding API calls are needed
+        List<String> queries = beschlussRepository.findRandomEmbeddings(samples);
+
+        double sum = 0;
+        double min = 1.0;
+        for (String vectorString : queries) {
+            List<BeschlussId> exact = beschlussRepository.findKeysByEmbeddingSimilarity(vectorString, k).stream()
+                .map(ChunkKey::toBeschlussId).toList();
+            List<BeschlussId> twoStage = beschlussRepository.findKeysByEmbeddingSimilarityInTopDocuments(vectorString, documents, k)
+                .stream().map(ChunkKey::toBeschlussId).toList();
+            double recall = RecallCalculator.recallAtK(exact, twoStage);
+            sum += recall;
+            min = Math.min(min, recall);
+        }
+
+        RecallReport report = new RecallReport(
+            queries.size(),
+            k,
+            documents,
+            queries.isEmpty() ? 0 : sum / queries.size(),
+            queries.isEmpty() ? 0 : min
+        );
+        log.info("Two-stage recall@{} over {} sampled queries with {} candidate documents: mean {}, min {}",
+            report.k(), report.samples(), report.candidateDocuments(), report.meanRecall(), report.minRecall());
+        return report;
     }
 
     @Transactional
     public void insertBeschluss(Beschluss b, String embeddingString) {
+        if (shardedSearch.isActive()) {
+            shardedSearch.insert(b, embeddingString);
+            return;
+        }
         beschlussRepository.insertWithEmbedding(
             b.getId(),
+            b.getCorpus(),
             b.getPdfUrl(),
             b.getChunkIndex(),
             b.getContent(),
@@ -46,6 +301,8 @@ public class BeschlussService {
             b.getTopic(),
             b.getFilename(),
             b.getWordCount(),
+            b.getCreatedAt(),
+            b.getDuplicateOf(),
             embeddingString
         );
     }
@@ -0,0 +1,136 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.dto.Passage;
+import de.kyle.greenmcp.entity.Beschluss;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Chunk ranges around search hits, fetched in one query and assembled into {@link Passage}s.
+ * <p>
+ * Overlapping or touching windows of the same document are merged, so every chunk is fetched and returned once.
+ */
+final class ContextWindows {
+
+    private final List<Window> windows;
+
+    private ContextWindows(List<Window> windows) {
+        this.windows = windows;
+    }
+
+    static ContextWindows around(List<Beschluss> hits, int context) {
+        Map<String, List<Window>> byDocument = new LinkedHashMap<>();
+        for (int rank = 0; rank < hits.size(); rank++) {
+            Beschluss hit = hits.get(rank);
+            if (hit.getFilename() == null || hit.getChunkIndex() == null) {
+                continue;
+            }
+            byDocument.computeIfAbsent(documentKey(hit.getCorpus(), hit.getFilename()), f -> new ArrayList<>()).add(
+                new Window(hit.getCorpus(), hit.getFilename(), Math.max(0, hit.getChunkIndex() - context),
+                    hit.getChunkIndex() + context, rank));
+        }
+
+        List<Window> merged = new ArrayList<>();
+        for (List<Window> windows : byDocument.values()) {
+            windows.sort(Comparator.comparingInt(w -> w.from));
+            Window current = windows.get(0);
+            for (int i = 1; i < windows.size(); i++) {
+                Window next = windows.get(i);
+                if (next.from <= current.to + 1) {
+                    current.to = Math.max(current.to, next.to);
+                    current.bestRank = Math.min(current.bestRank, next.bestRank);
+                } else {
+                    merged.add(current);
+                    current = next;
+                }
+            }
+            merged.add(current);
+        }
+        return new ContextWindows(merged);
+    }
+
+    boolean isEmpty() {
+        return windows.isEmpty();
+    }
+
+    String[] corpora() {
+        return windows.stream().map(w -> w.corpus).toArray(String[]::new);
+    }
+
+    String[] filenames() {
+        return windows.stream().map(w -> w.filename).toArray(String[]::new);
+    }
+
+    Integer[] fromIndexes() {
+        return windows.stream().map(w -> w.from).toArray(Integer[]::new);
+    }
+
+    Integer[] toIndexes() {
+        return windows.stream().map(w -> w.to).toArray(Integer[]::new);
+    }
+
+    /**
+     * One passage per window, at the rank of its best hit; hits outside any window stay single chunks.
+     */
+    List<Passage> passages(List<Beschluss> hits, List<Beschluss> windowChunks) {
+        Map<String, List<Beschluss>> chunksByDocument = new HashMap<>();
+        for (Beschluss chunk : windowChunks) {
+            chunksByDocument.computeIfAbsent(documentKey(chunk.getCorpus(), chunk.getFilename()), f -> new ArrayList<>()).add(chunk);
+        }
+
+        List<Passage> passages = new ArrayList<>();
+        for (int rank = 0; rank < hits.size(); rank++) {
+            Beschluss hit = hits.get(rank);
+            Window window = find(hit);
+            if (window == null) {
+                passages.add(new Passage(hit, List.of(hit)));
+            } else if (window.bestRank == rank) {
+                List<Beschluss> chunks = chunksByDocument.getOrDefault(documentKey(window.corpus, window.filename), List.of()).stream()
+                    .filter(c -> c.getChunkIndex() >= window.from && c.getChunkIndex() <= window.to)
+                    .toList();
+                passages.add(new Passage(hit, chunks.isEmpty() ? List.of(hit) : chunks));
+            }
+        }
+        return passages;
+    }
+
+    private Window find(Beschluss hit) {
+        if (hit.getFilename() == null || hit.getChunkIndex() == null) {
+            return null;
+        }
+        for (Window window : windows) {
+            if (window.filename.equals(hit.getFilename()) && Objects.equals(window.corpus, hit.getCorpus())
+                    && hit.getChunkIndex() >= window.from && hit.getChunkIndex() <= window.to) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    // Filenames are only unique within a corpus
+    private static String documentKey(String corpus, String filename) {
+        return corpus + "/" + filename;
+    }
+
+    private static final class Window {
+        private final String corpus;
+        private final String filename;
+        private final int from;
+        private int to;
+        private int bestRank;
+
+        private Window(String corpus, String filename, int from, int to, int bestRank) {
+            this.corpus = corpus;
+            this.filename = filename;
+            this.from = from;
+            this.to = to;
+            this.bestRank = bestRank;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.dto.SearchFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of a search page: the query, its filters and the last row, identified by id and corpus like its
+ * primary key.
+ * <p>
+ * The token holds the query text, not its embedding. Continuing embeds it again when the query embedding cache no
+ * longer has it, e.g. after a restart or once the entry was evicted.
+ */
+public record ContinuationToken(
+        String query,
+        String filename,
+        UUID lastId,
+        String lastCorpus,
+        SearchFilter filter
+    ) {
+
+    // Every field is prefixed with its length, so text fields may contain any character. Tokens of earlier
+    // formats are rejected, the search is then started again.
+    private static final String VERSION = "v5";
+
+    /**
+     * Message for a token that cannot be decoded, or whose last row no longer exists.
+     */
+    public static final String INVALID = "Ungültiges Fortsetzungstoken";
+
+    public ContinuationToken {
+        filter = filter == null ? SearchFilter.NONE : filter;
+    }
+
+    public ContinuationToken(String query, String filename, UUID lastId, String lastCorpus) {
+        this(query, filename, lastId, lastCorpus, SearchFilter.NONE);
+    }
+
+    public String encode() {
+        StringBuilder raw = new StringBuilder(VERSION);
+        for (Object field : new Object[]{lastId, lastCorpus, filename, filter.corpus(), filter.topic(), filter.from(),
+                filter.to(), query}) {
+            String value = field == null ? "" : field.toString();
+            raw.append(value.length()).append(':').append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ContinuationToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            if (!raw.startsWith(VERSION)) {
+                throw new IllegalArgumentException(INVALID);
+            }
+            Fields fields = new Fields(raw, VERSION.length());
+            UUID lastId = UUID.fromString(fields.next());
+            String lastCorpus = nullIfEmpty(fields.next());
+            String filename = nullIfEmpty(fields.next());
+            String corpus = nullIfEmpty(fields.next());
+            String topic = nullIfEmpty(fields.next());
+            String from = fields.next();
+            String to = fields.next();
+            String query = fields.next();
+            if (!fields.isAtEnd()) {
+                throw new IllegalArgumentException(INVALID);
+            }
+            SearchFilter filter = new SearchFilter(corpus, topic, from.isEmpty() ? null : LocalDate.parse(from),
+                to.isEmpty() ? null : LocalDate.parse(to));
+            return new ContinuationToken(query, filename, lastId, lastCorpus, filter);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException(INVALID, e);
+        }
+    }
+
+    private static String nullIfEmpty(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    // Reads the length-prefixed fields "<length>:<value>" one after another
+    private static final class Fields {
+        private final String raw;
+        private int position;
+
+        private Fields(String raw, int position) {
+            this.raw = raw;
+            this.position = position;
+        }
+
+        private String next() {
+            int colon = raw.indexOf(':', position);
+            if (colon < 0) {
+                throw new IllegalArgumentException(INVALID);
+            }
+            int length = Integer.parseInt(raw, position, colon, 10);
+            if (length < 0 || length > raw.length() - colon - 1) {
+                throw new IllegalArgumentException(INVALID);
+            }
+            position = colon + 1 + length;
+            return raw.substring(colon + 1, position);
+        }
+
+        private boolean isAtEnd() {
+            return position == raw.length();
+        }
+    }
+}
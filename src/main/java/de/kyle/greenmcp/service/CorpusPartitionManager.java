@@ -0,0 +1,112 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.CorpusProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the chunks list-partitioned by corpus, in two tables with one partition per configured corpus each:
+ * {@code beschluesse} holds the text and metadata, {@code beschluss_vectors} the embeddings with the columns that
+ * searches filter on. Searches scan the narrow vector table and only read the text of the final rows.
+ * <p>
+ * Both partitioned tables are created by the migrations: {@code V4_1} turns an existing flat table into the
+ * default corpus' partition, and {@code V5} moves the embeddings into {@code beschluss_vectors}. The partitions of
+ * the other corpora depend on the configuration, so they are created here. Corpus names are validated by
+ * {@link CorpusProperties}, so they can be used in DDL.
+ */
+@Service
+@RequiredArgsConstructor
+public class CorpusPartitionManager {
+
+    public static final String TABLE = "beschluesse";
+    public static final String VECTOR_TABLE = "beschluss_vectors";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CorpusProperties corpusProperties;
+
+    /**
+     * Maintains the same layout on another PostgreSQL instance, e.g. a shard.
+     */
+    public CorpusPartitionManager forDataSource(DataSource dataSource) {
+        return new CorpusPartitionManager(new JdbcTemplate(dataSource), corpusProperties);
+    }
+
+    public static String partition(String table, String corpus) {
+        return table + "_" + corpus;
+    }
+
+    /**
+     * Creates the partitions of corpora that were added to the configuration, in both tables.
+     */
+    public void ensurePartitions() {
+        for (String corpus : corpusProperties.names()) {
+            jdbcTemplate.execute(createPartitionSql(TABLE, corpus));
+        }
+        for (String corpus : corpora(TABLE)) {
+            jdbcTemplate.execute(createPartitionSql(VECTOR_TABLE, corpus));
+        }
+    }
+
+    /**
+     * Corpora that have a partition of {@code table}, derived from the partition names.
+     */
+    public List<String> corpora(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT cast(inhrelid as regclass)::text FROM pg_inherits WHERE inhparent = to_regclass(?) ORDER BY 1",
+                String.class, table).stream()
+            .filter(name -> name.startsWith(table + "_"))
+            .map(name -> name.substring(table.length() + 1))
+            .toList();
+    }
+
+    /**
+     * Creates empty partitioned copies of both live tables without indexes, named like them plus {@code suffix},
+     * e.g. as reindex target.
+     */
+    public void createPartitionedTables(String suffix, Collection<String> corpora) {
+        for (String live : List.of(TABLE, VECTOR_TABLE)) {
+            String table = live + suffix;
+            jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + live + " INCLUDING DEFAULTS INCLUDING STORAGE)"
+                + " PARTITION BY LIST (corpus)");
+            for (String corpus : corpora) {
+                jdbcTemplate.execute(createPartitionSql(table, corpus));
+            }
+        }
+    }
+
+    /**
+     * Primary key and the index for context windows of the text table, created on the parent so every partition
+     * gets its own copy.
+     */
+    public static List<String> indexStatements(String table, String suffix) {
+        return List.of(
+            "ALTER TABLE " + table + " ADD CONSTRAINT beschluesse_pkey" + suffix + " PRIMARY KEY (id, corpus)",
+            "CREATE INDEX idx_beschluesse_filename_chunk" + suffix + " ON " + table + " (filename, chunk_index)"
+        );
+    }
+
+    /**
+     * Primary key and the filter indexes of the vector table, including the one over the near-duplicates that filtered
+     * searches rank next to the canonical chunks. The HNSW indexes are built by {@link VectorIndexManager}.
+     */
+    public static List<String> vectorIndexStatements(String table, String suffix) {
+        return List.of(
+            "ALTER TABLE " + table + " ADD CONSTRAINT beschluss_vectors_pkey" + suffix + " PRIMARY KEY (id, corpus)",
+            "CREATE INDEX idx_beschluss_vectors_filename" + suffix + " ON " + table + " (filename)",
+            "CREATE INDEX idx_beschluss_vectors_topic" + suffix + " ON " + table + " (topic)",
+            "CREATE INDEX idx_beschluss_vectors_created_at" + suffix + " ON " + table + " (created_at)",
+            "CREATE INDEX idx_beschluss_vectors_duplicate_of" + suffix + " ON " + table + " (duplicate_of)"
+                + " WHERE duplicate_of IS NOT NULL"
+        );
+    }
+
+    static String createPartitionSql(String table, String corpus) {
+        return "CREATE TABLE IF NOT EXISTS " + partition(table, corpus) + " PARTITION OF " + table
+            + " FOR VALUES IN ('" + corpus + "')";
+    }
+}
@@ -20,6 +20,13 @@ public class EmbeddingService {
         return response.getResult().getOutput();
     }
 
+    /**
+     * Embeds all texts with one request, in input order.
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        return embeddingModel.embed(texts);
+    }
+
     public String toVectorString(float[] embedding) {
         StringBuilder sb = new StringBuilder("[");
         for (int i = 0; i < embedding.length; i++) {
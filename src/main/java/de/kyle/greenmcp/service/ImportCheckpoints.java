@@ -0,0 +1,104 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.converter.VectorConverter;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.entity.CorpusImport;
+import de.kyle.greenmcp.entity.EmbeddingCheckpoint;
+import de.kyle.greenmcp.repository.CorpusImportRepository;
+import de.kyle.greenmcp.repository.EmbeddingCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * What an import has done so far, kept in the database of the regular datasource so an interrupted import can
+ * resume: the embeddings computed for chunks that came without one, and which corpora were imported completely.
+ * <p>
+ * Checkpoints are written in their own transaction right after each embedding request, and are kept afterwards,
+ * so a CSV reindex does not embed the same text again either.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImportCheckpoints {
+
+    private static final VectorConverter VECTORS = new VectorConverter();
+
+    private final EmbeddingCheckpointRepository embeddingCheckpointRepository;
+    private final CorpusImportRepository corpusImportRepository;
+
+    /**
+     * Checkpointed embeddings of the given chunks, by id; only those whose text is unchanged.
+     */
+    @Transactional
+    public Map<UUID, float[]> findEmbeddings(List<Beschluss> chunks) {
+        Map<UUID, String> hashes = new HashMap<>();
+        for (Beschluss chunk : chunks) {
+            hashes.put(chunk.getId(), contentHash(chunk.getContent()));
+        }
+        Map<UUID, float[]> embeddings = new HashMap<>();
+        for (EmbeddingCheckpoint checkpoint : embeddingCheckpointRepository.findAllById(hashes.keySet())) {
+            if (Objects.equals(hashes.get(checkpoint.getId()), checkpoint.getContentHash())) {
+                embeddings.put(checkpoint.getId(), checkpoint.getEmbedding());
+            }
+        }
+        return embeddings;
+    }
+
+    @Transactional
+    public void saveEmbeddings(List<Beschluss> chunks, List<float[]> embeddings) {
+        for (int i = 0; i < chunks.size(); i++) {
+            Beschluss chunk = chunks.get(i);
+            embeddingCheckpointRepository.upsert(chunk.getId(), contentHash(chunk.getContent()),
+                VECTORS.convertToDatabaseColumn(embeddings.get(i)));
+        }
+    }
+
+    @Transactional
+    public void started(Collection<String> corpora) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String corpus : corpora) {
+            corpusImportRepository.save(new CorpusImport(corpus, now, null));
+        }
+    }
+
+    @Transactional
+    public void completed(Collection<String> corpora) {
+        LocalDateTime now = LocalDateTime.now();
+        for (CorpusImport corpusImport : corpusImportRepository.findAllById(corpora)) {
+            corpusImport.setCompletedAt(now);
+        }
+    }
+
+    /**
+     * Whether an import of the corpus started but did not complete. Corpora imported before the import state was
+     * recorded have no entry and count as complete.
+     */
+    @Transactional
+    public boolean isInterrupted(String corpus) {
+        return corpusImportRepository.findById(corpus)
+            .map(corpusImport -> corpusImport.getCompletedAt() == null)
+            .orElse(false);
+    }
+
+    static String contentHash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest((content == null ? "" : content).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.ImportEmbeddingProperties;
+import de.kyle.greenmcp.entity.Beschluss;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Embeds the chunks that arrive without a vector during the import.
+ * <p>
+ * Texts are sent in batches of {@code batch-size} per request, with up to {@code concurrency} requests in flight
+ * and request starts spaced to {@code requests-per-second}. Failed requests are retried with exponential backoff,
+ * on top of what {@code spring.ai.retry.*} already retries for server errors; rate limits (429) only reach this
+ * retry. Every batch is checkpointed as soon as it is embedded, and checkpointed chunks are not sent again.
+ */
+@Service
+@Slf4j
+public class ImportEmbedder {
+
+    private final EmbeddingService embeddingService;
+    private final ImportCheckpoints importCheckpoints;
+    private final ImportEmbeddingProperties properties;
+    private final ImportProgress importProgress;
+    private final Sleeper sleeper;
+    private long nextRequestNanos = Long.MIN_VALUE;
+
+    interface Sleeper {
+        void sleep(Duration duration) throws InterruptedException;
+    }
+
+    @Autowired
+    public ImportEmbedder(EmbeddingService embeddingService, ImportCheckpoints importCheckpoints,
+                          ImportEmbeddingProperties properties, ImportProgress importProgress) {
+        this(embeddingService, importCheckpoints, properties, importProgress, duration -> Thread.sleep(duration));
+    }
+
+    ImportEmbedder(EmbeddingService embeddingService, ImportCheckpoints importCheckpoints,
+                   ImportEmbeddingProperties properties, ImportProgress importProgress, Sleeper sleeper) {
+        this.embeddingService = embeddingService;
+        this.importCheckpoints = importCheckpoints;
+        this.properties = properties;
+        this.importProgress = importProgress;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Chunks the import collects before calling {@link #embed}: one batch for every request that may be in flight.
+     */
+    public int chunksPerRound() {
+        return properties.batchSize() * Math.max(1, properties.concurrency());
+    }
+
+    /**
+     * Embeddings of the given chunks, in input order. Fails with the last error once a batch has used up its
+     * attempts; the batches that succeeded until then stay checkpointed.
+     */
+    public List<float[]> embed(List<Beschluss> chunks) throws InterruptedException {
+        long start = System.nanoTime();
+        Map<UUID, float[]> checkpointed = importCheckpoints.findEmbeddings(chunks);
+        List<Beschluss> missing = chunks.stream().filter(chunk -> !checkpointed.containsKey(chunk.getId())).toList();
+
+        List<List<Beschluss>> batches = new ArrayList<>();
+        for (int from = 0; from < missing.size(); from += properties.batchSize()) {
+            batches.add(missing.subList(from, Math.min(missing.size(), from + properties.batchSize())));
+        }
+        Map<UUID, float[]> embeddings = new HashMap<>(checkpointed);
+        if (!batches.isEmpty()) {
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.concurrency()),
+                    Thread.ofPlatform().name("import-embedding-", 0).daemon(true).factory())) {
+                List<Future<List<float[]>>> futures = new ArrayList<>();
+                for (List<Beschluss> batch : batches) {
+                    futures.add(executor.submit(() -> embedBatch(batch)));
+                }
+                try {
+                    for (int i = 0; i < batches.size(); i++) {
+                        List<float[]> vectors = futures.get(i).get();
+                        for (int j = 0; j < vectors.size(); j++) {
+                            embeddings.put(batches.get(i).get(j).getId(), vectors.get(j));
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+                }
+            }
+        }
+
+        importProgress.recordEmbedded(missing.size(), chunks.size() - missing.size());
+        log.info("Embedded {} chunks without vector ({} from checkpoints) in {} ms", chunks.size(), checkpointed.size(),
+            (System.nanoTime() - start) / 1_000_000);
+        return chunks.stream().map(chunk -> embeddings.get(chunk.getId())).toList();
+    }
+
+    private List<float[]> embedBatch(List<Beschluss> batch) throws InterruptedException {
+        List<String> texts = batch.stream().map(Beschluss::getContent).toList();
+        for (int attempt = 1; ; attempt++) {
+            awaitRequestSlot();
+            try {
+                List<float[]> vectors = embeddingService.embedAll(texts);
+                if (vectors.size() != texts.size()) {
+                    throw new IllegalStateException("Expected " + texts.size() + " embeddings, got " + vectors.size());
+                }
+                importCheckpoints.saveEmbeddings(batch, vectors);
+                return vectors;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.maxAttempts()) {
+                    throw e;
+                }
+                Duration backoff = backoff(attempt, properties);
+                importProgress.recordEmbeddingRetry();
+                log.warn("Embedding request for {} chunks failed (attempt {} of {}), retrying in {} ms: {}",
+                    texts.size(), attempt, properties.maxAttempts(), backoff.toMillis(), e.getMessage());
+                sleeper.sleep(backoff);
+            }
+        }
+    }
+
+    // Spaces request starts evenly; the slot is reserved under the lock, the wait happens outside of it
+    private void awaitRequestSlot() throws InterruptedException {
+        if (properties.requestsPerSecond() <= 0) {
+            return;
+        }
+        long interval = (long) (1_000_000_000L / properties.requestsPerSecond());
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextRequestNanos);
+            nextRequestNanos = slot + interval;
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            sleeper.sleep(Duration.ofNanos(wait));
+        }
+    }
+
+    /**
+     * Backoff before attempt {@code attempt + 1}: the initial backoff, doubled per failed attempt, at most the maximum.
+     */
+    static Duration backoff(int attempt, ImportEmbeddingProperties properties) {
+        long millis = properties.initialBackoff().toMillis() << Math.min(attempt - 1, 30);
+        return Duration.ofMillis(Math.min(millis, properties.maxBackoff().toMillis()));
+    }
+}
@@ -0,0 +1,142 @@
+package de.kyle.greenmcp.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of the CSV import, published as gauges while the import runs.
+ */
+@Component
+public class ImportProgress implements MeterBinder {
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder embedded = new LongAdder();
+    private final LongAdder checkpointed = new LongAdder();
+    private final LongAdder embeddingRetries = new LongAdder();
+    private volatile State state = State.IDLE;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+
+    public void start() {
+        imported.reset();
+        failed.reset();
+        embedded.reset();
+        checkpointed.reset();
+        embeddingRetries.reset();
+        startedNanos = System.nanoTime();
+        finishedNanos = 0;
+        state = State.RUNNING;
+    }
+
+    public void recordImported() {
+        imported.increment();
+    }
+
+    public void recordFailed() {
+        failed.increment();
+    }
+
+    /**
+     * Chunks without a vector in the CSV, embedded by a request ({@code requested}) or taken from a checkpoint.
+     */
+    public void recordEmbedded(int requested, int fromCheckpoints) {
+        embedded.add(requested);
+        checkpointed.add(fromCheckpoints);
+    }
+
+    public void recordEmbeddingRetry() {
+        embeddingRetries.increment();
+    }
+
+    public void complete() {
+        finishedNanos = System.nanoTime();
+        state = State.COMPLETED;
+    }
+
+    public void fail() {
+        finishedNanos = System.nanoTime();
+        state = State.FAILED;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public long imported() {
+        return imported.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long embedded() {
+        return embedded.sum();
+    }
+
+    public long checkpointed() {
+        return checkpointed.sum();
+    }
+
+    public long embeddingRetries() {
+        return embeddingRetries.sum();
+    }
+
+    public double elapsedSeconds() {
+        if (state == State.IDLE) {
+            return 0;
+        }
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        return (end - startedNanos) / 1e9;
+    }
+
+    public double rowsPerSecond() {
+        double seconds = elapsedSeconds();
+        return seconds > 0 ? imported() / seconds : 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("green_mcp.import.rows", this, ImportProgress::imported)
+            .description("Rows imported from the CSV files")
+            .tag("result", "imported")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.import.rows", this, ImportProgress::failed)
+            .description("Rows imported from the CSV files")
+            .tag("result", "failed")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.import.embeddings", this, ImportProgress::embedded)
+            .description("Chunks without a vector in the CSV files, embedded during the import")
+            .tag("source", "request")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.import.embeddings", this, ImportProgress::checkpointed)
+            .description("Chunks without a vector in the CSV files, embedded during the import")
+            .tag("source", "checkpoint")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.import.embedding.retries", this, ImportProgress::embeddingRetries)
+            .description("Embedding requests of the import that were retried")
+            .register(registry);
+        Gauge.builder("green_mcp.import.throughput", this, ImportProgress::rowsPerSecond)
+            .description("Imported rows per second over the current or last import")
+            .baseUnit("rows/s")
+            .register(registry);
+        Gauge.builder("green_mcp.import.running", this, p -> p.state() == State.RUNNING ? 1 : 0)
+            .description("1 while an import is running")
+            .register(registry);
+        TimeGauge.builder("green_mcp.import.duration", this, TimeUnit.SECONDS, ImportProgress::elapsedSeconds)
+            .description("Duration of the current or last import")
+            .register(registry);
+    }
+}
@@ -0,0 +1,208 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.IndexSweepProperties;
+import de.kyle.greenmcp.dto.IndexSweepResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Builds vector indexes for a grid of parameters and measures recall@k and latency of each configuration
+ * against exact results, replaying stored query embeddings so no embedding API is involved.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexSweep {
+
+    static final String SWEEP_INDEX = "idx_beschluss_vectors_embedding_sweep";
+
+    private static final String EXACT_SQL = """
+        SELECT id FROM beschluss_vectors
+        ORDER BY embedding <=> cast(? as vector), id
+        LIMIT ?
+        """;
+
+    // Same shape as the ann search, so the index is used exactly as in production
+    private static final String APPROXIMATE_SQL = """
+        SELECT id FROM (
+            SELECT id, embedding FROM beschluss_vectors
+            ORDER BY embedding <=> cast(? as vector)
+            LIMIT ?
+        ) nearest
+        ORDER BY embedding <=> cast(? as vector), id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final VectorIndexManager vectorIndexManager;
+
+    public record IndexConfig(String type, Integer m, Integer efConstruction, Integer lists) {
+
+        String createSql() {
+            if ("hnsw".equals(type)) {
+                return String.format(
+                    "CREATE INDEX %s ON beschluss_vectors USING hnsw (embedding vector_cosine_ops) WITH (m = %d, ef_construction = %d)",
+                    SWEEP_INDEX, m, efConstruction);
+            }
+            return String.format(
+                "CREATE INDEX %s ON beschluss_vectors USING ivfflat (embedding vector_cosine_ops) WITH (lists = %d)",
+                SWEEP_INDEX, lists);
+        }
+
+        String searchSetting() {
+            return "hnsw".equals(type) ? "hnsw.ef_search" : "ivfflat.probes";
+        }
+    }
+
+    static List<IndexConfig> configurations(IndexSweepProperties properties) {
+        List<IndexConfig> configs = new ArrayList<>();
+        for (int m : properties.hnswM()) {
+            for (int efConstruction : properties.hnswEfConstruction()) {
+                // pgvector rejects ef_construction below 2 * m
+                if (efConstruction >= 2 * m) {
+                    configs.add(new IndexConfig("hnsw", m, efConstruction, null));
+                }
+            }
+        }
+        for (int lists : properties.ivfflatLists()) {
+            configs.add(new IndexConfig("ivfflat", null, null, lists));
+        }
+        return configs;
+    }
+
+    public List<String> loadQueries(IndexSweepProperties properties) throws IOException {
+        if (properties.queriesFile() != null && !properties.queriesFile().isBlank()) {
+            // One vector per line, optionally preceded by the query text and a tab
+            return Files.readAllLines(Path.of(properties.queriesFile()), StandardCharsets.UTF_8).stream()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty())
+                .map(line -> line.substring(line.indexOf('[')))
+                .toList();
+        }
+        // Deterministic sample of stored chunk embeddings, so repeated sweeps use the same queries
+        return jdbcTemplate.queryForList(
+            "SELECT cast(embedding as text) FROM beschluss_vectors ORDER BY md5(cast(id as text)) LIMIT ?",
+            String.class, properties.queries());
+    }
+
+    public List<IndexSweepResult> run(IndexSweepProperties properties, List<String> queries) {
+        int k = properties.k();
+        vectorIndexManager.dropHnswIndexes();
+        dropSweepIndex();
+
+        log.info("Computing exact top-{} for {} queries", k, queries.size());
+        List<List<UUID>> exact = new ArrayList<>(queries.size());
+        for (String query : queries) {
+            exact.add(inTransaction(null, null, () -> jdbcTemplate.queryForList(EXACT_SQL, UUID.class, query, k)));
+        }
+
+        List<IndexSweepResult> results = new ArrayList<>();
+        for (IndexConfig config : configurations(properties)) {
+            dropSweepIndex();
+            long start = System.nanoTime();
+            jdbcTemplate.execute(config.createSql());
+            long buildMillis = (System.nanoTime() - start) / 1_000_000;
+            jdbcTemplate.execute("ANALYZE beschluss_vectors");
+            // The index on the partitioned table has no storage of its own, its partitions do
+            Long indexBytes = jdbcTemplate.queryForObject(
+                "SELECT sum(pg_relation_size(relid)) FROM pg_partition_tree(to_regclass(?))", Long.class, SWEEP_INDEX);
+            log.info("Built {} in {} ms ({} bytes)", config, buildMillis, indexBytes);
+
+            List<Integer> searchValues = "hnsw".equals(config.type()) ? properties.hnswEfSearch() : properties.ivfflatProbes();
+            for (int value : searchValues) {
+                results.add(measure(config, value, buildMillis, indexBytes == null ? 0 : indexBytes, queries, exact, k));
+            }
+        }
+        dropSweepIndex();
+        return results;
+    }
+
+    private IndexSweepResult measure(IndexConfig config, int searchValue, long buildMillis, long indexBytes,
+                                     List<String> queries, List<List<UUID>> exact, int k) {
+        String setting = config.searchSetting();
+        // One untimed pass so every configuration is measured with a warm cache
+        for (String query : queries) {
+            inTransaction(setting, searchValue, () -> jdbcTemplate.queryForList(APPROXIMATE_SQL, UUID.class, query, k, query));
+        }
+
+        long[] nanos = new long[queries.size()];
+        double recallSum = 0;
+        double recallMin = 1.0;
+        for (int i = 0; i < queries.size(); i++) {
+            String query = queries.get(i);
+            long[] elapsed = new long[1];
+            List<UUID> approximate = inTransaction(setting, searchValue, () -> {
+                long start = System.nanoTime();
+                List<UUID> ids = jdbcTemplate.queryForList(APPROXIMATE_SQL, UUID.class, query, k, query);
+                elapsed[0] = System.nanoTime() - start;
+                return ids;
+            });
+            nanos[i] = elapsed[0];
+            double recall = RecallCalculator.recallAtK(exact.get(i), approximate);
+            recallSum += recall;
+            recallMin = Math.min(recallMin, recall);
+        }
+        Arrays.sort(nanos);
+
+        boolean hnsw = "hnsw".equals(config.type());
+        IndexSweepResult result = new IndexSweepResult(
+            config.type(),
+            config.m(),
+            config.efConstruction(),
+            config.lists(),
+            hnsw ? searchValue : null,
+            hnsw ? null : searchValue,
+            buildMillis,
+            indexBytes,
+            queries.size(),
+            k,
+            queries.isEmpty() ? 0 : recallSum / queries.size(),
+            queries.isEmpty() ? 0 : recallMin,
+            percentileMillis(nanos, 50),
+            percentileMillis(nanos, 95),
+            percentileMillis(nanos, 99)
+        );
+        log.info("{}={}: recall@{} {}, p95 {} ms", setting, searchValue, k, result.meanRecall(), result.p95Millis());
+        return result;
+    }
+
+    // Settings are transaction-local, so nothing leaks into other pooled connections. Not read-only: those
+    // transactions may go to a replica, which might not have the index that was just built yet
+    private <T> T inTransaction(String setting, Integer value, Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        return template.execute(status -> {
+            if (setting == null) {
+                jdbcTemplate.queryForObject("SELECT set_config('enable_indexscan', 'off', true)", String.class);
+            } else {
+                jdbcTemplate.queryForObject("SELECT set_config(?, ?, true)", String.class, setting, value.toString());
+            }
+            return action.get();
+        });
+    }
+
+    private void dropSweepIndex() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + SWEEP_INDEX);
+    }
+
+    static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,103 @@
+package de.kyle.greenmcp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase of the background data loading that has to finish before searches are served.
+ */
+@Component
+@Slf4j
+public class LoadingStatus implements MeterBinder {
+
+    public enum Phase {
+        STARTING, MIGRATING, IMPORTING, CENTROIDS, INDEXING, WARMING, READY, FAILED
+    }
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Phase phase = Phase.STARTING;
+    private volatile String error;
+    private volatile long acceptingTrafficAfterMillis;
+    private volatile long readyAfterMillis;
+
+    public void enter(Phase phase) {
+        this.phase = phase;
+    }
+
+    public void ready() {
+        phase = Phase.READY;
+        finished.countDown();
+        recordReadyTime();
+    }
+
+    // The readiness probe also needs the application to accept traffic, which Spring reports after the runners
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+            acceptingTrafficAfterMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            log.info("Accepting traffic {} ms after JVM start", acceptingTrafficAfterMillis);
+            recordReadyTime();
+        }
+    }
+
+    private synchronized void recordReadyTime() {
+        if (readyAfterMillis == 0 && isReady() && acceptingTrafficAfterMillis > 0) {
+            readyAfterMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            log.info("Ready to serve searches {} ms after JVM start", readyAfterMillis);
+        }
+    }
+
+    public void fail(Throwable cause) {
+        error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        phase = Phase.FAILED;
+        finished.countDown();
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    public String error() {
+        return error;
+    }
+
+    /**
+     * Milliseconds from JVM start until loading finished and the application accepted traffic, or 0 before that.
+     */
+    public long readyAfterMillis() {
+        return readyAfterMillis;
+    }
+
+    /**
+     * Blocks until loading has finished or failed, and returns whether the data is ready.
+     */
+    public boolean await(Duration timeout) throws InterruptedException {
+        return finished.await(timeout.toMillis(), TimeUnit.MILLISECONDS) && isReady();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("green_mcp.loading.ready", this, status -> status.isReady() ? 1 : 0)
+            .description("1 once import, index build and warm-up have finished")
+            .register(registry);
+        TimeGauge.builder("green_mcp.loading.ready_time", this, TimeUnit.MILLISECONDS, LoadingStatus::readyAfterMillis)
+            .description("Time from JVM start until searches could be served")
+            .register(registry);
+    }
+}
@@ -0,0 +1,248 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.DeduplicationProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Finds near-duplicate chunks during the import, such as boilerplate that recurs across Beschluesse.
+ * <p>
+ * Every chunk is fingerprinted twice: a 64-bit SimHash of its word shingles and a random-hyperplane signature of
+ * its embedding. Both are split into bands, and chunks that share a band with an earlier canonical chunk are
+ * candidates. A candidate is a duplicate if its embedding is within {@code min-cosine} of that chunk. SimHash
+ * finds (nearly) identical wording, the hyperplanes the same passage with different hyphenation or line breaks.
+ * The first chunk of a cluster is its canonical chunk; the others point to it.
+ */
+@Service
+public class NearDuplicateDetector {
+
+    private static final int SIMHASH_BANDS = 4;
+    private static final int SIMHASH_BAND_BITS = 16;
+
+    // Cosine 0.98 keeps 20 of 20 bits with probability ~0.27, so 12 bands find ~98% of such pairs
+    private static final int HYPERPLANE_BANDS = 12;
+    private static final int HYPERPLANE_BAND_BITS = 20;
+    private static final long HYPERPLANE_SEED = 42;
+
+    private static final int SHINGLE_WORDS = 3;
+
+    private final DeduplicationProperties properties;
+    private final Map<Integer, float[][]> hyperplanes = new HashMap<>();
+
+    public NearDuplicateDetector(DeduplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Starts an empty set of clusters. Chunks are only compared within one set, so a set per corpus keeps every
+     * cluster inside its corpus' partition.
+     */
+    public Clusters newClusters() {
+        return new Clusters();
+    }
+
+    /**
+     * 64-bit SimHash of the lowercased word 3-shingles; texts with fewer words use the words themselves.
+     */
+    static long simHash(String text) {
+        String[] words = text == null ? new String[0] : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        List<String> tokens = new ArrayList<>(words.length);
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                tokens.add(word);
+            }
+        }
+        int[] weights = new int[64];
+        int shingles = Math.max(1, tokens.size() - SHINGLE_WORDS + 1);
+        for (int i = 0; i < shingles && !tokens.isEmpty(); i++) {
+            long hash = hash64(String.join(" ", tokens.subList(i, Math.min(tokens.size(), i + SHINGLE_WORDS))));
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += (hash >>> bit & 1) == 1 ? 1 : -1;
+            }
+        }
+        long simHash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    // FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer so every input bit reaches every bit
+    private static long hash64(String shingle) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < shingle.length(); i++) {
+            hash ^= shingle.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * Band keys of the random-hyperplane signature: bit {@code j} of band {@code b} is set when the embedding lies
+     * on the positive side of hyperplane {@code b * 20 + j}.
+     */
+    int[] hyperplaneBands(float[] embedding) {
+        float[][] planes = hyperplanes(embedding.length);
+        int[] bands = new int[HYPERPLANE_BANDS];
+        for (int band = 0; band < HYPERPLANE_BANDS; band++) {
+            int key = 0;
+            for (int bit = 0; bit < HYPERPLANE_BAND_BITS; bit++) {
+                float[] plane = planes[band * HYPERPLANE_BAND_BITS + bit];
+                double dot = 0;
+                for (int i = 0; i < embedding.length; i++) {
+                    dot += plane[i] * embedding[i];
+                }
+                if (dot > 0) {
+                    key |= 1 << bit;
+                }
+            }
+            bands[band] = key;
+        }
+        return bands;
+    }
+
+    // Seeded, so the same embeddings always get the same signatures
+    private synchronized float[][] hyperplanes(int dimensions) {
+        return hyperplanes.computeIfAbsent(dimensions, d -> {
+            Random random = new Random(HYPERPLANE_SEED);
+            float[][] planes = new float[HYPERPLANE_BANDS * HYPERPLANE_BAND_BITS][d];
+            for (float[] plane : planes) {
+                for (int i = 0; i < d; i++) {
+                    plane[i] = (float) random.nextGaussian();
+                }
+            }
+            return planes;
+        });
+    }
+
+    static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    /**
+     * Canonical chunks seen so far, indexed by their bands. Holds the embedding of every canonical chunk, about
+     * 4 KB each, until it is discarded.
+     */
+    public final class Clusters {
+
+        private final List<Canonical> canonicals = new ArrayList<>();
+        private final List<Map<Integer, List<Integer>>> simHashBuckets = buckets(SIMHASH_BANDS);
+        private final List<Map<Integer, List<Integer>>> hyperplaneBuckets = buckets(HYPERPLANE_BANDS);
+        private int duplicates;
+
+        private Clusters() {
+        }
+
+        /**
+         * Returns the canonical chunk that {@code id} duplicates, or {@code null} if it starts a cluster of its own.
+         */
+        public UUID assign(UUID id, String content, float[] embedding) {
+            // Without an embedding no match can be confirmed, and the chunk is not searchable anyway
+            if (embedding == null) {
+                return null;
+            }
+            long simHash = simHash(content);
+            int[] hyperplaneBands = hyperplaneBands(embedding);
+
+            Canonical best = null;
+            double bestCosine = properties.minCosine();
+            for (int candidate : candidates(simHash, hyperplaneBands)) {
+                Canonical canonical = canonicals.get(candidate);
+                boolean textMatch = Long.bitCount(canonical.simHash() ^ simHash) <= properties.maxHammingDistance();
+                boolean vectorMatch = sharesBand(canonical.hyperplaneBands(), hyperplaneBands);
+                if (!textMatch && !vectorMatch) {
+                    continue;
+                }
+                double cosine = cosine(canonical.embedding(), embedding);
+                // Ties go to the earliest canonical chunk
+                if (best == null ? cosine >= bestCosine : cosine > bestCosine) {
+                    best = canonical;
+                    bestCosine = cosine;
+                }
+            }
+            if (best != null) {
+                duplicates++;
+                return best.id();
+            }
+
+            int index = canonicals.size();
+            canonicals.add(new Canonical(id, simHash, hyperplaneBands, embedding));
+            for (int band = 0; band < SIMHASH_BANDS; band++) {
+                simHashBuckets.get(band).computeIfAbsent(simHashBand(simHash, band), key -> new ArrayList<>()).add(index);
+            }
+            for (int band = 0; band < HYPERPLANE_BANDS; band++) {
+                hyperplaneBuckets.get(band).computeIfAbsent(hyperplaneBands[band], key -> new ArrayList<>()).add(index);
+            }
+            return null;
+        }
+
+        public int canonicalCount() {
+            return canonicals.size();
+        }
+
+        public int duplicateCount() {
+            return duplicates;
+        }
+
+        private List<Integer> candidates(long simHash, int[] hyperplaneBands) {
+            Set<Integer> candidates = new TreeSet<>();
+            for (int band = 0; band < SIMHASH_BANDS; band++) {
+                candidates.addAll(simHashBuckets.get(band).getOrDefault(simHashBand(simHash, band), List.of()));
+            }
+            for (int band = 0; band < HYPERPLANE_BANDS; band++) {
+                candidates.addAll(hyperplaneBuckets.get(band).getOrDefault(hyperplaneBands[band], List.of()));
+            }
+            return List.copyOf(candidates);
+        }
+
+        private static boolean sharesBand(int[] a, int[] b) {
+            for (int band = 0; band < a.length; band++) {
+                if (a[band] == b[band]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int simHashBand(long simHash, int band) {
+            return (int) (simHash >>> band * SIMHASH_BAND_BITS) & ((1 << SIMHASH_BAND_BITS) - 1);
+        }
+
+        private static List<Map<Integer, List<Integer>>> buckets(int bands) {
+            List<Map<Integer, List<Integer>>> buckets = new ArrayList<>(bands);
+            for (int band = 0; band < bands; band++) {
+                buckets.add(new HashMap<>());
+            }
+            return buckets;
+        }
+    }
+
+    private record Canonical(UUID id, long simHash, int[] hyperplaneBands, float[] embedding) {}
+}
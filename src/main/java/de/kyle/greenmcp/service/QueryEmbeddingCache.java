@@ -0,0 +1,104 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.SearchProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+@Component
+public class QueryEmbeddingCache implements MeterBinder {
+
+    private final Map<String, float[]> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public QueryEmbeddingCache(SearchProperties searchProperties) {
+        int capacity = searchProperties.queryCacheSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public float[] get(String query, Function<String, float[]> loader) {
+        String key = query.strip();
+        synchronized (entries) {
+            float[] cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        // Embedding happens outside the lock, so one slow API call does not block lookups of other queries
+        float[] embedding = loader.apply(query);
+        synchronized (entries) {
+            entries.put(key, embedding);
+        }
+        return embedding;
+    }
+
+    /**
+     * Like {@link #get}, for callers that load the embedding asynchronously: counts a hit or a miss, and on a miss
+     * returns {@code null} so the caller can {@link #put} the loaded embedding.
+     */
+    public float[] lookup(String query) {
+        float[] cached = getIfPresent(query);
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    public float[] getIfPresent(String query) {
+        synchronized (entries) {
+            return entries.get(query.strip());
+        }
+    }
+
+    public void put(String query, float[] embedding) {
+        synchronized (entries) {
+            entries.put(query.strip(), embedding);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("green_mcp.query_cache.requests", this, QueryEmbeddingCache::hits)
+            .description("Query embedding cache lookups")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.query_cache.requests", this, QueryEmbeddingCache::misses)
+            .description("Query embedding cache lookups")
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder("green_mcp.query_cache.size", this, QueryEmbeddingCache::size)
+            .description("Cached query embeddings")
+            .register(registry);
+    }
+}
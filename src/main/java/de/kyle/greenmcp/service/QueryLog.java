@@ -0,0 +1,208 @@
+package de.kyle.greenmcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.kyle.greenmcp.config.QueryLogProperties;
+import de.kyle.greenmcp.dto.QueryLogRecord;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Captures MCP tool calls for later replay.
+ * <p>
+ * The calling thread only extracts the result ids and offers an entry to a lock-free ring buffer; when the
+ * buffer is full the entry is dropped. A background thread drains the buffer periodically, resolves the
+ * query embedding from the {@link QueryEmbeddingCache} and appends one JSON line per call to a rotating file.
+ */
+@Component
+@Slf4j
+public class QueryLog implements MeterBinder, DisposableBean {
+
+    private static final String ID_FIELD = "\"id\":\"";
+    private static final int UUID_LENGTH = 36;
+    private static final byte[] NEWLINE = {'\n'};
+    private static final TypeReference<Map<String, Object>> ARGUMENTS = new TypeReference<>() {};
+
+    private final QueryLogProperties properties;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final ObjectMapper objectMapper;
+    private final QueryLogBuffer<Entry> buffer;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private RotatingFileWriter writer;
+
+    record Entry(long timestampMillis, String tool, String arguments, long latencyNanos, List<String> resultIds, boolean error) {
+    }
+
+    public QueryLog(QueryLogProperties properties, QueryEmbeddingCache queryEmbeddingCache, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.objectMapper = objectMapper;
+        this.buffer = new QueryLogBuffer<>(properties.bufferSize());
+        if (properties.enabled()) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "query-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.flushInterval().toMillis();
+            flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    public void record(String tool, String arguments, long latencyNanos, String output, boolean error) {
+        if (!properties.enabled()
+                || (properties.sampleRate() < 1 && ThreadLocalRandom.current().nextDouble() >= properties.sampleRate())) {
+            return;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), tool, arguments, latencyNanos, resultIds(output), error);
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes all buffered entries to the log file. Called by the background thread and on shutdown.
+     */
+    synchronized void flush() {
+        try {
+            if (writer == null) {
+                writer = new RotatingFileWriter(Path.of(properties.file()), properties.maxFileSize().toBytes(), properties.maxFiles());
+            }
+            int drained = buffer.drain(entry -> {
+                try {
+                    writer.write(objectMapper.writeValueAsBytes(toRecord(entry)));
+                    writer.write(NEWLINE);
+                    written.increment();
+                } catch (IOException e) {
+                    dropped.increment();
+                    log.warn("Could not write query log entry: {}", e.getMessage());
+                }
+            });
+            if (drained > 0) {
+                writer.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not flush query log to {}: {}", properties.file(), e.getMessage());
+        }
+    }
+
+    QueryLogRecord toRecord(Entry entry) {
+        Map<String, Object> arguments = parseArguments(entry.arguments());
+        String query = query(arguments);
+        return new QueryLogRecord(
+            entry.timestampMillis(),
+            entry.tool(),
+            arguments,
+            query,
+            query == null ? null : queryEmbeddingCache.getIfPresent(query),
+            entry.latencyNanos() / 1e6,
+            entry.resultIds(),
+            entry.error()
+        );
+    }
+
+    private Map<String, Object> parseArguments(String arguments) {
+        if (arguments == null || arguments.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(arguments, ARGUMENTS);
+        } catch (JsonProcessingException e) {
+            return Map.of("raw", arguments);
+        }
+    }
+
+    // Continuations carry the query in their token
+    private static String query(Map<String, Object> arguments) {
+        if (arguments.get("fortsetzung") instanceof String token && !token.isBlank()) {
+            try {
+                return ContinuationToken.decode(token).query();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return arguments.get("query") instanceof String query ? query : null;
+    }
+
+    /**
+     * Collects the chunk ids of a serialized tool response in order, without parsing the JSON.
+     * Quotes inside string values are escaped, so only real {@code id} fields match.
+     */
+    public static List<String> resultIds(String output) {
+        if (output == null) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>();
+        int from = 0;
+        while ((from = output.indexOf(ID_FIELD, from)) >= 0) {
+            int start = from + ID_FIELD.length();
+            if (start + UUID_LENGTH > output.length()) {
+                break;
+            }
+            ids.add(output.substring(start, start + UUID_LENGTH));
+            from = start + UUID_LENGTH;
+        }
+        return ids;
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("green_mcp.query_log.entries", this, QueryLog::written)
+            .description("Captured tool calls by outcome")
+            .tag("result", "written")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.query_log.entries", this, QueryLog::dropped)
+            .description("Captured tool calls by outcome")
+            .tag("result", "dropped")
+            .register(registry);
+        Gauge.builder("green_mcp.query_log.pending", buffer, QueryLogBuffer::size)
+            .description("Captured tool calls waiting to be written")
+            .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+        synchronized (this) {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
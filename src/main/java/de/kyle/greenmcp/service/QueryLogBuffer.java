@@ -0,0 +1,66 @@
+package de.kyle.greenmcp.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim a slot with one CAS on the head and publish the element into it; {@link #offer} fails
+ * instead of blocking when the buffer is full. The consumer stops at the first slot that is claimed but
+ * not yet published and picks it up on the next drain.
+ */
+final class QueryLogBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    // Written by the consumer only, after the slot has been cleared
+    private volatile long tail;
+
+    QueryLogBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    boolean offer(T element) {
+        long claimed;
+        do {
+            claimed = head.get();
+            if (claimed - tail >= slots.length()) {
+                return false;
+            }
+        } while (!head.compareAndSet(claimed, claimed + 1));
+        slots.setRelease((int) claimed & mask, element);
+        return true;
+    }
+
+    /**
+     * Hands all published elements to {@code consumer} in claim order. Must not be called concurrently.
+     */
+    int drain(Consumer<T> consumer) {
+        long position = tail;
+        int drained = 0;
+        while (true) {
+            int index = (int) position & mask;
+            T element = slots.getAcquire(index);
+            if (element == null) {
+                return drained;
+            }
+            slots.set(index, null);
+            tail = ++position;
+            consumer.accept(element);
+            drained++;
+        }
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    int size() {
+        return (int) (head.get() - tail);
+    }
+}
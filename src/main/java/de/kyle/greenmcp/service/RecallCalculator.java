@@ -0,0 +1,67 @@
+package de.kyle.greenmcp.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class RecallCalculator {
+
+    private RecallCalculator() {
+    }
+
+    public static <T> double recallAtK(List<T> exact, List<T> approximate) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        Set<T> found = new HashSet<>(approximate);
+        int hits = 0;
+        for (T id : exact) {
+            if (found.contains(id)) {
+                hits++;
+            }
+        }
+        return (double) hits / exact.size();
+    }
+
+    /**
+     * Rank-biased overlap of two rankings truncated at the longer list, scaled so identical rankings score 1.
+     * Agreement at the top ranks weighs more than agreement further down; {@code persistence} controls how fast
+     * the weights decay.
+     */
+    public static <T> double rankBiasedOverlap(List<T> exact, List<T> approximate, double persistence) {
+        int depth = Math.max(exact.size(), approximate.size());
+        if (depth == 0) {
+            return 1.0;
+        }
+        Set<T> seenExact = new HashSet<>();
+        Set<T> seenApproximate = new HashSet<>();
+        int overlap = 0;
+        double weight = 1.0;
+        double score = 0;
+        double maxScore = 0;
+        for (int d = 0; d < depth; d++) {
+            T fromExact = d < exact.size() ? exact.get(d) : null;
+            T fromApproximate = d < approximate.size() ? approximate.get(d) : null;
+            if (fromExact != null && fromExact.equals(fromApproximate)) {
+                overlap++;
+            } else {
+                if (fromExact != null && seenApproximate.contains(fromExact)) {
+                    overlap++;
+                }
+                if (fromApproximate != null && seenExact.contains(fromApproximate)) {
+                    overlap++;
+                }
+            }
+            if (fromExact != null) {
+                seenExact.add(fromExact);
+            }
+            if (fromApproximate != null) {
+                seenApproximate.add(fromApproximate);
+            }
+            score += weight * overlap / (d + 1);
+            maxScore += weight;
+            weight *= persistence;
+        }
+        return score / maxScore;
+    }
+}
@@ -0,0 +1,146 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.RecallMonitorProperties;
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.entity.BeschlussId;
+import de.kyle.greenmcp.repository.BeschlussRepository;
+import de.kyle.greenmcp.repository.ChunkKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-runs a sample of served approximate searches as exact scans in the background and publishes
+ * recall@k and rank-biased overlap against what was served. Only corpus-wide searches go through the HNSW index or
+ * the centroids, so searches within a Beschluss, which are always exact, are not sampled. Rows are compared by their
+ * primary key, since the same id can occur in several corpora.
+ * <p>
+ * Comparisons run on one low-priority thread with a bounded queue; when the queue is full the sample is
+ * dropped, so monitoring never adds latency to the request that was sampled.
+ */
+@Component
+@Slf4j
+public class RecallMonitor implements DisposableBean {
+
+    private static final double RANK_PERSISTENCE = 0.9;
+    private static final double[] RECALL_BUCKETS = {0.5, 0.8, 0.9, 0.95, 0.99, 1.0};
+
+    private final BeschlussRepository beschlussRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SearchProperties searchProperties;
+    private final RecallMonitorProperties properties;
+    private final Executor executor;
+    private final DistributionSummary recall;
+    private final DistributionSummary rankOverlap;
+    private final Counter compared;
+    private final Counter dropped;
+    private final Counter failed;
+
+    @Autowired
+    public RecallMonitor(BeschlussRepository beschlussRepository, PlatformTransactionManager transactionManager,
+                         SearchProperties searchProperties, RecallMonitorProperties properties, MeterRegistry registry) {
+        this(beschlussRepository, transactionManager, searchProperties, properties, registry,
+            lowPriorityExecutor(properties.queueCapacity()));
+    }
+
+    RecallMonitor(BeschlussRepository beschlussRepository, PlatformTransactionManager transactionManager,
+                  SearchProperties searchProperties, RecallMonitorProperties properties, MeterRegistry registry,
+                  Executor executor) {
+        this.beschlussRepository = beschlussRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.searchProperties = searchProperties;
+        this.properties = properties;
+        this.executor = executor;
+
+        String operation = SearchMetrics.Operation.SEARCH.name().toLowerCase();
+        this.recall = DistributionSummary.builder("green_mcp.recall.at_k")
+            .description("Recall@k of served results against an exact scan")
+            .tag("operation", operation)
+            .serviceLevelObjectives(RECALL_BUCKETS)
+            .register(registry);
+        this.rankOverlap = DistributionSummary.builder("green_mcp.recall.rank_overlap")
+            .description("Rank-biased overlap of served results and an exact scan")
+            .tag("operation", operation)
+            .serviceLevelObjectives(RECALL_BUCKETS)
+            .register(registry);
+        this.compared = samples(registry, "compared");
+        this.dropped = samples(registry, "dropped");
+        this.failed = samples(registry, "failed");
+    }
+
+    private static Counter samples(MeterRegistry registry, String result) {
+        return Counter.builder("green_mcp.recall.samples")
+            .description("Sampled searches by outcome of the exact comparison")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static ExecutorService lowPriorityExecutor(int queueCapacity) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "recall-monitor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Possibly schedules an exact comparison for the results of an unfiltered corpus-wide search. Searches in
+     * {@code exact} mode are never sampled.
+     */
+    public void sample(String vectorString, List<Beschluss> served) {
+        if (properties.sampleRate() <= 0 || searchProperties.mode() == SearchMode.EXACT || served.isEmpty()
+                || ThreadLocalRandom.current().nextDouble() >= properties.sampleRate()) {
+            return;
+        }
+        List<BeschlussId> servedKeys = served.stream().map(b -> new BeschlussId(b.getId(), b.getCorpus())).toList();
+        try {
+            executor.execute(() -> compare(vectorString, servedKeys));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private void compare(String vectorString, List<BeschlussId> servedKeys) {
+        try {
+            List<BeschlussId> exact = transactionTemplate.execute(status -> {
+                beschlussRepository.disableIndexScans();
+                return beschlussRepository.findKeysByEmbeddingSimilarity(vectorString, servedKeys.size()).stream()
+                    .map(ChunkKey::toBeschlussId)
+                    .toList();
+            });
+            recall.record(RecallCalculator.recallAtK(exact, servedKeys));
+            rankOverlap.record(RecallCalculator.rankBiasedOverlap(exact, servedKeys, RANK_PERSISTENCE));
+            compared.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.debug("Recall comparison failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+}
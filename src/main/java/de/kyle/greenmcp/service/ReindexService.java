@@ -0,0 +1,380 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.DataLoader;
+import de.kyle.greenmcp.config.ReindexProperties;
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.dto.ReindexStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuilds {@code beschluesse} and {@code beschluss_vectors} without degrading search.
+ * <p>
+ * The data is loaded into shadow tables (from the CSV files or copied from the live tables) and indexed there,
+ * while queries keep hitting the live tables. After row counts and sample recall of the new vector index have
+ * been validated, all tables and their indexes are renamed in one short transaction, together with the
+ * centroid refresh. Cached plans are re-analyzed after the rename, so the next query uses the new tables.
+ * The shadow tables are partitioned by corpus like the live ones, and their partitions are renamed with them.
+ */
+@Service
+@Slf4j
+public class ReindexService {
+
+    static final String LIVE_TABLE = "beschluesse";
+    static final String SHADOW_TABLE = "beschluesse_shadow";
+    static final String OLD_TABLE = "beschluesse_old";
+    static final String LIVE_VECTOR_TABLE = "beschluss_vectors";
+    static final String SHADOW_VECTOR_TABLE = "beschluss_vectors_shadow";
+    static final String OLD_VECTOR_TABLE = "beschluss_vectors_old";
+    static final String SHADOW_SUFFIX = "_shadow";
+    static final String OLD_SUFFIX = "_old";
+
+    private static final String INSERT_SQL = """
+        INSERT INTO beschluesse_shadow (id, corpus, pdf_url, chunk_index, content, title, topic, filename, word_count, created_at, duplicate_of)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_VECTOR_SQL = """
+        INSERT INTO beschluss_vectors_shadow (id, corpus, filename, topic, created_at, duplicate_of, embedding)
+        VALUES (?, ?, ?, ?, ?, ?, cast(? as vector))
+        """;
+
+    private static final String EXACT_SQL = """
+        SELECT id FROM beschluss_vectors_shadow
+        WHERE duplicate_of IS NULL
+        ORDER BY embedding <=> cast(? as vector), id
+        LIMIT ?
+        """;
+
+    private static final String APPROXIMATE_SQL = """
+        SELECT id FROM (
+            SELECT id, embedding FROM beschluss_vectors_shadow
+            WHERE duplicate_of IS NULL
+            ORDER BY embedding <=> cast(? as vector)
+            LIMIT ?
+        ) nearest
+        ORDER BY embedding <=> cast(? as vector), id
+        """;
+
+    private static final String INDEXES_SQL = """
+        SELECT cast(i.indexrelid as regclass)::text AS name, cast(i.indrelid as regclass)::text AS tbl,
+               cast(p.inhparent as regclass)::text AS parent
+        FROM pg_partition_tree(to_regclass(?)) t
+        JOIN pg_index i ON i.indrelid = t.relid
+        LEFT JOIN pg_inherits p ON p.inhrelid = i.indexrelid
+        ORDER BY 1
+        """;
+
+    private static final int RECALL_K = 10;
+
+    public enum Source {
+        CSV, TABLE
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DataLoader dataLoader;
+    private final VectorIndexManager vectorIndexManager;
+    private final BeschlussService beschlussService;
+    private final SearchProperties searchProperties;
+    private final ReindexProperties properties;
+    private final LoadingStatus loadingStatus;
+    private final CorpusPartitionManager corpusPartitionManager;
+    private final CorpusProperties corpusProperties;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReindexStatus status = ReindexStatus.IDLE;
+
+    public ReindexService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, DataLoader dataLoader,
+                          VectorIndexManager vectorIndexManager, BeschlussService beschlussService,
+                          SearchProperties searchProperties, ReindexProperties properties, LoadingStatus loadingStatus,
+                          CorpusPartitionManager corpusPartitionManager, CorpusProperties corpusProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataLoader = dataLoader;
+        this.vectorIndexManager = vectorIndexManager;
+        this.beschlussService = beschlussService;
+        this.searchProperties = searchProperties;
+        this.properties = properties;
+        this.loadingStatus = loadingStatus;
+        this.corpusPartitionManager = corpusPartitionManager;
+        this.corpusProperties = corpusProperties;
+    }
+
+    public ReindexStatus status() {
+        return status;
+    }
+
+    /**
+     * Starts a reindex in the background. Returns the status of the running reindex if one is already in progress.
+     */
+    public ReindexStatus start(Source source) {
+        if (!loadingStatus.isReady()) {
+            throw new IllegalStateException("Initial data loading has not finished yet");
+        }
+        // The shadow table lives on the regular datasource and would take the rows of every shard
+        if (beschlussService.isSharded()) {
+            throw new IllegalStateException("Reindexing is not supported with additional shards");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return status;
+        }
+        status = new ReindexStatus("loading", source.name().toLowerCase(Locale.ROOT), Instant.now(), null, null, null, null, null);
+        Thread.ofPlatform().name("reindex").daemon(true).start(() -> run(source));
+        return status;
+    }
+
+    void run(Source source) {
+        try {
+            List<String> corpora = shadowCorpora(source);
+            load(source, corpora);
+            status = status.withPhase("indexing");
+            index(corpora);
+            status = status.withPhase("validating");
+            validate();
+            status = status.withPhase("swapping");
+            swap(corpora);
+            beschlussService.invalidateCachedResults();
+            status = status.finished("completed", null);
+            log.info("Reindex from {} completed with {} rows", source, status.shadowRows());
+        } catch (Exception e) {
+            log.error("Reindex from {} failed, keeping the live tables", source, e);
+            status = status.finished("failed", e.getMessage());
+            dropShadowTables();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // A CSV reindex loads the configured corpora; a copy also needs partitions for corpora no longer configured
+    private List<String> shadowCorpora(Source source) {
+        Set<String> corpora = new LinkedHashSet<>(corpusProperties.names());
+        if (source == Source.TABLE) {
+            corpora.addAll(corpusPartitionManager.corpora(LIVE_TABLE));
+        }
+        return List.copyOf(corpora);
+    }
+
+    private void load(Source source, List<String> corpora) throws Exception {
+        dropShadowTables();
+        corpusPartitionManager.createPartitionedTables(SHADOW_SUFFIX, corpora);
+        if (source == Source.TABLE) {
+            // Rewriting the rows also compacts them, e.g. after the embeddings were moved out of the text table
+            jdbcTemplate.execute("INSERT INTO " + SHADOW_TABLE + " SELECT * FROM " + LIVE_TABLE);
+            jdbcTemplate.execute("INSERT INTO " + SHADOW_VECTOR_TABLE + " SELECT * FROM " + LIVE_VECTOR_TABLE);
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(properties.batchSize());
+        List<Object[]> vectorBatch = new ArrayList<>(properties.batchSize());
+        dataLoader.importCsvData(corpusProperties.effectiveSources(), (beschluss, embedding) -> {
+            batch.add(new Object[]{beschluss.getId(), beschluss.getCorpus(), beschluss.getPdfUrl(), beschluss.getChunkIndex(), beschluss.getContent(),
+                beschluss.getTitle(), beschluss.getTopic(), beschluss.getFilename(), beschluss.getWordCount(), beschluss.getCreatedAt(),
+                beschluss.getDuplicateOf()});
+            vectorBatch.add(new Object[]{beschluss.getId(), beschluss.getCorpus(), beschluss.getFilename(), beschluss.getTopic(),
+                beschluss.getCreatedAt(), beschluss.getDuplicateOf(), embedding});
+            if (batch.size() >= properties.batchSize()) {
+                flush(batch, vectorBatch);
+            }
+        });
+        if (!batch.isEmpty()) {
+            flush(batch, vectorBatch);
+        }
+    }
+
+    private void flush(List<Object[]> batch, List<Object[]> vectorBatch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        jdbcTemplate.batchUpdate(INSERT_VECTOR_SQL, vectorBatch);
+        batch.clear();
+        vectorBatch.clear();
+    }
+
+    // Indexes are built after loading, named like the live ones plus a suffix that the swap removes
+    private void index(List<String> corpora) {
+        List<String> statements = new ArrayList<>(CorpusPartitionManager.indexStatements(SHADOW_TABLE, SHADOW_SUFFIX));
+        statements.addAll(CorpusPartitionManager.vectorIndexStatements(SHADOW_VECTOR_TABLE, SHADOW_SUFFIX));
+        for (String statement : statements) {
+            jdbcTemplate.execute(statement);
+        }
+        if (searchProperties.mode() == SearchMode.ANN) {
+            for (String corpus : corpora) {
+                vectorIndexManager.createHnswIndex(CorpusPartitionManager.partition(SHADOW_VECTOR_TABLE, corpus),
+                    VectorIndexManager.hnswIndex(corpus) + SHADOW_SUFFIX);
+            }
+        }
+        jdbcTemplate.execute("ANALYZE " + SHADOW_TABLE + ", " + SHADOW_VECTOR_TABLE);
+    }
+
+    private void validate() {
+        long liveRows = count(LIVE_TABLE);
+        long shadowRows = count(SHADOW_TABLE);
+        double recall = searchProperties.mode() == SearchMode.ANN ? sampleRecall() : 1.0;
+        status = status.withValidation(liveRows, shadowRows, recall);
+        log.info("Reindex validation: {} live rows, {} shadow rows, sample recall@{} {}", liveRows, shadowRows, RECALL_K, recall);
+
+        String problem = validationProblem(liveRows, shadowRows, recall, properties);
+        if (problem != null) {
+            throw new IllegalStateException(problem);
+        }
+    }
+
+    /**
+     * Returns why the shadow table must not replace the live table, or {@code null} if it may.
+     */
+    static String validationProblem(long liveRows, long shadowRows, double recall, ReindexProperties properties) {
+        if (shadowRows == 0) {
+            return "Shadow table is empty";
+        }
+        if (shadowRows < liveRows * properties.minRowRatio()) {
+            return String.format(Locale.ROOT, "Shadow table has %d rows, less than %.0f%% of the %d live rows",
+                shadowRows, properties.minRowRatio() * 100, liveRows);
+        }
+        if (recall < properties.minRecall()) {
+            return String.format(Locale.ROOT, "Sample recall %.3f of the new index is below %.3f", recall, properties.minRecall());
+        }
+        return null;
+    }
+
+    // Stored embeddings as queries: exact scan (index scans off) against the new HNSW index
+    private double sampleRecall() {
+        List<String> queries = jdbcTemplate.queryForList(
+            "SELECT cast(embedding as text) FROM " + SHADOW_VECTOR_TABLE + " ORDER BY random() LIMIT ?", String.class,
+            properties.validationSamples());
+        if (queries.isEmpty()) {
+            return 1.0;
+        }
+        double sum = 0;
+        for (String query : queries) {
+            List<UUID> exact = transactionTemplate.execute(tx -> {
+                jdbcTemplate.queryForObject("SELECT set_config('enable_indexscan', 'off', true)", String.class);
+                return jdbcTemplate.queryForList(EXACT_SQL, UUID.class, query, RECALL_K);
+            });
+            List<UUID> approximate = jdbcTemplate.queryForList(APPROXIMATE_SQL, UUID.class, query, RECALL_K, query);
+            sum += RecallCalculator.recallAtK(exact, approximate);
+        }
+        return sum / queries.size();
+    }
+
+    private void swap(List<String> shadowCorpora) {
+        List<String> liveCorpora = corpusPartitionManager.corpora(LIVE_TABLE);
+        List<Index> liveIndexes = indexes(LIVE_TABLE, LIVE_VECTOR_TABLE);
+        List<Index> shadowIndexes = indexes(SHADOW_TABLE, SHADOW_VECTOR_TABLE);
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(tx -> {
+            // Fail instead of queueing searches behind the rename for long
+            jdbcTemplate.queryForObject("SELECT set_config('lock_timeout', ?, true)", String.class,
+                properties.lockTimeout().toMillis() + "ms");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + OLD_TABLE + ", " + OLD_VECTOR_TABLE);
+            for (String statement : swapStatements(liveCorpora, shadowCorpora, liveIndexes, shadowIndexes)) {
+                jdbcTemplate.execute(statement);
+            }
+            // Centroids are derived from the chunks and switch in the same transaction
+            beschlussService.refreshCentroids();
+        });
+        log.info("Swapped in the new {} and {} tables in {} ms", LIVE_TABLE, LIVE_VECTOR_TABLE, (System.nanoTime() - start) / 1_000_000);
+        if (!properties.keepOldTable()) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + OLD_TABLE + ", " + OLD_VECTOR_TABLE);
+        }
+    }
+
+    /**
+     * An index of one of the tables or their partitions. {@code parent} is the index on the partitioned table that a
+     * partition's index belongs to, or {@code null}.
+     */
+    record Index(String name, String table, String parent) {
+    }
+
+    static List<String> swapStatements(List<String> liveCorpora, List<String> shadowCorpora,
+                                       List<Index> liveIndexes, List<Index> shadowIndexes) {
+        List<String> statements = new ArrayList<>();
+        renameTable(statements, LIVE_TABLE, OLD_TABLE, liveCorpora);
+        renameTable(statements, LIVE_VECTOR_TABLE, OLD_VECTOR_TABLE, liveCorpora);
+        for (Index index : liveIndexes) {
+            statements.add("ALTER INDEX " + index.name() + " RENAME TO " + index.name() + OLD_SUFFIX);
+        }
+        renameTable(statements, SHADOW_TABLE, LIVE_TABLE, shadowCorpora);
+        renameTable(statements, SHADOW_VECTOR_TABLE, LIVE_VECTOR_TABLE, shadowCorpora);
+        for (Index index : shadowIndexes) {
+            String target = liveName(index, liveIndexes);
+            if (!target.equals(index.name())) {
+                statements.add("ALTER INDEX " + index.name() + " RENAME TO " + target);
+            }
+        }
+        return statements;
+    }
+
+    /*
+     * Indexes created by the reindex carry the shadow suffix. PostgreSQL names the copies on the partitions after the
+     * shadow partition, so they take the name of the live partition's index with the same parent, or, for a new
+     * corpus, the live partition's name in place of the shadow partition's.
+     */
+    private static String liveName(Index index, List<Index> liveIndexes) {
+        if (index.parent() == null) {
+            return index.name().endsWith(SHADOW_SUFFIX) ? stripShadowSuffix(index.name()) : index.name();
+        }
+        String liveTable = liveTable(index.table());
+        String liveParent = stripShadowSuffix(index.parent());
+        for (Index live : liveIndexes) {
+            if (live.table().equals(liveTable) && liveParent.equals(live.parent())) {
+                return live.name();
+            }
+        }
+        return index.name().startsWith(index.table()) ? liveTable + index.name().substring(index.table().length()) : index.name();
+    }
+
+    private static String liveTable(String shadowTable) {
+        if (shadowTable.startsWith(SHADOW_VECTOR_TABLE)) {
+            return LIVE_VECTOR_TABLE + shadowTable.substring(SHADOW_VECTOR_TABLE.length());
+        }
+        if (shadowTable.startsWith(SHADOW_TABLE)) {
+            return LIVE_TABLE + shadowTable.substring(SHADOW_TABLE.length());
+        }
+        return shadowTable;
+    }
+
+    private static String stripShadowSuffix(String name) {
+        return name.endsWith(SHADOW_SUFFIX) ? name.substring(0, name.length() - SHADOW_SUFFIX.length()) : name;
+    }
+
+    // Both tables have a partition per corpus, see CorpusPartitionManager
+    private static void renameTable(List<String> statements, String from, String to, List<String> corpora) {
+        statements.add("ALTER TABLE " + from + " RENAME TO " + to);
+        for (String corpus : corpora) {
+            statements.add("ALTER TABLE " + CorpusPartitionManager.partition(from, corpus)
+                + " RENAME TO " + CorpusPartitionManager.partition(to, corpus));
+        }
+    }
+
+    // Indexes of the tables and of all their partitions, with the table and the parent index they belong to
+    private List<Index> indexes(String table, String vectorTable) {
+        RowMapper<Index> mapper = (rs, rowNum) -> new Index(rs.getString("name"), rs.getString("tbl"), rs.getString("parent"));
+        List<Index> indexes = new ArrayList<>(jdbcTemplate.query(INDEXES_SQL, mapper, table));
+        indexes.addAll(jdbcTemplate.query(INDEXES_SQL, mapper, vectorTable));
+        return indexes;
+    }
+
+    private long count(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private void dropShadowTables() {
+        try {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE + ", " + SHADOW_VECTOR_TABLE);
+        } catch (RuntimeException e) {
+            log.warn("Could not drop {} and {}: {}", SHADOW_TABLE, SHADOW_VECTOR_TABLE, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.entity.Beschluss;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class ResultDiversifier {
+
+    public List<Beschluss> diversify(float[] queryEmbedding, List<Beschluss> candidates, int limit,
+                                     Diversification diversification) {
+        int n = candidates.size();
+        if (n == 0) {
+            return candidates;
+        }
+        int dim = queryEmbedding.length;
+        double lambda = 1.0 - Math.max(0, Math.min(1, diversification.diversity()));
+        int maxPerDocument = diversification.maxPerDocument() == null
+            ? Integer.MAX_VALUE
+            : Math.max(1, diversification.maxPerDocument());
+
+        // Normalized candidate vectors in one flat array, so cosine similarity is a plain dot product
+        float[] query = new float[dim];
+        normalizeInto(queryEmbedding, query, 0);
+        float[] vectors = new float[n * dim];
+        float[] relevance = new float[n];
+        int[] document = new int[n];
+        Map<String, Integer> documentIds = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Beschluss candidate = candidates.get(i);
+            float[] embedding = candidate.getEmbedding();
+            if (embedding != null && embedding.length == dim) {
+                normalizeInto(embedding, vectors, i * dim);
+                relevance[i] = dot(vectors, i * dim, query, 0, dim);
+            } else {
+                // Without a stored vector the database rank is the only relevance signal left
+                relevance[i] = 1.0f - (float) i / n;
+            }
+            // The same filename can occur in several corpora, as different documents; corpus names contain no '/'
+            document[i] = documentIds.computeIfAbsent(candidate.getCorpus() + "/" + candidate.getFilename(),
+                d -> documentIds.size());
+        }
+
+        float[] maxSimilarity = new float[n];
+        Arrays.fill(maxSimilarity, -1.0f);
+        boolean[] selected = new boolean[n];
+        int[] perDocument = new int[documentIds.size()];
+        List<Beschluss> result = new ArrayList<>(Math.min(limit, n));
+
+        while (result.size() < limit) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i] || perDocument[document[i]] >= maxPerDocument) {
+                    continue;
+                }
+                double redundancy = result.isEmpty() ? 0 : maxSimilarity[i];
+                double score = lambda * relevance[i] - (1 - lambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            selected[best] = true;
+            perDocument[document[best]]++;
+            result.add(candidates.get(best));
+
+            if (lambda < 1) {
+                for (int i = 0; i < n; i++) {
+                    if (!selected[i]) {
+                        float similarity = dot(vectors, i * dim, vectors, best * dim, dim);
+                        if (similarity > maxSimilarity[i]) {
+                            maxSimilarity[i] = similarity;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void normalizeInto(float[] vector, float[] target, int offset) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            target[offset + i] = vector[i] * scale;
+        }
+    }
+
+    private static float dot(float[] a, int aOffset, float[] b, int bOffset, int dim) {
+        float sum = 0;
+        for (int i = 0; i < dim; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+}
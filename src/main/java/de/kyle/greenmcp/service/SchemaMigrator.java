@@ -0,0 +1,53 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.SchemaProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Applies the versioned migrations in {@code db/migration} unless {@code green-mcp.schema.flyway} is switched off.
+ * <p>
+ * Runs as the first step of the background data loading instead of through Spring Boot's Flyway
+ * auto-configuration, so the context can be refreshed without a database (AppCDS training run) and the
+ * migration is covered by the readiness gate. Databases created by Hibernate are baselined below V1, and V1
+ * only creates what is missing. The placeholder {@code default_corpus} names the corpus that existing rows
+ * belong to when the tables are partitioned.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchemaMigrator {
+
+    private final DataSource dataSource;
+    private final SchemaProperties properties;
+    private final CorpusProperties corpusProperties;
+
+    public void migrate() {
+        if (properties.flyway()) {
+            migrate(dataSource);
+        }
+    }
+
+    /**
+     * Applies the migrations regardless of {@code green-mcp.schema.flyway}, for datasources Hibernate does not
+     * manage, such as additional shards.
+     */
+    public void migrate(DataSource target) {
+        MigrateResult result = Flyway.configure()
+            .dataSource(target)
+            .locations("classpath:db/migration")
+            .baselineOnMigrate(true)
+            .baselineVersion("0")
+            .placeholders(Map.of("default_corpus", corpusProperties.defaultName()))
+            .load()
+            .migrate();
+        log.info("Applied {} schema migrations, schema version {}", result.migrationsExecuted, result.targetSchemaVersion);
+    }
+}
@@ -0,0 +1,154 @@
+package de.kyle.greenmcp.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the search pipeline and the MCP tools.
+ * <p>
+ * All meters are registered up front and looked up without building tags, so recording on the request
+ * path is a {@link System#nanoTime()} call and a histogram update. Callers pass the start time of a stage
+ * and get the end time back to use as the start of the next one.
+ */
+@Component
+public class SearchMetrics {
+
+    public static final String STAGE_TIMER = "green_mcp.search.stage";
+    public static final String TOOL_STAGE_TIMER = "green_mcp.tool.stage";
+    public static final String TOOL_TIMER = "green_mcp.tool.calls";
+    public static final String TOOL_RESULTS = "green_mcp.tool.results";
+    public static final String TOOL_PAYLOAD = "green_mcp.tool.payload";
+    public static final String EMBEDDING_TIMER = "green_mcp.embedding.requests";
+
+    private static final Duration[] LATENCY_BUCKETS = {
+        Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+        Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+        Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5)
+    };
+
+    private static final double[] RESULT_BUCKETS = {1, 5, 10, 20, 50};
+
+    private static final double[] PAYLOAD_BUCKETS = {1_000, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000};
+
+    public enum Stage {
+        EMBEDDING, DATABASE, RERANK
+    }
+
+    public enum Operation {
+        SEARCH(Stage.EMBEDDING, Stage.DATABASE, Stage.RERANK),
+        SEARCH_IN(Stage.EMBEDDING, Stage.DATABASE),
+        CONTINUE(Stage.EMBEDDING, Stage.DATABASE),
+        CONTEXT(Stage.DATABASE);
+
+        private final Stage[] stages;
+
+        Operation(Stage... stages) {
+            this.stages = stages;
+        }
+    }
+
+    public enum ToolStage {
+        MAPPING, SERIALIZATION
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Operation, Map<Stage, Timer>> stageTimers = new EnumMap<>(Operation.class);
+    private final Map<ToolStage, Timer> toolStageTimers = new EnumMap<>(ToolStage.class);
+    private final Map<String, ToolMeters> toolMeters = new ConcurrentHashMap<>();
+    private final Timer embeddingTimer;
+
+    public SearchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Operation operation : Operation.values()) {
+            Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+            for (Stage stage : operation.stages) {
+                timers.put(stage, latencyTimer(STAGE_TIMER)
+                    .description("Duration of one stage of a search")
+                    .tag("operation", tagValue(operation))
+                    .tag("stage", tagValue(stage))
+                    .register(registry));
+            }
+            stageTimers.put(operation, timers);
+        }
+        for (ToolStage stage : ToolStage.values()) {
+            toolStageTimers.put(stage, latencyTimer(TOOL_STAGE_TIMER)
+                .description("Duration of result mapping and JSON serialization in the MCP tools")
+                .tag("stage", tagValue(stage))
+                .register(registry));
+        }
+        this.embeddingTimer = latencyTimer(EMBEDDING_TIMER)
+            .description("Duration of embedding API calls for queries missing from the cache")
+            .register(registry);
+    }
+
+    /**
+     * Records the time since {@code startNanos} for a search stage and returns the current time.
+     */
+    public long recordStage(Operation operation, Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stageTimers.get(operation).get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public long recordToolStage(ToolStage stage, long startNanos) {
+        long now = System.nanoTime();
+        toolStageTimers.get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void recordEmbedding(long startNanos) {
+        embeddingTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordResults(String tool, int results) {
+        tool(tool).results().record(results);
+    }
+
+    public ToolMeters tool(String tool) {
+        ToolMeters meters = toolMeters.get(tool);
+        return meters != null ? meters : toolMeters.computeIfAbsent(tool, this::createToolMeters);
+    }
+
+    private ToolMeters createToolMeters(String tool) {
+        return new ToolMeters(
+            latencyTimer(TOOL_TIMER)
+                .description("Duration of MCP tool calls including argument binding and serialization")
+                .tags("tool", tool, "outcome", "success")
+                .register(registry),
+            latencyTimer(TOOL_TIMER)
+                .description("Duration of MCP tool calls including argument binding and serialization")
+                .tags("tool", tool, "outcome", "error")
+                .register(registry),
+            DistributionSummary.builder(TOOL_RESULTS)
+                .description("Number of results returned by an MCP tool call")
+                .tag("tool", tool)
+                .serviceLevelObjectives(RESULT_BUCKETS)
+                .register(registry),
+            DistributionSummary.builder(TOOL_PAYLOAD)
+                .description("Size of the serialized tool response")
+                .baseUnit("bytes")
+                .tag("tool", tool)
+                .serviceLevelObjectives(PAYLOAD_BUCKETS)
+                .register(registry)
+        );
+    }
+
+    private static Timer.Builder latencyTimer(String name) {
+        return Timer.builder(name).serviceLevelObjectives(LATENCY_BUCKETS);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase();
+    }
+
+    public record ToolMeters(Timer success, Timer error, DistributionSummary results, DistributionSummary payload) {
+    }
+}
@@ -0,0 +1,7 @@
+package de.kyle.greenmcp.service;
+
+public enum SearchMode {
+    EXACT,
+    TWO_STAGE,
+    ANN
+}
@@ -0,0 +1,275 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.SemanticCacheProperties;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.service.SearchMetrics.Operation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Search results keyed by the query embedding, so paraphrases of a recent query skip the database.
+ * <p>
+ * A lookup returns the results of a cached search with the same operation, filters and limit whose query vector is
+ * within {@code max-distance} cosine distance, the closest one if several are. The index is a flat array of the
+ * normalized cached vectors, scanned per lookup among the entries of the same key; at the default size that is a
+ * few hundred thousand multiply-adds. Entries expire after {@code ttl}, and the least recently used entry makes
+ * room for a new one. Every entry keeps its result rows, including their embeddings of about 4 KB each.
+ * <p>
+ * A search takes the {@link #generation()} before it reads the database and passes it to {@link #put}. {@link #clear()}
+ * starts a new generation, so the results of a search that was still reading the replaced rows are not cached.
+ */
+@Component
+public class SemanticResultCache implements MeterBinder {
+
+    /**
+     * What a cached search has to share with a new one, besides a near-identical query vector.
+     */
+    public record Key(Operation operation, String filename, SearchFilter filter, Diversification diversification, int limit) {}
+
+    private final SemanticCacheProperties properties;
+    private final LongSupplier clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Key, List<Integer>> slotsByKey = new HashMap<>();
+    private final Key[] keys;
+    private final Object[] results;
+    private final long[] expiresAt;
+    private final AtomicLongArray lastUsed;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // Slot-major, allocated with the first entry once the dimensions are known
+    private float[] vectors;
+    private int dimensions;
+    private int size;
+    private long generation;
+
+    @Autowired
+    public SemanticResultCache(SemanticCacheProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    SemanticResultCache(SemanticCacheProperties properties, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.keys = new Key[properties.size()];
+        this.results = new Object[properties.size()];
+        this.expiresAt = new long[properties.size()];
+        this.lastUsed = new AtomicLongArray(properties.size());
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Cached results for a query vector within {@code max-distance} of a cached one with the same key, or
+     * {@code null}. Counts a hit or a miss while enabled.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Beschluss> lookup(Key key, float[] embedding) {
+        if (!properties.enabled()) {
+            return null;
+        }
+        float[] query = normalized(embedding);
+        double minSimilarity = 1 - properties.maxDistance();
+        List<Beschluss> found = null;
+        lock.readLock().lock();
+        try {
+            List<Integer> slots = slotsByKey.get(key);
+            if (slots != null && query.length == dimensions) {
+                long now = clock.getAsLong();
+                int best = -1;
+                double bestSimilarity = minSimilarity;
+                for (int slot : slots) {
+                    if (expiresAt[slot] - now <= 0) {
+                        continue;
+                    }
+                    double similarity = dot(slot, query);
+                    if (similarity >= bestSimilarity) {
+                        best = slot;
+                        bestSimilarity = similarity;
+                    }
+                }
+                if (best >= 0) {
+                    lastUsed.set(best, now);
+                    found = (List<Beschluss>) results[best];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        (found != null ? hits : misses).increment();
+        return found;
+    }
+
+    /**
+     * The current generation, to be taken before the search reads the rows it will {@link #put}.
+     */
+    public long generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Caches the results of a search, unless the cache was cleared since {@code generation} was taken.
+     */
+    public void put(Key key, float[] embedding, List<Beschluss> searchResults, long generation) {
+        if (!properties.enabled()) {
+            return;
+        }
+        float[] vector = normalized(embedding);
+        List<Beschluss> entry = List.copyOf(searchResults);
+        lock.writeLock().lock();
+        try {
+            if (generation != this.generation) {
+                return;
+            }
+            // First entry, or query embeddings of another model
+            if (vectors == null || vector.length != dimensions) {
+                clearEntries();
+                dimensions = vector.length;
+                vectors = new float[keys.length * dimensions];
+            }
+            long now = clock.getAsLong();
+            int slot = freeSlot(now);
+            if (keys[slot] != null) {
+                List<Integer> previous = slotsByKey.get(keys[slot]);
+                previous.remove(Integer.valueOf(slot));
+                if (previous.isEmpty()) {
+                    slotsByKey.remove(keys[slot]);
+                }
+            }
+            keys[slot] = key;
+            results[slot] = entry;
+            expiresAt[slot] = now + properties.ttl().toNanos();
+            lastUsed.set(slot, now);
+            System.arraycopy(vector, 0, vectors, slot * dimensions, dimensions);
+            slotsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops all entries, for when the rows they were read from have been replaced.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearEntries();
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    // An unused slot while there is one, else an expired one, else the least recently used
+    private int freeSlot(long now) {
+        if (size < keys.length) {
+            return size++;
+        }
+        int eldest = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (expiresAt[slot] - now <= 0) {
+                return slot;
+            }
+            if (lastUsed.get(slot) - lastUsed.get(eldest) < 0) {
+                eldest = slot;
+            }
+        }
+        return eldest;
+    }
+
+    private void clearEntries() {
+        slotsByKey.clear();
+        Arrays.fill(keys, null);
+        Arrays.fill(results, null);
+        size = 0;
+    }
+
+    private double dot(int slot, float[] query) {
+        int offset = slot * dimensions;
+        double dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += vectors[offset + i] * query[i];
+        }
+        return dot;
+    }
+
+    private static float[] normalized(float[] embedding) {
+        double norm = 0;
+        for (float value : embedding) {
+            norm += value * value;
+        }
+        float[] normalized = new float[embedding.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        double scale = 1 / Math.sqrt(norm);
+        for (int i = 0; i < embedding.length; i++) {
+            normalized[i] = (float) (embedding[i] * scale);
+        }
+        return normalized;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("green_mcp.semantic_cache.requests", this, SemanticResultCache::hits)
+            .description("Semantic result cache lookups")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.semantic_cache.requests", this, SemanticResultCache::misses)
+            .description("Semantic result cache lookups")
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder("green_mcp.semantic_cache.hit_ratio", this, SemanticResultCache::hitRate)
+            .description("Share of semantic result cache lookups that were hits")
+            .register(registry);
+        Gauge.builder("green_mcp.semantic_cache.size", this, SemanticResultCache::size)
+            .description("Cached search results")
+            .register(registry);
+    }
+}
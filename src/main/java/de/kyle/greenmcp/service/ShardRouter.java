@@ -0,0 +1,244 @@
+package de.kyle.greenmcp.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import de.kyle.greenmcp.config.ReplicaRoutingDataSource;
+import de.kyle.greenmcp.config.ShardProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * The shards chunks are distributed over, by a stable hash of an id, and the fan-out of queries to them.
+ * <p>
+ * A search runs on all shards in parallel and waits at most {@code green-mcp.shards.timeout} for them. Shards that
+ * fail or answer late are left out and counted, so a slow instance costs recall instead of latency. Every shard
+ * returns its rows already sorted, so the global order comes from a k-way merge of the partial lists.
+ */
+@Component
+@Slf4j
+public class ShardRouter implements DisposableBean {
+
+    public static final String SHARD_FAILURES = "green_mcp.shard.failures";
+
+    /**
+     * One instance. Searches go through {@code searchJdbcTemplate}; on the regular datasource that is the search pool,
+     * since shard queries run outside read-only transactions, on the other shards it is their only pool.
+     */
+    public record Shard(int index, DataSource dataSource, NamedParameterJdbcTemplate jdbcTemplate,
+                        NamedParameterJdbcTemplate searchJdbcTemplate) {
+
+        public Shard(int index, DataSource dataSource, NamedParameterJdbcTemplate jdbcTemplate) {
+            this(index, dataSource, jdbcTemplate, jdbcTemplate);
+        }
+    }
+
+    private final List<Shard> shards;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Counter> timeouts = new ArrayList<>();
+    private final List<Counter> errors = new ArrayList<>();
+
+    @Autowired
+    public ShardRouter(DataSource dataSource, ReplicaRoutingDataSource searchDataSource, ShardProperties properties,
+                       MeterRegistry registry) {
+        this(shards(dataSource, searchDataSource, properties), properties.timeout(), registry);
+    }
+
+    ShardRouter(List<Shard> shards, Duration timeout, MeterRegistry registry) {
+        this.shards = shards;
+        this.timeout = timeout;
+        for (Shard shard : shards) {
+            timeouts.add(failures(registry, shard.index(), "timeout"));
+            errors.add(failures(registry, shard.index(), "error"));
+        }
+    }
+
+    private static List<Shard> shards(DataSource primary, DataSource searchDataSource, ShardProperties properties) {
+        List<Shard> shards = new ArrayList<>();
+        shards.add(new Shard(0, primary, jdbcTemplate(primary, properties.timeout()),
+            jdbcTemplate(searchDataSource, properties.timeout())));
+        for (ShardProperties.Datasource datasource : properties.datasources()) {
+            int index = shards.size();
+            // Connects on first use; same pool settings and connection init SQL (hnsw.ef_search) as the write pool
+            HikariDataSource shardDataSource = new HikariDataSource();
+            HikariDataSource writePool = writePool(primary);
+            if (writePool != null) {
+                writePool.copyStateTo(shardDataSource);
+            }
+            shardDataSource.setJdbcUrl(datasource.url());
+            shardDataSource.setUsername(datasource.username());
+            shardDataSource.setPassword(datasource.password());
+            shardDataSource.setPoolName("shard-" + index);
+            shards.add(new Shard(index, shardDataSource, jdbcTemplate(shardDataSource, properties.timeout())));
+        }
+        if (shards.size() > 1) {
+            log.info("Sharding chunks over {} PostgreSQL instances", shards.size());
+        }
+        return shards;
+    }
+
+    private static HikariDataSource writePool(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    // The statement timeout makes PostgreSQL cancel queries nobody waits for anymore
+    private static NamedParameterJdbcTemplate jdbcTemplate(DataSource dataSource, Duration timeout) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    private static Counter failures(MeterRegistry registry, int shard, String outcome) {
+        return Counter.builder(SHARD_FAILURES)
+            .description("Shard queries left out of a search result")
+            .tag("shard", Integer.toString(shard))
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * Shards that are not the regular datasource, e.g. to create the schema there.
+     */
+    public List<Shard> additionalShards() {
+        return shards.subList(1, shards.size());
+    }
+
+    public Shard shardOf(UUID id) {
+        return shards.get(shardIndex(id, shards.size()));
+    }
+
+    // UUID.hashCode() is specified, so a row stays on its shard across restarts and JVMs
+    static int shardIndex(UUID id, int shardCount) {
+        return Math.floorMod(id.hashCode(), shardCount);
+    }
+
+    /**
+     * Runs {@code query} on every shard and returns the results of the shards that answered in time, so fewer lists
+     * than {@link #shards()} if any shard was left out.
+     *
+     * @throws IllegalStateException if no shard answered
+     */
+    public <T> List<List<T>> scatter(Function<NamedParameterJdbcTemplate, List<T>> query) {
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(executor.submit(() -> query.apply(shard.searchJdbcTemplate())));
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<List<T>> results = new ArrayList<>(shards.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Future<List<T>> future = futures.get(i);
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                timeouts.get(i).increment();
+                log.warn("Shard {} did not answer within {}, returning partial results", i, timeout);
+            } catch (ExecutionException e) {
+                errors.get(i).increment();
+                log.warn("Shard {} failed, returning partial results: {}", i, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            }
+        }
+        if (results.isEmpty()) {
+            throw new IllegalStateException("Keine Shard hat innerhalb von " + timeout.toMillis() + " ms geantwortet");
+        }
+        return results;
+    }
+
+    /**
+     * Runs {@code query} on every shard one after another, failing if any shard fails. For imports and counts,
+     * where partial results would be wrong.
+     */
+    public <T> List<T> onAll(Function<NamedParameterJdbcTemplate, T> query) {
+        return shards.stream().map(shard -> query.apply(shard.jdbcTemplate())).toList();
+    }
+
+    /**
+     * Merges lists that are each sorted by {@code order} into the first {@code limit} elements of their union.
+     */
+    public static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        // One cursor per list in the heap, so merging costs O(limit * log(lists))
+        PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(Math.max(1, sorted.size()),
+            (a, b) -> order.compare(a.current(), b.current()));
+        int total = 0;
+        for (List<T> list : sorted) {
+            if (!list.isEmpty()) {
+                heap.add(new Cursor<>(list));
+                total += list.size();
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.min(limit, total));
+        while (merged.size() < limit && !heap.isEmpty()) {
+            Cursor<T> cursor = heap.poll();
+            merged.add(cursor.current());
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> list;
+        private int position;
+
+        private Cursor(List<T> list) {
+            this.list = list;
+        }
+
+        private T current() {
+            return list.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < list.size();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        for (Shard shard : additionalShards()) {
+            if (shard.dataSource() instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.converter.VectorConverter;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.repository.BeschlussRepositoryCustomImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The queries of {@link BeschlussService} when chunks are spread over several shards, see {@link ShardRouter}.
+ * <p>
+ * Searches ask every shard for its own top {@code limit} rows, including their distance, and merge them in
+ * {@code (distance, id, corpus)} order, the order a single instance would return. Centroids would only cover one shard's
+ * chunks, so {@code two-stage} searches are exact here. Near-duplicates are stored on the shard of their canonical chunk,
+ * so a row cannot be found from its id alone and lookups by id ask every shard.
+ */
+@Service
+@RequiredArgsConstructor
+public class ShardedSearch {
+
+    private static final String FIND_BY_ID_SQL = """
+        SELECT b.*, v.embedding FROM beschluesse b
+        LEFT JOIN beschluss_vectors v ON v.id = b.id AND v.corpus = b.corpus
+        WHERE b.id = :id
+        """;
+
+    private static final String FIND_BY_ID_IN_CORPUS_SQL = FIND_BY_ID_SQL + "AND b.corpus = :corpus\n";
+
+    private static final String DISTANCE_SQL =
+        "SELECT embedding <=> cast(:embedding as vector) FROM beschluss_vectors WHERE id = :lastId AND corpus = :lastCorpus";
+
+    private static final String WINDOWS_SQL = """
+        SELECT b.*, v.embedding FROM beschluesse b
+        JOIN unnest(cast(:corpora as text[]), cast(:filenames as text[]), cast(:fromIndexes as int[]), cast(:toIndexes as int[]))
+            AS w(corpus, filename, from_index, to_index)
+            ON b.corpus = w.corpus AND b.filename = w.filename AND b.chunk_index BETWEEN w.from_index AND w.to_index
+        LEFT JOIN beschluss_vectors v ON v.id = b.id AND v.corpus = b.corpus
+        ORDER BY b.corpus, b.filename, b.chunk_index
+        """;
+
+    private static final String INSERT_SQL = """
+        WITH chunk AS (
+            INSERT INTO beschluesse (id, corpus, pdf_url, chunk_index, content, title, topic, filename, word_count, created_at, duplicate_of)
+            VALUES (:id, :corpus, :pdfUrl, :chunkIndex, :content, :title, :topic, :filename, :wordCount, :createdAt, :duplicateOf)
+            ON CONFLICT DO NOTHING
+        )
+        INSERT INTO beschluss_vectors (id, corpus, filename, topic, created_at, duplicate_of, embedding)
+        VALUES (:id, :corpus, :filename, :topic, :createdAt, :duplicateOf, cast(:embedding as vector))
+        ON CONFLICT DO NOTHING
+        """;
+
+    private static final VectorConverter VECTORS = new VectorConverter();
+
+    // PostgreSQL compares uuids byte by byte, i.e. as unsigned numbers, unlike UUID.compareTo
+    static final Comparator<UUID> UUID_ORDER = Comparator
+        .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+        .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    // Ids are only unique per corpus. Corpus names are ASCII, so String order matches the SQL's COLLATE "C".
+    static final Comparator<Hit> HIT_ORDER = Comparator.comparingDouble(Hit::distance)
+        .thenComparing(hit -> hit.beschluss().getId(), UUID_ORDER)
+        .thenComparing(hit -> hit.beschluss().getCorpus());
+
+    private static final Comparator<Beschluss> CHUNK_ORDER = Comparator
+        .comparing(Beschluss::getCorpus, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+        .thenComparing(Beschluss::getFilename)
+        .thenComparing(Beschluss::getChunkIndex);
+
+    record Hit(Beschluss beschluss, double distance) {}
+
+    /**
+     * The merged rows, and whether every shard answered in time. Partial rows must not be cached.
+     */
+    public record Result(List<Beschluss> rows, boolean complete) {}
+
+    private final ShardRouter shardRouter;
+
+    public boolean isActive() {
+        return shardRouter.isSharded();
+    }
+
+    /**
+     * Nearest chunks over all shards that answered in time.
+     *
+     * @param filename    ILIKE pattern for the filename, or {@code null}
+     * @param lastId      last row of the previous page for keyset continuation, or {@code null}
+     * @param lastCorpus  corpus of that row
+     * @param approximate whether the shards search through their HNSW indexes
+     * @throws IllegalArgumentException if the last row no longer exists
+     */
+    public Result search(String embedding, SearchFilter filter, String filename, UUID lastId, String lastCorpus,
+                         int limit, boolean approximate) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("embedding", embedding)
+            .addValue("limit", limit)
+            .addValue("corpus", filter.corpus())
+            .addValue("topic", filter.topic())
+            .addValue("createdFrom", filter.createdFrom())
+            .addValue("createdBefore", filter.createdBefore())
+            .addValue("filename", filename);
+        if (lastId != null) {
+            // Only the shard holding the last row can compute its distance; the others continue after that value
+            MapSqlParameterSource lastRow = new MapSqlParameterSource("embedding", embedding).addValue("lastId", lastId)
+                .addValue("lastCorpus", lastCorpus);
+            List<List<Double>> lastDistance = shardRouter.scatter(jdbc -> jdbc.queryForList(DISTANCE_SQL, lastRow, Double.class));
+            Optional<Double> distance = lastDistance.stream().flatMap(List::stream).findFirst();
+            if (distance.isEmpty() && lastDistance.size() < shardRouter.shards().size()) {
+                throw new IllegalStateException("Die Shard der letzten Zeile hat nicht geantwortet");
+            }
+            if (distance.isEmpty()) {
+                // The last row is gone, e.g. after a reindex; an empty page would look like the end of the results
+                throw new IllegalArgumentException(ContinuationToken.INVALID);
+            }
+            parameters.addValue("lastDistance", distance.get()).addValue("lastId", lastId).addValue("lastCorpus", lastCorpus);
+        }
+        String sql = searchSql(filter, filename != null, lastId != null, approximate);
+        List<List<Hit>> partial = shardRouter.scatter(jdbc -> jdbc.query(sql, parameters, ShardedSearch::mapHit));
+        List<Beschluss> rows = ShardRouter.merge(partial, HIT_ORDER, limit).stream().map(Hit::beschluss).toList();
+        return new Result(rows, partial.size() == shardRouter.shards().size());
+    }
+
+    static String searchSql(SearchFilter filter, boolean filename, boolean keyset, boolean approximate) {
+        List<String> conditions = new ArrayList<>();
+        if (keyset) {
+            conditions.add("(embedding <=> cast(:embedding as vector), id, corpus COLLATE \"C\") > (:lastDistance, :lastId, :lastCorpus)");
+        }
+        // Same shape as the single-instance searches, so every shard can use its HNSW index
+        return "SELECT b.*, v.embedding, v.distance FROM (\n"
+            + BeschlussRepositoryCustomImpl.nearestSql(filter, filename, conditions, approximate && !keyset) + ") v\n"
+            + BeschlussRepositoryCustomImpl.TEXT_JOIN + "ORDER BY v.distance, v.id, v.corpus COLLATE \"C\"";
+    }
+
+    // The chunks of one document are spread over all shards, since rows are distributed by id
+    public List<Beschluss> findChunksInWindows(String[] corpora, String[] filenames, Integer[] fromIndexes, Integer[] toIndexes) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("corpora", corpora)
+            .addValue("filenames", filenames)
+            .addValue("fromIndexes", fromIndexes)
+            .addValue("toIndexes", toIndexes);
+        List<List<Beschluss>> partial = shardRouter.scatter(jdbc -> jdbc.query(WINDOWS_SQL, parameters, ShardedSearch::mapBeschluss));
+        return ShardRouter.merge(partial, CHUNK_ORDER, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The rows with this chunk id, one per corpus it occurs in, or only the one of {@code corpus} if set.
+     */
+    public List<Beschluss> findById(UUID id, String corpus) {
+        String sql = corpus == null ? FIND_BY_ID_SQL : FIND_BY_ID_IN_CORPUS_SQL;
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", id).addValue("corpus", corpus);
+        return shardRouter.scatter(jdbc -> jdbc.query(sql, parameters, ShardedSearch::mapBeschluss)).stream()
+            .flatMap(List::stream)
+            .sorted(Comparator.comparing(Beschluss::getCorpus))
+            .toList();
+    }
+
+    public List<String> findFilenames(String corpus) {
+        String sql = corpus == null
+            ? "SELECT DISTINCT filename FROM beschluesse WHERE filename IS NOT NULL"
+            : "SELECT DISTINCT filename FROM beschluesse WHERE filename IS NOT NULL AND corpus = :corpus";
+        TreeSet<String> filenames = new TreeSet<>();
+        shardRouter.onAll(jdbc -> jdbc.queryForList(sql, new MapSqlParameterSource("corpus", corpus), String.class))
+            .forEach(filenames::addAll);
+        return List.copyOf(filenames);
+    }
+
+    public long count(String corpus) {
+        String sql = corpus == null
+            ? "SELECT count(*) FROM beschluesse"
+            : "SELECT count(*) FROM beschluesse WHERE corpus = :corpus";
+        return shardRouter.onAll(jdbc -> jdbc.queryForObject(sql, new MapSqlParameterSource("corpus", corpus), Long.class))
+            .stream().mapToLong(Long::longValue).sum();
+    }
+
+    public void insert(Beschluss b, String embedding) {
+        shardRouter.shardOf(shardKey(b)).jdbcTemplate().update(INSERT_SQL, new MapSqlParameterSource()
+            .addValue("id", b.getId())
+            .addValue("corpus", b.getCorpus())
+            .addValue("pdfUrl", b.getPdfUrl())
+            .addValue("chunkIndex", b.getChunkIndex())
+            .addValue("content", b.getContent())
+            .addValue("title", b.getTitle())
+            .addValue("topic", b.getTopic())
+            .addValue("filename", b.getFilename())
+            .addValue("wordCount", b.getWordCount())
+            .addValue("createdAt", b.getCreatedAt())
+            .addValue("duplicateOf", b.getDuplicateOf())
+            .addValue("embedding", embedding));
+    }
+
+    // A near-duplicate goes to the shard of its canonical chunk. Clusters never span corpora, so the check whether a
+    // duplicate stands in for its canonical chunk (see BeschlussRepositoryCustomImpl.nearestSql) stays on one shard.
+    static UUID shardKey(Beschluss b) {
+        return b.getDuplicateOf() != null ? b.getDuplicateOf() : b.getId();
+    }
+
+    private static Hit mapHit(ResultSet rs, int row) throws SQLException {
+        return new Hit(mapBeschluss(rs, row), rs.getDouble("distance"));
+    }
+
+    private static Beschluss mapBeschluss(ResultSet rs, int row) throws SQLException {
+        return new Beschluss(
+            rs.getObject("id", UUID.class),
+            rs.getString("corpus"),
+            rs.getString("pdf_url"),
+            rs.getObject("chunk_index", Integer.class),
+            rs.getString("content"),
+            rs.getString("title"),
+            rs.getString("topic"),
+            rs.getString("filename"),
+            rs.getObject("word_count", Integer.class),
+            rs.getObject("created_at", LocalDateTime.class),
+            VECTORS.convertToEntityAttribute(rs.getString("embedding")),
+            rs.getObject("duplicate_of", UUID.class)
+        );
+    }
+}
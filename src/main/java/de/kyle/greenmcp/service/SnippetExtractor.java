@@ -0,0 +1,147 @@
+package de.kyle.greenmcp.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+@Component
+public class SnippetExtractor {
+
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?;:])\\s+|\\n+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOPWORDS = Set.of(
+        "der", "die", "das", "den", "dem", "des", "ein", "eine", "einer", "eines", "einem", "einen",
+        "und", "oder", "aber", "für", "mit", "von", "zum", "zur", "auf", "aus", "bei", "nach", "über",
+        "unter", "wie", "was", "wer", "ist", "sind", "nicht", "auch", "sich", "als", "bis", "durch"
+    );
+    private static final String ELLIPSIS = "…";
+
+    public Set<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String token : NON_WORD.split(query.toLowerCase(Locale.GERMAN))) {
+            if (token.length() >= 3 && !STOPWORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    public String extract(String content, Set<String> queryTerms, int maxChars) {
+        if (content == null || content.length() <= maxChars) {
+            return content;
+        }
+        if (maxChars <= 0) {
+            return "";
+        }
+
+        List<String> sentences = new ArrayList<>();
+        for (String sentence : SENTENCE_BOUNDARY.split(content)) {
+            if (!sentence.isBlank()) {
+                sentences.add(sentence.strip());
+            }
+        }
+
+        int[] scores = new int[sentences.size()];
+        for (int i = 0; i < sentences.size(); i++) {
+            scores[i] = score(sentences.get(i).toLowerCase(Locale.GERMAN), queryTerms);
+        }
+
+        // Room for an ellipsis on both sides, so the snippet including them stays within maxChars
+        int budget = maxChars - 2 * (ELLIPSIS.length() + 1);
+
+        // Sliding window over whole sentences: the best-scoring run that fits, ties go to the earlier run
+        int bestStart = 0;
+        int bestEnd = 0;
+        int bestScore = -1;
+        int bestLength = 0;
+        int windowScore = 0;
+        int windowLength = 0;
+        int start = 0;
+        for (int end = 0; end < sentences.size(); end++) {
+            windowScore += scores[end];
+            windowLength += sentences.get(end).length() + 1;
+            while (windowLength - 1 > budget && start <= end) {
+                windowScore -= scores[start];
+                windowLength -= sentences.get(start).length() + 1;
+                start++;
+            }
+            if (start <= end && windowScore > bestScore) {
+                bestScore = windowScore;
+                bestStart = start;
+                bestEnd = end + 1;
+                bestLength = windowLength - 1;
+            }
+        }
+
+        // Fill the remaining budget with the sentences following and then preceding the best run
+        while (bestScore >= 0 && bestEnd < sentences.size()
+                && bestLength + 1 + sentences.get(bestEnd).length() <= budget) {
+            bestLength += 1 + sentences.get(bestEnd).length();
+            bestEnd++;
+        }
+        while (bestScore >= 0 && bestStart > 0
+                && bestLength + 1 + sentences.get(bestStart - 1).length() <= budget) {
+            bestStart--;
+            bestLength += 1 + sentences.get(bestStart).length();
+        }
+
+        if (bestScore < 0) {
+            // Not even a single sentence fits, so cut the most relevant sentence around its first match
+            int best = 0;
+            for (int i = 1; i < scores.length; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            return cutAroundMatch(sentences.get(best), queryTerms, maxChars);
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (bestStart > 0) {
+            snippet.append(ELLIPSIS).append(' ');
+        }
+        snippet.append(String.join(" ", sentences.subList(bestStart, bestEnd)));
+        if (bestEnd < sentences.size()) {
+            snippet.append(' ').append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    private int score(String sentence, Set<String> queryTerms) {
+        int score = 0;
+        for (String term : queryTerms) {
+            // Substring matching also finds German compounds like "Klimaschutzgesetz" for "klimaschutz"
+            if (sentence.contains(term)) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    private String cutAroundMatch(String sentence, Set<String> queryTerms, int maxChars) {
+        int width = maxChars - 2 * ELLIPSIS.length();
+        if (width <= 0) {
+            return sentence.substring(0, Math.min(maxChars, sentence.length()));
+        }
+        String lower = sentence.toLowerCase(Locale.GERMAN);
+        int match = -1;
+        for (String term : queryTerms) {
+            int index = lower.indexOf(term);
+            if (index >= 0 && (match < 0 || index < match)) {
+                match = index;
+            }
+        }
+        int from = Math.max(0, Math.min(match < 0 ? 0 : match - width / 4, sentence.length() - width));
+        int to = Math.min(sentence.length(), from + width);
+        return (from > 0 ? ELLIPSIS : "") + sentence.substring(from, to).strip()
+            + (to < sentence.length() ? ELLIPSIS : "");
+    }
+}
@@ -0,0 +1,102 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.VectorIndexProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates and drops the HNSW indexes on the chunk embeddings, one per corpus partition of the vector table.
+ * <p>
+ * The indexes are partial and only hold canonical chunks, since near-duplicates are never returned by the
+ * searches that use them (see {@link NearDuplicateDetector}). Index DDL cannot take bind parameters, so the
+ * statements are built from the (numeric) configuration.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VectorIndexManager {
+
+    // Top-level HNSW indexes anywhere in the partition tree; partition indexes of a partitioned index go with it
+    private static final String HNSW_INDEXES_SQL = """
+        SELECT cast(c.oid as regclass)::text FROM pg_partition_tree('beschluss_vectors') t
+        JOIN pg_index i ON i.indrelid = t.relid
+        JOIN pg_class c ON c.oid = i.indexrelid
+        JOIN pg_am a ON a.oid = c.relam
+        WHERE a.amname = 'hnsw' AND NOT c.relispartition
+        """;
+
+    // Only the partition indexes have storage
+    private static final String HNSW_BYTES_SQL = """
+        SELECT coalesce(sum(pg_relation_size(c.oid)), 0) FROM pg_partition_tree('beschluss_vectors') t
+        JOIN pg_index i ON i.indrelid = t.relid
+        JOIN pg_class c ON c.oid = i.indexrelid
+        JOIN pg_am a ON a.oid = c.relam
+        WHERE a.amname = 'hnsw'
+        """;
+
+    /**
+     * Size of the HNSW indexes and the chunks they hold. HNSW grows linearly with its rows (vector plus up to
+     * {@code 2 * m} neighbours each), so indexing the duplicates as well is estimated from the bytes per row.
+     */
+    public record IndexSize(long bytes, long chunks, long duplicates) {
+
+        public long estimatedBytesWithDuplicates() {
+            long canonical = chunks - duplicates;
+            return canonical == 0 ? bytes : Math.round(bytes * (double) chunks / canonical);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorIndexProperties indexProperties;
+
+    /**
+     * Manages the indexes on another PostgreSQL instance with the same settings, e.g. a shard.
+     */
+    public VectorIndexManager forDataSource(DataSource dataSource) {
+        return new VectorIndexManager(new JdbcTemplate(dataSource), indexProperties);
+    }
+
+    public static String hnswIndex(String corpus) {
+        return "idx_beschluss_vectors_" + corpus + "_embedding_hnsw";
+    }
+
+    // Each partition gets its own graph, so a search restricted to one corpus only walks that corpus' graph
+    public void ensureHnswIndexes(Collection<String> corpora) {
+        for (String corpus : corpora) {
+            createHnswIndex(CorpusPartitionManager.partition(CorpusPartitionManager.VECTOR_TABLE, corpus), hnswIndex(corpus));
+        }
+    }
+
+    public void createHnswIndex(String table, String indexName) {
+        long start = System.nanoTime();
+        jdbcTemplate.execute(String.format(
+            "CREATE INDEX IF NOT EXISTS %s ON %s USING hnsw (embedding vector_cosine_ops) WITH (m = %d, ef_construction = %d)"
+                + " WHERE duplicate_of IS NULL",
+            indexName, table, indexProperties.hnswM(), indexProperties.hnswEfConstruction()));
+        log.info("Built HNSW index {} on {} (m={}, ef_construction={}) in {} ms", indexName, table,
+            indexProperties.hnswM(), indexProperties.hnswEfConstruction(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public IndexSize indexSize() {
+        Long bytes = jdbcTemplate.queryForObject(HNSW_BYTES_SQL, Long.class);
+        return jdbcTemplate.queryForObject("SELECT count(*), count(duplicate_of) FROM beschluss_vectors",
+            (rs, row) -> new IndexSize(bytes == null ? 0 : bytes, rs.getLong(1), rs.getLong(2)));
+    }
+
+    // Without the indexes the planner falls back to the exact sequential scan
+    public void dropHnswIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList(HNSW_INDEXES_SQL, String.class);
+        for (String index : indexes) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+        if (!indexes.isEmpty()) {
+            log.info("Dropped {} HNSW indexes, searches are exact again", indexes.size());
+        }
+    }
+}
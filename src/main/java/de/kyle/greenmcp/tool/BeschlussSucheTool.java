@@ -1,65 +1,272 @@
 package de.kyle.greenmcp.tool;
 
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.SearchProperties;
 import de.kyle.greenmcp.dto.BeschlussResult;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.Passage;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.dto.SearchPage;
 import de.kyle.greenmcp.entity.Beschluss;
 import de.kyle.greenmcp.service.BeschlussService;
+import de.kyle.greenmcp.service.ContinuationToken;
+import de.kyle.greenmcp.service.SearchMetrics;
+import de.kyle.greenmcp.service.SnippetExtractor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BeschlussSucheTool {
 
+    private static final int MAX_CONTEXT = 3;
+    private static final int MAX_SNIPPET_BUDGET = 20000;
+    private static final int MIN_SNIPPET_CHARS = 120;
+
     private final BeschlussService beschlussService;
+    private final SnippetExtractor snippetExtractor;
+    private final SearchProperties searchProperties;
+    private final SearchMetrics searchMetrics;
+    private final CorpusProperties corpusProperties;
 
-    @Tool(description = "Sucht nach Beschlüssen der Grünen Hamburg basierend auf einer semantischen Suchanfrage. Gibt die relevantesten Beschlüsse mit Titel, Thema, Inhalt und PDF-Link zurück.")
-    public List<BeschlussResult> beschluesseSuchen(
+    @Tool(description = "Sucht nach Beschlüssen der Grünen Hamburg basierend auf einer semantischen Suchanfrage. Gibt die relevantesten Beschlüsse mit Titel, Thema, Inhalt und PDF-Link zurück. Gibt es weitere Treffer, enthält die Antwort ein Fortsetzungstoken für die nächste Seite.")
+    public SearchPage beschluesseSuchen(
         @ToolParam(description = "Die Suchanfrage in natürlicher Sprache, z.B. 'Klimaschutz' oder 'Bildungspolitik'") String query,
-        @ToolParam(description = "Anzahl der zurückzugebenden Ergebnisse (1-20, Standard: 5)") Integer limit
+        @ToolParam(description = "Anzahl der zurückzugebenden Ergebnisse (1-20, Standard: 5)") Integer limit,
+        @ToolParam(description = "Anzahl benachbarter Abschnitte, die vor und nach jedem Treffer mitgeliefert werden (0-3, Standard: 0). Benachbarte Treffer werden zu zusammenhängenden Passagen zusammengefasst.", required = false) Integer context,
+        @ToolParam(description = "Gewichtung der Vielfalt der Ergebnisse von 0 (nur Relevanz) bis 1 (maximale Vielfalt), Standard: 0. Werte um 0.3 verhindern, dass viele fast gleiche Abschnitte zurückgegeben werden.", required = false) Double diversitaet,
+        @ToolParam(description = "Maximale Anzahl an Treffern aus demselben Beschluss (optional, ohne Begrenzung wenn nicht gesetzt)", required = false) Integer maxProBeschluss,
+        @ToolParam(description = "Wenn true, enthält jeder Treffer statt des ganzen Abschnitts nur die zur Anfrage passendsten Sätze. Den vollständigen Text liefert abschnittLaden mit der id des Treffers.", required = false) Boolean kompakt,
+        @ToolParam(description = "Maximale Gesamtzahl an Zeichen für alle Inhalte zusammen, nur mit kompakt=true (Standard: 3000)", required = false) Integer zeichenBudget,
+        @ToolParam(description = "Fortsetzungstoken aus einer vorherigen Antwort, um die nächste Seite derselben Suche zu laden. Die Suchanfrage und die Filter werden dann aus dem Token übernommen. Folgeseiten werden exakt gesucht, auch wenn die erste Seite über den Index gesucht wurde. Ist das Token ungültig, z. B. nach einer Neuindizierung, die Suche neu starten.", required = false) String fortsetzung,
+        @ToolParam(description = "Nur Beschlüsse mit genau diesem Thema, wie es im Feld topic der Ergebnisse steht (optional)", required = false) String thema,
+        @ToolParam(description = "Nur Beschlüsse, die an oder nach diesem Datum erstellt wurden, im Format JJJJ-MM-TT (optional)", required = false) String von,
+        @ToolParam(description = "Nur Beschlüsse, die an oder vor diesem Datum erstellt wurden, im Format JJJJ-MM-TT (optional)", required = false) String bis,
+        @ToolParam(description = "Nur in diesem Korpus (Landes- oder Kreisverband) suchen, siehe korporaListen. Ohne Angabe werden alle Korpora durchsucht.", required = false) String korpus
     ) {
-        int effectiveLimit = (limit == null || limit < 1) ? 5 : Math.min(limit, 20);
+        int effectiveLimit = effectiveLimit(limit);
+        Diversification diversification = diversification(diversitaet, maxProBeschluss);
+        SearchFilter filter = toFilter(korpus, thema, von, bis);
 
-        List<Beschluss> results = beschlussService.searchBeschluesse(query, effectiveLimit);
+        List<Beschluss> results;
+        if (fortsetzung != null && !fortsetzung.isBlank()) {
+            ContinuationToken token = ContinuationToken.decode(fortsetzung);
+            query = token.query();
+            filter = token.filter();
+            results = beschlussService.continueSearch(token, effectiveLimit);
+        } else {
+            results = beschlussService.searchBeschluesse(query, effectiveLimit, diversification, filter);
+        }
 
-        return results.stream()
-            .map(b -> new BeschlussResult(
-                b.getTitle(),
-                b.getTopic(),
-                b.getContent(),
-                b.getPdfUrl(),
-                b.getFilename()
-            ))
-            .toList();
+        // Re-ranked pages have no stable keyset order to resume from
+        String next = diversification.isActive() ? null : nextToken(results, effectiveLimit, query, null, filter);
+        return toPage("beschluesseSuchen", results, context, query, kompakt, zeichenBudget, next);
     }
 
-    @Tool(description = "Sucht innerhalb eines bestimmten Beschlusses (PDF-Datei) nach relevanten Passagen. Nutze dieses Tool, wenn du gezielt in einem spezifischen Beschluss suchen möchtest.")
-    public List<BeschlussResult> inBeschlussSuchen(
+    @Tool(description = "Sucht innerhalb eines bestimmten Beschlusses (PDF-Datei) nach relevanten Passagen. Nutze dieses Tool, wenn du gezielt in einem spezifischen Beschluss suchen möchtest. Gibt es weitere Treffer, enthält die Antwort ein Fortsetzungstoken für die nächste Seite.")
+    public SearchPage inBeschlussSuchen(
         @ToolParam(description = "Der Dateiname des Beschlusses (oder Teil davon), z.B. 'Klimaschutz' oder '2024-Wahlprogramm'") String beschlussName,
         @ToolParam(description = "Die Suchanfrage in natürlicher Sprache") String query,
-        @ToolParam(description = "Anzahl der zurückzugebenden Ergebnisse (1-20, Standard: 5)") Integer limit
+        @ToolParam(description = "Anzahl der zurückzugebenden Ergebnisse (1-20, Standard: 5)") Integer limit,
+        @ToolParam(description = "Anzahl benachbarter Abschnitte, die vor und nach jedem Treffer mitgeliefert werden (0-3, Standard: 0). Benachbarte Treffer werden zu zusammenhängenden Passagen zusammengefasst.", required = false) Integer context,
+        @ToolParam(description = "Wenn true, enthält jeder Treffer statt des ganzen Abschnitts nur die zur Anfrage passendsten Sätze. Den vollständigen Text liefert abschnittLaden mit der id des Treffers.", required = false) Boolean kompakt,
+        @ToolParam(description = "Maximale Gesamtzahl an Zeichen für alle Inhalte zusammen, nur mit kompakt=true (Standard: 3000)", required = false) Integer zeichenBudget,
+        @ToolParam(description = "Fortsetzungstoken aus einer vorherigen Antwort, um die nächste Seite derselben Suche zu laden. Suchanfrage und Beschluss werden dann aus dem Token übernommen. Ist das Token ungültig, z. B. nach einer Neuindizierung, die Suche neu starten.", required = false) String fortsetzung,
+        @ToolParam(description = "Korpus des Beschlusses, wenn derselbe Dateiname in mehreren Korpora vorkommt (optional, siehe korporaListen)", required = false) String korpus
+    ) {
+        int effectiveLimit = effectiveLimit(limit);
+        SearchFilter filter = toFilter(korpus, null, null, null);
+
+        List<Beschluss> results;
+        if (fortsetzung != null && !fortsetzung.isBlank()) {
+            ContinuationToken token = ContinuationToken.decode(fortsetzung);
+            query = token.query();
+            beschlussName = token.filename();
+            filter = token.filter();
+            results = beschlussService.continueSearch(token, effectiveLimit);
+        } else {
+            results = beschlussService.searchInBeschluss(beschlussName, query, effectiveLimit, filter);
+        }
+
+        String next = nextToken(results, effectiveLimit, query, beschlussName, filter);
+        return toPage("inBeschlussSuchen", results, context, query, kompakt, zeichenBudget, next);
+    }
+
+    @Tool(description = "Lädt den vollständigen Inhalt eines einzelnen Abschnitts anhand seiner id aus einem Suchergebnis. Nutze dieses Tool, wenn ein kompaktes Suchergebnis nicht ausreicht.")
+    public BeschlussResult abschnittLaden(
+        @ToolParam(description = "Die id des Abschnitts aus einem Suchergebnis") String id,
+        @ToolParam(description = "Der Korpus aus demselben Suchergebnis (optional, nötig wenn die id in mehreren Korpora vorkommt)", required = false) String korpus
+    ) {
+        UUID chunkId;
+        try {
+            chunkId = UUID.fromString(id.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Ungültige Abschnitts-id: " + id);
+        }
+        List<Beschluss> chunks = beschlussService.findById(chunkId, toFilter(korpus, null, null, null).corpus());
+        if (chunks.isEmpty()) {
+            throw new IllegalArgumentException("Kein Abschnitt mit der id " + id + " gefunden");
+        }
+        if (chunks.size() > 1) {
+            throw new IllegalArgumentException("Die id " + id + " kommt in mehreren Korpora vor ("
+                + chunks.stream().map(Beschluss::getCorpus).collect(Collectors.joining(", ")) + "), bitte korpus angeben");
+        }
+        BeschlussResult result = toResult(chunks.getFirst());
+        searchMetrics.recordResults("abschnittLaden", 1);
+        return result;
+    }
+
+    @Tool(description = "Listet alle verfügbaren Beschlüsse (PDF-Dateien) auf. Nutze dieses Tool, um herauszufinden, welche Beschlüsse durchsucht werden können.")
+    public List<String> beschluesseListen(
+        @ToolParam(description = "Nur die Beschlüsse dieses Korpus auflisten (optional, siehe korporaListen)", required = false) String korpus
     ) {
-        int effectiveLimit = (limit == null || limit < 1) ? 5 : Math.min(limit, 20);
+        String corpus = toFilter(korpus, null, null, null).corpus();
+        List<String> filenames = corpus == null ? beschlussService.getAllFilenames() : beschlussService.getFilenames(corpus);
+        searchMetrics.recordResults("beschluesseListen", filenames.size());
+        return filenames;
+    }
+
+    @Tool(description = "Listet die verfügbaren Korpora auf, z.B. die Beschlüsse verschiedener Landes- oder Kreisverbände. Die Namen können als korpus an die anderen Tools übergeben werden.")
+    public List<String> korporaListen() {
+        List<String> corpora = corpusProperties.names();
+        searchMetrics.recordResults("korporaListen", corpora.size());
+        return corpora;
+    }
+
+    static int effectiveLimit(Integer limit) {
+        return (limit == null || limit < 1) ? 5 : Math.min(limit, 20);
+    }
+
+    static Diversification diversification(Double diversitaet, Integer maxProBeschluss) {
+        return new Diversification(
+            diversitaet == null ? 0 : Math.max(0, Math.min(diversitaet, 1)),
+            maxProBeschluss == null || maxProBeschluss < 1 ? null : maxProBeschluss
+        );
+    }
+
+    static int contextSize(Integer context) {
+        return context == null || context < 1 ? 0 : Math.min(context, MAX_CONTEXT);
+    }
+
+    private SearchPage toPage(String tool, List<Beschluss> results, Integer context, String query, Boolean kompakt,
+                              Integer zeichenBudget, String next) {
+        long start = System.nanoTime();
+        return toPage(tool, toResults(results, context), query, kompakt, zeichenBudget, next, start);
+    }
+
+    SearchPage toPage(String tool, List<BeschlussResult> results, String query, Boolean kompakt, Integer zeichenBudget,
+                      String next, long start) {
+        List<BeschlussResult> mapped = applySnippets(results, query, kompakt, zeichenBudget);
+        searchMetrics.recordToolStage(SearchMetrics.ToolStage.MAPPING, start);
+        searchMetrics.recordResults(tool, mapped.size());
+        return new SearchPage(mapped, next);
+    }
+
+    static String nextToken(List<Beschluss> results, int limit, String query, String filename, SearchFilter filter) {
+        if (results.size() < limit || query == null) {
+            return null;
+        }
+        Beschluss last = results.get(results.size() - 1);
+        return new ContinuationToken(query, filename, last.getId(), last.getCorpus(), filter).encode();
+    }
 
-        List<Beschluss> results = beschlussService.searchInBeschluss(beschlussName, query, effectiveLimit);
+    SearchFilter toFilter(String korpus, String thema, String von, String bis) {
+        String corpus = korpus == null || korpus.isBlank() ? null : korpus.strip().toLowerCase(Locale.ROOT);
+        if (corpus != null && !corpusProperties.names().contains(corpus)) {
+            throw new IllegalArgumentException("Unbekannter Korpus: " + korpus + " (verfügbar: "
+                + String.join(", ", corpusProperties.names()) + ")");
+        }
+        // Line breaks would end the topic early in a continuation token
+        String topic = thema == null || thema.isBlank() ? null : thema.strip().replaceAll("\\R", " ");
+        LocalDate from = parseDate(von);
+        LocalDate to = parseDate(bis);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Das Datum von (" + from + ") liegt nach dem Datum bis (" + to + ")");
+        }
+        return new SearchFilter(corpus, topic, from, to);
+    }
+
+    private LocalDate parseDate(String date) {
+        if (date == null || date.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.strip());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültiges Datum: " + date + " (erwartet JJJJ-MM-TT)");
+        }
+    }
+
+    List<BeschlussResult> toResults(List<Beschluss> results, Integer context) {
+        if (contextSize(context) == 0 || results.isEmpty()) {
+            return results.stream()
+                .map(this::toResult)
+                .toList();
+        }
+        return fromPassages(beschlussService.expandContext(results, contextSize(context)));
+    }
 
-        return results.stream()
-            .map(b -> new BeschlussResult(
-                b.getTitle(),
-                b.getTopic(),
-                b.getContent(),
-                b.getPdfUrl(),
-                b.getFilename()
+    List<BeschlussResult> fromPassages(List<Passage> passages) {
+        return passages.stream()
+            .map(p -> new BeschlussResult(
+                p.hit().getTitle(),
+                p.hit().getTopic(),
+                p.chunks().stream().map(Beschluss::getContent).collect(Collectors.joining("\n")),
+                p.hit().getPdfUrl(),
+                p.hit().getFilename(),
+                p.hit().getCorpus(),
+                p.chunks().get(0).getChunkIndex(),
+                p.chunks().get(p.chunks().size() - 1).getChunkIndex(),
+                p.hit().getId()
             ))
             .toList();
     }
 
-    @Tool(description = "Listet alle verfügbaren Beschlüsse (PDF-Dateien) auf. Nutze dieses Tool, um herauszufinden, welche Beschlüsse durchsucht werden können.")
-    public List<String> beschluesseListen() {
-        return beschlussService.getAllFilenames();
+    BeschlussResult toResult(Beschluss b) {
+        return new BeschlussResult(
+            b.getTitle(),
+            b.getTopic(),
+            b.getContent(),
+            b.getPdfUrl(),
+            b.getFilename(),
+            b.getCorpus(),
+            b.getChunkIndex(),
+            b.getChunkIndex(),
+            b.getId()
+        );
+    }
+
+    // The budget is shared in rank order, so characters a short hit does not need go to the following hits
+    List<BeschlussResult> applySnippets(List<BeschlussResult> results, String query, Boolean kompakt,
+                                        Integer zeichenBudget) {
+        if (!Boolean.TRUE.equals(kompakt)) {
+            return results;
+        }
+        int remaining = (zeichenBudget == null || zeichenBudget < 1)
+            ? searchProperties.snippetBudget()
+            : Math.min(zeichenBudget, MAX_SNIPPET_BUDGET);
+        Set<String> terms = snippetExtractor.queryTerms(query);
+
+        List<BeschlussResult> snippets = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BeschlussResult result = results.get(i);
+            int allotment = Math.min(remaining, Math.max(MIN_SNIPPET_CHARS, remaining / (results.size() - i)));
+            String snippet = snippetExtractor.extract(result.content(), terms, allotment);
+            remaining -= snippet == null ? 0 : snippet.length();
+            snippets.add(result.withContent(snippet));
+        }
+        return snippets;
     }
 
 }
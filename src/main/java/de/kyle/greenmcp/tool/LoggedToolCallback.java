@@ -0,0 +1,52 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.service.QueryLog;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Hands arguments, latency and response of every call to the wrapped tool to the {@link QueryLog}.
+ */
+public class LoggedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final QueryLog queryLog;
+    private final String tool;
+
+    public LoggedToolCallback(ToolCallback delegate, QueryLog queryLog) {
+        this.delegate = delegate;
+        this.queryLog = queryLog;
+        this.tool = delegate.getToolDefinition().name();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        String output;
+        try {
+            output = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+        } catch (RuntimeException e) {
+            queryLog.record(tool, toolInput, System.nanoTime() - start, null, true);
+            throw e;
+        }
+        queryLog.record(tool, toolInput, System.nanoTime() - start, output, false);
+        return output;
+    }
+}
@@ -0,0 +1,37 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.dto.BeschlussResult;
+import de.kyle.greenmcp.dto.SearchPage;
+import de.kyle.greenmcp.service.SearchMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Default JSON conversion of tool results, timed as the serialization stage. Search pages and single results are
+ * assembled from the fragments of {@link ResultFragmentCache} while it is enabled.
+ */
+@RequiredArgsConstructor
+public class MeteredToolCallResultConverter implements ToolCallResultConverter {
+
+    private final ToolCallResultConverter delegate = new DefaultToolCallResultConverter();
+    private final SearchMetrics searchMetrics;
+    private final ResultFragmentCache resultFragmentCache;
+
+    @Override
+    public String convert(Object result, Type returnType) {
+        long start = System.nanoTime();
+        String json;
+        if (result instanceof SearchPage page && resultFragmentCache.isEnabled()) {
+            json = resultFragmentCache.json(page);
+        } else if (result instanceof BeschlussResult single && resultFragmentCache.isEnabled()) {
+            json = resultFragmentCache.json(single);
+        } else {
+            json = delegate.convert(result, returnType);
+        }
+        searchMetrics.recordToolStage(SearchMetrics.ToolStage.SERIALIZATION, start);
+        return json;
+    }
+}
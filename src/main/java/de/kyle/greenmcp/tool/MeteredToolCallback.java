@@ -0,0 +1,75 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.service.SearchMetrics;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records duration, outcome and response size of every call to the wrapped tool.
+ */
+public class MeteredToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final SearchMetrics.ToolMeters meters;
+
+    public MeteredToolCallback(ToolCallback delegate, SearchMetrics.ToolMeters meters) {
+        this.delegate = delegate;
+        this.meters = meters;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        String output;
+        try {
+            output = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+        } catch (RuntimeException e) {
+            meters.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        meters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meters.payload().record(utf8Length(output));
+        return output;
+    }
+
+    // Counts encoded bytes without encoding the response a second time
+    static long utf8Length(String s) {
+        if (s == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,61 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Rejects calls with an "index warming" message while the data is still being loaded, instead of
+ * searching a partially imported table.
+ */
+public class ReadinessGatedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final LoadingStatus loadingStatus;
+    private final ImportProgress importProgress;
+
+    public ReadinessGatedToolCallback(ToolCallback delegate, LoadingStatus loadingStatus, ImportProgress importProgress) {
+        this.delegate = delegate;
+        this.loadingStatus = loadingStatus;
+        this.importProgress = importProgress;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        if (!loadingStatus.isReady()) {
+            throw new IllegalStateException(notReadyMessage());
+        }
+        return toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+    }
+
+    String notReadyMessage() {
+        return notReadyMessage(loadingStatus, importProgress);
+    }
+
+    static String notReadyMessage(LoadingStatus loadingStatus, ImportProgress importProgress) {
+        return switch (loadingStatus.phase()) {
+            case FAILED -> "Index nicht verfügbar: Der Import der Beschlüsse ist fehlgeschlagen (" + loadingStatus.error() + ").";
+            case IMPORTING -> "Index wird aufgewärmt: Die Beschlüsse werden gerade importiert (" + importProgress.imported()
+                + " Abschnitte bisher). Bitte in Kürze erneut versuchen.";
+            default -> "Index wird aufgewärmt (" + loadingStatus.phase().name().toLowerCase() + "). Bitte in Kürze erneut versuchen.";
+        };
+    }
+}
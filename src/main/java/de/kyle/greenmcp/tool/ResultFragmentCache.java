@@ -0,0 +1,130 @@
+package de.kyle.greenmcp.tool;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import de.kyle.greenmcp.config.ResultFragmentProperties;
+import de.kyle.greenmcp.dto.BeschlussResult;
+import de.kyle.greenmcp.dto.SearchPage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.util.json.JsonParser;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialized JSON of recently returned results, so the text of a popular chunk is escaped once instead of on
+ * every call that returns it.
+ * <p>
+ * Fragments are produced by Spring AI's object mapper, so an assembled page is byte for byte what the default
+ * conversion returns. Entries are keyed by chunk range and content length, and a fragment is only used if its
+ * result equals the one to serialize, so a reindexed or shortened (compact) text never gets a stale fragment.
+ */
+@Component
+public class ResultFragmentCache implements MeterBinder {
+
+    private record Key(UUID id, Integer firstChunk, Integer lastChunk, int contentLength) {}
+
+    private record Fragment(BeschlussResult result, String json) {}
+
+    private final ResultFragmentProperties properties;
+    private final Map<Key, Fragment> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResultFragmentCache(ResultFragmentProperties properties) {
+        this.properties = properties;
+        int capacity = properties.size();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Fragment> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * JSON of a search page, assembled from the fragments of its results.
+     */
+    public String json(SearchPage page) {
+        List<BeschlussResult> results = page.results();
+        List<String> fragments = results.stream().map(this::json).toList();
+        int length = 40;
+        for (String fragment : fragments) {
+            length += fragment.length() + 1;
+        }
+        StringBuilder json = new StringBuilder(length).append("{\"results\":[");
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(fragments.get(i));
+        }
+        return json.append("],\"continuation\":").append(write(page.continuation())).append('}').toString();
+    }
+
+    public String json(BeschlussResult result) {
+        Key key = new Key(result.id(), result.firstChunk(), result.lastChunk(),
+            result.content() == null ? -1 : result.content().length());
+        synchronized (entries) {
+            Fragment cached = entries.get(key);
+            if (cached != null && cached.result().equals(result)) {
+                hits.increment();
+                return cached.json();
+            }
+        }
+        misses.increment();
+        // Serialized outside the lock, like the embeddings of QueryEmbeddingCache
+        String json = write(result);
+        synchronized (entries) {
+            entries.put(key, new Fragment(result, json));
+        }
+        return json;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private static String write(Object value) {
+        try {
+            return JsonParser.getObjectMapper().writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Conversion from Object to JSON failed", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("green_mcp.result_fragments.requests", this, ResultFragmentCache::hits)
+            .description("Result fragment cache lookups")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("green_mcp.result_fragments.requests", this, ResultFragmentCache::misses)
+            .description("Result fragment cache lookups")
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder("green_mcp.result_fragments.size", this, ResultFragmentCache::size)
+            .description("Cached result fragments")
+            .register(registry);
+    }
+}
@@ -0,0 +1,23 @@
+-- Matches the schema Hibernate creates with ddl-auto=update, so existing databases can be baselined.
+-- The HNSW index is not part of the migrations: VectorIndexManager builds it after the import in ann mode.
+CREATE EXTENSION IF NOT EXISTS vector;
+
+CREATE TABLE IF NOT EXISTS beschluesse (
+    id          uuid PRIMARY KEY,
+    pdf_url     varchar(255),
+    chunk_index integer,
+    content     text,
+    title       varchar(255),
+    topic       varchar(255),
+    filename    varchar(255),
+    word_count  integer,
+    embedding   vector(1024)
+);
+
+CREATE INDEX IF NOT EXISTS idx_beschluesse_filename_chunk ON beschluesse (filename, chunk_index);
+
+CREATE TABLE IF NOT EXISTS beschluss_centroids (
+    filename    varchar(255) PRIMARY KEY,
+    chunk_count integer,
+    embedding   vector(1024)
+);
@@ -0,0 +1,7 @@
+-- created_at comes from metadata.csv. Rows imported before this migration keep NULL until the next CSV reindex.
+ALTER TABLE beschluesse ADD COLUMN IF NOT EXISTS created_at timestamp;
+
+-- Filtered searches: selective filters are answered through these indexes, broad ones through the
+-- HNSW index with iterative scans (hnsw.iterative_scan)
+CREATE INDEX IF NOT EXISTS idx_beschluesse_topic ON beschluesse (topic);
+CREATE INDEX IF NOT EXISTS idx_beschluesse_created_at ON beschluesse (created_at);
@@ -0,0 +1,3 @@
+-- Near-duplicate chunks point to the canonical chunk of their cluster, see NearDuplicateDetector. Canonical chunks
+-- and rows imported before this migration keep NULL; corpus searches and the HNSW indexes only cover those.
+ALTER TABLE beschluesse ADD COLUMN IF NOT EXISTS duplicate_of uuid;
@@ -0,0 +1,25 @@
+-- Lists beschluesse by corpus. The flat table keeps its rows, which belong to the default corpus
+-- (placeholder default_corpus, set by SchemaMigrator), and becomes that corpus' partition. The partition key has to
+-- be part of the primary key, so the key and the indexes are rebuilt through the parent when it is attached.
+-- Partitions of the other configured corpora are created at startup by CorpusPartitionManager.
+-- Skipped when the table is already partitioned, e.g. by an earlier version that converted it at startup.
+DO $$
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('beschluesse')) = 'r' THEN
+        ALTER TABLE beschluesse ADD COLUMN IF NOT EXISTS corpus varchar(255);
+        UPDATE beschluesse SET corpus = '${default_corpus}' WHERE corpus IS NULL;
+        ALTER TABLE beschluesse ALTER COLUMN corpus SET NOT NULL;
+        ALTER TABLE beschluesse DROP CONSTRAINT IF EXISTS beschluesse_pkey;
+        DROP INDEX IF EXISTS idx_beschluesse_filename_chunk, idx_beschluesse_topic, idx_beschluesse_created_at,
+            idx_beschluesse_embedding_hnsw;
+        ALTER TABLE beschluesse RENAME TO beschluesse_${default_corpus};
+
+        CREATE TABLE beschluesse (LIKE beschluesse_${default_corpus} INCLUDING DEFAULTS INCLUDING STORAGE)
+            PARTITION BY LIST (corpus);
+        ALTER TABLE beschluesse ADD CONSTRAINT beschluesse_pkey PRIMARY KEY (id, corpus);
+        CREATE INDEX idx_beschluesse_filename_chunk ON beschluesse (filename, chunk_index);
+        CREATE INDEX idx_beschluesse_topic ON beschluesse (topic);
+        CREATE INDEX idx_beschluesse_created_at ON beschluesse (created_at);
+        ALTER TABLE beschluesse ATTACH PARTITION beschluesse_${default_corpus} FOR VALUES IN ('${default_corpus}');
+    END IF;
+END $$;
@@ -0,0 +1,14 @@
+-- Embeddings computed during the import for rows of embeddings.csv without a vector, kept so an interrupted import
+-- or a CSV reindex does not embed them again
+CREATE TABLE IF NOT EXISTS embedding_checkpoints (
+    id           uuid PRIMARY KEY,
+    content_hash varchar(64),
+    embedding    vector(1024)
+);
+
+-- Corpora whose import started; completed_at stays NULL when it was interrupted, and the next start resumes it
+CREATE TABLE IF NOT EXISTS corpus_imports (
+    corpus       varchar(255) PRIMARY KEY,
+    started_at   timestamp,
+    completed_at timestamp
+);
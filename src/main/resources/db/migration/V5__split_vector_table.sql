@@ -0,0 +1,42 @@
+-- Moves the embeddings into the narrow table beschluss_vectors, which repeats the columns searches filter on, so
+-- searches scan vectors and only join the text of the final rows (see CorpusPartitionManager). It gets one
+-- partition per partition of beschluesse, with the same bound. The rows are copied before the primary key and the
+-- indexes are built, so they are built once in bulk; the embedding column and the indexes that moved are dropped
+-- last. The HNSW indexes are rebuilt on the vector partitions by VectorIndexManager.
+-- Skipped when the embeddings were already moved, e.g. by an earlier version that split the table at startup.
+DO $$
+DECLARE
+    part record;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'beschluesse' AND column_name = 'embedding') THEN
+        RETURN;
+    END IF;
+
+    CREATE TABLE beschluss_vectors (
+        id           uuid NOT NULL,
+        corpus       varchar(255) NOT NULL,
+        filename     varchar(255),
+        topic        varchar(255),
+        created_at   timestamp,
+        duplicate_of uuid,
+        embedding    vector(1024)
+    ) PARTITION BY LIST (corpus);
+    FOR part IN SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+                FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass('beschluesse') LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF beschluss_vectors %s',
+            'beschluss_vectors' || substring(part.relname from length('beschluesse') + 1), part.bound);
+    END LOOP;
+
+    INSERT INTO beschluss_vectors (id, corpus, filename, topic, created_at, duplicate_of, embedding)
+    SELECT id, corpus, filename, topic, created_at, duplicate_of, embedding FROM beschluesse;
+
+    ALTER TABLE beschluss_vectors ADD CONSTRAINT beschluss_vectors_pkey PRIMARY KEY (id, corpus);
+    CREATE INDEX idx_beschluss_vectors_filename ON beschluss_vectors (filename);
+    CREATE INDEX idx_beschluss_vectors_topic ON beschluss_vectors (topic);
+    CREATE INDEX idx_beschluss_vectors_created_at ON beschluss_vectors (created_at);
+
+    ALTER TABLE beschluesse DROP COLUMN embedding;
+    DROP INDEX IF EXISTS idx_beschluesse_topic, idx_beschluesse_created_at;
+END $$;
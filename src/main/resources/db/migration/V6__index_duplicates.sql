@@ -0,0 +1,5 @@
+-- Filtered searches rank the canonical chunks through the HNSW indexes and the near-duplicates that stand in for a
+-- filtered-out canonical chunk separately (see BeschlussRepositoryCustomImpl). This index keeps the second part to
+-- the duplicates instead of scanning the whole vector table.
+CREATE INDEX IF NOT EXISTS idx_beschluss_vectors_duplicate_of ON beschluss_vectors (duplicate_of)
+    WHERE duplicate_of IS NOT NULL;
@@ -0,0 +1,67 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.service.SearchMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ReactiveBeschlussRepository}.
+ */
+class ReactiveBeschlussRepositoryTest {
+
+    @Test
+    @DisplayName("should sort by distance and id for exact searches")
+    void shouldSortExactly() {
+        // When
+        String sql = ReactiveBeschlussRepository.searchSql(new SearchFilter(null, "Umwelt", null, null), false, false, SearchMode.EXACT);
+
+        // Then
+        assertThat(sql).contains("WHERE topic = :topic").contains("ORDER BY distance, id, corpus COLLATE \"C\"\nLIMIT :limit\n) v");
+        assertThat(sql).endsWith("ORDER BY v.distance, v.id, v.corpus COLLATE \"C\"");
+    }
+
+    @Test
+    @DisplayName("should sort by distance alone inside the limit in approximate mode")
+    void shouldUseIndexShapeWhenApproximate() {
+        // When
+        String sql = ReactiveBeschlussRepository.searchSql(SearchFilter.NONE, false, false, SearchMode.ANN);
+
+        // Then
+        assertThat(sql).contains("ORDER BY distance\nLIMIT :limit\n) v")
+            .contains("WHERE duplicate_of IS NULL");
+    }
+
+    @Test
+    @DisplayName("should only search the chunks of the nearest documents in two-stage mode")
+    void shouldRestrictToNearestDocuments() {
+        // When
+        String sql = ReactiveBeschlussRepository.searchSql(SearchFilter.NONE, false, false, SearchMode.TWO_STAGE);
+
+        // Then
+        assertThat(sql).contains("SELECT filename FROM beschluss_centroids").contains("LIMIT :documents");
+    }
+
+    @Test
+    @DisplayName("should continue exactly after the last row, also in approximate mode")
+    void shouldContinueExactly() {
+        // When
+        String sql = ReactiveBeschlussRepository.searchSql(SearchFilter.NONE, true, true, SearchMode.ANN);
+
+        // Then
+        assertThat(sql).contains("filename ILIKE :filename").contains("WHERE id = :lastId AND corpus = :lastCorpus")
+                .doesNotContain("ORDER BY distance\n");
+    }
+
+    @Test
+    @DisplayName("should return the vector as text")
+    void shouldSelectVectorAsText() {
+        // When
+        String sql = ReactiveBeschlussRepository.searchSql(SearchFilter.NONE, false, false, SearchMode.EXACT);
+
+        // Then
+        assertThat(sql).startsWith("SELECT b.id, b.corpus").contains("cast(v.embedding as text) AS embedding_text");
+    }
+}
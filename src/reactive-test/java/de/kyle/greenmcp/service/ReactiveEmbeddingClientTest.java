@@ -0,0 +1,92 @@
+package de.kyle.greenmcp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link ReactiveEmbeddingClient}.
+ */
+class ReactiveEmbeddingClientTest {
+
+    private static final String RESPONSE = """
+        {"data":[{"index":0,"embedding":[0.5,-0.25]}]}""";
+
+    @Test
+    @DisplayName("should return the embedding from the response")
+    void shouldReturnEmbedding() {
+        // Given
+        ReactiveEmbeddingClient client = client(new AtomicInteger(), 0);
+
+        // When
+        float[] embedding = client.embed("Klimaschutz").block();
+
+        // Then
+        assertThat(embedding).containsExactly(0.5f, -0.25f);
+    }
+
+    @Test
+    @DisplayName("should retry rate limits and server errors")
+    void shouldRetryTransientErrors() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        ReactiveEmbeddingClient client = client(calls, 2);
+
+        // When
+        float[] embedding = client.embed("Klimaschutz").block();
+
+        // Then
+        assertThat(embedding).hasSize(2);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("should fail with the last error when the retries are exhausted")
+    void shouldFailAfterRetries() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        ReactiveEmbeddingClient client = client(calls, 5);
+
+        // When / Then
+        assertThatThrownBy(() -> client.embed("Klimaschutz").block())
+            .isInstanceOf(WebClientResponseException.TooManyRequests.class);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("should not retry client errors")
+    void shouldNotRetryClientErrors() {
+        // Then
+        assertThat(ReactiveEmbeddingClient.isTransient(WebClientResponseException.create(401, "Unauthorized", null, null, null))).isFalse();
+        assertThat(ReactiveEmbeddingClient.isTransient(WebClientResponseException.create(503, "Unavailable", null, null, null))).isTrue();
+    }
+
+    // Fails the first calls with 429, then answers with a fixed embedding
+    private static ReactiveEmbeddingClient client(AtomicInteger calls, int failures) {
+        WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.fromSupplier(() -> calls.incrementAndGet() <= failures
+                ? ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).build()
+                : ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(RESPONSE)
+                    .build()))
+            .build();
+        Retry retry = Retry.backoff(2, Duration.ofMillis(1))
+            .filter(ReactiveEmbeddingClient::isTransient)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        return new ReactiveEmbeddingClient(webClient, "mistral-embed", retry);
+    }
+}
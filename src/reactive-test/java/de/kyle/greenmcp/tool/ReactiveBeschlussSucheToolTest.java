@@ -0,0 +1,34 @@
+package de.kyle.greenmcp.tool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ReactiveBeschlussSucheTool}.
+ */
+class ReactiveBeschlussSucheToolTest {
+
+    @Test
+    @DisplayName("should convert arguments like the method arguments of the blocking tool")
+    void shouldConvertArgumentsLikeBlockingTool() {
+        // Given
+        Map<String, Object> arguments = Map.of(
+            "limit", "2.0",
+            "context", 3.0,
+            "diversitaet", "0.5",
+            "kompakt", "true",
+            "korpus", "hamburg");
+
+        // Then
+        assertThat(ReactiveBeschlussSucheTool.argument(arguments, "limit", Integer.class)).isEqualTo(2);
+        assertThat(ReactiveBeschlussSucheTool.argument(arguments, "context", Integer.class)).isEqualTo(3);
+        assertThat(ReactiveBeschlussSucheTool.argument(arguments, "diversitaet", Double.class)).isEqualTo(0.5);
+        assertThat(ReactiveBeschlussSucheTool.argument(arguments, "kompakt", Boolean.class)).isTrue();
+        assertThat(ReactiveBeschlussSucheTool.argument(arguments, "korpus", String.class)).isEqualTo("hamburg");
+        assertThat(ReactiveBeschlussSucheTool.argument(arguments, "thema", String.class)).isNull();
+    }
+}
@@ -0,0 +1,70 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import de.kyle.greenmcp.service.QueryLog;
+import de.kyle.greenmcp.service.SearchMetrics;
+import de.kyle.greenmcp.service.ShardRouter;
+import de.kyle.greenmcp.tool.BeschlussSucheTool;
+import de.kyle.greenmcp.tool.ReactiveBeschlussSucheTool;
+import de.kyle.greenmcp.tool.ReactiveToolCallHandler;
+import de.kyle.greenmcp.tool.ResultFragmentCache;
+import io.modelcontextprotocol.server.McpServerFeatures.AsyncToolSpecification;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tools of the reactive variant: the similarity searches run on the event loop through
+ * {@link ReactiveBeschlussSucheTool}, the remaining tools are the blocking ones, which the async server runs on
+ * a bounded elastic worker.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveMcpServerConfig {
+
+    @Bean
+    public List<AsyncToolSpecification> beschlussSucheToolSpecifications(BeschlussSucheTool beschlussSucheTool,
+                                                                         ReactiveBeschlussSucheTool reactiveTool,
+                                                                         SearchMetrics searchMetrics, QueryLog queryLog,
+                                                                         LoadingStatus loadingStatus,
+                                                                         ImportProgress importProgress,
+                                                                         ShardRouter shardRouter,
+                                                                         ResultFragmentCache resultFragmentCache) {
+        if (shardRouter.isSharded()) {
+            throw new IllegalStateException("The reactive profile does not support additional shards (green-mcp.shards.datasources)");
+        }
+        Map<String, ReactiveToolCallHandler> reactiveHandlers = Map.of(
+            ReactiveBeschlussSucheTool.SEARCH, new ReactiveToolCallHandler(ReactiveBeschlussSucheTool.SEARCH,
+                reactiveTool::beschluesseSuchen, searchMetrics, queryLog, loadingStatus, importProgress, resultFragmentCache),
+            ReactiveBeschlussSucheTool.SEARCH_IN, new ReactiveToolCallHandler(ReactiveBeschlussSucheTool.SEARCH_IN,
+                reactiveTool::inBeschlussSuchen, searchMetrics, queryLog, loadingStatus, importProgress, resultFragmentCache));
+
+        // Definitions come from the blocking tool's annotations, so both variants publish identical schemas
+        return McpServerConfig.toolCallbacks(beschlussSucheTool, searchMetrics, queryLog, loadingStatus, importProgress,
+                resultFragmentCache).stream()
+            .map(McpToolUtils::toAsyncToolSpecification)
+            .map(specification -> {
+                ReactiveToolCallHandler handler = reactiveHandlers.get(specification.tool().name());
+                return handler == null ? specification : AsyncToolSpecification.builder()
+                    .tool(specification.tool())
+                    .callHandler(handler)
+                    .build();
+            })
+            .toList();
+    }
+
+    // Session settings for the R2DBC connections, the counterpart of spring.datasource.hikari.connection-init-sql
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer vectorIndexSessionOptions(VectorIndexProperties properties) {
+        return builder -> builder.option(PostgresqlConnectionFactoryProvider.OPTIONS, Map.of(
+            "hnsw.ef_search", String.valueOf(properties.hnswEfSearch()),
+            "hnsw.iterative_scan", properties.hnswIterativeScan()));
+    }
+}
@@ -0,0 +1,148 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.converter.VectorConverter;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.service.SearchMode;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The similarity queries of {@link BeschlussRepository} over R2DBC, for the reactive variant.
+ * <p>
+ * Every query has the shape of its JPA counterpart, so the planner picks the same indexes and results are
+ * identical. The vector comes back as text, because the R2DBC driver has no codec for pgvector's type.
+ */
+@Repository
+public class ReactiveBeschlussRepository {
+
+    private static final String COLUMNS =
+        "b.id, b.corpus, b.pdf_url, b.chunk_index, b.content, b.title, b.topic, b.filename, b.word_count, b.created_at,"
+            + " b.duplicate_of, cast(v.embedding as text) AS embedding_text";
+
+    private static final String WINDOWS_SQL = """
+        SELECT b.id, b.corpus, b.pdf_url, b.chunk_index, b.content, b.title, b.topic, b.filename, b.word_count, b.created_at,
+            b.duplicate_of, cast(v.embedding as text) AS embedding_text
+        FROM beschluesse b
+        JOIN unnest(cast(:corpora as text[]), cast(:filenames as text[]), cast(:fromIndexes as int[]), cast(:toIndexes as int[]))
+            AS w(corpus, filename, from_index, to_index)
+            ON b.corpus = w.corpus AND b.filename = w.filename AND b.chunk_index BETWEEN w.from_index AND w.to_index
+        LEFT JOIN beschluss_vectors v ON v.id = b.id AND v.corpus = b.corpus
+        ORDER BY b.corpus, b.filename, b.chunk_index
+        """;
+
+    private static final VectorConverter VECTORS = new VectorConverter();
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveBeschlussRepository(ConnectionFactory connectionFactory) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Nearest chunks in {@code (distance, id, corpus)} order.
+     *
+     * @param filename   ILIKE pattern for the filename, or {@code null}
+     * @param lastId     last row of the previous page for keyset continuation, or {@code null}
+     * @param lastCorpus corpus of that row
+     * @param mode       {@code ANN} searches through the HNSW index, {@code TWO_STAGE} only in the chunks of the
+     *                   {@code documents} nearest documents
+     */
+    public Flux<Beschluss> findSimilar(String embedding, SearchFilter filter, String filename, UUID lastId,
+                                       String lastCorpus, int limit, SearchMode mode, int documents) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(searchSql(filter, filename != null, lastId != null, mode))
+            .bind("embedding", embedding)
+            .bind("limit", limit);
+        if (filter.corpus() != null) {
+            spec = spec.bind("corpus", filter.corpus());
+        }
+        if (filter.topic() != null) {
+            spec = spec.bind("topic", filter.topic());
+        }
+        if (filter.from() != null) {
+            spec = spec.bind("createdFrom", filter.createdFrom());
+        }
+        if (filter.to() != null) {
+            spec = spec.bind("createdBefore", filter.createdBefore());
+        }
+        if (filename != null) {
+            spec = spec.bind("filename", filename);
+        }
+        if (lastId != null) {
+            spec = spec.bind("lastId", lastId).bind("lastCorpus", lastCorpus);
+        }
+        if (mode == SearchMode.TWO_STAGE) {
+            spec = spec.bind("documents", documents);
+        }
+        return spec.map(ReactiveBeschlussRepository::mapBeschluss).all();
+    }
+
+    static String searchSql(SearchFilter filter, boolean filename, boolean keyset, SearchMode mode) {
+        List<String> conditions = new ArrayList<>();
+        if (mode == SearchMode.TWO_STAGE) {
+            conditions.add("""
+                filename IN (
+                    SELECT filename FROM beschluss_centroids
+                    ORDER BY embedding <=> cast(:embedding as vector)
+                    LIMIT :documents
+                )""");
+        }
+        if (keyset) {
+            conditions.add("""
+                (embedding <=> cast(:embedding as vector), id, corpus COLLATE "C") > (
+                    (SELECT embedding <=> cast(:embedding as vector) FROM beschluss_vectors WHERE id = :lastId AND corpus = :lastCorpus),
+                    :lastId,
+                    :lastCorpus
+                )""");
+        }
+        // Continuation pages are exact, as in the JPA repository
+        return "SELECT " + COLUMNS + " FROM (\n"
+            + BeschlussRepositoryCustomImpl.nearestSql(filter, filename, conditions, mode == SearchMode.ANN && !keyset) + ") v\n"
+            + BeschlussRepositoryCustomImpl.TEXT_JOIN + "ORDER BY v.distance, v.id, v.corpus COLLATE \"C\"";
+    }
+
+    public Mono<Boolean> existsVector(UUID id, String corpus) {
+        return databaseClient.sql("SELECT 1 FROM beschluss_vectors WHERE id = :id AND corpus = :corpus")
+            .bind("id", id)
+            .bind("corpus", corpus)
+            .map(row -> true)
+            .first()
+            .hasElement();
+    }
+
+    public Flux<Beschluss> findChunksInWindows(String[] corpora, String[] filenames, Integer[] fromIndexes, Integer[] toIndexes) {
+        return databaseClient.sql(WINDOWS_SQL)
+            .bind("corpora", corpora)
+            .bind("filenames", filenames)
+            .bind("fromIndexes", fromIndexes)
+            .bind("toIndexes", toIndexes)
+            .map(ReactiveBeschlussRepository::mapBeschluss)
+            .all();
+    }
+
+    private static Beschluss mapBeschluss(Readable row) {
+        return new Beschluss(
+            row.get("id", UUID.class),
+            row.get("corpus", String.class),
+            row.get("pdf_url", String.class),
+            row.get("chunk_index", Integer.class),
+            row.get("content", String.class),
+            row.get("title", String.class),
+            row.get("topic", String.class),
+            row.get("filename", String.class),
+            row.get("word_count", Integer.class),
+            row.get("created_at", LocalDateTime.class),
+            VECTORS.convertToEntityAttribute(row.get("embedding_text", String.class)),
+            row.get("duplicate_of", UUID.class)
+        );
+    }
+}
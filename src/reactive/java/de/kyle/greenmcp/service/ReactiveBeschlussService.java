@@ -0,0 +1,160 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.Passage;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.repository.ReactiveBeschlussRepository;
+import de.kyle.greenmcp.service.SearchMetrics.Operation;
+import de.kyle.greenmcp.service.SearchMetrics.Stage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The searches of {@link BeschlussService} without blocking a thread: the query embedding comes from
+ * {@link ReactiveEmbeddingClient} and the rows from {@link ReactiveBeschlussRepository}.
+ * <p>
+ * Each search runs the same query as its blocking counterpart for the configured mode, and shares the query
+ * embedding cache, the semantic result cache, the re-ranking and the recall monitor with it. Shards are not
+ * supported.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveBeschlussService {
+
+    private final ReactiveBeschlussRepository repository;
+    private final ReactiveEmbeddingClient embeddingClient;
+    private final EmbeddingService embeddingService;
+    private final ResultDiversifier resultDiversifier;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SemanticResultCache semanticResultCache;
+    private final SearchProperties searchProperties;
+    private final SearchMetrics searchMetrics;
+    private final RecallMonitor recallMonitor;
+
+    public Mono<List<Beschluss>> searchBeschluesse(String query, int limit, Diversification diversification, SearchFilter filter) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            SemanticResultCache.Key cacheKey = new SemanticResultCache.Key(Operation.SEARCH, null, filter, diversification, limit);
+            return embedQuery(query).flatMap(queryEmbedding -> {
+                // Taken before the rows are read, so results of rows a reindex replaces meanwhile are not cached
+                long generation = semanticResultCache.generation();
+                List<Beschluss> cached = semanticResultCache.lookup(cacheKey, queryEmbedding);
+                long databaseStart = searchMetrics.recordStage(Operation.SEARCH, Stage.EMBEDDING, start);
+                if (cached != null) {
+                    return Mono.just(cached);
+                }
+                String vectorString = embeddingService.toVectorString(queryEmbedding);
+                if (!diversification.isActive()) {
+                    return findSimilar(vectorString, limit, filter).doOnNext(results -> {
+                        searchMetrics.recordStage(Operation.SEARCH, Stage.DATABASE, databaseStart);
+                        semanticResultCache.put(cacheKey, queryEmbedding, results, generation);
+                        if (!filter.isActive()) {
+                            recallMonitor.sample(vectorString, results);
+                        }
+                    });
+                }
+
+                int candidates = Math.max(limit, Math.min(limit * searchProperties.diversityOverfetch(), searchProperties.maxCandidates()));
+                return findSimilar(vectorString, candidates, filter).map(candidateList -> {
+                    long rerankStart = searchMetrics.recordStage(Operation.SEARCH, Stage.DATABASE, databaseStart);
+                    List<Beschluss> results = resultDiversifier.diversify(queryEmbedding, candidateList, limit, diversification);
+                    searchMetrics.recordStage(Operation.SEARCH, Stage.RERANK, rerankStart);
+                    semanticResultCache.put(cacheKey, queryEmbedding, results, generation);
+                    return results;
+                });
+            });
+        });
+    }
+
+    // Filtered searches are exact, or approximate in ann mode, like in BeschlussService
+    private Mono<List<Beschluss>> findSimilar(String vectorString, int limit, SearchFilter filter) {
+        SearchMode mode = filter.isActive() && searchProperties.mode() == SearchMode.TWO_STAGE ? SearchMode.EXACT : searchProperties.mode();
+        return repository.findSimilar(vectorString, filter, null, null, null, limit, mode, searchProperties.twoStageDocuments())
+            .collectList();
+    }
+
+    public Mono<List<Beschluss>> searchInBeschluss(String filename, String query, int limit, SearchFilter filter) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            String filenamePattern = "%" + filename + "%";
+            SemanticResultCache.Key cacheKey = new SemanticResultCache.Key(Operation.SEARCH_IN, filename, filter, Diversification.NONE, limit);
+            return embedQuery(query).flatMap(queryEmbedding -> {
+                long generation = semanticResultCache.generation();
+                List<Beschluss> cached = semanticResultCache.lookup(cacheKey, queryEmbedding);
+                long databaseStart = searchMetrics.recordStage(Operation.SEARCH_IN, Stage.EMBEDDING, start);
+                if (cached != null) {
+                    return Mono.just(cached);
+                }
+                String vectorString = embeddingService.toVectorString(queryEmbedding);
+                return repository.findSimilar(vectorString, filter, filenamePattern, null, null, limit, SearchMode.EXACT, 0)
+                    .collectList()
+                    .doOnNext(results -> {
+                        searchMetrics.recordStage(Operation.SEARCH_IN, Stage.DATABASE, databaseStart);
+                        semanticResultCache.put(cacheKey, queryEmbedding, results, generation);
+                    });
+            });
+        });
+    }
+
+    public Mono<List<Beschluss>> continueSearch(ContinuationToken token, int limit) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            String filenamePattern = token.filename() == null ? null : "%" + token.filename() + "%";
+            // Only unfiltered corpus searches stay within the top documents; every other continuation is exact
+            SearchMode mode = filenamePattern == null && !token.filter().isActive() && searchProperties.mode() == SearchMode.TWO_STAGE
+                ? SearchMode.TWO_STAGE
+                : SearchMode.EXACT;
+            return embedQuery(token.query()).flatMap(queryEmbedding -> {
+                String vectorString = embeddingService.toVectorString(queryEmbedding);
+                long databaseStart = searchMetrics.recordStage(Operation.CONTINUE, Stage.EMBEDDING, start);
+                return repository.findSimilar(vectorString, token.filter(), filenamePattern, token.lastId(), token.lastCorpus(),
+                        limit, mode,
+                        searchProperties.twoStageDocuments())
+                    .collectList()
+                    .flatMap(results -> results.isEmpty() ? checkLastRow(token).thenReturn(results) : Mono.just(results))
+                    .doOnNext(results -> searchMetrics.recordStage(Operation.CONTINUE, Stage.DATABASE, databaseStart));
+            });
+        });
+    }
+
+    // Without its last row, e.g. after a reindex, a page would come back empty as if the results had ended
+    private Mono<Void> checkLastRow(ContinuationToken token) {
+        return repository.existsVector(token.lastId(), token.lastCorpus())
+            .flatMap(exists -> exists ? Mono.<Void>empty() : Mono.error(new IllegalArgumentException(ContinuationToken.INVALID)));
+    }
+
+    public Mono<List<Passage>> expandContext(List<Beschluss> hits, int context) {
+        ContextWindows windows = ContextWindows.around(hits, context);
+        if (windows.isEmpty()) {
+            return Mono.just(hits.stream().map(hit -> new Passage(hit, List.of(hit))).toList());
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return repository.findChunksInWindows(windows.corpora(), windows.filenames(), windows.fromIndexes(), windows.toIndexes())
+                .collectList()
+                .map(windowChunks -> {
+                    searchMetrics.recordStage(Operation.CONTEXT, Stage.DATABASE, start);
+                    return windows.passages(hits, windowChunks);
+                });
+        });
+    }
+
+    private Mono<float[]> embedQuery(String query) {
+        float[] cached = queryEmbeddingCache.lookup(query);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return embeddingClient.embed(query).doOnNext(embedding -> {
+                searchMetrics.recordEmbedding(start);
+                queryEmbeddingCache.put(query, embedding);
+            });
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package de.kyle.greenmcp.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.ai.model.mistralai.autoconfigure.MistralAiCommonProperties;
+import org.springframework.ai.model.mistralai.autoconfigure.MistralAiEmbeddingProperties;
+import org.springframework.ai.retry.autoconfigure.SpringAiRetryProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+
+/**
+ * Calls Mistral's embeddings endpoint on the event loop, instead of blocking a thread like the
+ * {@link org.springframework.ai.embedding.EmbeddingModel} behind {@link EmbeddingService}.
+ * <p>
+ * Uses the same {@code spring.ai.mistralai.*} settings as the Spring AI client, including {@code spring.ai.retry.*}
+ * for rate limits and server errors.
+ */
+@Component
+public class ReactiveEmbeddingClient {
+
+    private final WebClient webClient;
+    private final String model;
+    private final Retry retry;
+
+    @Autowired
+    public ReactiveEmbeddingClient(WebClient.Builder builder, MistralAiCommonProperties commonProperties,
+                                   MistralAiEmbeddingProperties embeddingProperties, SpringAiRetryProperties retryProperties) {
+        String baseUrl = StringUtils.hasText(embeddingProperties.getBaseUrl()) ? embeddingProperties.getBaseUrl() : commonProperties.getBaseUrl();
+        String apiKey = StringUtils.hasText(embeddingProperties.getApiKey()) ? embeddingProperties.getApiKey() : commonProperties.getApiKey();
+        this.webClient = builder.baseUrl(baseUrl)
+            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+            .build();
+        this.model = embeddingProperties.getOptions().getModel();
+        this.retry = Retry.backoff(Math.max(0, retryProperties.getMaxAttempts() - 1), retryProperties.getBackoff().getInitialInterval())
+            .maxBackoff(retryProperties.getBackoff().getMaxInterval())
+            .filter(ReactiveEmbeddingClient::isTransient)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    ReactiveEmbeddingClient(WebClient webClient, String model, Retry retry) {
+        this.webClient = webClient;
+        this.model = model;
+        this.retry = retry;
+    }
+
+    public Mono<float[]> embed(String text) {
+        return webClient.post()
+            .uri("/v1/embeddings")
+            .bodyValue(new EmbeddingRequest(model, List.of(text), "float"))
+            .retrieve()
+            .bodyToMono(EmbeddingResponse.class)
+            .retryWhen(retry)
+            .map(response -> {
+                if (response.data() == null || response.data().isEmpty()) {
+                    throw new IllegalStateException("Keine Embeddings in der Antwort von Mistral");
+                }
+                return response.data().getFirst().embedding();
+            });
+    }
+
+    static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return error instanceof WebClientRequestException;
+    }
+
+    record EmbeddingRequest(String model, List<String> input, @JsonProperty("encoding_format") String encodingFormat) {}
+
+    record EmbeddingResponse(List<Embedding> data) {}
+
+    record Embedding(int index, float[] embedding) {}
+}
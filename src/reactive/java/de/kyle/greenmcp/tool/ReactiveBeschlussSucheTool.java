@@ -0,0 +1,111 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.dto.SearchPage;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.service.ContinuationToken;
+import de.kyle.greenmcp.service.ReactiveBeschlussService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.util.json.JsonParser;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking versions of the similarity tools of {@link BeschlussSucheTool}, with the same parameters, defaults
+ * and responses. Argument checks, snippets and result mapping are delegated to the blocking tool; only the
+ * embedding and database calls differ.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveBeschlussSucheTool {
+
+    public static final String SEARCH = "beschluesseSuchen";
+    public static final String SEARCH_IN = "inBeschlussSuchen";
+
+    private final ReactiveBeschlussService beschlussService;
+    private final BeschlussSucheTool blockingTool;
+
+    public Mono<SearchPage> beschluesseSuchen(Map<String, Object> arguments) {
+        return Mono.defer(() -> {
+            int limit = BeschlussSucheTool.effectiveLimit(argument(arguments, "limit", Integer.class));
+            Diversification diversification = BeschlussSucheTool.diversification(
+                argument(arguments, "diversitaet", Double.class), argument(arguments, "maxProBeschluss", Integer.class));
+            SearchFilter filter = blockingTool.toFilter(
+                argument(arguments, "korpus", String.class), argument(arguments, "thema", String.class),
+                argument(arguments, "von", String.class), argument(arguments, "bis", String.class));
+            String fortsetzung = argument(arguments, "fortsetzung", String.class);
+
+            String query;
+            Mono<List<Beschluss>> results;
+            if (fortsetzung != null && !fortsetzung.isBlank()) {
+                ContinuationToken token = ContinuationToken.decode(fortsetzung);
+                query = token.query();
+                filter = token.filter();
+                results = beschlussService.continueSearch(token, limit);
+            } else {
+                query = argument(arguments, "query", String.class);
+                results = beschlussService.searchBeschluesse(query, limit, diversification, filter);
+            }
+
+            SearchFilter pageFilter = filter;
+            return results.flatMap(page -> {
+                // Re-ranked pages have no stable keyset order to resume from
+                String next = diversification.isActive() ? null : BeschlussSucheTool.nextToken(page, limit, query, null, pageFilter);
+                return toPage(SEARCH, page, arguments, query, next);
+            });
+        });
+    }
+
+    public Mono<SearchPage> inBeschlussSuchen(Map<String, Object> arguments) {
+        return Mono.defer(() -> {
+            int limit = BeschlussSucheTool.effectiveLimit(argument(arguments, "limit", Integer.class));
+            SearchFilter filter = blockingTool.toFilter(argument(arguments, "korpus", String.class), null, null, null);
+            String fortsetzung = argument(arguments, "fortsetzung", String.class);
+
+            String query;
+            String beschlussName;
+            Mono<List<Beschluss>> results;
+            if (fortsetzung != null && !fortsetzung.isBlank()) {
+                ContinuationToken token = ContinuationToken.decode(fortsetzung);
+                query = token.query();
+                beschlussName = token.filename();
+                filter = token.filter();
+                results = beschlussService.continueSearch(token, limit);
+            } else {
+                query = argument(arguments, "query", String.class);
+                beschlussName = argument(arguments, "beschlussName", String.class);
+                results = beschlussService.searchInBeschluss(beschlussName, query, limit, filter);
+            }
+
+            SearchFilter pageFilter = filter;
+            return results.flatMap(page -> toPage(SEARCH_IN, page, arguments, query,
+                BeschlussSucheTool.nextToken(page, limit, query, beschlussName, pageFilter)));
+        });
+    }
+
+    private Mono<SearchPage> toPage(String tool, List<Beschluss> results, Map<String, Object> arguments, String query,
+                                    String next) {
+        Boolean kompakt = argument(arguments, "kompakt", Boolean.class);
+        Integer zeichenBudget = argument(arguments, "zeichenBudget", Integer.class);
+        int context = BeschlussSucheTool.contextSize(argument(arguments, "context", Integer.class));
+        if (context == 0 || results.isEmpty()) {
+            long start = System.nanoTime();
+            return Mono.just(blockingTool.toPage(tool, results.stream().map(blockingTool::toResult).toList(),
+                query, kompakt, zeichenBudget, next, start));
+        }
+        return beschlussService.expandContext(results, context).map(passages -> {
+            long start = System.nanoTime();
+            return blockingTool.toPage(tool, blockingTool.fromPassages(passages), query, kompakt, zeichenBudget, next, start);
+        });
+    }
+
+    // Converts like the method arguments of the blocking tool (MethodToolCallback), so both accept the same values
+    static <T> T argument(Map<String, Object> arguments, String name, Class<T> type) {
+        Object value = arguments.get(name);
+        return value == null ? null : type.cast(JsonParser.toTypedObject(value, type));
+    }
+}
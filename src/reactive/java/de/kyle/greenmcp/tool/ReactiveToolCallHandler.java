@@ -0,0 +1,79 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import de.kyle.greenmcp.service.QueryLog;
+import de.kyle.greenmcp.service.SearchMetrics;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.model.ModelOptionsUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Serves a tool call from a {@link Mono}, with what the blocking tools get from their callback wrappers:
+ * the readiness gate of {@link ReadinessGatedToolCallback}, the meters of {@link MeteredToolCallback}, the
+ * {@link QueryLog} of {@link LoggedToolCallback} and the JSON conversion of {@link MeteredToolCallResultConverter}.
+ */
+public class ReactiveToolCallHandler
+    implements BiFunction<McpAsyncServerExchange, McpSchema.CallToolRequest, Mono<McpSchema.CallToolResult>> {
+
+    private final String tool;
+    private final Function<Map<String, Object>, Mono<?>> call;
+    private final SearchMetrics.ToolMeters meters;
+    private final MeteredToolCallResultConverter converter;
+    private final QueryLog queryLog;
+    private final LoadingStatus loadingStatus;
+    private final ImportProgress importProgress;
+
+    public ReactiveToolCallHandler(String tool, Function<Map<String, Object>, Mono<?>> call, SearchMetrics searchMetrics,
+                                   QueryLog queryLog, LoadingStatus loadingStatus, ImportProgress importProgress,
+                                   ResultFragmentCache resultFragmentCache) {
+        this.tool = tool;
+        this.call = call;
+        this.meters = searchMetrics.tool(tool);
+        this.converter = new MeteredToolCallResultConverter(searchMetrics, resultFragmentCache);
+        this.queryLog = queryLog;
+        this.loadingStatus = loadingStatus;
+        this.importProgress = importProgress;
+    }
+
+    @Override
+    public Mono<McpSchema.CallToolResult> apply(McpAsyncServerExchange exchange, McpSchema.CallToolRequest request) {
+        Map<String, Object> arguments = request.arguments() == null ? Map.of() : request.arguments();
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Mono<?> result = loadingStatus.isReady()
+                ? call.apply(arguments)
+                : Mono.error(new IllegalStateException(ReadinessGatedToolCallback.notReadyMessage(loadingStatus, importProgress)));
+            return result
+                .map(value -> converter.convert(value, value.getClass()))
+                .map(output -> {
+                    long nanos = System.nanoTime() - start;
+                    meters.success().record(nanos, TimeUnit.NANOSECONDS);
+                    meters.payload().record(MeteredToolCallback.utf8Length(output));
+                    log(arguments, nanos, output, false);
+                    return new McpSchema.CallToolResult(List.<McpSchema.Content>of(new McpSchema.TextContent(output)), false);
+                })
+                // Errors become error results with the exception message, as for the blocking tools
+                .onErrorResume(Exception.class, e -> {
+                    long nanos = System.nanoTime() - start;
+                    meters.error().record(nanos, TimeUnit.NANOSECONDS);
+                    log(arguments, nanos, null, true);
+                    return Mono.just(new McpSchema.CallToolResult(
+                        List.<McpSchema.Content>of(new McpSchema.TextContent(e.getMessage())), true));
+                });
+        });
+    }
+
+    private void log(Map<String, Object> arguments, long nanos, String output, boolean error) {
+        if (queryLog.isEnabled()) {
+            queryLog.record(tool, ModelOptionsUtils.toJsonString(arguments), nanos, output, error);
+        }
+    }
+}
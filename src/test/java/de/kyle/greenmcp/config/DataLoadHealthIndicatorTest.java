@@ -0,0 +1,78 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link DataLoadHealthIndicator}.
+ */
+class DataLoadHealthIndicatorTest {
+
+    private final LoadingStatus loadingStatus = new LoadingStatus();
+    private final ImportProgress importProgress = new ImportProgress();
+    private final DataLoadHealthIndicator indicator = new DataLoadHealthIndicator(loadingStatus, importProgress);
+
+    @Test
+    @DisplayName("should be DOWN with phase and import progress while loading")
+    void shouldBeDownWhileLoading() {
+        // Given
+        loadingStatus.enter(LoadingStatus.Phase.IMPORTING);
+        importProgress.start();
+        importProgress.recordImported();
+
+        // When
+        Health health = indicator.health();
+
+        // Then
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails())
+            .containsEntry("phase", "importing")
+            .containsEntry("import", "running")
+            .containsEntry("importedRows", 1L);
+    }
+
+    @Test
+    @DisplayName("should be UP once loading is done and release waiting threads")
+    void shouldBeUpWhenReady() throws Exception {
+        loadingStatus.ready();
+
+        Health health = indicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsKey("readyAfterMillis");
+        assertThat(loadingStatus.await(Duration.ofMillis(10))).isTrue();
+    }
+
+    @Test
+    @DisplayName("should record the ready time once the data is loaded and the application accepts traffic")
+    void shouldRecordReadyTimeWhenAcceptingTraffic() {
+        loadingStatus.ready();
+        assertThat(loadingStatus.readyAfterMillis()).isZero();
+
+        loadingStatus.onReadinessChange(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+
+        assertThat(loadingStatus.readyAfterMillis()).isPositive();
+    }
+
+    @Test
+    @DisplayName("should stay DOWN with the error after a failed import")
+    void shouldBeDownAfterFailure() throws Exception {
+        loadingStatus.fail(new IllegalStateException("connection refused"));
+
+        Health health = indicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsEntry("phase", "failed").containsEntry("error", "connection refused");
+        assertThat(loadingStatus.await(Duration.ofMillis(10))).isFalse();
+    }
+}
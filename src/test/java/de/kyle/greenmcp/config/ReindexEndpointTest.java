@@ -0,0 +1,57 @@
+package de.kyle.greenmcp.config;
+
+import de.kyle.greenmcp.service.ReindexService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Unit tests for {@link ReindexEndpoint}.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReindexEndpointTest {
+
+    @Mock
+    private ReindexService reindexService;
+
+    @InjectMocks
+    private ReindexEndpoint endpoint;
+
+    @Test
+    @DisplayName("should start a reindex from the given source regardless of case")
+    void shouldStartFromSource() {
+        // When
+        endpoint.start(" Table ");
+
+        // Then
+        verify(reindexService).start(ReindexService.Source.TABLE);
+    }
+
+    @Test
+    @DisplayName("should reindex from the CSV files without a source")
+    void shouldDefaultToCsv() {
+        // When
+        endpoint.start(null);
+
+        // Then
+        verify(reindexService).start(ReindexService.Source.CSV);
+    }
+
+    @Test
+    @DisplayName("should reject an unknown source as a bad request listing the allowed values")
+    void shouldRejectUnknownSource() {
+        // When / Then
+        assertThatThrownBy(() -> endpoint.start("database"))
+            .isInstanceOf(InvalidEndpointRequestException.class)
+            .hasMessage("Unknown source 'database', expected one of: csv, table");
+        verifyNoInteractions(reindexService);
+    }
+}
@@ -0,0 +1,80 @@
+package de.kyle.greenmcp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link ReplicaRoutingDataSource}.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private SimpleMeterRegistry registry;
+    private DataSource primary;
+    private DataSource replicaA;
+    private DataSource replicaB;
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        primary = mock(DataSource.class);
+        replicaA = mock(DataSource.class);
+        replicaB = mock(DataSource.class);
+        dataSource = new ReplicaRoutingDataSource(primary, List.of(replicaA, replicaB), Duration.ofSeconds(10), registry);
+    }
+
+    @Test
+    @DisplayName("should stay on the primary until the replicas' lag is known")
+    void shouldUsePrimaryBeforeFirstCheck() {
+        assertThat(dataSource.route()).isSameAs(primary);
+        assertThat(registry.get(ReplicaRoutingDataSource.REPLICA_FALLBACKS).counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("should alternate between current replicas")
+    void shouldRoundRobinOverCurrentReplicas() {
+        // Given
+        dataSource.recordLag(0, 0.2);
+        dataSource.recordLag(1, 3);
+
+        // When / Then
+        assertThat(List.of(dataSource.route(), dataSource.route(), dataSource.route()))
+                .containsExactly(replicaA, replicaB, replicaA);
+        assertThat(registry.get(ReplicaRoutingDataSource.REPLICA_LAG).tag("replica", "1").gauge().value()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("should skip lagging replicas and fall back to the primary when all lag")
+    void shouldSkipLaggingReplicas() {
+        // Given
+        dataSource.recordLag(0, 30);
+        dataSource.recordLag(1, 0);
+
+        // When / Then
+        assertThat(List.of(dataSource.route(), dataSource.route())).containsOnly(replicaB);
+
+        dataSource.recordLag(1, Double.POSITIVE_INFINITY);
+        assertThat(dataSource.route()).isSameAs(primary);
+        assertThat(registry.get(ReplicaRoutingDataSource.REPLICA_FALLBACKS).counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("should always use the primary's search pool without replicas")
+    void shouldUsePrimaryWithoutReplicas() {
+        // Given
+        ReplicaRoutingDataSource withoutReplicas = new ReplicaRoutingDataSource(primary, List.of(), Duration.ofSeconds(10), registry);
+
+        // When / Then
+        assertThat(withoutReplicas.route()).isSameAs(primary);
+        assertThat(registry.get(ReplicaRoutingDataSource.REPLICA_FALLBACKS).counter().count()).isZero();
+    }
+}
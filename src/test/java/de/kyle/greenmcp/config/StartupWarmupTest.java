@@ -0,0 +1,128 @@
+package de.kyle.greenmcp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.kyle.greenmcp.dto.QueryLogRecord;
+import de.kyle.greenmcp.service.QueryEmbeddingCache;
+import de.kyle.greenmcp.service.SearchMode;
+import de.kyle.greenmcp.tool.BeschlussSucheTool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link StartupWarmup}.
+ */
+@ExtendWith(MockitoExtension.class)
+class StartupWarmupTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BeschlussSucheTool beschlussSucheTool;
+
+    private final QueryEmbeddingCache cache = new QueryEmbeddingCache(new SearchProperties(SearchMode.EXACT, 10, 0, 4, 100, 3000, 1000));
+
+    private static QueryLogRecord call(String tool, Map<String, Object> arguments, String query, float[] embedding) {
+        return new QueryLogRecord(System.currentTimeMillis(), tool, arguments, query, embedding, 10, List.of(), false);
+    }
+
+    private StartupWarmup warmup(boolean enabled, Path log) {
+        WarmupProperties properties = new WarmupProperties(enabled, Duration.ofSeconds(30), true, 10, 1000, 2);
+        QueryLogProperties queryLog = new QueryLogProperties(false, 1.0, 16, log.toString(), DataSize.ofMegabytes(1), 2, Duration.ofSeconds(1));
+        return new StartupWarmup(properties, queryLog, jdbcTemplate, cache, beschlussSucheTool);
+    }
+
+    @Test
+    @DisplayName("should order calls by frequency and skip continuations and calls without embedding")
+    void shouldSelectFrequentCalls() {
+        // Given
+        float[] embedding = {0.1f};
+        List<QueryLogRecord> records = new ArrayList<>();
+        records.add(call("beschluesseSuchen", Map.of("query", "Radverkehr"), "Radverkehr", embedding));
+        for (int i = 0; i < 3; i++) {
+            records.add(call("beschluesseSuchen", Map.of("query", "Klimaschutz", "limit", 5), "Klimaschutz", embedding));
+        }
+        records.add(call("beschluesseSuchen", Map.of("fortsetzung", "abc"), "Klimaschutz", embedding));
+        records.add(call("beschluesseSuchen", Map.of("query", "Wohnen"), "Wohnen", null));
+        records.add(call("beschluesseListen", Map.of(), null, null));
+
+        // When
+        List<QueryLogRecord> frequent = StartupWarmup.frequentCalls(records, 10);
+
+        // Then
+        assertThat(frequent).extracting(QueryLogRecord::query).containsExactly("Klimaschutz", "Radverkehr");
+        assertThat(StartupWarmup.frequentCalls(records, 1)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should seed the query cache from the log and replay each call once per round despite failed prewarming")
+    void shouldReplayLoggedCalls() throws Exception {
+        // Given
+        Path log = directory.resolve("query-log.jsonl");
+        ObjectMapper objectMapper = new ObjectMapper();
+        Files.writeString(log, String.join("\n",
+            objectMapper.writeValueAsString(call("beschluesseSuchen", Map.of("query", "Klimaschutz", "limit", 3), "Klimaschutz", new float[]{0.5f})),
+            objectMapper.writeValueAsString(call("inBeschlussSuchen", Map.of("beschlussName", "Wahlprogramm", "query", "Mieten"), "Mieten", new float[]{0.25f}))));
+        doThrow(new DataAccessResourceFailureException("permission denied")).when(jdbcTemplate).execute(anyString());
+
+        // When
+        warmup(true, log).run();
+
+        // Then
+        assertThat(cache.getIfPresent("Klimaschutz")).containsExactly(0.5f);
+        assertThat(cache.getIfPresent("Mieten")).containsExactly(0.25f);
+        verify(beschlussSucheTool, times(2)).beschluesseSuchen(eq("Klimaschutz"), eq(3), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+            isNull(), isNull(), isNull(), isNull());
+        verify(beschlussSucheTool, times(2)).inBeschlussSuchen(eq("Wahlprogramm"), eq("Mieten"), isNull(), isNull(), isNull(), isNull(), isNull(), isNull());
+        verify(beschlussSucheTool, times(2)).beschluesseListen(null);
+    }
+
+    @Test
+    @DisplayName("should do nothing when disabled")
+    void shouldSkipWhenDisabled() {
+        warmup(false, directory.resolve("missing.jsonl")).run();
+
+        verifyNoInteractions(jdbcTemplate, beschlussSucheTool);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should prewarm all relations returned by the catalog query")
+    void shouldPrewarmRelations() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+            .thenReturn(List.of("beschluesse", "pg_toast.pg_toast_16385"));
+
+        warmup(true, directory.resolve("missing.jsonl")).run();
+
+        verify(jdbcTemplate).execute("CREATE EXTENSION IF NOT EXISTS pg_prewarm");
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+    }
+}
@@ -0,0 +1,90 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.SchemaProperties;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.service.SchemaMigrator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the statements of {@link BeschlussRepositoryCustomImpl} against PostgreSQL with pgvector.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BeschlussRepositoryCustomImplPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+        DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"));
+
+    private static final UUID CANONICAL = UUID.randomUUID();
+    private static final UUID DUPLICATE = UUID.randomUUID();
+
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        DriverManagerDataSource dataSource =
+            new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        new SchemaMigrator(dataSource, new SchemaProperties(true), new CorpusProperties("hamburg", List.of())).migrate();
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        // The same passage, filed under two topics
+        insert(CANONICAL, null, "Verkehr");
+        insert(DUPLICATE, CANONICAL, "Umwelt");
+    }
+
+    @Test
+    @DisplayName("should return the duplicate when only the duplicate matches the topic")
+    void shouldReturnDuplicateWhenOnlyItMatchesTopic() {
+        assertThat(search(new SearchFilter(null, "Umwelt", null, null))).containsExactly(DUPLICATE);
+    }
+
+    @Test
+    @DisplayName("should return only the canonical chunk when it matches the filter itself")
+    void shouldCollapseToCanonicalChunk() {
+        assertThat(search(new SearchFilter(null, "Verkehr", null, null))).containsExactly(CANONICAL);
+        assertThat(search(SearchFilter.corpus("hamburg"))).containsExactly(CANONICAL);
+    }
+
+    private static List<UUID> search(SearchFilter filter) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("embedding", vector())
+            .addValue("limit", 10)
+            .addValue("corpus", filter.corpus())
+            .addValue("topic", filter.topic());
+        return jdbcTemplate.query(BeschlussRepositoryCustomImpl.filteredSql(filter, false, false, false), parameters,
+            (rs, row) -> rs.getObject("id", UUID.class));
+    }
+
+    private static void insert(UUID id, UUID duplicateOf, String topic) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("id", id)
+            .addValue("duplicateOf", duplicateOf)
+            .addValue("topic", topic)
+            .addValue("embedding", vector());
+        jdbcTemplate.update("""
+            INSERT INTO beschluesse (id, corpus, chunk_index, content, topic, filename, duplicate_of)
+            VALUES (:id, 'hamburg', 0, 'Radwege ausbauen', :topic, 'a.pdf', :duplicateOf)""", parameters);
+        jdbcTemplate.update("""
+            INSERT INTO beschluss_vectors (id, corpus, topic, filename, duplicate_of, embedding)
+            VALUES (:id, 'hamburg', :topic, 'a.pdf', :duplicateOf, cast(:embedding as vector))""", parameters);
+    }
+
+    private static String vector() {
+        return "[" + String.join(",", Collections.nCopies(1024, "0.5")) + "]";
+    }
+}
@@ -0,0 +1,131 @@
+package de.kyle.greenmcp.repository;
+
+import de.kyle.greenmcp.dto.SearchFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link BeschlussRepositoryCustomImpl}.
+ */
+class BeschlussRepositoryCustomImplTest {
+
+    @Test
+    @DisplayName("should only add the conditions of filters that are set")
+    void shouldOnlyAddSetConditions() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(new SearchFilter(null, "Umwelt", null, null), false, false, false);
+
+        // Then
+        assertThat(sql).contains("WHERE topic = :topic").doesNotContain("created_at").doesNotContain("filename");
+        assertThat(sql).contains("ORDER BY distance, id, corpus COLLATE \"C\"\nLIMIT :limit\n) v");
+    }
+
+    @Test
+    @DisplayName("should let a duplicate stand in for its canonical chunk when only the duplicate matches the topic")
+    void shouldKeepDuplicatesWhoseCanonicalChunkIsFilteredOut() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(new SearchFilter(null, "Umwelt", null, null), false, false, false);
+
+        // Then
+        assertThat(sql).contains("WHERE topic = :topic\nAND duplicate_of IS NOT NULL\nAND NOT EXISTS (")
+                .contains("WHERE c.id = beschluss_vectors.duplicate_of AND c.corpus = beschluss_vectors.corpus\n    AND c.topic = :topic\n)");
+        assertThat(sql).contains(")\nUNION ALL\n(").contains(") u\nORDER BY distance, id, corpus COLLATE \"C\"\nLIMIT :limit\n) v");
+    }
+
+    @Test
+    @DisplayName("should rank the canonical chunks with the predicate of the partial HNSW indexes")
+    void shouldRankCanonicalChunksThroughIndex() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(new SearchFilter(null, "Umwelt", null, null), false, false, true);
+
+        // Then
+        assertThat(sql).contains("WHERE topic = :topic\nAND duplicate_of IS NULL\nORDER BY distance\nLIMIT :limit\n)\nUNION ALL");
+        assertThat(sql).doesNotContain("duplicate_of IS NULL OR");
+    }
+
+    @Test
+    @DisplayName("should sort by distance alone inside the limit in approximate mode")
+    void shouldUseIndexShapeWhenApproximate() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(
+                new SearchFilter(null, null, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)), false, false, true);
+
+        // Then
+        assertThat(sql).contains("WHERE created_at >= :createdFrom\nAND created_at < :createdBefore");
+        assertThat(sql).contains("ORDER BY distance\nLIMIT :limit\n)\nUNION ALL");
+    }
+
+    @Test
+    @DisplayName("should continue exactly after the last row, also in approximate mode")
+    void shouldContinueExactly() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(new SearchFilter(null, "Umwelt", null, null), true, true, true);
+
+        // Then
+        assertThat(sql).contains("filename ILIKE :filename").contains("WHERE id = :lastId AND corpus = :lastCorpus")
+                .doesNotContain("ORDER BY distance\n");
+    }
+
+    @Test
+    @DisplayName("should continue after the last row by id and corpus, since ids are only unique per corpus")
+    void shouldContinueAfterCollidingIds() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(SearchFilter.NONE, false, true, false);
+
+        // Then
+        assertThat(sql).contains("(embedding <=> cast(:embedding as vector), id, corpus COLLATE \"C\") > (")
+                .contains(":lastId,\n    :lastCorpus\n)");
+    }
+
+    @Test
+    @DisplayName("should rank the vector table and join the text of the final rows only")
+    void shouldJoinTextAfterLimit() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(new SearchFilter(null, "Umwelt", null, null), false, false, false);
+
+        // Then
+        assertThat(sql).startsWith("SELECT b.*, v.embedding FROM (\nSELECT * FROM (\n(SELECT id, corpus, embedding, "
+                + "embedding <=> cast(:embedding as vector) AS distance FROM beschluss_vectors\nWHERE topic = :topic");
+        assertThat(sql).endsWith(") v\nJOIN beschluesse b ON b.id = v.id AND b.corpus = v.corpus\nORDER BY v.distance, v.id, v.corpus COLLATE \"C\"");
+        assertThat(sql.indexOf("LIMIT :limit")).isLessThan(sql.indexOf("JOIN beschluesse"));
+    }
+
+    @Test
+    @DisplayName("should restrict to the corpus first so the planner prunes the other partitions")
+    void shouldFilterCorpusFirst() {
+        // When
+        String sql = BeschlussRepositoryCustomImpl.filteredSql(new SearchFilter("bremen", "Umwelt", null, null), false, false, false);
+
+        // Then
+        assertThat(sql).contains("WHERE corpus = :corpus\nAND topic = :topic");
+    }
+
+    @Test
+    @DisplayName("should include the whole end date")
+    void shouldIncludeWholeEndDate() {
+        // When
+        SearchFilter filter = new SearchFilter(null, null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+
+        // Then
+        assertThat(filter.createdFrom()).isEqualTo(LocalDateTime.of(2024, 1, 1, 0, 0));
+        assertThat(filter.createdBefore()).isEqualTo(LocalDateTime.of(2024, 2, 1, 0, 0));
+        assertThat(SearchFilter.NONE.isActive()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should collapse near-duplicates except within one Beschluss")
+    void shouldCollapseDuplicatesOutsideOneBeschluss() {
+        // When
+        String corpusSql = BeschlussRepositoryCustomImpl.filteredSql(SearchFilter.corpus("hamburg"), false, false, true);
+        String filenameSql = BeschlussRepositoryCustomImpl.filteredSql(SearchFilter.NONE, true, false, false);
+
+        // Then
+        assertThat(corpusSql).contains("WHERE corpus = :corpus\nAND duplicate_of IS NULL").doesNotContain("NOT EXISTS");
+        assertThat(filenameSql).doesNotContain("duplicate_of");
+    }
+}
@@ -1,25 +1,46 @@
 package de.kyle.greenmcp.service;
 
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.config.SemanticCacheProperties;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.Passage;
+import de.kyle.greenmcp.dto.RecallReport;
+import de.kyle.greenmcp.dto.SearchFilter;
 import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.entity.BeschlussId;
+import de.kyle.greenmcp.repository.BeschlussCentroidRepository;
 import de.kyle.greenmcp.repository.BeschlussRepository;
+import de.kyle.greenmcp.repository.ChunkKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -31,9 +52,33 @@ class BeschlussServiceTest {
     @Mock
     private BeschlussRepository beschlussRepository;
 
+    @Mock
+    private BeschlussCentroidRepository centroidRepository;
+
     @Mock
     private EmbeddingService embeddingService;
 
+    @Mock
+    private ResultDiversifier resultDiversifier;
+
+    @Mock
+    private RecallMonitor recallMonitor;
+
+    @Mock
+    private ShardedSearch shardedSearch;
+
+    @Spy
+    private SearchProperties searchProperties = new SearchProperties(SearchMode.EXACT, 10, 0, 4, 100, 3000, 1000);
+
+    @Spy
+    private QueryEmbeddingCache queryEmbeddingCache = new QueryEmbeddingCache(searchProperties);
+
+    @Spy
+    private SemanticResultCache semanticResultCache = new SemanticResultCache(new SemanticCacheProperties(false, 0.05, 500, Duration.ofMinutes(10)));
+
+    @Spy
+    private SearchMetrics searchMetrics = new SearchMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private BeschlussService beschlussService;
 
@@ -86,6 +131,25 @@ class BeschlussServiceTest {
             verify(beschlussRepository).findByEmbeddingSimilarity(testVectorString, limit);
         }
 
+        @Test
+        @DisplayName("should scatter the search over the shards when sharding is active")
+        void shouldSearchShards() {
+            // Given
+            when(shardedSearch.isActive()).thenReturn(true);
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(shardedSearch.search(testVectorString, SearchFilter.NONE, null, null, null, 5, false))
+                    .thenReturn(new ShardedSearch.Result(List.of(testBeschluss), true));
+
+            // When
+            List<Beschluss> results = beschlussService.searchBeschluesse("Klimaschutz", 5);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verifyNoInteractions(beschlussRepository);
+            verify(recallMonitor, never()).sample(any(), any());
+        }
+
         @Test
         @DisplayName("should return empty list when no matches found")
         void shouldReturnEmptyListWhenNoMatchesFound() {
@@ -123,6 +187,145 @@ class BeschlussServiceTest {
             // Then
             verify(beschlussRepository).findByEmbeddingSimilarity(testVectorString, limit);
         }
+
+        @Test
+        @DisplayName("should restrict search to top documents in two-stage mode")
+        void shouldRestrictSearchToTopDocumentsInTwoStageMode() {
+            // Given
+            String query = "Klimaschutz";
+            int limit = 5;
+            doReturn(SearchMode.TWO_STAGE).when(searchProperties).mode();
+            doReturn(3).when(searchProperties).twoStageDocuments();
+
+            when(embeddingService.embed(query)).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityInTopDocuments(testVectorString, 3, limit))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            List<Beschluss> results = beschlussService.searchBeschluesse(query, limit);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verify(beschlussRepository, never()).findByEmbeddingSimilarity(anyString(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should use the index-friendly query in ann mode")
+        void shouldUseApproximateQueryInAnnMode() {
+            // Given
+            String query = "Klimaschutz";
+            int limit = 5;
+            doReturn(SearchMode.ANN).when(searchProperties).mode();
+
+            when(embeddingService.embed(query)).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityApproximate(testVectorString, limit))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            List<Beschluss> results = beschlussService.searchBeschluesse(query, limit);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verify(beschlussRepository, never()).findByEmbeddingSimilarity(anyString(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should over-fetch candidates and diversify them when requested")
+        void shouldOverFetchAndDiversify() {
+            // Given
+            String query = "Klimaschutz";
+            Diversification diversification = new Diversification(0.3, 2);
+            List<Beschluss> candidates = List.of(testBeschluss);
+
+            when(embeddingService.embed(query)).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 20)).thenReturn(candidates);
+            when(resultDiversifier.diversify(testEmbedding, candidates, 5, diversification)).thenReturn(candidates);
+
+            // When
+            List<Beschluss> results = beschlussService.searchBeschluesse(query, 5, diversification);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verify(embeddingService).embed(query);
+        }
+
+        @Test
+        @DisplayName("should cap over-fetched candidates")
+        void shouldCapOverFetchedCandidates() {
+            // Given
+            String query = "Klimaschutz";
+            Diversification diversification = new Diversification(0.5, null);
+
+            when(embeddingService.embed(query)).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 100)).thenReturn(Collections.emptyList());
+            when(resultDiversifier.diversify(testEmbedding, Collections.emptyList(), 50, diversification))
+                    .thenReturn(Collections.emptyList());
+
+            // When
+            beschlussService.searchBeschluesse(query, 50, diversification);
+
+            // Then
+            verify(beschlussRepository).findByEmbeddingSimilarity(testVectorString, 100);
+        }
+
+        @Test
+        @DisplayName("should not diversify without options")
+        void shouldNotDiversifyWithoutOptions() {
+            // Given
+            String query = "Klimaschutz";
+            when(embeddingService.embed(query)).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 5)).thenReturn(List.of(testBeschluss));
+
+            // When
+            beschlussService.searchBeschluesse(query, 5, Diversification.NONE);
+
+            // Then
+            verify(resultDiversifier, never()).diversify(any(), any(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("should search through the index with filters in ann mode")
+        void shouldSearchWithFiltersInAnnMode() {
+            // Given
+            SearchFilter filter = new SearchFilter(null, "Umwelt", LocalDate.of(2023, 1, 1), null);
+            doReturn(SearchMode.ANN).when(searchProperties).mode();
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityFiltered(testVectorString, filter, null, null, null, 5, true))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            List<Beschluss> results = beschlussService.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, filter);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verify(beschlussRepository, never()).findByEmbeddingSimilarityApproximate(anyString(), anyInt());
+            verify(recallMonitor, never()).sample(any(), any());
+        }
+
+        @Test
+        @DisplayName("should search all chunks with filters in two-stage mode")
+        void shouldSearchAllChunksWithFiltersInTwoStageMode() {
+            // Given
+            SearchFilter filter = new SearchFilter(null, "Umwelt", null, null);
+            doReturn(SearchMode.TWO_STAGE).when(searchProperties).mode();
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityFiltered(testVectorString, filter, null, null, null, 5, false))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            List<Beschluss> results = beschlussService.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, filter);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verify(beschlussRepository, never()).findByEmbeddingSimilarityInTopDocuments(anyString(), anyInt(), anyInt());
+        }
     }
 
     @Nested
@@ -150,6 +353,7 @@ class BeschlussServiceTest {
             // Then
             assertThat(results).hasSize(1);
             assertThat(results.get(0)).isEqualTo(testBeschluss);
+            verify(recallMonitor, never()).sample(any(), any());
         }
 
         @Test
@@ -194,6 +398,181 @@ class BeschlussServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("continueSearch Tests")
+    class ContinueSearchTests {
+
+        @Test
+        @DisplayName("should reuse the cached query embedding for the next page")
+        void shouldReuseCachedEmbedding() {
+            // Given
+            String query = "Klimaschutz";
+            UUID lastId = UUID.randomUUID();
+            when(embeddingService.embed(query)).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 5)).thenReturn(List.of(testBeschluss));
+            when(beschlussRepository.findByEmbeddingSimilarityAfter(testVectorString, lastId, "hamburg", 5))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            beschlussService.searchBeschluesse(query, 5);
+            List<Beschluss> next = beschlussService.continueSearch(new ContinuationToken(query, null, lastId, "hamburg"), 5);
+
+            // Then
+            assertThat(next).containsExactly(testBeschluss);
+            verify(embeddingService, times(1)).embed(query);
+        }
+
+        @Test
+        @DisplayName("should continue within the document of the token")
+        void shouldContinueWithinDocument() {
+            // Given
+            UUID lastId = UUID.randomUUID();
+            when(embeddingService.embed("Mieten")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByFilenameAndEmbeddingSimilarityAfter(
+                    "%wahlprogramm%", testVectorString, lastId, "hamburg", 5)).thenReturn(Collections.emptyList());
+            when(beschlussRepository.existsById(new BeschlussId(lastId, "hamburg"))).thenReturn(true);
+
+            // When
+            List<Beschluss> next = beschlussService.continueSearch(
+                    new ContinuationToken("Mieten", "wahlprogramm", lastId, "hamburg"), 5);
+
+            // Then
+            assertThat(next).isEmpty();
+            verify(beschlussRepository).findByFilenameAndEmbeddingSimilarityAfter(
+                    "%wahlprogramm%", testVectorString, lastId, "hamburg", 5);
+        }
+
+        @Test
+        @DisplayName("should continue within the top documents in two-stage mode")
+        void shouldContinueWithinTopDocumentsInTwoStageMode() {
+            // Given
+            UUID lastId = UUID.randomUUID();
+            doReturn(SearchMode.TWO_STAGE).when(searchProperties).mode();
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityInTopDocumentsAfter(testVectorString, 10, lastId, "hamburg", 5))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            List<Beschluss> next = beschlussService.continueSearch(
+                    new ContinuationToken("Klimaschutz", null, lastId, "hamburg"), 5);
+
+            // Then
+            assertThat(next).containsExactly(testBeschluss);
+        }
+
+        @Test
+        @DisplayName("should continue with the filters from the token")
+        void shouldContinueWithFilters() {
+            // Given
+            UUID lastId = UUID.randomUUID();
+            SearchFilter filter = new SearchFilter(null, null, null, LocalDate.of(2024, 12, 31));
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityFiltered(testVectorString, filter, null, lastId, "hamburg", 5, false))
+                    .thenReturn(List.of(testBeschluss));
+
+            // When
+            List<Beschluss> next = beschlussService.continueSearch(
+                    new ContinuationToken("Klimaschutz", null, lastId, "hamburg", filter), 5);
+
+            // Then
+            assertThat(next).containsExactly(testBeschluss);
+            verify(beschlussRepository, never()).findByEmbeddingSimilarityAfter(anyString(), any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should reject the token instead of returning an empty page when its last row is gone")
+        void shouldRejectTokenWhoseLastRowIsGone() {
+            // Given
+            UUID lastId = UUID.randomUUID();
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarityAfter(testVectorString, lastId, "hamburg", 5))
+                    .thenReturn(Collections.emptyList());
+            when(beschlussRepository.existsById(new BeschlussId(lastId, "hamburg"))).thenReturn(false);
+
+            // When / Then
+            assertThatThrownBy(() -> beschlussService.continueSearch(
+                    new ContinuationToken("Klimaschutz", null, lastId, "hamburg"), 5))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Ungültiges Fortsetzungstoken");
+        }
+    }
+
+    @Nested
+    @DisplayName("expandContext Tests")
+    class ExpandContextTests {
+
+        private Beschluss chunk(String filename, int chunkIndex) {
+            Beschluss b = new Beschluss();
+            b.setId(UUID.randomUUID());
+            b.setFilename(filename);
+            b.setChunkIndex(chunkIndex);
+            b.setContent(filename + "#" + chunkIndex);
+            return b;
+        }
+
+        @Test
+        @DisplayName("should fetch all windows in one batched query")
+        void shouldFetchAllWindowsInOneQuery() {
+            // Given
+            Beschluss hitA = chunk("a.pdf", 5);
+            Beschluss hitB = chunk("b.pdf", 0);
+            when(beschlussRepository.findChunksInWindows(any(), any(), any(), any()))
+                    .thenReturn(List.of(chunk("a.pdf", 4), hitA, chunk("a.pdf", 6), hitB, chunk("b.pdf", 1)));
+
+            // When
+            List<Passage> passages = beschlussService.expandContext(List.of(hitA, hitB), 1);
+
+            // Then
+            verify(beschlussRepository).findChunksInWindows(
+                    new String[]{null, null}, new String[]{"a.pdf", "b.pdf"}, new Integer[]{4, 0}, new Integer[]{6, 1});
+            assertThat(passages).hasSize(2);
+            assertThat(passages.get(0).hit()).isEqualTo(hitA);
+            assertThat(passages.get(0).chunks()).extracting(Beschluss::getChunkIndex).containsExactly(4, 5, 6);
+            assertThat(passages.get(1).hit()).isEqualTo(hitB);
+            assertThat(passages.get(1).chunks()).extracting(Beschluss::getChunkIndex).containsExactly(0, 1);
+        }
+
+        @Test
+        @DisplayName("should merge overlapping windows of the same document into one passage")
+        void shouldMergeOverlappingWindows() {
+            // Given
+            Beschluss best = chunk("a.pdf", 3);
+            Beschluss second = chunk("a.pdf", 1);
+            when(beschlussRepository.findChunksInWindows(
+                    new String[]{null}, new String[]{"a.pdf"}, new Integer[]{0}, new Integer[]{4}))
+                    .thenReturn(List.of(chunk("a.pdf", 0), second, chunk("a.pdf", 2), best, chunk("a.pdf", 4)));
+
+            // When
+            List<Passage> passages = beschlussService.expandContext(List.of(best, second), 1);
+
+            // Then
+            assertThat(passages).hasSize(1);
+            assertThat(passages.get(0).hit()).isEqualTo(best);
+            assertThat(passages.get(0).chunks()).extracting(Beschluss::getChunkIndex).containsExactly(0, 1, 2, 3, 4);
+        }
+
+        @Test
+        @DisplayName("should keep hits without chunk position as single passages")
+        void shouldKeepHitsWithoutPositionAsSinglePassages() {
+            // Given
+            Beschluss hit = chunk("a.pdf", 0);
+            hit.setChunkIndex(null);
+
+            // When
+            List<Passage> passages = beschlussService.expandContext(List.of(hit), 2);
+
+            // Then
+            assertThat(passages).hasSize(1);
+            assertThat(passages.get(0).chunks()).containsExactly(hit);
+            verify(beschlussRepository, never()).findChunksInWindows(any(), any(), any(), any());
+        }
+    }
+
     @Nested
     @DisplayName("getAllFilenames Tests")
     class GetAllFilenamesTests {
@@ -281,6 +660,7 @@ class BeschlussServiceTest {
             // Then
             verify(beschlussRepository).insertWithEmbedding(
                     testBeschluss.getId(),
+                    testBeschluss.getCorpus(),
                     testBeschluss.getPdfUrl(),
                     testBeschluss.getChunkIndex(),
                     testBeschluss.getContent(),
@@ -288,8 +668,200 @@ class BeschlussServiceTest {
                     testBeschluss.getTopic(),
                     testBeschluss.getFilename(),
                     testBeschluss.getWordCount(),
+                    testBeschluss.getCreatedAt(),
+                    testBeschluss.getDuplicateOf(),
                     embeddingString
             );
         }
     }
+
+    @Nested
+    @DisplayName("Semantic Result Cache Tests")
+    class SemanticResultCacheTests {
+
+        private final SemanticResultCache enabledCache =
+            new SemanticResultCache(new SemanticCacheProperties(true, 0.05, 500, Duration.ofMinutes(10)));
+
+        private BeschlussService cachingService() {
+            return new BeschlussService(beschlussRepository, centroidRepository, embeddingService, resultDiversifier,
+                queryEmbeddingCache, enabledCache, searchProperties, searchMetrics, recallMonitor, shardedSearch);
+        }
+
+        @Test
+        @DisplayName("should answer a paraphrase with the cached results without searching again")
+        void shouldReuseResultsForParaphrase() {
+            // Given
+            BeschlussService service = cachingService();
+            float[] paraphrase = {0.1f, 0.2f, 0.31f};
+            when(embeddingService.embed("Klimaschutz Hamburg")).thenReturn(testEmbedding);
+            when(embeddingService.embed("Klimaschutzmaßnahmen in Hamburg")).thenReturn(paraphrase);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 5)).thenReturn(List.of(testBeschluss));
+
+            // When
+            service.searchBeschluesse("Klimaschutz Hamburg", 5);
+            List<Beschluss> results = service.searchBeschluesse("Klimaschutzmaßnahmen in Hamburg", 5);
+
+            // Then
+            assertThat(results).containsExactly(testBeschluss);
+            verify(beschlussRepository, times(1)).findByEmbeddingSimilarity(anyString(), anyInt());
+            verify(recallMonitor, times(1)).sample(anyString(), any());
+            assertThat(enabledCache.hitRate()).isEqualTo(0.5);
+        }
+
+        @Test
+        @DisplayName("should search again for a different limit or filter")
+        void shouldMissForDifferentLimitOrFilter() {
+            // Given
+            BeschlussService service = cachingService();
+            SearchFilter filter = new SearchFilter(null, "Klimaschutz", null, null);
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(eq(testVectorString), anyInt())).thenReturn(List.of(testBeschluss));
+            when(beschlussRepository.findByEmbeddingSimilarityFiltered(testVectorString, filter, null, null, null, 5, false))
+                .thenReturn(List.of(testBeschluss));
+
+            // When
+            service.searchBeschluesse("Klimaschutz", 5);
+            service.searchBeschluesse("Klimaschutz", 10);
+            service.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, filter);
+
+            // Then
+            verify(beschlussRepository).findByEmbeddingSimilarity(testVectorString, 5);
+            verify(beschlussRepository).findByEmbeddingSimilarity(testVectorString, 10);
+            verify(beschlussRepository).findByEmbeddingSimilarityFiltered(testVectorString, filter, null, null, null, 5, false);
+            assertThat(enabledCache.hits()).isZero();
+        }
+
+        @Test
+        @DisplayName("should search again after the cached results were invalidated")
+        void shouldSearchAgainAfterInvalidation() {
+            // Given
+            BeschlussService service = cachingService();
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 5)).thenReturn(List.of(testBeschluss));
+            service.searchBeschluesse("Klimaschutz", 5);
+
+            // When
+            service.invalidateCachedResults();
+            service.searchBeschluesse("Klimaschutz", 5);
+
+            // Then
+            verify(beschlussRepository, times(2)).findByEmbeddingSimilarity(testVectorString, 5);
+        }
+
+        @Test
+        @DisplayName("should not cache the results of a search that read the rows before they were invalidated")
+        void shouldNotCacheResultsReadBeforeInvalidation() {
+            // Given
+            BeschlussService service = cachingService();
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(beschlussRepository.findByEmbeddingSimilarity(testVectorString, 5)).thenAnswer(invocation -> {
+                // A reindex swaps the tables while this search is still reading the old ones
+                service.invalidateCachedResults();
+                return List.of(testBeschluss);
+            });
+
+            // When
+            service.searchBeschluesse("Klimaschutz", 5);
+
+            // Then
+            assertThat(enabledCache.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("should not cache results that miss a shard")
+        void shouldNotCachePartialShardResults() {
+            // Given
+            BeschlussService service = cachingService();
+            when(shardedSearch.isActive()).thenReturn(true);
+            when(embeddingService.embed("Klimaschutz")).thenReturn(testEmbedding);
+            when(embeddingService.toVectorString(testEmbedding)).thenReturn(testVectorString);
+            when(shardedSearch.search(testVectorString, SearchFilter.NONE, null, null, null, 5, false))
+                .thenReturn(new ShardedSearch.Result(List.of(testBeschluss), false));
+
+            // When
+            service.searchBeschluesse("Klimaschutz", 5);
+            service.searchBeschluesse("Klimaschutz", 5);
+
+            // Then
+            assertThat(enabledCache.size()).isZero();
+            verify(shardedSearch, times(2)).search(testVectorString, SearchFilter.NONE, null, null, null, 5, false);
+        }
+    }
+
+    @Nested
+    @DisplayName("Centroid Tests")
+    class CentroidTests {
+
+        private ChunkKey chunkKey(UUID id, String corpus) {
+            return new ChunkKey() {
+                @Override
+                public UUID getId() {
+                    return id;
+                }
+
+                @Override
+                public String getCorpus() {
+                    return corpus;
+                }
+            };
+        }
+
+        @Test
+        @DisplayName("should replace existing centroids when refreshing")
+        void shouldReplaceExistingCentroids() {
+            // Given
+            when(centroidRepository.insertCentroidsFromBeschluesse()).thenReturn(12);
+
+            // When
+            int documents = beschlussService.refreshCentroids();
+
+            // Then
+            assertThat(documents).isEqualTo(12);
+            InOrder order = inOrder(centroidRepository);
+            order.verify(centroidRepository).deleteAllCentroids();
+            order.verify(centroidRepository).insertCentroidsFromBeschluesse();
+        }
+
+        @Test
+        @DisplayName("should report two-stage recall against exact search")
+        void shouldReportTwoStageRecall() {
+            // Given
+            ChunkKey a = chunkKey(UUID.randomUUID(), "hamburg");
+            ChunkKey b = chunkKey(UUID.randomUUID(), "hamburg");
+            ChunkKey c = chunkKey(UUID.randomUUID(), "hamburg");
+            ChunkKey bElsewhere = chunkKey(b.getId(), "bremen");
+            when(beschlussRepository.findRandomEmbeddings(2)).thenReturn(List.of("[1,0]", "[0,1]"));
+            when(beschlussRepository.findKeysByEmbeddingSimilarity("[1,0]", 2)).thenReturn(List.of(a, b));
+            when(beschlussRepository.findKeysByEmbeddingSimilarityInTopDocuments("[1,0]", 10, 2)).thenReturn(List.of(a, b));
+            when(beschlussRepository.findKeysByEmbeddingSimilarity("[0,1]", 2)).thenReturn(List.of(b, c));
+            when(beschlussRepository.findKeysByEmbeddingSimilarityInTopDocuments("[0,1]", 10, 2)).thenReturn(List.of(bElsewhere, b));
+
+            // When
+            RecallReport report = beschlussService.evaluateTwoStageRecall(2, 2);
+
+            // Then
+            assertThat(report.samples()).isEqualTo(2);
+            assertThat(report.candidateDocuments()).isEqualTo(10);
+            assertThat(report.meanRecall()).isEqualTo(0.75);
+            assertThat(report.minRecall()).isEqualTo(0.5);
+        }
+
+        @Test
+        @DisplayName("should report zero recall when no samples are available")
+        void shouldReportZeroRecallWithoutSamples() {
+            // Given
+            when(beschlussRepository.findRandomEmbeddings(5)).thenReturn(Collections.emptyList());
+
+            // When
+            RecallReport report = beschlussService.evaluateTwoStageRecall(5, 10);
+
+            // Then
+            assertThat(report.samples()).isZero();
+            assertThat(report.meanRecall()).isZero();
+        }
+    }
 }
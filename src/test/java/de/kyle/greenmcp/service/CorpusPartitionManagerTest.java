@@ -0,0 +1,45 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.CorpusProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link CorpusPartitionManager}.
+ */
+class CorpusPartitionManagerTest {
+
+    @Test
+    @DisplayName("should create missing partitions idempotently")
+    void shouldCreatePartitionIdempotently() {
+        assertThat(CorpusPartitionManager.createPartitionSql("beschluesse_shadow", "bremen"))
+                .isEqualTo("CREATE TABLE IF NOT EXISTS beschluesse_shadow_bremen PARTITION OF beschluesse_shadow FOR VALUES IN ('bremen')");
+    }
+
+    @Test
+    @DisplayName("should fall back to the bundled CSV files as default corpus")
+    void shouldFallBackToBundledCorpus() {
+        // When
+        CorpusProperties properties = new CorpusProperties("hamburg", List.of());
+
+        // Then
+        assertThat(properties.names()).containsExactly("hamburg");
+        assertThat(properties.effectiveSources().getFirst().metadata()).isEqualTo("classpath:data/metadata.csv");
+    }
+
+    @Test
+    @DisplayName("should reject corpus names that are unsafe in DDL or clash with reindex tables")
+    void shouldRejectInvalidNames() {
+        assertThatThrownBy(() -> new CorpusProperties("hamburg'; DROP TABLE x", List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CorpusProperties("hamburg", List.of(new CorpusProperties.Source("shadow", "a", "b"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CorpusProperties("Bremen", List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,205 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.ImportEmbeddingProperties;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.stub.StubEmbeddingServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mistralai.MistralAiEmbeddingModel;
+import org.springframework.ai.mistralai.api.MistralAiApi;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ImportEmbedder}, against {@link StubEmbeddingServer}.
+ */
+class ImportEmbedderTest {
+
+    private StubEmbeddingServer stub;
+    private EmbeddingService embeddingService;
+    private ImportCheckpoints importCheckpoints;
+    private ImportProgress importProgress;
+    private final Map<UUID, float[]> checkpoints = new HashMap<>();
+    private final List<Duration> sleeps = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        stub = StubEmbeddingServer.start(0, 0);
+        MistralAiApi api = MistralAiApi.builder()
+            .baseUrl(stub.baseUrl())
+            .apiKey("stub")
+            .build();
+        embeddingService = new EmbeddingService(MistralAiEmbeddingModel.builder().mistralAiApi(api).build());
+
+        // In-memory stand-in for the checkpoint table
+        importCheckpoints = mock(ImportCheckpoints.class);
+        when(importCheckpoints.findEmbeddings(anyList())).thenAnswer(invocation -> {
+            Map<UUID, float[]> found = new HashMap<>();
+            for (Beschluss chunk : (List<Beschluss>) invocation.getArgument(0)) {
+                synchronized (checkpoints) {
+                    if (checkpoints.containsKey(chunk.getId())) {
+                        found.put(chunk.getId(), checkpoints.get(chunk.getId()));
+                    }
+                }
+            }
+            return found;
+        });
+        doAnswer(invocation -> {
+            List<Beschluss> chunks = invocation.getArgument(0);
+            List<float[]> embeddings = invocation.getArgument(1);
+            synchronized (checkpoints) {
+                for (int i = 0; i < chunks.size(); i++) {
+                    checkpoints.put(chunks.get(i).getId(), embeddings.get(i));
+                }
+            }
+            return null;
+        }).when(importCheckpoints).saveEmbeddings(anyList(), anyList());
+
+        importProgress = new ImportProgress();
+        importProgress.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("should embed in batches and return the vectors in input order")
+    void shouldEmbedInBatches() throws Exception {
+        // Given
+        ImportEmbedder embedder = embedder(properties(4, 2, 0, 3));
+        List<Beschluss> chunks = chunks(10);
+
+        // When
+        List<float[]> embeddings = embedder.embed(chunks);
+
+        // Then
+        assertThat(stub.requestCount()).isEqualTo(3);
+        assertThat(stub.inputCount()).isEqualTo(10);
+        for (int i = 0; i < chunks.size(); i++) {
+            assertThat(embeddings.get(i)).containsExactly(StubEmbeddingServer.vectorFor(chunks.get(i).getContent()));
+        }
+        assertThat(importProgress.embedded()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("should not embed checkpointed chunks again")
+    void shouldResumeFromCheckpoints() throws Exception {
+        // Given
+        ImportEmbedder embedder = embedder(properties(4, 2, 0, 3));
+        List<Beschluss> chunks = chunks(10);
+        embedder.embed(chunks.subList(0, 6));
+        long requestsBefore = stub.requestCount();
+
+        // When
+        List<float[]> embeddings = embedder.embed(chunks);
+
+        // Then
+        assertThat(stub.requestCount() - requestsBefore).isEqualTo(1);
+        assertThat(stub.inputCount()).isEqualTo(10);
+        assertThat(embeddings.get(0)).containsExactly(StubEmbeddingServer.vectorFor(chunks.getFirst().getContent()));
+        assertThat(importProgress.checkpointed()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("should retry rate limited requests with growing backoff")
+    void shouldRetryWithBackoff() throws Exception {
+        // Given
+        ImportEmbedder embedder = embedder(properties(10, 1, 0, 3));
+        stub.failNext(2, 429);
+
+        // When
+        List<float[]> embeddings = embedder.embed(chunks(3));
+
+        // Then
+        assertThat(embeddings).hasSize(3).doesNotContainNull();
+        assertThat(sleeps).containsExactly(Duration.ofMillis(100), Duration.ofMillis(200));
+        assertThat(importProgress.embeddingRetries()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should fail once a batch used up its attempts and keep the other batches checkpointed")
+    void shouldFailAfterMaxAttempts() throws Exception {
+        // Given
+        ImportEmbedder embedder = embedder(properties(2, 1, 0, 2));
+        List<Beschluss> chunks = chunks(4);
+        embedder.embed(chunks.subList(0, 2));
+
+        // When
+        stub.failNext(2, 429);
+
+        // Then
+        assertThatThrownBy(() -> embedder.embed(chunks)).isInstanceOf(RuntimeException.class);
+        assertThat(checkpoints).containsOnlyKeys(chunks.get(0).getId(), chunks.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("should space request starts to the configured rate")
+    void shouldLimitRequestRate() throws Exception {
+        // Given
+        ImportEmbedder embedder = new ImportEmbedder(embeddingService, importCheckpoints, properties(1, 2, 10, 1),
+            importProgress, duration -> {
+                sleeps.add(duration);
+                Thread.sleep(duration);
+            });
+        long start = System.nanoTime();
+
+        // When
+        embedder.embed(chunks(4));
+
+        // Then
+        assertThat(stub.requestCount()).isEqualTo(4);
+        assertThat(sleeps).hasSize(3);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(290));
+    }
+
+    @Test
+    @DisplayName("should cap the backoff at the maximum")
+    void shouldCapBackoff() {
+        // Given
+        ImportEmbeddingProperties properties = properties(1, 1, 0, 10);
+
+        // Then
+        assertThat(ImportEmbedder.backoff(1, properties)).isEqualTo(Duration.ofMillis(100));
+        assertThat(ImportEmbedder.backoff(3, properties)).isEqualTo(Duration.ofMillis(400));
+        assertThat(ImportEmbedder.backoff(8, properties)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    // Records the waits instead of sleeping, so the request slots of the rate limit fall due at once
+    private ImportEmbedder embedder(ImportEmbeddingProperties properties) {
+        return new ImportEmbedder(embeddingService, importCheckpoints, properties, importProgress, sleeps::add);
+    }
+
+    private static ImportEmbeddingProperties properties(int batchSize, int concurrency, double requestsPerSecond, int maxAttempts) {
+        return new ImportEmbeddingProperties(batchSize, concurrency, requestsPerSecond, maxAttempts,
+            Duration.ofMillis(100), Duration.ofSeconds(1));
+    }
+
+    private static List<Beschluss> chunks(int count) {
+        List<Beschluss> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Beschluss chunk = new Beschluss();
+            chunk.setId(UUID.randomUUID());
+            chunk.setContent("Abschnitt " + i + " über Klimaschutz und Radverkehr");
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,57 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.IndexSweepProperties;
+import de.kyle.greenmcp.dto.IndexSweepResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the parts of {@link IndexSweep} that do not need a database.
+ */
+class IndexSweepTest {
+
+    @Test
+    @DisplayName("should skip HNSW configurations with ef_construction below 2 * m")
+    void shouldSkipInvalidHnswConfigurations() {
+        // Given
+        IndexSweepProperties properties = new IndexSweepProperties(
+            10, null, 10, List.of(16, 32), List.of(32, 64), List.of(40), List.of(100), List.of(10), "target/index-sweep");
+
+        // When
+        List<IndexSweep.IndexConfig> configs = IndexSweep.configurations(properties);
+
+        // Then
+        assertThat(configs).containsExactly(
+            new IndexSweep.IndexConfig("hnsw", 16, 32, null),
+            new IndexSweep.IndexConfig("hnsw", 16, 64, null),
+            new IndexSweep.IndexConfig("hnsw", 32, 64, null),
+            new IndexSweep.IndexConfig("ivfflat", null, null, 100));
+        assertThat(configs.getFirst().createSql()).contains("USING hnsw", "m = 16", "ef_construction = 32");
+        assertThat(configs.getLast().createSql()).contains("USING ivfflat", "lists = 100");
+        assertThat(configs.getLast().searchSetting()).isEqualTo("ivfflat.probes");
+    }
+
+    @Test
+    @DisplayName("should compute nearest-rank percentiles in milliseconds")
+    void shouldComputePercentiles() {
+        long[] nanos = {1_000_000, 2_000_000, 3_000_000, 4_000_000, 100_000_000};
+
+        assertThat(IndexSweep.percentileMillis(nanos, 50)).isEqualTo(3.0);
+        assertThat(IndexSweep.percentileMillis(nanos, 99)).isEqualTo(100.0);
+        assertThat(IndexSweep.percentileMillis(new long[0], 95)).isZero();
+    }
+
+    @Test
+    @DisplayName("should leave parameters of the other index type empty in the CSV row")
+    void shouldFormatCsvRow() {
+        IndexSweepResult result = new IndexSweepResult("ivfflat", null, null, 100, null, 10,
+            1200, 8192, 200, 10, 0.9512, 0.6, 1.5, 2.25, 3.0);
+
+        assertThat(result.toCsvRow()).isEqualTo("ivfflat,,,100,,10,1200,8192,200,10,0.9512,0.6000,1.500,2.250,3.000");
+        assertThat(IndexSweepResult.CSV_HEADER.split(",")).hasSize(result.toCsvRow().split(",", -1).length);
+    }
+}
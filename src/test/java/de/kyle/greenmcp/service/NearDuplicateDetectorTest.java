@@ -0,0 +1,136 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.DeduplicationProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link NearDuplicateDetector}.
+ */
+class NearDuplicateDetectorTest {
+
+    private static final String BOILERPLATE = "Die Landesmitgliederversammlung möge beschließen: Der Landesvorstand "
+        + "wird beauftragt, die Umsetzung dieses Beschlusses zu begleiten und der nächsten Versammlung zu berichten.";
+
+    private final NearDuplicateDetector detector = new NearDuplicateDetector(new DeduplicationProperties(true, 0.98, 3));
+
+    @Test
+    @DisplayName("should point a repeated passage to the first chunk with it")
+    void shouldClusterRepeatedPassage() {
+        // Given
+        NearDuplicateDetector.Clusters clusters = detector.newClusters();
+        UUID canonical = UUID.randomUUID();
+        float[] embedding = randomVector(1);
+        clusters.assign(canonical, BOILERPLATE, embedding);
+
+        // When
+        UUID duplicateOf = clusters.assign(UUID.randomUUID(), BOILERPLATE, embedding.clone());
+
+        // Then
+        assertThat(duplicateOf).isEqualTo(canonical);
+        assertThat(clusters.canonicalCount()).isEqualTo(1);
+        assertThat(clusters.duplicateCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should keep different passages as canonical chunks")
+    void shouldKeepDifferentPassages() {
+        // Given
+        NearDuplicateDetector.Clusters clusters = detector.newClusters();
+        clusters.assign(UUID.randomUUID(), BOILERPLATE, randomVector(1));
+
+        // When
+        UUID duplicateOf = clusters.assign(UUID.randomUUID(),
+            "Wir fordern den Ausbau sicherer Radwege an allen Hauptverkehrsstraßen der Stadt.", randomVector(2));
+
+        // Then
+        assertThat(duplicateOf).isNull();
+        assertThat(clusters.canonicalCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should not cluster identical wording whose embeddings differ")
+    void shouldConfirmWithEmbedding() {
+        // Given
+        NearDuplicateDetector.Clusters clusters = detector.newClusters();
+        clusters.assign(UUID.randomUUID(), BOILERPLATE, randomVector(1));
+
+        // When
+        UUID duplicateOf = clusters.assign(UUID.randomUUID(), BOILERPLATE, randomVector(2));
+
+        // Then
+        assertThat(duplicateOf).isNull();
+    }
+
+    @Test
+    @DisplayName("should find a near-identical embedding through the hyperplane bands")
+    void shouldFindNearIdenticalEmbedding() {
+        // Given
+        NearDuplicateDetector.Clusters clusters = detector.newClusters();
+        UUID canonical = UUID.randomUUID();
+        float[] embedding = randomVector(1);
+        clusters.assign(canonical, BOILERPLATE, embedding);
+        float[] noisy = embedding.clone();
+        Random random = new Random(7);
+        for (int i = 0; i < noisy.length; i++) {
+            noisy[i] += (float) random.nextGaussian() * 0.05f;
+        }
+
+        // When
+        UUID duplicateOf = clusters.assign(UUID.randomUUID(), "Die LMV möge beschließen: Der Landes-vorstand wird beauftragt.", noisy);
+
+        // Then
+        assertThat(NearDuplicateDetector.cosine(embedding, noisy)).isGreaterThan(0.98);
+        assertThat(duplicateOf).isEqualTo(canonical);
+    }
+
+    @Test
+    @DisplayName("should give nearly identical texts nearly identical SimHashes")
+    void shouldKeepSimHashesClose() {
+        // When
+        long original = NearDuplicateDetector.simHash(BOILERPLATE);
+        long sameWords = NearDuplicateDetector.simHash(BOILERPLATE.replace(" ", "  \n").replace(":", " –"));
+        long other = NearDuplicateDetector.simHash("Wir fordern den Ausbau sicherer Radwege an allen Hauptverkehrsstraßen.");
+
+        // Then
+        assertThat(sameWords).isEqualTo(original);
+        assertThat(Long.bitCount(original ^ other)).isGreaterThan(3);
+    }
+
+    @Test
+    @DisplayName("should not compare chunks of separate clusters")
+    void shouldSeparateClusters() {
+        // Given
+        float[] embedding = randomVector(1);
+        detector.newClusters().assign(UUID.randomUUID(), BOILERPLATE, embedding);
+
+        // When
+        UUID duplicateOf = detector.newClusters().assign(UUID.randomUUID(), BOILERPLATE, embedding);
+
+        // Then
+        assertThat(duplicateOf).isNull();
+    }
+
+    @Test
+    @DisplayName("should reject Hamming distances the bands cannot guarantee")
+    void shouldRejectLargeHammingDistance() {
+        // Then
+        assertThatThrownBy(() -> new DeduplicationProperties(true, 0.98, 4))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static float[] randomVector(long seed) {
+        Random random = new Random(seed);
+        float[] vector = new float[1024];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,84 @@
+package de.kyle.greenmcp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link QueryLogBuffer}.
+ */
+class QueryLogBufferTest {
+
+    @Test
+    @DisplayName("should round the capacity up to a power of two and reject offers when full")
+    void shouldRejectWhenFull() {
+        // Given
+        QueryLogBuffer<Integer> buffer = new QueryLogBuffer<>(3);
+
+        // When
+        List<Boolean> offered = List.of(buffer.offer(1), buffer.offer(2), buffer.offer(3), buffer.offer(4), buffer.offer(5));
+
+        // Then
+        assertThat(buffer.capacity()).isEqualTo(4);
+        assertThat(offered).containsExactly(true, true, true, true, false);
+    }
+
+    @Test
+    @DisplayName("should drain in insertion order and accept new elements afterwards")
+    void shouldDrainInOrder() {
+        QueryLogBuffer<Integer> buffer = new QueryLogBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.offer(round * 4 + i)).isTrue();
+            }
+            buffer.drain(drained::add);
+        }
+
+        assertThat(drained).hasSize(12).isSorted();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should neither lose nor duplicate elements with concurrent producers")
+    void shouldHandleConcurrentProducers() throws Exception {
+        // Given
+        QueryLogBuffer<Integer> buffer = new QueryLogBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 20_000;
+        AtomicInteger rejected = new AtomicInteger();
+        Set<Integer> consumed = new HashSet<>();
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int offset = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        if (!buffer.offer(offset + i)) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            while (!futures.stream().allMatch(Future::isDone)) {
+                buffer.drain(value -> assertThat(consumed.add(value)).isTrue());
+            }
+        }
+        buffer.drain(value -> assertThat(consumed.add(value)).isTrue());
+
+        // Then
+        assertThat(consumed.size() + rejected.get()).isEqualTo(producers * perProducer);
+    }
+}
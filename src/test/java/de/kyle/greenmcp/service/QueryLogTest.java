@@ -0,0 +1,127 @@
+package de.kyle.greenmcp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.kyle.greenmcp.config.QueryLogProperties;
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.dto.QueryLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link QueryLog}.
+ */
+class QueryLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QueryEmbeddingCache cache = new QueryEmbeddingCache(new SearchProperties(SearchMode.EXACT, 10, 0, 4, 100, 3000, 1000));
+    private QueryLog queryLog;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queryLog != null) {
+            queryLog.destroy();
+        }
+    }
+
+    private QueryLog queryLog(boolean enabled, DataSize maxFileSize) {
+        // The long interval keeps the background thread out of the way, the tests flush explicitly
+        queryLog = new QueryLog(new QueryLogProperties(enabled, 1.0, 16, directory.resolve("query-log.jsonl").toString(),
+            maxFileSize, 2, Duration.ofHours(1)), cache, objectMapper);
+        return queryLog;
+    }
+
+    @Test
+    @DisplayName("should write arguments, cached embedding, latency and result ids as one JSON line per call")
+    void shouldWriteRecord() throws Exception {
+        // Given
+        QueryLog log = queryLog(true, DataSize.ofMegabytes(1));
+        cache.put("Klimaschutz", new float[]{0.25f, -0.5f});
+        String id = UUID.randomUUID().toString();
+        String output = "{\"results\":[{\"title\":\"Klima\",\"content\":\"\\\"id\\\":\\\"x\\\"\",\"id\":\"" + id + "\"}],\"continuation\":null}";
+
+        // When
+        log.record("beschluesseSuchen", "{\"query\":\"Klimaschutz\",\"limit\":5}", 12_500_000, output, false);
+        log.flush();
+
+        // Then
+        List<String> lines = Files.readAllLines(directory.resolve("query-log.jsonl"));
+        assertThat(lines).hasSize(1);
+        QueryLogRecord record = objectMapper.readValue(lines.getFirst(), QueryLogRecord.class);
+        assertThat(record.tool()).isEqualTo("beschluesseSuchen");
+        assertThat(record.arguments()).containsEntry("query", "Klimaschutz").containsEntry("limit", 5);
+        assertThat(record.query()).isEqualTo("Klimaschutz");
+        assertThat(record.embedding()).containsExactly(0.25f, -0.5f);
+        assertThat(record.latencyMillis()).isEqualTo(12.5);
+        assertThat(record.resultIds()).containsExactly(id);
+        assertThat(log.written()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should take the query of a continuation from its token")
+    void shouldResolveContinuationQuery() {
+        QueryLog log = queryLog(true, DataSize.ofMegabytes(1));
+        String token = new ContinuationToken("Radverkehr", null, UUID.randomUUID(), "hamburg").encode();
+
+        QueryLogRecord record = log.toRecord(new QueryLog.Entry(0, "beschluesseSuchen", "{\"fortsetzung\":\"" + token + "\"}",
+            0, List.of(), false));
+
+        assertThat(record.query()).isEqualTo("Radverkehr");
+        assertThat(record.embedding()).isNull();
+    }
+
+    @Test
+    @DisplayName("should roll the file over when it exceeds the size limit and keep only max-files old files")
+    void shouldRotate() throws Exception {
+        // Given
+        QueryLog log = queryLog(true, DataSize.ofBytes(200));
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            log.record("beschluesseListen", "{}", 1_000_000, "[]", false);
+            log.flush();
+        }
+
+        // Then
+        assertThat(Files.exists(directory.resolve("query-log.jsonl.1"))).isTrue();
+        assertThat(Files.exists(directory.resolve("query-log.jsonl.2"))).isTrue();
+        assertThat(Files.exists(directory.resolve("query-log.jsonl.3"))).isFalse();
+        assertThat(Files.size(directory.resolve("query-log.jsonl"))).isLessThanOrEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("should not capture anything when disabled")
+    void shouldIgnoreCallsWhenDisabled() {
+        QueryLog log = queryLog(false, DataSize.ofMegabytes(1));
+
+        log.record("beschluesseListen", "{}", 1_000_000, "[]", false);
+        log.flush();
+
+        assertThat(log.written()).isZero();
+    }
+
+    @Test
+    @DisplayName("should count entries as dropped when the buffer is full")
+    void shouldDropWhenFull() {
+        QueryLog log = queryLog(true, DataSize.ofMegabytes(1));
+
+        for (int i = 0; i < 20; i++) {
+            log.record("beschluesseListen", "{}", 1_000_000, "[]", false);
+        }
+
+        assertThat(log.dropped()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,46 @@
+package de.kyle.greenmcp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for {@link RecallCalculator}.
+ */
+class RecallCalculatorTest {
+
+    @Test
+    @DisplayName("should compute recall as the share of exact results that were found")
+    void shouldComputeRecall() {
+        assertThat(RecallCalculator.recallAtK(List.of(1, 2, 3, 4), List.of(4, 2, 9, 8))).isEqualTo(0.5);
+        assertThat(RecallCalculator.recallAtK(List.of(), List.of(1))).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("should score identical rankings with an overlap of 1")
+    void shouldScoreIdenticalRankings() {
+        assertThat(RecallCalculator.rankBiasedOverlap(List.of(1, 2, 3), List.of(1, 2, 3), 0.9)).isEqualTo(1.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("should score disjoint rankings with an overlap of 0")
+    void shouldScoreDisjointRankings() {
+        assertThat(RecallCalculator.rankBiasedOverlap(List.of(1, 2, 3), List.of(4, 5, 6), 0.9)).isZero();
+    }
+
+    @Test
+    @DisplayName("should penalise swaps at the top more than swaps further down")
+    void shouldWeighTopRanksMore() {
+        List<Integer> exact = List.of(1, 2, 3, 4, 5);
+        double topSwap = RecallCalculator.rankBiasedOverlap(exact, List.of(2, 1, 3, 4, 5), 0.9);
+        double bottomSwap = RecallCalculator.rankBiasedOverlap(exact, List.of(1, 2, 3, 5, 4), 0.9);
+
+        assertThat(topSwap).isLessThan(bottomSwap);
+        assertThat(bottomSwap).isLessThan(1.0);
+        assertThat(RecallCalculator.recallAtK(exact, List.of(2, 1, 3, 4, 5))).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,147 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.RecallMonitorProperties;
+import de.kyle.greenmcp.config.SearchProperties;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.repository.BeschlussRepository;
+import de.kyle.greenmcp.repository.ChunkKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link RecallMonitor}.
+ */
+@ExtendWith(MockitoExtension.class)
+class RecallMonitorTest {
+
+    @Mock
+    private BeschlussRepository beschlussRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+    private UUID a;
+    private UUID b;
+    private UUID c;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        a = UUID.randomUUID();
+        b = UUID.randomUUID();
+        c = UUID.randomUUID();
+    }
+
+    private RecallMonitor monitor(SearchMode mode, double sampleRate) {
+        return new RecallMonitor(beschlussRepository, transactionManager,
+            new SearchProperties(mode, 10, 0, 4, 100, 3000, 1000),
+            new RecallMonitorProperties(sampleRate, 8), registry, Runnable::run);
+    }
+
+    private List<Beschluss> served(UUID... ids) {
+        return java.util.Arrays.stream(ids).map(id -> served(id, "hamburg")).toList();
+    }
+
+    private Beschluss served(UUID id, String corpus) {
+        Beschluss beschluss = new Beschluss();
+        beschluss.setId(id);
+        beschluss.setCorpus(corpus);
+        return beschluss;
+    }
+
+    private ChunkKey key(UUID id) {
+        return key(id, "hamburg");
+    }
+
+    private ChunkKey key(UUID id, String corpus) {
+        return new ChunkKey() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getCorpus() {
+                return corpus;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("should compare served results against an exact scan without index")
+    void shouldCompareAgainstExactScan() {
+        when(beschlussRepository.findKeysByEmbeddingSimilarity("[0.1]", 2)).thenReturn(List.of(key(a), key(c)));
+
+        monitor(SearchMode.ANN, 1.0).sample("[0.1]", served(a, b));
+
+        InOrder order = inOrder(beschlussRepository);
+        order.verify(beschlussRepository).disableIndexScans();
+        order.verify(beschlussRepository).findKeysByEmbeddingSimilarity("[0.1]", 2);
+        assertThat(registry.get("green_mcp.recall.at_k").tag("operation", "search").summary().mean()).isEqualTo(0.5);
+        assertThat(registry.get("green_mcp.recall.samples").tag("result", "compared").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should tell apart rows with the same id in different corpora")
+    void shouldCompareByIdAndCorpus() {
+        when(beschlussRepository.findKeysByEmbeddingSimilarity("[0.1]", 2))
+            .thenReturn(List.of(key(a, "hamburg"), key(b, "hamburg")));
+
+        monitor(SearchMode.TWO_STAGE, 1.0).sample("[0.1]", List.of(served(a, "hamburg"), served(b, "bremen")));
+
+        assertThat(registry.get("green_mcp.recall.at_k").tag("operation", "search").summary().mean()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("should not sample exact searches or when disabled")
+    void shouldNotSampleExactOrDisabled() {
+        monitor(SearchMode.EXACT, 1.0).sample("[0.1]", served(a));
+        monitor(SearchMode.ANN, 0).sample("[0.1]", served(a));
+
+        verifyNoInteractions(beschlussRepository);
+    }
+
+    @Test
+    @DisplayName("should drop samples when the background queue is full")
+    void shouldDropWhenQueueIsFull() {
+        RecallMonitor monitor = new RecallMonitor(beschlussRepository, transactionManager,
+            new SearchProperties(SearchMode.ANN, 10, 0, 4, 100, 3000, 1000),
+            new RecallMonitorProperties(1.0, 1), registry, task -> {
+                throw new RejectedExecutionException();
+            });
+
+        monitor.sample("[0.1]", served(a));
+
+        assertThat(registry.get("green_mcp.recall.samples").tag("result", "dropped").counter().count()).isEqualTo(1);
+        verifyNoInteractions(beschlussRepository);
+    }
+
+    @Test
+    @DisplayName("should count failed comparisons")
+    void shouldCountFailures() {
+        when(beschlussRepository.findKeysByEmbeddingSimilarity(anyString(), anyInt())).thenThrow(new IllegalStateException("db down"));
+
+        monitor(SearchMode.ANN, 1.0).sample("[0.1]", served(a));
+
+        assertThat(registry.get("green_mcp.recall.samples").tag("result", "failed").counter().count()).isEqualTo(1);
+    }
+}
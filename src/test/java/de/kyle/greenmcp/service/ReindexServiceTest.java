@@ -0,0 +1,106 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.ReindexProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the validation and swap logic of {@link ReindexService}.
+ */
+class ReindexServiceTest {
+
+    private final ReindexProperties properties = new ReindexProperties(500, 0.9, 50, 0.9, Duration.ofSeconds(5), false);
+
+    @Test
+    @DisplayName("should rename the live tables and their indexes away before giving the shadow indexes their names")
+    void shouldBuildSwapStatements() {
+        // When
+        List<String> statements = ReindexService.swapStatements(
+            List.of("hamburg"),
+            List.of("hamburg", "bremen"),
+            List.of(index("beschluesse_pkey", "beschluesse", null),
+                index("idx_beschluss_vectors_hamburg_embedding_hnsw", "beschluss_vectors_hamburg", null)),
+            List.of(index("beschluesse_pkey_shadow", "beschluesse_shadow", null),
+                index("idx_beschluss_vectors_hamburg_embedding_hnsw_shadow", "beschluss_vectors_shadow_hamburg", null)));
+
+        // Then
+        assertThat(statements).containsExactly(
+            "ALTER TABLE beschluesse RENAME TO beschluesse_old",
+            "ALTER TABLE beschluesse_hamburg RENAME TO beschluesse_old_hamburg",
+            "ALTER TABLE beschluss_vectors RENAME TO beschluss_vectors_old",
+            "ALTER TABLE beschluss_vectors_hamburg RENAME TO beschluss_vectors_old_hamburg",
+            "ALTER INDEX beschluesse_pkey RENAME TO beschluesse_pkey_old",
+            "ALTER INDEX idx_beschluss_vectors_hamburg_embedding_hnsw RENAME TO idx_beschluss_vectors_hamburg_embedding_hnsw_old",
+            "ALTER TABLE beschluesse_shadow RENAME TO beschluesse",
+            "ALTER TABLE beschluesse_shadow_hamburg RENAME TO beschluesse_hamburg",
+            "ALTER TABLE beschluesse_shadow_bremen RENAME TO beschluesse_bremen",
+            "ALTER TABLE beschluss_vectors_shadow RENAME TO beschluss_vectors",
+            "ALTER TABLE beschluss_vectors_shadow_hamburg RENAME TO beschluss_vectors_hamburg",
+            "ALTER TABLE beschluss_vectors_shadow_bremen RENAME TO beschluss_vectors_bremen",
+            "ALTER INDEX beschluesse_pkey_shadow RENAME TO beschluesse_pkey",
+            "ALTER INDEX idx_beschluss_vectors_hamburg_embedding_hnsw_shadow RENAME TO idx_beschluss_vectors_hamburg_embedding_hnsw");
+    }
+
+    @Test
+    @DisplayName("should give the partition indexes of the shadow tables the names of the live partitions' indexes")
+    void shouldRenamePartitionIndexes() {
+        // Given
+        List<ReindexService.Index> live = List.of(
+            index("idx_beschluss_vectors_duplicate_of", "beschluss_vectors", null),
+            index("beschluss_vectors_hamburg_duplicate_of_idx", "beschluss_vectors_hamburg", "idx_beschluss_vectors_duplicate_of"),
+            index("beschluesse_hamburg_pkey", "beschluesse_hamburg", "beschluesse_pkey"));
+        List<ReindexService.Index> shadow = List.of(
+            index("idx_beschluss_vectors_duplicate_of_shadow", "beschluss_vectors_shadow", null),
+            index("beschluss_vectors_shadow_hamburg_duplicate_of_idx", "beschluss_vectors_shadow_hamburg",
+                "idx_beschluss_vectors_duplicate_of_shadow"),
+            index("beschluss_vectors_shadow_bremen_duplicate_of_idx", "beschluss_vectors_shadow_bremen",
+                "idx_beschluss_vectors_duplicate_of_shadow"),
+            index("beschluesse_shadow_hamburg_pkey", "beschluesse_shadow_hamburg", "beschluesse_pkey_shadow"));
+
+        // When
+        List<String> statements = ReindexService.swapStatements(List.of("hamburg"), List.of("hamburg", "bremen"), live, shadow);
+
+        // Then
+        assertThat(statements).contains(
+            "ALTER INDEX beschluss_vectors_hamburg_duplicate_of_idx RENAME TO beschluss_vectors_hamburg_duplicate_of_idx_old",
+            "ALTER INDEX idx_beschluss_vectors_duplicate_of_shadow RENAME TO idx_beschluss_vectors_duplicate_of",
+            "ALTER INDEX beschluss_vectors_shadow_hamburg_duplicate_of_idx RENAME TO beschluss_vectors_hamburg_duplicate_of_idx",
+            "ALTER INDEX beschluss_vectors_shadow_bremen_duplicate_of_idx RENAME TO beschluss_vectors_bremen_duplicate_of_idx",
+            "ALTER INDEX beschluesse_shadow_hamburg_pkey RENAME TO beschluesse_hamburg_pkey");
+        assertThat(statements).noneMatch(statement -> statement.endsWith("_shadow") || statement.matches(".* TO \\w*_shadow_.*"));
+    }
+
+    @Test
+    @DisplayName("should accept a shadow table with enough rows and recall")
+    void shouldAcceptValidShadowTable() {
+        assertThat(ReindexService.validationProblem(1000, 950, 0.97, properties)).isNull();
+        assertThat(ReindexService.validationProblem(0, 10, 1.0, properties)).isNull();
+    }
+
+    @Test
+    @DisplayName("should reject an empty or truncated shadow table and an index with low recall")
+    void shouldRejectInvalidShadowTable() {
+        assertThat(ReindexService.validationProblem(1000, 0, 1.0, properties)).contains("empty");
+        assertThat(ReindexService.validationProblem(1000, 800, 1.0, properties)).contains("800 rows");
+        assertThat(ReindexService.validationProblem(1000, 1000, 0.5, properties)).contains("recall");
+    }
+
+    @Test
+    @DisplayName("should refuse to start before the initial data loading has finished")
+    void shouldNotStartWhileLoading() {
+        ReindexService service = new ReindexService(null, null, null, null, null, null, properties, new LoadingStatus(), null, null);
+
+        assertThatThrownBy(() -> service.start(ReindexService.Source.TABLE)).isInstanceOf(IllegalStateException.class);
+        assertThat(service.status().phase()).isEqualTo("idle");
+    }
+
+    private static ReindexService.Index index(String name, String table, String parent) {
+        return new ReindexService.Index(name, table, parent);
+    }
+}
@@ -0,0 +1,155 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.entity.Beschluss;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ResultDiversifier}.
+ */
+class ResultDiversifierTest {
+
+    private final ResultDiversifier resultDiversifier = new ResultDiversifier();
+
+    private final float[] query = new float[]{1.0f, 0.0f, 0.0f};
+
+    private Beschluss chunk(String filename, float... embedding) {
+        return chunk("hamburg", filename, embedding);
+    }
+
+    private Beschluss chunk(String corpus, String filename, float... embedding) {
+        Beschluss b = new Beschluss();
+        b.setId(UUID.randomUUID());
+        b.setCorpus(corpus);
+        b.setFilename(filename);
+        b.setEmbedding(embedding);
+        return b;
+    }
+
+    @Nested
+    @DisplayName("MMR Tests")
+    class MmrTests {
+
+        @Test
+        @DisplayName("should keep relevance order without diversity")
+        void shouldKeepRelevanceOrderWithoutDiversity() {
+            // Given
+            Beschluss first = chunk("a.pdf", 1.0f, 0.0f, 0.0f);
+            Beschluss second = chunk("a.pdf", 0.9f, 0.1f, 0.0f);
+            Beschluss third = chunk("b.pdf", 0.5f, 0.0f, 0.5f);
+
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, List.of(first, second, third), 2, new Diversification(0, null));
+
+            // Then
+            assertThat(results).containsExactly(first, second);
+        }
+
+        @Test
+        @DisplayName("should prefer a dissimilar candidate over a near duplicate")
+        void shouldPreferDissimilarCandidate() {
+            // Given
+            Beschluss first = chunk("a.pdf", 0.95f, 0.312f, 0.0f);
+            Beschluss nearDuplicate = chunk("a.pdf", 0.94f, 0.33f, 0.05f);
+            Beschluss different = chunk("b.pdf", 0.8f, -0.6f, 0.0f);
+
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, List.of(first, nearDuplicate, different), 2, new Diversification(0.5, null));
+
+            // Then
+            assertThat(results).containsExactly(first, different);
+        }
+
+        @Test
+        @DisplayName("should fall back to database rank when vectors are missing")
+        void shouldFallBackToRankWithoutVectors() {
+            // Given
+            Beschluss first = chunk("a.pdf");
+            first.setEmbedding(null);
+            Beschluss second = chunk("b.pdf");
+            second.setEmbedding(null);
+
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, List.of(first, second), 2, new Diversification(0.3, null));
+
+            // Then
+            assertThat(results).containsExactly(first, second);
+        }
+    }
+
+    @Nested
+    @DisplayName("Per-Document Cap Tests")
+    class PerDocumentCapTests {
+
+        @Test
+        @DisplayName("should limit hits per document")
+        void shouldLimitHitsPerDocument() {
+            // Given
+            Beschluss a1 = chunk("a.pdf", 1.0f, 0.0f, 0.0f);
+            Beschluss a2 = chunk("a.pdf", 0.95f, 0.05f, 0.0f);
+            Beschluss a3 = chunk("a.pdf", 0.9f, 0.1f, 0.0f);
+            Beschluss b1 = chunk("b.pdf", 0.5f, 0.5f, 0.0f);
+
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, List.of(a1, a2, a3, b1), 3, new Diversification(0, 2));
+
+            // Then
+            assertThat(results).containsExactly(a1, a2, b1);
+        }
+
+        @Test
+        @DisplayName("should count the same filename in two corpora as two documents")
+        void shouldCapPerCorpusAndFilename() {
+            // Given
+            Beschluss hamburg1 = chunk("hamburg", "satzung.pdf", 1.0f, 0.0f, 0.0f);
+            Beschluss hamburg2 = chunk("hamburg", "satzung.pdf", 0.95f, 0.05f, 0.0f);
+            Beschluss bremen1 = chunk("bremen", "satzung.pdf", 0.9f, 0.1f, 0.0f);
+            Beschluss other = chunk("hamburg", "b.pdf", 0.5f, 0.5f, 0.0f);
+
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, List.of(hamburg1, hamburg2, bremen1, other), 3, new Diversification(0, 1));
+
+            // Then
+            assertThat(results).containsExactly(hamburg1, bremen1, other);
+        }
+
+        @Test
+        @DisplayName("should return fewer results when the cap exhausts all candidates")
+        void shouldReturnFewerResultsWhenCapExhaustsCandidates() {
+            // Given
+            Beschluss a1 = chunk("a.pdf", 1.0f, 0.0f, 0.0f);
+            Beschluss a2 = chunk("a.pdf", 0.9f, 0.1f, 0.0f);
+
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, List.of(a1, a2), 5, new Diversification(0, 1));
+
+            // Then
+            assertThat(results).containsExactly(a1);
+        }
+
+        @Test
+        @DisplayName("should return empty list for no candidates")
+        void shouldReturnEmptyListForNoCandidates() {
+            // When
+            List<Beschluss> results = resultDiversifier.diversify(
+                    query, Collections.emptyList(), 5, new Diversification(0.5, 1));
+
+            // Then
+            assertThat(results).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.SchemaProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migrations of {@link SchemaMigrator} against PostgreSQL with pgvector.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaMigratorTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+        DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"));
+
+    private static final CorpusProperties CORPORA = new CorpusProperties("hamburg", List.of(
+        new CorpusProperties.Source("hamburg", "classpath:data/metadata.csv", "classpath:data/embeddings.csv"),
+        new CorpusProperties.Source("bremen", "file:/data/bremen/metadata.csv", "file:/data/bremen/embeddings.csv")));
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA public CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA public");
+        schemaMigrator = new SchemaMigrator(dataSource, new SchemaProperties(true), CORPORA);
+    }
+
+    @Test
+    @DisplayName("should create both partitioned tables on an empty database")
+    void shouldCreatePartitionedTables() {
+        // When
+        schemaMigrator.migrate();
+        new CorpusPartitionManager(jdbcTemplate, CORPORA).ensurePartitions();
+
+        // Then
+        assertThat(partitions("beschluesse")).containsExactly("beschluesse_bremen", "beschluesse_hamburg");
+        assertThat(partitions("beschluss_vectors")).containsExactly("beschluss_vectors_bremen", "beschluss_vectors_hamburg");
+        assertThat(columns("beschluesse")).contains("corpus").doesNotContain("embedding");
+        assertThat(indexes("beschluss_vectors")).contains("beschluss_vectors_pkey", "idx_beschluss_vectors_filename",
+            "idx_beschluss_vectors_topic", "idx_beschluss_vectors_created_at", "idx_beschluss_vectors_duplicate_of");
+    }
+
+    @Test
+    @DisplayName("should move the rows of a flat table into the default corpus' partitions with their embeddings")
+    void shouldMigrateFlatTable() {
+        // Given a table as Hibernate created it before the corpora
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        jdbcTemplate.execute("""
+            CREATE TABLE beschluesse (id uuid PRIMARY KEY, pdf_url varchar(255), chunk_index integer, content text,
+                title varchar(255), topic varchar(255), filename varchar(255), word_count integer, created_at timestamp,
+                duplicate_of uuid, embedding vector(1024))""");
+        jdbcTemplate.execute("CREATE INDEX idx_beschluesse_topic ON beschluesse (topic)");
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        insertFlat(first, "Umwelt", 0.25f);
+        insertFlat(second, "Verkehr", 0.5f);
+
+        // When
+        schemaMigrator.migrate();
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM beschluesse_hamburg", Long.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT topic FROM beschluss_vectors_hamburg WHERE id = ? AND corpus = 'hamburg'", String.class, second))
+            .isEqualTo("Verkehr");
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT cast(embedding as text) FROM beschluss_vectors WHERE id = ?", String.class, first))
+            .isEqualTo(vector(0.25f));
+        assertThat(columns("beschluesse")).doesNotContain("embedding");
+        assertThat(indexes("beschluesse")).contains("beschluesse_pkey").doesNotContain("idx_beschluesse_topic");
+        assertThat(indexes("beschluss_vectors")).contains("beschluss_vectors_pkey", "idx_beschluss_vectors_topic");
+    }
+
+    private void insertFlat(UUID id, String topic, float value) {
+        jdbcTemplate.update("INSERT INTO beschluesse (id, chunk_index, content, topic, filename, embedding)"
+            + " VALUES (?, 0, 'Text', ?, 'a.pdf', cast(? as vector))", id, topic, vector(value));
+    }
+
+    private static String vector(float value) {
+        return "[" + String.join(",", Collections.nCopies(1024, Float.toString(value))) + "]";
+    }
+
+    private List<String> partitions(String table) {
+        return jdbcTemplate.queryForList(
+            "SELECT cast(inhrelid as regclass)::text FROM pg_inherits WHERE inhparent = to_regclass(?) ORDER BY 1",
+            String.class, table);
+    }
+
+    private List<String> columns(String table) {
+        return jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns"
+            + " WHERE table_schema = current_schema() AND table_name = ?", String.class, table);
+    }
+
+    private List<String> indexes(String table) {
+        return jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = ?", String.class, table);
+    }
+}
@@ -0,0 +1,158 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.SemanticCacheProperties;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import de.kyle.greenmcp.service.SearchMetrics.Operation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SemanticResultCache}.
+ */
+class SemanticResultCacheTest {
+
+    private static final SemanticResultCache.Key KEY =
+        new SemanticResultCache.Key(Operation.SEARCH, null, SearchFilter.NONE, Diversification.NONE, 5);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("should return the results of a query vector within the maximum distance")
+    void shouldHitWithinDistance() {
+        // Given
+        SemanticResultCache cache = cache(true, 3);
+        List<Beschluss> results = List.of(beschluss());
+        cache.put(KEY, new float[]{1, 0, 0}, results, cache.generation());
+
+        // When
+        List<Beschluss> near = cache.lookup(KEY, new float[]{2, 0.1f, 0});
+        List<Beschluss> far = cache.lookup(KEY, new float[]{1, 1, 0});
+
+        // Then
+        assertThat(near).isEqualTo(results);
+        assertThat(far).isNull();
+        assertThat(cache.hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("should return the closest of several cached query vectors")
+    void shouldPreferClosestVector() {
+        // Given
+        SemanticResultCache cache = cache(true, 3);
+        List<Beschluss> first = List.of(beschluss());
+        List<Beschluss> second = List.of(beschluss());
+        cache.put(KEY, new float[]{1, 0.2f, 0}, first, cache.generation());
+        cache.put(KEY, new float[]{1, 0.05f, 0}, second, cache.generation());
+
+        // When
+        List<Beschluss> results = cache.lookup(KEY, new float[]{1, 0.1f, 0});
+
+        // Then
+        assertThat(results).isEqualTo(second);
+    }
+
+    @Test
+    @DisplayName("should only match entries with the same operation, filters and limit")
+    void shouldSeparateKeys() {
+        // Given
+        SemanticResultCache cache = cache(true, 3);
+        cache.put(KEY, new float[]{1, 0, 0}, List.of(beschluss()), cache.generation());
+
+        // When
+        List<Beschluss> otherLimit = cache.lookup(
+            new SemanticResultCache.Key(Operation.SEARCH, null, SearchFilter.NONE, Diversification.NONE, 10), new float[]{1, 0, 0});
+        List<Beschluss> otherCorpus = cache.lookup(
+            new SemanticResultCache.Key(Operation.SEARCH, null, SearchFilter.corpus("bremen"), Diversification.NONE, 5), new float[]{1, 0, 0});
+
+        // Then
+        assertThat(otherLimit).isNull();
+        assertThat(otherCorpus).isNull();
+    }
+
+    @Test
+    @DisplayName("should not return expired entries")
+    void shouldExpireEntries() {
+        // Given
+        SemanticResultCache cache = cache(true, 3);
+        cache.put(KEY, new float[]{1, 0, 0}, List.of(beschluss()), cache.generation());
+
+        // When
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        // Then
+        assertThat(cache.lookup(KEY, new float[]{1, 0, 0})).isNull();
+    }
+
+    @Test
+    @DisplayName("should evict the least recently used entry when full")
+    void shouldEvictLeastRecentlyUsed() {
+        // Given
+        SemanticResultCache cache = cache(true, 2);
+        cache.put(KEY, new float[]{1, 0, 0}, List.of(beschluss()), cache.generation());
+        clock.incrementAndGet();
+        cache.put(KEY, new float[]{0, 1, 0}, List.of(beschluss()), cache.generation());
+        clock.incrementAndGet();
+        cache.lookup(KEY, new float[]{1, 0, 0});
+        clock.incrementAndGet();
+
+        // When
+        cache.put(KEY, new float[]{0, 0, 1}, List.of(beschluss()), cache.generation());
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.lookup(KEY, new float[]{1, 0, 0})).isNotNull();
+        assertThat(cache.lookup(KEY, new float[]{0, 1, 0})).isNull();
+        assertThat(cache.lookup(KEY, new float[]{0, 0, 1})).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should drop the results of a search that started before the cache was cleared")
+    void shouldDropPutFromBeforeClear() {
+        // Given
+        SemanticResultCache cache = cache(true, 3);
+        long generation = cache.generation();
+        cache.clear();
+
+        // When
+        cache.put(KEY, new float[]{1, 0, 0}, List.of(beschluss()), generation);
+
+        // Then
+        assertThat(cache.size()).isZero();
+        assertThat(cache.lookup(KEY, new float[]{1, 0, 0})).isNull();
+    }
+
+    @Test
+    @DisplayName("should neither cache nor count lookups when disabled")
+    void shouldDoNothingWhenDisabled() {
+        // Given
+        SemanticResultCache cache = cache(false, 3);
+        cache.put(KEY, new float[]{1, 0, 0}, List.of(beschluss()), cache.generation());
+
+        // When
+        List<Beschluss> results = cache.lookup(KEY, new float[]{1, 0, 0});
+
+        // Then
+        assertThat(results).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.hits() + cache.misses()).isZero();
+    }
+
+    private SemanticResultCache cache(boolean enabled, int size) {
+        return new SemanticResultCache(new SemanticCacheProperties(enabled, 0.05, size, Duration.ofMinutes(10)), clock::get);
+    }
+
+    private static Beschluss beschluss() {
+        Beschluss beschluss = new Beschluss();
+        beschluss.setId(UUID.randomUUID());
+        return beschluss;
+    }
+}
@@ -0,0 +1,145 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.config.ReplicaRoutingDataSource;
+import de.kyle.greenmcp.config.ShardProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link ShardRouter}.
+ */
+class ShardRouterTest {
+
+    private SimpleMeterRegistry registry;
+    private ShardRouter router;
+    private Map<NamedParameterJdbcTemplate, Integer> shardIndexes;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        shardIndexes = new IdentityHashMap<>();
+        List<ShardRouter.Shard> shards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+            shardIndexes.put(jdbcTemplate, i);
+            shards.add(new ShardRouter.Shard(i, null, jdbcTemplate));
+        }
+        router = new ShardRouter(shards, Duration.ofMillis(200), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.destroy();
+    }
+
+    @Test
+    @DisplayName("should merge sorted lists into the global top k")
+    void shouldMergeSortedLists() {
+        // When
+        List<Integer> merged = ShardRouter.merge(List.of(List.of(1, 4, 9), List.of(), List.of(2, 3, 10), List.of(5)),
+                Comparator.naturalOrder(), 5);
+
+        // Then
+        assertThat(merged).containsExactly(1, 2, 3, 4, 5);
+        assertThat(ShardRouter.merge(List.of(List.of(2), List.of(1)), Comparator.<Integer>naturalOrder(), 10))
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("should search the regular datasource through the search pool and write through the write pool")
+    void shouldSearchShardZeroThroughSearchPool() {
+        // Given
+        DataSource writeDataSource = mock(DataSource.class);
+        ReplicaRoutingDataSource searchDataSource = mock(ReplicaRoutingDataSource.class);
+
+        // When
+        ShardRouter.Shard shard = new ShardRouter(writeDataSource, searchDataSource,
+                new ShardProperties(List.of(), Duration.ofSeconds(2)), registry).shards().getFirst();
+
+        // Then
+        assertThat(shard.jdbcTemplate().getJdbcTemplate().getDataSource()).isSameAs(writeDataSource);
+        assertThat(shard.searchJdbcTemplate().getJdbcTemplate().getDataSource()).isSameAs(searchDataSource);
+    }
+
+    @Test
+    @DisplayName("should assign ids to shards stably and evenly")
+    void shouldAssignShardsStably() {
+        // Given
+        UUID id = UUID.fromString("3f2b8c1e-8d4a-4c7e-9b1a-2f6d5e4c3b2a");
+        int[] counts = new int[3];
+
+        // When
+        for (int i = 0; i < 30_000; i++) {
+            counts[ShardRouter.shardIndex(UUID.randomUUID(), 3)]++;
+        }
+
+        // Then
+        assertThat(ShardRouter.shardIndex(id, 3)).isEqualTo(Math.floorMod(id.hashCode(), 3)).isEqualTo(2);
+        assertThat(IntStream.of(counts).min().getAsInt()).isGreaterThan(9_000);
+        assertThat(IntStream.of(counts).max().getAsInt()).isLessThan(11_000);
+    }
+
+    @Test
+    @DisplayName("should return the results of the shards that answered in time")
+    void shouldReturnPartialResultsOnTimeout() {
+        // When
+        List<List<Integer>> results = router.scatter(jdbc -> {
+            int shard = shardIndexes.get(jdbc);
+            if (shard == 1) {
+                sleep(2_000);
+            }
+            return List.of(shard);
+        });
+
+        // Then
+        assertThat(results).containsExactly(List.of(0), List.of(2));
+        assertThat(registry.get(ShardRouter.SHARD_FAILURES).tags("shard", "1", "outcome", "timeout").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("should leave out failing shards and fail only when no shard answered")
+    void shouldLeaveOutFailingShards() {
+        // When
+        List<List<Integer>> results = router.scatter(jdbc -> {
+            if (shardIndexes.get(jdbc) == 0) {
+                throw new IllegalStateException("connection refused");
+            }
+            return List.of(shardIndexes.get(jdbc));
+        });
+
+        // Then
+        assertThat(results).containsExactly(List.of(1), List.of(2));
+        assertThat(registry.get(ShardRouter.SHARD_FAILURES).tags("shard", "0", "outcome", "error").counter().count())
+                .isEqualTo(1.0);
+        assertThatThrownBy(() -> router.scatter(jdbc -> {
+            throw new IllegalStateException("down");
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("Keine Shard");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package de.kyle.greenmcp.service;
+
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.entity.Beschluss;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ShardedSearch}.
+ */
+class ShardedSearchTest {
+
+    @Test
+    @DisplayName("should return the distance so the shard results can be merged")
+    void shouldSelectDistance() {
+        // When
+        String sql = ShardedSearch.searchSql(SearchFilter.corpus("hamburg"), false, false, false);
+
+        // Then
+        assertThat(sql).startsWith("SELECT b.*, v.embedding, v.distance FROM (\n");
+        assertThat(sql).contains("AS distance FROM beschluss_vectors\nWHERE corpus = :corpus");
+        assertThat(sql).endsWith("ORDER BY v.distance, v.id, v.corpus COLLATE \"C\"");
+    }
+
+    @Test
+    @DisplayName("should sort by distance alone inside the limit in approximate mode")
+    void shouldUseIndexShapeWhenApproximate() {
+        // When
+        String sql = ShardedSearch.searchSql(SearchFilter.NONE, false, false, true);
+
+        // Then
+        assertThat(sql).contains("ORDER BY distance\nLIMIT :limit\n) v");
+    }
+
+    @Test
+    @DisplayName("should continue after the distance of the last row instead of looking it up on every shard")
+    void shouldContinueAfterLastDistance() {
+        // When
+        String sql = ShardedSearch.searchSql(SearchFilter.NONE, true, true, true);
+
+        // Then
+        assertThat(sql).contains("filename ILIKE :filename\nAND (embedding <=> cast(:embedding as vector), id, corpus COLLATE \"C\") > (:lastDistance, :lastId, :lastCorpus)");
+        assertThat(sql).doesNotContain("ORDER BY distance\n").doesNotContain("WHERE id = :lastId");
+    }
+
+    @Test
+    @DisplayName("should reject the token when no shard has the last row anymore")
+    void shouldRejectTokenWhoseLastRowIsGone() {
+        // Given
+        ShardRouter shardRouter = router(2);
+        when(shardRouter.<Double>scatter(any())).thenReturn(List.of(List.of(), List.of()));
+
+        // When / Then
+        assertThatThrownBy(() -> new ShardedSearch(shardRouter)
+            .search("[0.1]", SearchFilter.NONE, null, UUID.randomUUID(), "hamburg", 5, false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Ungültiges Fortsetzungstoken");
+        verify(shardRouter, times(1)).scatter(any());
+    }
+
+    @Test
+    @DisplayName("should not reject the token when the shard that may hold the last row did not answer")
+    void shouldFailWhenLastRowShardIsMissing() {
+        // Given
+        ShardRouter shardRouter = router(2);
+        when(shardRouter.<Double>scatter(any())).thenReturn(List.of(List.of()));
+
+        // When / Then
+        assertThatThrownBy(() -> new ShardedSearch(shardRouter)
+            .search("[0.1]", SearchFilter.NONE, null, UUID.randomUUID(), "hamburg", 5, false))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("should store a near-duplicate on the shard of its canonical chunk")
+    void shouldKeepDuplicatesWithCanonicalChunk() {
+        // Given
+        Beschluss canonical = hit(UUID.randomUUID(), 0).beschluss();
+        Beschluss duplicate = hit(UUID.randomUUID(), 0).beschluss();
+        duplicate.setDuplicateOf(canonical.getId());
+
+        // When / Then
+        assertThat(ShardedSearch.shardKey(canonical)).isEqualTo(canonical.getId());
+        assertThat(ShardedSearch.shardKey(duplicate)).isEqualTo(canonical.getId());
+    }
+
+    @Test
+    @DisplayName("should look up a chunk id on every shard, since duplicates live on their canonical chunk's shard")
+    void shouldFindByIdOnAllShards() {
+        // Given
+        UUID id = UUID.randomUUID();
+        ShardRouter shardRouter = router(2);
+        Beschluss bremen = hit(id, "bremen", 0).beschluss();
+        Beschluss hamburg = hit(id, "hamburg", 0).beschluss();
+        when(shardRouter.<Beschluss>scatter(any())).thenReturn(List.of(List.of(hamburg), List.of(bremen)));
+
+        // When
+        List<Beschluss> rows = new ShardedSearch(shardRouter).findById(id, null);
+
+        // Then
+        assertThat(rows).containsExactly(bremen, hamburg);
+        verify(shardRouter, never()).shardOf(any());
+    }
+
+    @Test
+    @DisplayName("should report the result as partial when a shard was left out")
+    void shouldReportPartialResult() {
+        // Given
+        ShardRouter shardRouter = router(2);
+        when(shardRouter.<ShardedSearch.Hit>scatter(any())).thenReturn(List.of(List.of(hit(UUID.randomUUID(), 0.1))));
+
+        // When
+        ShardedSearch.Result result = new ShardedSearch(shardRouter).search("[0.1]", SearchFilter.NONE, null, null, null, 5, false);
+
+        // Then
+        assertThat(result.rows()).hasSize(1);
+        assertThat(result.complete()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should order equal distances by id like PostgreSQL")
+    void shouldOrderIdsUnsigned() {
+        // Given
+        UUID low = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID high = UUID.fromString("ff000000-0000-0000-0000-000000000000");
+        List<ShardedSearch.Hit> hits = new ArrayList<>(List.of(hit(high, 0.5), hit(low, 0.5), hit(high, 0.1)));
+
+        // When
+        hits.sort(ShardedSearch.HIT_ORDER);
+
+        // Then
+        assertThat(high.compareTo(low)).isNegative();
+        assertThat(hits).extracting(ShardedSearch.Hit::distance).containsExactly(0.1, 0.5, 0.5);
+        assertThat(hits.get(1).beschluss().getId()).isEqualTo(low);
+    }
+
+    @Test
+    @DisplayName("should order the same id in several corpora by corpus")
+    void shouldOrderCollidingIdsByCorpus() {
+        // Given
+        UUID id = UUID.randomUUID();
+        List<ShardedSearch.Hit> hits = new ArrayList<>(List.of(hit(id, "hamburg", 0.5), hit(id, "berlin", 0.5),
+            hit(id, "bremen_mitte", 0.5), hit(id, "bremen", 0.5)));
+
+        // When
+        hits.sort(ShardedSearch.HIT_ORDER);
+
+        // Then
+        assertThat(hits).extracting(hit -> hit.beschluss().getCorpus())
+            .containsExactly("berlin", "bremen", "bremen_mitte", "hamburg");
+    }
+
+    private static ShardRouter router(int shards) {
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        List<ShardRouter.Shard> all = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            all.add(new ShardRouter.Shard(i, null, null));
+        }
+        when(shardRouter.shards()).thenReturn(all);
+        return shardRouter;
+    }
+
+    private static ShardedSearch.Hit hit(UUID id, double distance) {
+        return hit(id, "hamburg", distance);
+    }
+
+    private static ShardedSearch.Hit hit(UUID id, String corpus, double distance) {
+        Beschluss beschluss = new Beschluss();
+        beschluss.setId(id);
+        beschluss.setCorpus(corpus);
+        return new ShardedSearch.Hit(beschluss, distance);
+    }
+}
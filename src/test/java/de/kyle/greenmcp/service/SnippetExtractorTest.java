@@ -0,0 +1,137 @@
+package de.kyle.greenmcp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SnippetExtractor}.
+ */
+class SnippetExtractorTest {
+
+    private final SnippetExtractor snippetExtractor = new SnippetExtractor();
+
+    @Nested
+    @DisplayName("queryTerms Tests")
+    class QueryTermsTests {
+
+        @Test
+        @DisplayName("should lowercase terms and drop stopwords and short tokens")
+        void shouldNormalizeTerms() {
+            // When
+            Set<String> terms = snippetExtractor.queryTerms("Klimaschutz in der Stadt Hamburg, z.B. Radwege");
+
+            // Then
+            assertThat(terms).containsExactly("klimaschutz", "stadt", "hamburg", "radwege");
+        }
+
+        @Test
+        @DisplayName("should keep place and party names as terms")
+        void shouldKeepPlaceAndPartyNames() {
+            // When
+            Set<String> terms = snippetExtractor.queryTerms("Was fordern die Grünen in Bremen?");
+
+            // Then
+            assertThat(terms).containsExactly("fordern", "grünen", "bremen");
+        }
+
+        @Test
+        @DisplayName("should handle null query")
+        void shouldHandleNullQuery() {
+            // When / Then
+            assertThat(snippetExtractor.queryTerms(null)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("extract Tests")
+    class ExtractTests {
+
+        @Test
+        @DisplayName("should return short content unchanged")
+        void shouldReturnShortContentUnchanged() {
+            // Given
+            String content = "Ein kurzer Abschnitt.";
+
+            // When
+            String snippet = snippetExtractor.extract(content, Set.of("abschnitt"), 100);
+
+            // Then
+            assertThat(snippet).isEqualTo(content);
+        }
+
+        @Test
+        @DisplayName("should pick the sentence window with the most query terms")
+        void shouldPickBestWindow() {
+            // Given
+            String content = "Die Sitzung wurde eröffnet. Es gab Kaffee. "
+                    + "Das Klimaschutzgesetz verlangt mehr Radwege. Danach war Pause. Ende der Sitzung.";
+
+            // When
+            String snippet = snippetExtractor.extract(content, Set.of("klimaschutz", "radwege"), 50);
+
+            // Then
+            assertThat(snippet).contains("Das Klimaschutzgesetz verlangt mehr Radwege.");
+            assertThat(snippet).startsWith("…");
+        }
+
+        @Test
+        @DisplayName("should fill remaining budget with neighbouring sentences")
+        void shouldFillBudgetWithNeighbours() {
+            // Given
+            String content = "Erster Satz. Zweiter Satz zum Radverkehr. Dritter Satz. " + "Füllsatz. ".repeat(20);
+
+            // When
+            String snippet = snippetExtractor.extract(content, Set.of("radverkehr"), 60);
+
+            // Then
+            assertThat(snippet).startsWith("Erster Satz. Zweiter Satz zum Radverkehr. Dritter Satz.");
+            assertThat(snippet).endsWith("…");
+        }
+
+        @Test
+        @DisplayName("should cut a single long sentence around the first match")
+        void shouldCutLongSentenceAroundMatch() {
+            // Given
+            String content = "Wort ".repeat(100) + "Busbeschleunigung " + "Wort ".repeat(100);
+
+            // When
+            String snippet = snippetExtractor.extract(content, Set.of("busbeschleunigung"), 80);
+
+            // Then
+            assertThat(snippet).contains("Busbeschleunigung");
+            assertThat(snippet.length()).isLessThanOrEqualTo(80);
+        }
+
+        @Test
+        @DisplayName("should count the ellipses against the budget")
+        void shouldStayWithinMaxCharsIncludingEllipses() {
+            // Given
+            String content = "Füllsatz eins. ".repeat(20) + "Der Radverkehr wird ausgebaut. " + "Füllsatz zwei. ".repeat(20);
+
+            for (int maxChars = 1; maxChars <= 120; maxChars++) {
+                // When
+                String snippet = snippetExtractor.extract(content, Set.of("radverkehr"), maxChars);
+
+                // Then
+                assertThat(snippet.length()).as("maxChars %d", maxChars).isLessThanOrEqualTo(maxChars);
+            }
+            assertThat(snippetExtractor.extract(content, Set.of("radverkehr"), 60))
+                    .startsWith("… ").endsWith(" …").contains("Der Radverkehr wird ausgebaut.");
+        }
+
+        @Test
+        @DisplayName("should return empty snippet when budget is exhausted")
+        void shouldReturnEmptySnippetWithoutBudget() {
+            // When
+            String snippet = snippetExtractor.extract("Ein Satz. Noch ein Satz.", Set.of("satz"), 0);
+
+            // Then
+            assertThat(snippet).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package de.kyle.greenmcp.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Mistral's {@code /v1/embeddings} endpoint.
+ * <p>
+ * Every input text maps to the same normalised 1024-dimensional vector on every run (seeded from a
+ * SHA-256 of the text), and each request is delayed by a configurable base latency plus jitter.
+ * Point {@code spring.ai.mistralai.base-url} at {@link #baseUrl()} to use it.
+ */
+public class StubEmbeddingServer implements AutoCloseable {
+
+    public static final int DIMENSIONS = 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong inputs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile int failureStatus;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public StubEmbeddingServer(long latencyMillis, long jitterMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/v1/embeddings", this::handleEmbeddings);
+    }
+
+    public static StubEmbeddingServer start(long latencyMillis, long jitterMillis) throws IOException {
+        StubEmbeddingServer stub = new StubEmbeddingServer(latencyMillis, jitterMillis);
+        stub.server.start();
+        return stub;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long inputCount() {
+        return inputs.get();
+    }
+
+    /**
+     * Answers the next {@code requests} requests with {@code status} instead of embeddings, e.g. 429 for a rate limit.
+     */
+    public void failNext(int requests, int status) {
+        failureStatus = status;
+        failures.set(requests);
+    }
+
+    /**
+     * Returns the vector the stub answers for the given text.
+     */
+    public static float[] vectorFor(String text) {
+        Random random = new Random(seed(text));
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static long seed(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void handleEmbeddings(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            requests.incrementAndGet();
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                exchange.sendResponseHeaders(failureStatus, -1);
+                return;
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            List<String> texts = new ArrayList<>();
+            JsonNode input = request.path("input");
+            if (input.isArray()) {
+                input.forEach(node -> texts.add(node.asText()));
+            } else {
+                texts.add(input.asText());
+            }
+            inputs.addAndGet(texts.size());
+
+            simulateLatency();
+
+            List<Map<String, Object>> data = new ArrayList<>(texts.size());
+            int tokens = 0;
+            for (int i = 0; i < texts.size(); i++) {
+                Map<String, Object> embedding = new LinkedHashMap<>();
+                embedding.put("object", "embedding");
+                embedding.put("embedding", vectorFor(texts.get(i)));
+                embedding.put("index", i);
+                data.add(embedding);
+                tokens += texts.get(i).split("\\s+").length;
+            }
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", "stub-" + requests.get());
+            response.put("object", "list");
+            response.put("data", data);
+            response.put("model", request.path("model").asText("mistral-embed"));
+            response.put("usage", Map.of("prompt_tokens", tokens, "total_tokens", tokens, "completion_tokens", 0));
+
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package de.kyle.greenmcp.stub;
+
+import de.kyle.greenmcp.service.EmbeddingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mistralai.MistralAiEmbeddingModel;
+import org.springframework.ai.mistralai.api.MistralAiApi;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the Spring AI Mistral client accepts the stub's responses.
+ */
+class StubEmbeddingServerTest {
+
+    private StubEmbeddingServer stub;
+    private EmbeddingService embeddingService;
+    private MistralAiEmbeddingModel embeddingModel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubEmbeddingServer.start(0, 0);
+        MistralAiApi api = MistralAiApi.builder()
+            .baseUrl(stub.baseUrl())
+            .apiKey("stub")
+            .build();
+        embeddingModel = MistralAiEmbeddingModel.builder()
+            .mistralAiApi(api)
+            .build();
+        embeddingService = new EmbeddingService(embeddingModel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("should return deterministic 1024-dimensional vectors")
+    void shouldReturnDeterministicVectors() {
+        float[] first = embeddingService.embed("Klimaschutz in Hamburg");
+        float[] second = embeddingService.embed("Klimaschutz in Hamburg");
+
+        assertThat(first).hasSize(1024);
+        assertThat(first).containsExactly(second);
+        assertThat(first).containsExactly(StubEmbeddingServer.vectorFor("Klimaschutz in Hamburg"));
+        assertThat(embeddingService.embed("Radverkehr")).isNotEqualTo(first);
+        assertThat(stub.requestCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should answer batched inputs in order")
+    void shouldAnswerBatchedInputsInOrder() {
+        List<float[]> vectors = embeddingModel.embed(List.of("Wohnungsbau", "Mieten", "Hafen"));
+
+        assertThat(vectors).hasSize(3);
+        assertThat(vectors.get(1)).containsExactly(StubEmbeddingServer.vectorFor("Mieten"));
+        assertThat(stub.requestCount()).isEqualTo(1);
+        assertThat(stub.inputCount()).isEqualTo(3);
+    }
+}
@@ -1,8 +1,19 @@
 package de.kyle.greenmcp.tool;
 
+import de.kyle.greenmcp.config.CorpusProperties;
+import de.kyle.greenmcp.config.SearchProperties;
 import de.kyle.greenmcp.dto.BeschlussResult;
+import de.kyle.greenmcp.dto.Diversification;
+import de.kyle.greenmcp.dto.Passage;
+import de.kyle.greenmcp.dto.SearchFilter;
+import de.kyle.greenmcp.dto.SearchPage;
 import de.kyle.greenmcp.entity.Beschluss;
 import de.kyle.greenmcp.service.BeschlussService;
+import de.kyle.greenmcp.service.ContinuationToken;
+import de.kyle.greenmcp.service.SearchMetrics;
+import de.kyle.greenmcp.service.SearchMode;
+import de.kyle.greenmcp.service.SnippetExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -13,16 +24,25 @@ import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,6 +55,18 @@ class BeschlussSucheToolTest {
     @Mock
     private BeschlussService beschlussService;
 
+    @Spy
+    private SnippetExtractor snippetExtractor = new SnippetExtractor();
+
+    @Spy
+    private SearchProperties searchProperties = new SearchProperties(SearchMode.EXACT, 10, 0, 4, 100, 3000, 1000);
+
+    @Spy
+    private CorpusProperties corpusProperties = new CorpusProperties("hamburg", List.of());
+
+    @Spy
+    private SearchMetrics searchMetrics = new SearchMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private BeschlussSucheTool beschlussSucheTool;
 
@@ -63,11 +95,11 @@ class BeschlussSucheToolTest {
             // Given
             String query = "Klimaschutz";
             Integer limit = 5;
-            when(beschlussService.searchBeschluesse(query, limit))
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE))
                     .thenReturn(List.of(testBeschluss));
 
             // When
-            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit);
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit, null, null, null, null, null, null, null, null, null, null).results();
 
             // Then
             assertThat(results).hasSize(1);
@@ -78,7 +110,7 @@ class BeschlussSucheToolTest {
             assertThat(result.pdfUrl()).isEqualTo(testBeschluss.getPdfUrl());
             assertThat(result.filename()).isEqualTo(testBeschluss.getFilename());
 
-            verify(beschlussService).searchBeschluesse(query, limit);
+            verify(beschlussService).searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE);
         }
 
         @Test
@@ -87,11 +119,11 @@ class BeschlussSucheToolTest {
             // Given
             String query = "NonExistent";
             Integer limit = 5;
-            when(beschlussService.searchBeschluesse(query, limit))
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE))
                     .thenReturn(Collections.emptyList());
 
             // When
-            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit);
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit, null, null, null, null, null, null, null, null, null, null).results();
 
             // Then
             assertThat(results).isEmpty();
@@ -104,14 +136,14 @@ class BeschlussSucheToolTest {
         void shouldUseDefaultLimitWhenInvalid(Integer limit) {
             // Given
             String query = "Test";
-            when(beschlussService.searchBeschluesse(eq(query), eq(5)))
+            when(beschlussService.searchBeschluesse(eq(query), eq(5), eq(Diversification.NONE), eq(SearchFilter.NONE)))
                     .thenReturn(Collections.emptyList());
 
             // When
-            beschlussSucheTool.beschluesseSuchen(query, limit);
+            beschlussSucheTool.beschluesseSuchen(query, limit, null, null, null, null, null, null, null, null, null, null);
 
             // Then
-            verify(beschlussService).searchBeschluesse(query, 5);
+            verify(beschlussService).searchBeschluesse(query, 5, Diversification.NONE, SearchFilter.NONE);
         }
 
         @Test
@@ -120,14 +152,14 @@ class BeschlussSucheToolTest {
             // Given
             String query = "Test";
             Integer limit = 50;
-            when(beschlussService.searchBeschluesse(eq(query), eq(20)))
+            when(beschlussService.searchBeschluesse(eq(query), eq(20), eq(Diversification.NONE), eq(SearchFilter.NONE)))
                     .thenReturn(Collections.emptyList());
 
             // When
-            beschlussSucheTool.beschluesseSuchen(query, limit);
+            beschlussSucheTool.beschluesseSuchen(query, limit, null, null, null, null, null, null, null, null, null, null);
 
             // Then
-            verify(beschlussService).searchBeschluesse(query, 20);
+            verify(beschlussService).searchBeschluesse(query, 20, Diversification.NONE, SearchFilter.NONE);
         }
 
         @Test
@@ -136,14 +168,14 @@ class BeschlussSucheToolTest {
             // Given
             String query = "Test";
             Integer limit = 10;
-            when(beschlussService.searchBeschluesse(query, limit))
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE))
                     .thenReturn(Collections.emptyList());
 
             // When
-            beschlussSucheTool.beschluesseSuchen(query, limit);
+            beschlussSucheTool.beschluesseSuchen(query, limit, null, null, null, null, null, null, null, null, null, null);
 
             // Then
-            verify(beschlussService).searchBeschluesse(query, 10);
+            verify(beschlussService).searchBeschluesse(query, 10, Diversification.NONE, SearchFilter.NONE);
         }
 
         @Test
@@ -161,17 +193,112 @@ class BeschlussSucheToolTest {
             beschluss2.setPdfUrl("https://example.com/umwelt.pdf");
             beschluss2.setFilename("umwelt-2024.pdf");
 
-            when(beschlussService.searchBeschluesse(query, limit))
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE))
                     .thenReturn(List.of(testBeschluss, beschluss2));
 
             // When
-            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit);
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit, null, null, null, null, null, null, null, null, null, null).results();
 
             // Then
             assertThat(results).hasSize(2);
             assertThat(results.get(0).title()).isEqualTo(testBeschluss.getTitle());
             assertThat(results.get(1).title()).isEqualTo(beschluss2.getTitle());
         }
+
+        @Test
+        @DisplayName("should return merged passages when context is requested")
+        void shouldReturnMergedPassagesWhenContextRequested() {
+            // Given
+            String query = "Klimaschutz";
+            Integer limit = 5;
+
+            Beschluss previous = new Beschluss();
+            previous.setContent("Vorheriger Abschnitt.");
+            previous.setFilename(testBeschluss.getFilename());
+            previous.setChunkIndex(0);
+            testBeschluss.setChunkIndex(1);
+
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE)).thenReturn(List.of(testBeschluss));
+            when(beschlussService.expandContext(List.of(testBeschluss), 1))
+                    .thenReturn(List.of(new Passage(testBeschluss, List.of(previous, testBeschluss))));
+
+            // When
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit, 1, null, null, null, null, null, null, null, null, null).results();
+
+            // Then
+            assertThat(results).hasSize(1);
+            BeschlussResult result = results.get(0);
+            assertThat(result.content()).isEqualTo("Vorheriger Abschnitt.\n" + testBeschluss.getContent());
+            assertThat(result.firstChunk()).isEqualTo(0);
+            assertThat(result.lastChunk()).isEqualTo(1);
+            assertThat(result.title()).isEqualTo(testBeschluss.getTitle());
+        }
+
+        @Test
+        @DisplayName("should cap context at 3")
+        void shouldCapContextAt3() {
+            // Given
+            String query = "Test";
+            Integer limit = 5;
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE)).thenReturn(List.of(testBeschluss));
+            when(beschlussService.expandContext(anyList(), eq(3)))
+                    .thenReturn(List.of(new Passage(testBeschluss, List.of(testBeschluss))));
+
+            // When
+            beschlussSucheTool.beschluesseSuchen(query, limit, 10, null, null, null, null, null, null, null, null, null);
+
+            // Then
+            verify(beschlussService).expandContext(List.of(testBeschluss), 3);
+        }
+
+        @Test
+        @DisplayName("should not expand context when context is zero")
+        void shouldNotExpandContextWhenZero() {
+            // Given
+            String query = "Test";
+            Integer limit = 5;
+            when(beschlussService.searchBeschluesse(query, limit, Diversification.NONE, SearchFilter.NONE)).thenReturn(List.of(testBeschluss));
+
+            // When
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit, 0, null, null, null, null, null, null, null, null, null).results();
+
+            // Then
+            assertThat(results.get(0).firstChunk()).isEqualTo(testBeschluss.getChunkIndex());
+            verify(beschlussService, never()).expandContext(anyList(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should pass diversification options to service")
+        void shouldPassDiversificationOptions() {
+            // Given
+            String query = "Test";
+            Integer limit = 5;
+            Diversification expected = new Diversification(0.3, 2);
+            when(beschlussService.searchBeschluesse(query, limit, expected, SearchFilter.NONE)).thenReturn(List.of(testBeschluss));
+
+            // When
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, limit, null, 0.3, 2, null, null, null, null, null, null, null).results();
+
+            // Then
+            assertThat(results).hasSize(1);
+            verify(beschlussService).searchBeschluesse(query, limit, expected, SearchFilter.NONE);
+        }
+
+        @Test
+        @DisplayName("should clamp diversity and ignore invalid per-document cap")
+        void shouldClampDiversityAndIgnoreInvalidCap() {
+            // Given
+            String query = "Test";
+            Integer limit = 5;
+            Diversification expected = new Diversification(1.0, null);
+            when(beschlussService.searchBeschluesse(query, limit, expected, SearchFilter.NONE)).thenReturn(Collections.emptyList());
+
+            // When
+            beschlussSucheTool.beschluesseSuchen(query, limit, null, 7.5, 0, null, null, null, null, null, null, null);
+
+            // Then
+            verify(beschlussService).searchBeschluesse(query, limit, expected, SearchFilter.NONE);
+        }
     }
 
     @Nested
@@ -186,18 +313,18 @@ class BeschlussSucheToolTest {
             String query = "Erneuerbare Energie";
             Integer limit = 5;
 
-            when(beschlussService.searchInBeschluss(beschlussName, query, limit))
+            when(beschlussService.searchInBeschluss(beschlussName, query, limit, SearchFilter.NONE))
                     .thenReturn(List.of(testBeschluss));
 
             // When
             List<BeschlussResult> results = beschlussSucheTool.inBeschlussSuchen(
-                    beschlussName, query, limit);
+                    beschlussName, query, limit, null, null, null, null, null).results();
 
             // Then
             assertThat(results).hasSize(1);
             assertThat(results.get(0).title()).isEqualTo(testBeschluss.getTitle());
 
-            verify(beschlussService).searchInBeschluss(beschlussName, query, limit);
+            verify(beschlussService).searchInBeschluss(beschlussName, query, limit, SearchFilter.NONE);
         }
 
         @Test
@@ -208,12 +335,12 @@ class BeschlussSucheToolTest {
             String query = "Test";
             Integer limit = 5;
 
-            when(beschlussService.searchInBeschluss(beschlussName, query, limit))
+            when(beschlussService.searchInBeschluss(beschlussName, query, limit, SearchFilter.NONE))
                     .thenReturn(Collections.emptyList());
 
             // When
             List<BeschlussResult> results = beschlussSucheTool.inBeschlussSuchen(
-                    beschlussName, query, limit);
+                    beschlussName, query, limit, null, null, null, null, null).results();
 
             // Then
             assertThat(results).isEmpty();
@@ -227,14 +354,14 @@ class BeschlussSucheToolTest {
             // Given
             String beschlussName = "test";
             String query = "Test";
-            when(beschlussService.searchInBeschluss(eq(beschlussName), eq(query), eq(5)))
+            when(beschlussService.searchInBeschluss(eq(beschlussName), eq(query), eq(5), eq(SearchFilter.NONE)))
                     .thenReturn(Collections.emptyList());
 
             // When
-            beschlussSucheTool.inBeschlussSuchen(beschlussName, query, limit);
+            beschlussSucheTool.inBeschlussSuchen(beschlussName, query, limit, null, null, null, null, null);
 
             // Then
-            verify(beschlussService).searchInBeschluss(beschlussName, query, 5);
+            verify(beschlussService).searchInBeschluss(beschlussName, query, 5, SearchFilter.NONE);
         }
 
         @Test
@@ -245,14 +372,14 @@ class BeschlussSucheToolTest {
             String query = "Test";
             Integer limit = 100;
 
-            when(beschlussService.searchInBeschluss(eq(beschlussName), eq(query), eq(20)))
+            when(beschlussService.searchInBeschluss(eq(beschlussName), eq(query), eq(20), eq(SearchFilter.NONE)))
                     .thenReturn(Collections.emptyList());
 
             // When
-            beschlussSucheTool.inBeschlussSuchen(beschlussName, query, limit);
+            beschlussSucheTool.inBeschlussSuchen(beschlussName, query, limit, null, null, null, null, null);
 
             // Then
-            verify(beschlussService).searchInBeschluss(beschlussName, query, 20);
+            verify(beschlussService).searchInBeschluss(beschlussName, query, 20, SearchFilter.NONE);
         }
 
         @Test
@@ -263,12 +390,12 @@ class BeschlussSucheToolTest {
             String query = "Test";
             Integer limit = 5;
 
-            when(beschlussService.searchInBeschluss(beschlussName, query, limit))
+            when(beschlussService.searchInBeschluss(beschlussName, query, limit, SearchFilter.NONE))
                     .thenReturn(List.of(testBeschluss));
 
             // When
             List<BeschlussResult> results = beschlussSucheTool.inBeschlussSuchen(
-                    beschlussName, query, limit);
+                    beschlussName, query, limit, null, null, null, null, null).results();
 
             // Then
             assertThat(results).hasSize(1);
@@ -281,6 +408,363 @@ class BeschlussSucheToolTest {
         }
     }
 
+    @Nested
+    @DisplayName("Fortsetzung Tests")
+    class FortsetzungTests {
+
+        private List<Beschluss> page(int size) {
+            return IntStream.range(0, size).mapToObj(i -> {
+                Beschluss b = new Beschluss();
+                b.setId(UUID.randomUUID());
+                b.setCorpus(i % 2 == 0 ? "hamburg" : "bremen");
+                b.setContent("Abschnitt " + i);
+                return b;
+            }).toList();
+        }
+
+        @Test
+        @DisplayName("should return a continuation token when the page is full")
+        void shouldReturnTokenWhenPageIsFull() {
+            // Given
+            List<Beschluss> results = page(5);
+            when(beschlussService.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, SearchFilter.NONE)).thenReturn(results);
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null, null, null, null, null);
+
+            // Then
+            ContinuationToken token = ContinuationToken.decode(page.continuation());
+            assertThat(token.query()).isEqualTo("Klimaschutz");
+            assertThat(token.filename()).isNull();
+            assertThat(token.lastId()).isEqualTo(results.get(4).getId());
+            assertThat(token.lastCorpus()).isEqualTo(results.get(4).getCorpus());
+        }
+
+        @Test
+        @DisplayName("should not return a continuation token for the last page")
+        void shouldNotReturnTokenForLastPage() {
+            // Given
+            when(beschlussService.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, SearchFilter.NONE)).thenReturn(page(3));
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null, null, null, null, null);
+
+            // Then
+            assertThat(page.continuation()).isNull();
+        }
+
+        @Test
+        @DisplayName("should not return a continuation token for diversified results")
+        void shouldNotReturnTokenForDiversifiedResults() {
+            // Given
+            when(beschlussService.searchBeschluesse("Klimaschutz", 5, new Diversification(0.5, null), SearchFilter.NONE)).thenReturn(page(5));
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, 0.5, null, null, null, null, null, null, null, null);
+
+            // Then
+            assertThat(page.continuation()).isNull();
+        }
+
+        @Test
+        @DisplayName("should resume from the token without a new search")
+        void shouldResumeFromToken() {
+            // Given
+            ContinuationToken token = new ContinuationToken("Klimaschutz", null, UUID.randomUUID(), "hamburg");
+            List<Beschluss> next = page(5);
+            when(beschlussService.continueSearch(token, 5)).thenReturn(next);
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen(null, 5, null, null, null, null, null, token.encode(), null, null, null, null);
+
+            // Then
+            assertThat(page.results()).hasSize(5);
+            assertThat(ContinuationToken.decode(page.continuation()).lastId()).isEqualTo(next.get(4).getId());
+            verify(beschlussService, never()).searchBeschluesse(any(), anyInt(), any(), any());
+        }
+
+        @Test
+        @DisplayName("should keep the document filter in continuation tokens")
+        void shouldKeepDocumentFilterInToken() {
+            // Given
+            List<Beschluss> results = page(2);
+            when(beschlussService.searchInBeschluss("wahlprogramm", "Mieten", 2, SearchFilter.NONE)).thenReturn(results);
+
+            // When
+            SearchPage page = beschlussSucheTool.inBeschlussSuchen("wahlprogramm", "Mieten", 2, null, null, null, null, null);
+
+            // Then
+            ContinuationToken token = ContinuationToken.decode(page.continuation());
+            assertThat(token.filename()).isEqualTo("wahlprogramm");
+            assertThat(token.query()).isEqualTo("Mieten");
+        }
+
+        @Test
+        @DisplayName("should pass topic and date filters to the search and keep them in the token")
+        void shouldPassFiltersAndKeepThemInToken() {
+            // Given
+            SearchFilter filter = new SearchFilter(null, "Umwelt", LocalDate.of(2023, 1, 1), LocalDate.of(2024, 6, 30));
+            when(beschlussService.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, filter)).thenReturn(page(5));
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null,
+                    " Umwelt ", "2023-01-01", "2024-06-30", null);
+
+            // Then
+            ContinuationToken token = ContinuationToken.decode(page.continuation());
+            assertThat(token.filter()).isEqualTo(filter);
+            assertThat(token.query()).isEqualTo("Klimaschutz");
+        }
+
+        @Test
+        @DisplayName("should resume with the filters from the token")
+        void shouldResumeWithFiltersFromToken() {
+            // Given
+            ContinuationToken token = new ContinuationToken("Klimaschutz\nmit Umbruch", null, UUID.randomUUID(), "hamburg",
+                    new SearchFilter(null, "Umwelt", null, LocalDate.of(2024, 6, 30)));
+            when(beschlussService.continueSearch(token, 5)).thenReturn(page(5));
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen(null, 5, null, null, null, null, null, token.encode(),
+                    null, null, null, null);
+
+            // Then
+            assertThat(ContinuationToken.decode(page.continuation()).filter()).isEqualTo(token.filter());
+            assertThat(ContinuationToken.decode(token.encode())).isEqualTo(token);
+        }
+
+        @Test
+        @DisplayName("should restrict the search to a known corpus and keep it in the token")
+        void shouldRestrictToCorpus() {
+            // Given
+            SearchFilter filter = SearchFilter.corpus("hamburg");
+            when(beschlussService.searchBeschluesse("Klimaschutz", 5, Diversification.NONE, filter)).thenReturn(page(5));
+
+            // When
+            SearchPage page = beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null,
+                    null, null, null, " Hamburg ");
+
+            // Then
+            assertThat(ContinuationToken.decode(page.continuation()).filter()).isEqualTo(filter);
+        }
+
+        @Test
+        @DisplayName("should reject unknown corpora and name the available ones")
+        void shouldRejectUnknownCorpus() {
+            // When / Then
+            assertThatThrownBy(() -> beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null,
+                    null, null, null, "bremen"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Unbekannter Korpus: bremen (verfügbar: hamburg)");
+        }
+
+        @Test
+        @DisplayName("should keep line breaks and separators in every text field of the token")
+        void shouldRoundTripSeparatorsInAllTextFields() {
+            // Given
+            ContinuationToken token = new ContinuationToken("Klima\n3:schutz", "Antrag\n2024:\n", UUID.randomUUID(),
+                    "hamburg", new SearchFilter("hamburg", "Umwelt\n12:Energie", LocalDate.of(2023, 1, 1), null));
+
+            // When
+            ContinuationToken decoded = ContinuationToken.decode(token.encode());
+
+            // Then
+            assertThat(decoded).isEqualTo(token);
+        }
+
+        @Test
+        @DisplayName("should reject tokens of earlier formats and truncated tokens")
+        void shouldRejectLegacyAndTruncatedTokens() {
+            // Given
+            UUID lastId = UUID.randomUUID();
+            String v1 = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    ("v1\n" + lastId + "\n\nKlimaschutz").getBytes(StandardCharsets.UTF_8));
+            String encoded = new ContinuationToken("Klimaschutz", null, lastId, "hamburg").encode();
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String truncated = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    raw.substring(0, raw.length() - 3).getBytes(StandardCharsets.UTF_8));
+
+            // When / Then
+            for (String token : List.of(v1, truncated)) {
+                assertThatThrownBy(() -> beschlussSucheTool.beschluesseSuchen(null, 5, null, null, null, null, null, token,
+                        null, null, null, null))
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessage("Ungültiges Fortsetzungstoken");
+            }
+            verify(beschlussService, never()).continueSearch(any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("should reject malformed and reversed date ranges")
+        void shouldRejectInvalidDates() {
+            // When / Then
+            assertThatThrownBy(() -> beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null,
+                    null, "01.01.2024", null, null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("JJJJ-MM-TT");
+            assertThatThrownBy(() -> beschlussSucheTool.beschluesseSuchen("Klimaschutz", 5, null, null, null, null, null, null,
+                    null, "2024-02-01", "2024-01-01", null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("should reject malformed continuation tokens")
+        void shouldRejectMalformedTokens() {
+            // When / Then
+            assertThatThrownBy(() -> beschlussSucheTool.beschluesseSuchen(null, 5, null, null, null, null, null, "kaputt", null, null, null, null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Ungültiges Fortsetzungstoken");
+        }
+    }
+
+    @Nested
+    @DisplayName("Kompakt Tests")
+    class KompaktTests {
+
+        private Beschluss longChunk(String content) {
+            Beschluss b = new Beschluss();
+            b.setId(UUID.randomUUID());
+            b.setTitle("Langer Beschluss");
+            b.setFilename("lang.pdf");
+            b.setChunkIndex(0);
+            b.setContent(content);
+            return b;
+        }
+
+        @Test
+        @DisplayName("should return full content when kompakt is not set")
+        void shouldReturnFullContentWhenNotKompakt() {
+            // Given
+            String query = "Radverkehr";
+            Beschluss chunk = longChunk("Einleitung. ".repeat(100) + "Der Radverkehr wird ausgebaut.");
+            when(beschlussService.searchBeschluesse(query, 5, Diversification.NONE, SearchFilter.NONE)).thenReturn(List.of(chunk));
+
+            // When
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, 5, null, null, null, false, null, null, null, null, null, null).results();
+
+            // Then
+            assertThat(results.get(0).content()).isEqualTo(chunk.getContent());
+        }
+
+        @Test
+        @DisplayName("should return query-relevant sentences within the budget")
+        void shouldReturnRelevantSentencesWithinBudget() {
+            // Given
+            String query = "Radverkehr";
+            Beschluss chunk = longChunk("Einleitung zum Thema. ".repeat(100) + "Der Radverkehr wird ausgebaut. "
+                    + "Weitere Punkte folgen. ".repeat(100));
+            when(beschlussService.searchBeschluesse(query, 5, Diversification.NONE, SearchFilter.NONE)).thenReturn(List.of(chunk));
+
+            // When
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, 5, null, null, null, true, 200, null, null, null, null, null).results();
+
+            // Then
+            assertThat(results.get(0).content()).contains("Der Radverkehr wird ausgebaut.");
+            assertThat(results.get(0).content().length()).isLessThanOrEqualTo(210);
+            assertThat(results.get(0).id()).isEqualTo(chunk.getId());
+        }
+
+        @Test
+        @DisplayName("should share the budget across all results")
+        void shouldShareBudgetAcrossResults() {
+            // Given
+            String query = "Klimaschutz";
+            Beschluss first = longChunk("Klimaschutz ist wichtig. ".repeat(100));
+            Beschluss second = longChunk("Auch hier geht es um Klimaschutz. ".repeat(100));
+            when(beschlussService.searchBeschluesse(query, 5, Diversification.NONE, SearchFilter.NONE)).thenReturn(List.of(first, second));
+
+            // When
+            List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, 5, null, null, null, true, 1000, null, null, null, null, null).results();
+
+            // Then
+            int total = results.stream().mapToInt(r -> r.content().length()).sum();
+            assertThat(total).isLessThanOrEqualTo(1000);
+            assertThat(results).allSatisfy(r -> assertThat(r.content()).isNotEmpty());
+        }
+
+        @Test
+        @DisplayName("should keep the whole page within zeichenBudget, ellipses included")
+        void shouldKeepPageWithinBudget() {
+            // Given
+            String query = "Radverkehr";
+            List<Beschluss> chunks = IntStream.range(0, 5)
+                    .mapToObj(i -> longChunk("Einleitung Nummer " + i + ". " + "Füllsatz. ".repeat(40)
+                            + "Der Radverkehr wird ausgebaut. " + "Weitere Punkte folgen. ".repeat(40)))
+                    .toList();
+            when(beschlussService.searchBeschluesse(query, 5, Diversification.NONE, SearchFilter.NONE)).thenReturn(chunks);
+
+            for (int budget : new int[] {150, 333, 601, 1000}) {
+                // When
+                List<BeschlussResult> results = beschlussSucheTool.beschluesseSuchen(query, 5, null, null, null, true, budget,
+                        null, null, null, null, null).results();
+
+                // Then
+                int total = results.stream().mapToInt(r -> r.content().length()).sum();
+                assertThat(total).as("zeichenBudget %d", budget).isLessThanOrEqualTo(budget);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("abschnittLaden Tests")
+    class AbschnittLadenTests {
+
+        @Test
+        @DisplayName("should return full content by chunk id")
+        void shouldReturnFullContentById() {
+            // Given
+            when(beschlussService.findById(testBeschluss.getId(), null)).thenReturn(List.of(testBeschluss));
+
+            // When
+            BeschlussResult result = beschlussSucheTool.abschnittLaden(testBeschluss.getId().toString(), null);
+
+            // Then
+            assertThat(result.content()).isEqualTo(testBeschluss.getContent());
+            assertThat(result.id()).isEqualTo(testBeschluss.getId());
+        }
+
+        @Test
+        @DisplayName("should reject unknown chunk id")
+        void shouldRejectUnknownId() {
+            // Given
+            UUID id = UUID.randomUUID();
+            when(beschlussService.findById(id, null)).thenReturn(List.of());
+
+            // When / Then
+            assertThatThrownBy(() -> beschlussSucheTool.abschnittLaden(id.toString(), null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining(id.toString());
+        }
+
+        @Test
+        @DisplayName("should ask for the corpus when the chunk id occurs in several corpora")
+        void shouldRequireCorpusForAmbiguousId() {
+            // Given
+            Beschluss other = new Beschluss();
+            other.setId(testBeschluss.getId());
+            other.setCorpus("bremen");
+            testBeschluss.setCorpus("hamburg");
+            when(beschlussService.findById(testBeschluss.getId(), null)).thenReturn(List.of(other, testBeschluss));
+            when(beschlussService.findById(testBeschluss.getId(), "hamburg")).thenReturn(List.of(testBeschluss));
+
+            // When / Then
+            assertThatThrownBy(() -> beschlussSucheTool.abschnittLaden(testBeschluss.getId().toString(), null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("bremen, hamburg");
+            assertThat(beschlussSucheTool.abschnittLaden(testBeschluss.getId().toString(), "Hamburg").corpus())
+                    .isEqualTo("hamburg");
+        }
+
+        @Test
+        @DisplayName("should reject malformed chunk id")
+        void shouldRejectMalformedId() {
+            // When / Then
+            assertThatThrownBy(() -> beschlussSucheTool.abschnittLaden("keine-uuid", null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("keine-uuid");
+        }
+    }
+
     @Nested
     @DisplayName("beschluesseListen Tests")
     class BeschluesseListenTests {
@@ -297,7 +781,7 @@ class BeschlussSucheToolTest {
             when(beschlussService.getAllFilenames()).thenReturn(expectedFilenames);
 
             // When
-            List<String> filenames = beschlussSucheTool.beschluesseListen();
+            List<String> filenames = beschlussSucheTool.beschluesseListen(null);
 
             // Then
             assertThat(filenames).hasSize(3);
@@ -312,12 +796,27 @@ class BeschlussSucheToolTest {
             when(beschlussService.getAllFilenames()).thenReturn(Collections.emptyList());
 
             // When
-            List<String> filenames = beschlussSucheTool.beschluesseListen();
+            List<String> filenames = beschlussSucheTool.beschluesseListen(null);
 
             // Then
             assertThat(filenames).isEmpty();
         }
 
+        @Test
+        @DisplayName("should list only the documents of the given corpus")
+        void shouldListCorpus() {
+            // Given
+            when(beschlussService.getFilenames("hamburg")).thenReturn(List.of("wahlprogramm.pdf"));
+
+            // When
+            List<String> filenames = beschlussSucheTool.beschluesseListen("hamburg");
+
+            // Then
+            assertThat(filenames).containsExactly("wahlprogramm.pdf");
+            verify(beschlussService, never()).getAllFilenames();
+            assertThat(beschlussSucheTool.korporaListen()).containsExactly("hamburg");
+        }
+
         @Test
         @DisplayName("should return single filename")
         void shouldReturnSingleFilename() {
@@ -326,7 +825,7 @@ class BeschlussSucheToolTest {
             when(beschlussService.getAllFilenames()).thenReturn(expectedFilenames);
 
             // When
-            List<String> filenames = beschlussSucheTool.beschluesseListen();
+            List<String> filenames = beschlussSucheTool.beschluesseListen(null);
 
             // Then
             assertThat(filenames).hasSize(1);
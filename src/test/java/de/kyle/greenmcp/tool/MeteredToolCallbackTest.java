@@ -0,0 +1,70 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.service.SearchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link MeteredToolCallback}.
+ */
+@ExtendWith(MockitoExtension.class)
+class MeteredToolCallbackTest {
+
+    @Mock
+    private ToolCallback delegate;
+
+    private SimpleMeterRegistry registry;
+    private MeteredToolCallback callback;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        callback = new MeteredToolCallback(delegate, new SearchMetrics(registry).tool("beschluesseSuchen"));
+    }
+
+    @Test
+    @DisplayName("should time successful calls and record the response size in bytes")
+    void shouldRecordSuccessfulCall() {
+        String response = "{\"title\":\"Klimaschutz für Hamburg\"}";
+        when(delegate.call("{}")).thenReturn(response);
+
+        assertThat(callback.call("{}")).isEqualTo(response);
+
+        assertThat(registry.get(SearchMetrics.TOOL_TIMER).tags("tool", "beschluesseSuchen", "outcome", "success").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get(SearchMetrics.TOOL_PAYLOAD).tag("tool", "beschluesseSuchen").summary().totalAmount())
+            .isEqualTo(response.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    @DisplayName("should count failed calls separately and rethrow")
+    void shouldRecordFailedCall() {
+        when(delegate.call("{}")).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> callback.call("{}")).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get(SearchMetrics.TOOL_TIMER).tags("tool", "beschluesseSuchen", "outcome", "error").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get(SearchMetrics.TOOL_PAYLOAD).summary().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("should count UTF-8 bytes of umlauts and surrogate pairs")
+    void shouldCountUtf8Bytes() {
+        String text = "Grüne Maßnahmen 🌳";
+
+        assertThat(MeteredToolCallback.utf8Length(text)).isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+    }
+}
@@ -0,0 +1,73 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.service.ImportProgress;
+import de.kyle.greenmcp.service.LoadingStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.tool.ToolCallback;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ReadinessGatedToolCallback}.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReadinessGatedToolCallbackTest {
+
+    @Mock
+    private ToolCallback delegate;
+
+    private LoadingStatus loadingStatus;
+    private ImportProgress importProgress;
+    private ReadinessGatedToolCallback callback;
+
+    @BeforeEach
+    void setUp() {
+        loadingStatus = new LoadingStatus();
+        importProgress = new ImportProgress();
+        callback = new ReadinessGatedToolCallback(delegate, loadingStatus, importProgress);
+    }
+
+    @Test
+    @DisplayName("should answer with an index warming message and the import progress while importing")
+    void shouldRejectWhileImporting() {
+        // Given
+        loadingStatus.enter(LoadingStatus.Phase.IMPORTING);
+        importProgress.start();
+        importProgress.recordImported();
+        importProgress.recordImported();
+
+        // When / Then
+        assertThatThrownBy(() -> callback.call("{}"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Index wird aufgewärmt")
+            .hasMessageContaining("2 Abschnitte");
+        verify(delegate, never()).call(anyString());
+    }
+
+    @Test
+    @DisplayName("should report a failed import")
+    void shouldReportFailure() {
+        loadingStatus.fail(new IllegalStateException("embeddings.csv fehlt"));
+
+        assertThatThrownBy(() -> callback.call("{}")).hasMessageContaining("fehlgeschlagen").hasMessageContaining("embeddings.csv fehlt");
+    }
+
+    @Test
+    @DisplayName("should delegate once loading is done")
+    void shouldDelegateWhenReady() {
+        loadingStatus.ready();
+        when(delegate.call("{}")).thenReturn("[]");
+
+        assertThat(callback.call("{}")).isEqualTo("[]");
+    }
+}
@@ -0,0 +1,80 @@
+package de.kyle.greenmcp.tool;
+
+import de.kyle.greenmcp.config.ResultFragmentProperties;
+import de.kyle.greenmcp.dto.BeschlussResult;
+import de.kyle.greenmcp.dto.SearchPage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ResultFragmentCache}.
+ */
+class ResultFragmentCacheTest {
+
+    private final ResultFragmentCache cache = new ResultFragmentCache(new ResultFragmentProperties(true, 2));
+    private final DefaultToolCallResultConverter converter = new DefaultToolCallResultConverter();
+
+    @Test
+    @DisplayName("should assemble the same JSON as the default conversion")
+    void shouldMatchDefaultConversion() {
+        // Given
+        SearchPage page = new SearchPage(List.of(
+            result(UUID.randomUUID(), "Die Bürgerschaft \"beschließt\":\n\tRadwege – jetzt! 🚲"),
+            new BeschlussResult(null, null, null, null, null, "hamburg", null, null, UUID.randomUUID())), "dG9rZW4=");
+        SearchPage lastPage = new SearchPage(List.of(), null);
+
+        // Then
+        assertThat(cache.json(page)).isEqualTo(converter.convert(page, SearchPage.class));
+        assertThat(cache.json(page)).isEqualTo(converter.convert(page, SearchPage.class));
+        assertThat(cache.json(lastPage)).isEqualTo(converter.convert(lastPage, SearchPage.class));
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should reuse a fragment only for an equal result")
+    void shouldReuseFragmentOfEqualResult() {
+        // Given
+        UUID id = UUID.randomUUID();
+        cache.json(result(id, "Klimaschutz in Hamburg"));
+
+        // When
+        String same = cache.json(result(id, "Klimaschutz in Hamburg"));
+        String changed = cache.json(result(id, "Klimaschutz in Bremen"));
+
+        // Then
+        assertThat(same).contains("Klimaschutz in Hamburg");
+        assertThat(changed).contains("Klimaschutz in Bremen");
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should evict the least recently used fragment when full")
+    void shouldEvictLeastRecentlyUsed() {
+        // Given
+        BeschlussResult first = result(UUID.randomUUID(), "erster");
+        BeschlussResult second = result(UUID.randomUUID(), "zweiter");
+        cache.json(first);
+        cache.json(second);
+        cache.json(first);
+
+        // When
+        cache.json(result(UUID.randomUUID(), "dritter"));
+        cache.json(first);
+        cache.json(second);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+
+    private static BeschlussResult result(UUID id, String content) {
+        return new BeschlussResult("Beschluss", "Klimaschutz", content, "https://example.org/a.pdf", "a.pdf", "hamburg", 3, 3, id);
+    }
+}